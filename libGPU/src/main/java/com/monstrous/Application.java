@@ -19,11 +19,13 @@ package com.monstrous;
 import com.monstrous.graphics.webgpu.*;
 import com.monstrous.utils.JavaWebGPU;
 import com.monstrous.webgpu.*;
+import com.monstrous.graphics.ShaderCache;
 import com.monstrous.graphics.Texture;
 import com.monstrous.webgpu.WebGPU_JNI;
 import jnr.ffi.Pointer;
 import org.lwjgl.system.MemoryStack;
 
+import java.io.File;
 import java.nio.ByteBuffer;
 
 import static com.monstrous.utils.JavaWebGPU.createIntegerArrayPointer;
@@ -75,6 +77,11 @@ public class Application {
         LibGPU.device = device;
         LibGPU.queue = new Queue(device);
 
+        if(config.shaderCacheDirectory != null) {
+            LibGPU.shaderCache = new ShaderCache(new File(config.shaderCacheDirectory));
+            LibGPU.shaderCache.preload("ModelBatch");   // prepare shader variants on a background thread
+        }
+
         // pre-allocate some structures we'll use often
         surfaceTexture = WGPUSurfaceTexture.createDirect();
         viewDescriptor = WGPUTextureViewDescriptor.createDirect();
@@ -27,6 +27,7 @@ public class ApplicationConfiguration {
     public WGPUBackendType backend;
     public boolean enableGPUtiming;     // enable for GPU performance measurements
     public boolean noWindow;    // run without a window, e.g. for a compute shader app
+    public String shaderCacheDirectory;     // directory to cache preprocessed shaders and pipeline manifests, null to disable
 
     public ApplicationConfiguration() {
         // set to defaults
@@ -38,6 +39,7 @@ public class ApplicationConfiguration {
         backend = WGPUBackendType.D3D12;
         enableGPUtiming = false;
         noWindow = false;
+        shaderCacheDirectory = null;
     }
 
     public void setSize(int w, int h){
@@ -5,7 +5,12 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 
 public class FileHandle {
     public File file;
@@ -63,4 +68,30 @@ public class FileHandle {
         return allBytes;
     }
 
+    /** Returns the contents without copying them onto the Java heap. A file on disk is memory mapped (read-only),
+     * a resource that is not a file on disk (e.g. inside a jar) is streamed into a direct buffer. */
+    public ByteBuffer map(){
+        if(type == Files.FileType.Internal && file.exists()) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException ex) {
+                throw new RuntimeException("Error mapping file: " + file + " (" + type + ")", ex);
+            }
+        }
+        try (ReadableByteChannel channel = Channels.newChannel(read())) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            while (channel.read(buffer) >= 0) {
+                if (!buffer.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocateDirect(2 * buffer.capacity());
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+            }
+            buffer.flip();
+            return buffer;
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading file.", ex);
+        }
+    }
 }
@@ -8,6 +8,7 @@ public class Graphics {
     private int frames;
     private float deltaTime;
     private int fps;
+    private long frameId;
     public int passNumber;          // use this to keep track of nr of passes per frame, see Application and ModelBatch.
 
     public Graphics() {
@@ -34,9 +35,13 @@ public class Graphics {
 
     public int getFramesPerSecond(){ return fps; }
 
+    /** number of the current frame, increases by one for each frame */
+    public long getFrameId(){ return frameId; }
+
     public void update(float delta) {
 
         deltaTime = delta;
+        frameId++;
         if (System.nanoTime() - startTime > 1000000000) {   // one second passed?
             fps = frames;
             frames = 0;
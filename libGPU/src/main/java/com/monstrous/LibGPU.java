@@ -16,6 +16,7 @@
 
 package com.monstrous;
 
+import com.monstrous.graphics.ShaderCache;
 import com.monstrous.graphics.webgpu.Device;
 import com.monstrous.graphics.webgpu.Queue;
 import com.monstrous.webgpu.WGPUSupportedLimits;
@@ -38,4 +39,5 @@ public class LibGPU {
     public static Queue queue;
     //public static Pointer queue;
     public static Pointer commandEncoder;
+    public static ShaderCache shaderCache;      // null if not enabled, see ApplicationConfiguration.shaderCacheDirectory
 }
@@ -24,6 +24,14 @@ public class ShaderPrefix {
     private static StringBuffer sb = new StringBuffer();
 
     public static String buildPrefix(VertexAttributes vertexAttributes, Environment environment ){
+        return buildPrefix(vertexAttributes,
+                environment != null && !environment.depthPass && environment.renderShadows,
+                environment != null && environment.cubeMap != null,
+                environment != null && environment.useImageBasedLighting);
+    }
+
+    /** build prefix from the environment properties rather than the environment itself, e.g. for a pipeline specification restored from a manifest */
+    public static synchronized String buildPrefix(VertexAttributes vertexAttributes, boolean shadows, boolean cubeMap, boolean imageBasedLighting ){
         sb.setLength(0);
         if(vertexAttributes != null) {
             if (vertexAttributes.hasUsage(VertexAttribute.Usage.TEXTURE_COORDINATE)) {
@@ -42,13 +50,13 @@ public class ShaderPrefix {
                 sb.append("#define SKIN\n");
             }
         }
-        if (environment != null && !environment.depthPass && environment.renderShadows) {
+        if (shadows) {
             sb.append("#define SHADOWS\n");
         }
-        if (environment != null && environment.cubeMap != null) {
+        if (cubeMap) {
             sb.append("#define CUBEMAP\n");
         }
-        if (environment != null && environment.useImageBasedLighting) {
+        if (imageBasedLighting) {
             sb.append("#define USE_IBL\n");
         }
         return sb.toString();
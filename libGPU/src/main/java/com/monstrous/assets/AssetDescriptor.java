@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.assets;
+
+/** File name and type of an asset, e.g. to declare the dependencies of an asset. */
+public class AssetDescriptor<T> {
+    public final String fileName;
+    public final Class<T> type;
+
+    public AssetDescriptor(String fileName, Class<T> type) {
+        this.fileName = fileName;
+        this.type = type;
+    }
+
+    @Override
+    public String toString() {
+        return fileName + " (" + type.getSimpleName() + ")";
+    }
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.assets;
+
+import java.util.Collections;
+import java.util.List;
+
+/** Loads one type of asset for the AssetManager in two steps: decode() reads and decodes the file on a worker
+ * thread, upload() then creates the GPU resources on the render thread.
+ *
+ * @param <T> type of asset
+ * @param <D> decoded data that is passed from decode() to upload()
+ */
+public interface AssetLoader<T, D> {
+
+    /** Called on a worker thread: read and decode the file. Must not make any GPU calls. */
+    D decode(String fileName);
+
+    /** Called on the render thread after decode(): assets that have to be loaded before upload() is called.
+     * These are reference counted like any other asset and unloaded together with this asset. */
+    default List<AssetDescriptor<?>> getDependencies(String fileName, D data) {
+        return Collections.emptyList();
+    }
+
+    /** Called on the render thread once the dependencies are loaded: create the asset and its GPU resources. */
+    T upload(AssetManager manager, String fileName, D data);
+
+    /** Called on the render thread when the asset is no longer referenced, e.g. to dispose it. */
+    void unload(T asset);
+}
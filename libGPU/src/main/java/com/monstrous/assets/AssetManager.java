@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.assets;
+
+import com.monstrous.graphics.BitmapFont;
+import com.monstrous.graphics.Texture;
+import com.monstrous.graphics.g3d.Model;
+import com.monstrous.utils.Disposable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Loads assets in the background.
+ *
+ * File I/O and decoding (parsing, image decoding, mip map generation) are done on a pool of worker threads. Creating
+ * the GPU resources is done on the render thread in update(), which should be called once per frame and spends at most
+ * a given number of milliseconds on uploads. An asset is uploaded after the assets it depends on.
+ *
+ * Assets are reference counted: loading the same file twice returns the same asset and it is only unloaded once it has
+ * been unloaded as many times as it was loaded.
+ *
+ * If an asset fails to load, update() throws and the assets that depend on it fail as well. A failed asset keeps its
+ * references, so it still has to be unloaded, after which it can be loaded again.
+ *
+ * All methods must be called from the render thread.
+ */
+public class AssetManager implements Disposable {
+    public static int DEFAULT_UPLOAD_BUDGET = 4;    // milliseconds per update()
+
+    public int uploadsInLastUpdate;                 // stats
+
+    private enum State { DECODING, WAITING, LOADED, FAILED }
+
+    private static class Asset {
+        final String fileName;
+        final Class<?> type;
+        final AssetLoader<Object, Object> loader;
+        volatile State state = State.DECODING;
+        volatile boolean cancelled;
+        int refCount = 1;
+        Object data;            // result of decode(), set by the worker
+        Throwable error;        // set by the worker if decode() failed, or when the asset failed to upload
+        Object asset;
+        List<AssetDescriptor<?>> dependencies;
+
+        Asset(String fileName, Class<?> type, AssetLoader<Object, Object> loader) {
+            this.fileName = fileName;
+            this.type = type;
+            this.loader = loader;
+        }
+    }
+
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+    private final Map<Class<?>, AssetLoader<?, ?>> loaders = new HashMap<>();
+    private final Map<String, Asset> assets = new HashMap<>();
+    private final ConcurrentLinkedQueue<Asset> decoded = new ConcurrentLinkedQueue<>();  // filled by the workers
+    private final LinkedList<Asset> uploadQueue = new LinkedList<>();
+    private int pending;        // assets that are not loaded yet
+    private int requested;      // for progress, reset when all assets are loaded
+    private int finished;
+
+    /** Decodes on a pool of daemon threads, one less than the number of processors. */
+    public AssetManager() {
+        this(createWorkerPool(), true);
+    }
+
+    /** Decodes on the given executor, e.g. Runnable::run to decode directly in load(). */
+    public AssetManager(Executor executor) {
+        this(executor, false);
+    }
+
+    private AssetManager(Executor executor, boolean ownsExecutor) {
+        this.executor = executor;
+        this.ownExecutor = ownsExecutor ? (ExecutorService) executor : null;
+        setLoader(Texture.class, new TextureAssetLoader());
+        setLoader(Model.class, new ModelAssetLoader());
+        setLoader(BitmapFont.class, new BitmapFontAssetLoader());
+    }
+
+    private static ExecutorService createWorkerPool() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "AssetManager worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T> void setLoader(Class<T> type, AssetLoader<T, ?> loader) {
+        loaders.put(type, loader);
+    }
+
+    public void load(AssetDescriptor<?> descriptor) {
+        load(descriptor.fileName, descriptor.type);
+    }
+
+    /** Queue an asset for loading, or add a reference if it is already loaded or queued. */
+    @SuppressWarnings("unchecked")
+    public <T> void load(String fileName, Class<T> type) {
+        Asset entry = assets.get(fileName);
+        if(entry != null) {
+            if(entry.type != type)
+                throw new IllegalArgumentException("AssetManager: "+fileName+" is already loaded as "+entry.type.getSimpleName());
+            entry.refCount++;
+            return;
+        }
+        AssetLoader<Object, Object> loader = (AssetLoader<Object, Object>) loaders.get(type);
+        if(loader == null)
+            throw new IllegalArgumentException("AssetManager: no loader for type "+type.getSimpleName());
+
+        if(pending == 0) {      // start counting progress afresh
+            requested = 0;
+            finished = 0;
+        }
+        pending++;
+        requested++;
+
+        Asset asset = new Asset(fileName, type, loader);
+        assets.put(fileName, asset);
+        executor.execute(() -> {
+            if(asset.cancelled)
+                return;
+            try {
+                asset.data = loader.decode(fileName);
+            } catch (Throwable t) {
+                asset.error = t;
+            }
+            decoded.add(asset);
+        });
+    }
+
+    /** Process loaded assets for at most DEFAULT_UPLOAD_BUDGET milliseconds. Returns true when all assets are loaded. */
+    public boolean update() {
+        return update(DEFAULT_UPLOAD_BUDGET);
+    }
+
+    /** Process decoded assets and upload them. At least one asset is uploaded per call, if one is ready, and no new
+     * upload is started after the given number of milliseconds. Returns true when all assets are loaded.
+     * Throws a RuntimeException if an asset could not be decoded or uploaded. */
+    public boolean update(int millis) {
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        uploadsInLastUpdate = 0;
+
+        Asset asset;
+        while((asset = decoded.poll()) != null) {
+            if(asset.cancelled)
+                continue;
+            if(asset.error != null) {
+                fail(asset, asset.error);
+                throw new RuntimeException("AssetManager: could not load "+asset.fileName, asset.error);
+            }
+            asset.dependencies = asset.loader.getDependencies(asset.fileName, asset.data);
+            for(AssetDescriptor<?> dependency : asset.dependencies)
+                load(dependency);
+            asset.state = State.WAITING;
+            uploadQueue.add(asset);
+            Asset failed = failedDependency(asset);
+            if(failed != null)
+                fail(asset, new RuntimeException("AssetManager: dependency failed to load: "+failed.fileName, failed.error));
+        }
+
+        while(uploadsInLastUpdate == 0 || System.nanoTime() < deadline) {
+            asset = nextUpload();
+            if(asset == null)
+                break;
+            uploadQueue.remove(asset);
+            try {
+                asset.asset = asset.loader.upload(this, asset.fileName, asset.data);
+            } catch (Throwable t) {
+                fail(asset, t);
+                throw new RuntimeException("AssetManager: could not load "+asset.fileName, t);
+            }
+            asset.data = null;
+            asset.state = State.LOADED;
+            pending--;
+            finished++;
+            uploadsInLastUpdate++;
+        }
+        return isFinished();
+    }
+
+    // first queued asset of which all dependencies are loaded, or null
+    private Asset nextUpload() {
+        for(Asset asset : uploadQueue)
+            if(dependenciesLoaded(asset))
+                return asset;
+        return null;
+    }
+
+    private Asset failedDependency(Asset asset) {
+        for(AssetDescriptor<?> dependency : asset.dependencies) {
+            Asset entry = assets.get(dependency.fileName);
+            if(entry != null && entry.state == State.FAILED)
+                return entry;
+        }
+        return null;
+    }
+
+    // mark an asset that is being loaded as failed, together with the queued assets that depend on it
+    private void fail(Asset asset, Throwable error) {
+        asset.state = State.FAILED;
+        asset.error = error;
+        asset.data = null;
+        uploadQueue.remove(asset);
+        pending--;
+        requested--;
+
+        for(Asset other : new ArrayList<>(uploadQueue)) {
+            Asset failed = other.state == State.WAITING ? failedDependency(other) : null;
+            if(failed != null)
+                fail(other, new RuntimeException("AssetManager: dependency failed to load: "+failed.fileName, failed.error));
+        }
+    }
+
+    private boolean dependenciesLoaded(Asset asset) {
+        for(AssetDescriptor<?> dependency : asset.dependencies) {
+            Asset entry = assets.get(dependency.fileName);
+            if(entry == null || entry.state != State.LOADED)
+                return false;
+        }
+        return true;
+    }
+
+    /** Block until all queued assets are loaded. */
+    public void finishLoading() {
+        while(!update()) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("AssetManager: interrupted while loading", e);
+            }
+        }
+    }
+
+    public boolean isFinished() {
+        return pending == 0;
+    }
+
+    /** Fraction of the assets requested since the manager was last idle that have been loaded, from 0 to 1. */
+    public float getProgress() {
+        if(requested == 0)
+            return 1f;
+        return (float) finished / requested;
+    }
+
+    public boolean isLoaded(String fileName) {
+        Asset entry = assets.get(fileName);
+        return entry != null && entry.state == State.LOADED;
+    }
+
+    public <T> T get(String fileName, Class<T> type) {
+        Asset entry = assets.get(fileName);
+        if(entry != null && entry.state == State.FAILED)
+            throw new RuntimeException("AssetManager: could not load "+fileName, entry.error);
+        if(entry == null || entry.state != State.LOADED)
+            throw new RuntimeException("AssetManager: asset not loaded: "+fileName);
+        if(entry.type != type)
+            throw new IllegalArgumentException("AssetManager: "+fileName+" is loaded as "+entry.type.getSimpleName());
+        return type.cast(entry.asset);
+    }
+
+    public int getReferenceCount(String fileName) {
+        Asset entry = assets.get(fileName);
+        return entry == null ? 0 : entry.refCount;
+    }
+
+    /** Remove a reference to an asset. When there are none left, the asset is unloaded, or its loading is cancelled,
+     * and its dependencies are released. */
+    public void unload(String fileName) {
+        Asset entry = assets.get(fileName);
+        if(entry == null)
+            throw new IllegalArgumentException("AssetManager: asset not loaded: "+fileName);
+        if(--entry.refCount > 0)
+            return;
+        assets.remove(fileName);
+
+        switch (entry.state) {
+            case LOADED:
+                entry.loader.unload(entry.asset);
+                entry.asset = null;
+                break;
+            case WAITING:
+                uploadQueue.remove(entry);
+                entry.data = null;
+                pending--;
+                requested--;
+                break;
+            case DECODING:
+                entry.cancelled = true;
+                pending--;
+                requested--;
+                break;
+            case FAILED:
+                break;
+        }
+        if(entry.dependencies != null)
+            for(AssetDescriptor<?> dependency : entry.dependencies)
+                if(assets.containsKey(dependency.fileName))     // may already be unloaded by dispose()
+                    unload(dependency.fileName);
+    }
+
+    /** Unload all assets, regardless of their reference count. */
+    @Override
+    public void dispose() {
+        for(String fileName : new ArrayList<>(assets.keySet())) {
+            Asset entry = assets.get(fileName);
+            if(entry == null)       // already unloaded as a dependency
+                continue;
+            entry.refCount = 1;
+            unload(fileName);
+        }
+        decoded.clear();
+        if(ownExecutor != null)
+            ownExecutor.shutdownNow();
+    }
+}
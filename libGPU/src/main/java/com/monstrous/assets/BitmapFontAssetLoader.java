@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.assets;
+
+import com.monstrous.graphics.BitmapFont;
+import com.monstrous.graphics.TextureData;
+
+/** The font file is parsed and its page images are decoded on a worker thread, only the page textures are created on the render thread. */
+public class BitmapFontAssetLoader implements AssetLoader<BitmapFont, BitmapFontAssetLoader.FontData> {
+
+    /** parsed font with the decoded images of its pages */
+    public static class FontData {
+        final BitmapFont font;
+        final TextureData[] pages;
+
+        FontData(BitmapFont font, TextureData[] pages) {
+            this.font = font;
+            this.pages = pages;
+        }
+    }
+
+    @Override
+    public FontData decode(String fileName) {
+        BitmapFont font = new BitmapFont(fileName);
+        TextureData[] pages = new TextureData[font.getNumPages()];
+        for(int page = 0; page < pages.length; page++)
+            pages[page] = font.decodePage(page);
+        return new FontData(font, pages);
+    }
+
+    @Override
+    public BitmapFont upload(AssetManager manager, String fileName, FontData data) {
+        for(int page = 0; page < data.pages.length; page++)
+            data.font.setPageTexture(page, data.pages[page]);
+        return data.font;
+    }
+
+    @Override
+    public void unload(BitmapFont font) {
+        font.dispose();
+    }
+}
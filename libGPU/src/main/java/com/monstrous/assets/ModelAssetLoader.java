@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.assets;
+
+import com.monstrous.graphics.g3d.Model;
+import com.monstrous.graphics.loaders.ModelLoader;
+
+/** Parses the model file, decodes its images and builds the mesh data on a worker thread (see ModelLoader.prepare()).
+ * The meshes, textures and materials are created on the render thread. */
+public class ModelAssetLoader implements AssetLoader<Model, ModelLoader> {
+
+    @Override
+    public ModelLoader decode(String fileName) {
+        ModelLoader loader = Model.createLoader(fileName);
+        loader.prepare(fileName);
+        return loader;
+    }
+
+    @Override
+    public Model upload(AssetManager manager, String fileName, ModelLoader loader) {
+        return new Model(fileName, loader);
+    }
+
+    @Override
+    public void unload(Model model) {
+        model.dispose();
+    }
+}
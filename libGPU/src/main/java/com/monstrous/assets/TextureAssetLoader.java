@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.assets;
+
+import com.monstrous.FileHandle;
+import com.monstrous.Files;
+import com.monstrous.graphics.Texture;
+import com.monstrous.graphics.TextureData;
+
+/** Decodes the image file and generates the mip levels on a worker thread, only the upload is done on the render thread. */
+public class TextureAssetLoader implements AssetLoader<Texture, TextureData> {
+    private final boolean mipMapping;
+
+    public TextureAssetLoader() {
+        this(true);
+    }
+
+    public TextureAssetLoader(boolean mipMapping) {
+        this.mipMapping = mipMapping;
+    }
+
+    @Override
+    public TextureData decode(String fileName) {
+        FileHandle file = Files.internal(fileName);
+        return TextureData.decode(file.readAllBytes(), file.file.getName(), mipMapping);
+    }
+
+    @Override
+    public Texture upload(AssetManager manager, String fileName, TextureData data) {
+        return new Texture(data);
+    }
+
+    @Override
+    public void unload(Texture texture) {
+        texture.dispose();
+    }
+}
@@ -18,28 +18,44 @@ package com.monstrous.graphics;
 
 import com.monstrous.FileHandle;
 import com.monstrous.Files;
+import com.monstrous.LibGPU;
 import com.monstrous.graphics.g2d.SpriteBatch;
 import com.monstrous.utils.Disposable;
+import com.monstrous.utils.IntMap;
+import com.monstrous.utils.LongIntMap;
 
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.File;
+import java.util.ArrayList;
 
+/** Font from a BMFont (.fnt) file with one or more texture pages.
+ *
+ * Characters are Unicode code points. Page textures are loaded on first use, unless they were created in advance with
+ * setPageTexture() (the AssetManager decodes the pages on a worker thread). setMaxResidentPages() limits how many
+ * stay in memory for fonts with many pages (e.g. CJK): the least recently used page is then disposed when another page is needed.
+ * A page that was used in the current frame is never disposed.
+ */
 public class BitmapFont implements Disposable {
 
-    public static final int MAX_CHARS = 256;
+    public static final int MAX_CHARS = 256;        // initial capacity of the glyph map
 
     public FileHandle fontFileHandle;
-    public String textureFilePath;
-    public Texture fontTexture;
-    public Map<Integer, Glyph> glyphMap;
+    public String textureFilePath;                  // file name of the first page
+    public IntMap<Glyph> glyphMap;
     private int charsCount;
     private int lineHeight;
     private int base;
     private Glyph fallbackGlyph;
     public boolean disableKerning = false;
-    private Map<Integer, Integer> kerningMap = new HashMap<>();
+    private final LongIntMap kerningMap = new LongIntMap();
     private float scaleX, scaleY;
+    private int pageWidth, pageHeight;              // scaleW and scaleH from the fnt file
+    private final ArrayList<String> pageFiles = new ArrayList<>();
+    private Texture[] pages;                        // null for pages that are not loaded
+    private long[] pageLastUsed;                    // frame id of last use per page
+    private int numResidentPages;
+    private int maxResidentPages = Integer.MAX_VALUE;
+    public int pagesLoaded;                         // statistics
+    public int pagesEvicted;
 
 
     public class Glyph {
@@ -49,7 +65,7 @@ public class BitmapFont implements Disposable {
         int xadvance;
         int page;
         int chnl;
-        TextureRegion region;
+        float u, v, u2, v2;
     }
 
     public BitmapFont(){
@@ -63,59 +79,158 @@ public class BitmapFont implements Disposable {
     public BitmapFont(FileHandle fntFileHandle) {
 
         this.fontFileHandle = fntFileHandle;
-        glyphMap = new HashMap<>();
+        glyphMap = new IntMap<>(MAX_CHARS);
         parseFontFile(fntFileHandle);
+        pages = new Texture[pageFiles.size()];
+        pageLastUsed = new long[pageFiles.size()];
+        if(fallbackGlyph == null)       // font has no glyph 0, use '?' for missing characters
+            fallbackGlyph = glyphMap.get('?');
         setScale(1f);
     }
 
-    public void draw(SpriteBatch batch, String text, float x, float y){
-        byte[] ascii = text.getBytes(StandardCharsets.US_ASCII);
+    /** draw text with its top left corner at (x,y). For text that does not change every frame, prefer draw(batch, layout, x, y). */
+    public void draw(SpriteBatch batch, CharSequence text, float x, float y){
         float gx = x;
-        for(int i = 0; i < ascii.length; i++){
-            byte k = ascii[i];
-            Glyph glyph = glyphMap.get((int)k);
-            if(glyph == null)
-                glyph = fallbackGlyph;
-            batch.draw(glyph.region, gx+glyph.xoffset*scaleX, y - (glyph.h+glyph.yoffset)*scaleY, glyph.w*scaleX, glyph.h*scaleY);
+        int len = text.length();
+        for(int i = 0; i < len; ){
+            int ch = Character.codePointAt(text, i);
+            i += Character.charCount(ch);
+            Glyph glyph = getGlyph(ch);
+            if(glyph.w > 0 && glyph.h > 0)
+                batch.draw(getPageTexture(glyph.page), gx+glyph.xoffset*scaleX, y - (glyph.h+glyph.yoffset)*scaleY, glyph.w*scaleX, glyph.h*scaleY,
+                        glyph.u, glyph.v, glyph.u2, glyph.v2);
             gx += glyph.xadvance*scaleX;
-            if(i < ascii.length-1) {
-                byte nextCh = ascii[i + 1];
-                gx += getKerning(glyph.id, nextCh)*scaleX;
-            }
+            if(i < len)
+                gx += getKerning(glyph.id, Character.codePointAt(text, i))*scaleX;
         }
     }
 
-    public float width(String text){
-        byte[] ascii = text.getBytes(StandardCharsets.US_ASCII);
+    /** draw a layout with its top left corner at (x,y). The layout must have been created with this font. */
+    public void draw(SpriteBatch batch, GlyphLayout layout, float x, float y){
+        float[] data = layout.glyphData;
+        for(int i = 0, offset = 0; i < layout.glyphCount; i++, offset += GlyphLayout.GLYPH_SIZE)
+            batch.draw(getPageTexture(layout.glyphPages[i]), x + data[offset], y + data[offset+1], data[offset+2], data[offset+3],
+                    data[offset+4], data[offset+5], data[offset+6], data[offset+7]);
+    }
+
+    public float width(CharSequence text){
+        return width(text, 0, text.length());
+    }
+
+    /** width of the characters from start (inclusive) to end (exclusive), as char indices */
+    public float width(CharSequence text, int start, int end){
         float gx = 0;
-        for(int i = 0; i < ascii.length; i++){
-            byte k = ascii[i];
-            Glyph glyph = glyphMap.get((int)k);
-            if(glyph == null)
-                glyph = fallbackGlyph;
+        for(int i = start; i < end; ){
+            int ch = Character.codePointAt(text, i);
+            i += Character.charCount(ch);
+            Glyph glyph = getGlyph(ch);
             gx += glyph.xadvance*scaleX;
-            if(i < ascii.length-1) {
-                byte nextCh = ascii[i + 1];
-                gx += getKerning(glyph.id, nextCh)*scaleX;
-            }
+            if(i < end)
+                gx += getKerning(glyph.id, Character.codePointAt(text, i))*scaleX;
         }
         return gx;
     }
 
+    /** texture of a page, loaded on first use */
+    public Texture getPageTexture(int page){
+        long frameId = LibGPU.graphics.getFrameId();
+        pageLastUsed[page] = frameId;
+        Texture texture = pages[page];
+        if(texture == null){
+            if(numResidentPages >= maxResidentPages)
+                evictPage(frameId);
+            texture = new Texture(pageFileHandle(page), false);
+            checkPageSize(page, texture.getWidth(), texture.getHeight());
+            addPage(page, texture);
+        }
+        return texture;
+    }
+
+    /** decode the image of a page without creating its texture, e.g. on a loader thread. Makes no GPU calls. */
+    public TextureData decodePage(int page){
+        FileHandle file = pageFileHandle(page);
+        TextureData data = TextureData.decode(file.readAllBytes(), file.file.getName(), false);
+        checkPageSize(page, data.width, data.height);
+        return data;
+    }
+
+    /** create the texture of a page from an image from decodePage(), so that it is not loaded on first use.
+     * Does nothing if the page is already loaded. */
+    public void setPageTexture(int page, TextureData data){
+        if(pages[page] != null)
+            return;
+        if(numResidentPages >= maxResidentPages)
+            evictPage(LibGPU.graphics.getFrameId());
+        addPage(page, new Texture(data));
+    }
+
+    private void addPage(int page, Texture texture){
+        pages[page] = texture;
+        numResidentPages++;
+        pagesLoaded++;
+    }
+
+    private void checkPageSize(int page, int width, int height){
+        if(width != pageWidth || height != pageHeight)
+            throw new RuntimeException("BitmapFont: size of page "+pageFiles.get(page)+" does not match scaleW and scaleH");
+    }
+
+    public int getNumPages(){
+        return pages.length;
+    }
+
+    /** limit the number of page textures kept in memory */
+    public void setMaxResidentPages(int maxResidentPages){
+        if(maxResidentPages < 1)
+            throw new IllegalArgumentException("BitmapFont: maxResidentPages must be at least 1");
+        this.maxResidentPages = maxResidentPages;
+        while(numResidentPages > maxResidentPages && evictPage(LibGPU.graphics.getFrameId()))
+            ;
+    }
+
+    // dispose the least recently used page that was not used in this frame, returns false if there is none
+    private boolean evictPage(long frameId){
+        int lru = -1;
+        for(int page = 0; page < pages.length; page++){
+            if(pages[page] != null && pageLastUsed[page] < frameId && (lru < 0 || pageLastUsed[page] < pageLastUsed[lru]))
+                lru = page;
+        }
+        if(lru < 0)
+            return false;   // all pages are in use, allow to go over the limit for now
+        pages[lru].dispose();
+        pages[lru] = null;
+        numResidentPages--;
+        pagesEvicted++;
+        return true;
+    }
+
+    private FileHandle pageFileHandle(int page){
+        File directory = fontFileHandle.file.getParentFile();
+        return new FileHandle(new File(directory, pageFiles.get(page)), fontFileHandle.type);
+    }
+
+    /** returns the glyph for a character, or the fallback glyph if the font does not have it */
+    Glyph getGlyph(int ch){
+        Glyph glyph = glyphMap.get(ch);
+        return glyph == null ? fallbackGlyph : glyph;
+    }
+
     private void setKerning(int first, int second, int amount){
-        int key = (first << 16)| second;
-        kerningMap.put(key, amount);
+        kerningMap.put(((long)first << 32) | second, amount);
     }
 
-    private int getKerning(int first, int second){
+    int getKerning(int first, int second){
         if(disableKerning)
             return 0;
-        int key = (first << 16)| second;
-        Integer amount = kerningMap.get(key);
-        if(amount == null)
-            return 0;
-        //System.out.println("kerning: "+(char)id+(char)ch + id+" "+ch+" : "+amount);
-        return amount;
+        return kerningMap.get(((long)first << 32) | second, 0);
+    }
+
+    public float getScaleX(){
+        return scaleX;
+    }
+
+    public float getScaleY(){
+        return scaleY;
     }
 
     public void setScale(float sx, float sy){
@@ -138,9 +253,8 @@ public class BitmapFont implements Disposable {
         if(fileData == null)
             throw new RuntimeException("Font file not found: "+fileHandle.file.getPath());
 
-        String filePath = fileHandle.file.getPath();
-        int slash = filePath.lastIndexOf('\\');
-        String path = filePath.substring(0, slash + 1);
+        String path = fileHandle.file.getPath();
+        ArrayList<Glyph> glyphs = new ArrayList<>();
 
         String[] lines = fileData.split("\n");
 
@@ -153,9 +267,12 @@ public class BitmapFont implements Disposable {
                 String[] words = trimmed.split("\"");
                 if(words.length < 2)
                     throw new RuntimeException("Invalid page line in fnt file "+path);
-                textureFilePath = words[1];
-                FileHandle handle = Files.internal(path+textureFilePath);
-                fontTexture = new Texture(handle, false);
+                int id = Integer.parseInt(words[0].replaceAll("[^0-9]", ""));
+                while(pageFiles.size() <= id)
+                    pageFiles.add(null);
+                pageFiles.set(id, words[1]);
+                if(id == 0)
+                    textureFilePath = words[1];
             } else if(trimmed.startsWith("chars count")){
                 // chars count=168
                 String[] words = trimmed.split("=");
@@ -172,6 +289,10 @@ public class BitmapFont implements Disposable {
                         lineHeight = Integer.parseInt(vars[1]);
                     else if (vars[0].contentEquals("base"))
                         base = Integer.parseInt(vars[1]);
+                    else if (vars[0].contentEquals("scaleW"))
+                        pageWidth = Integer.parseInt(vars[1]);
+                    else if (vars[0].contentEquals("scaleH"))
+                        pageHeight = Integer.parseInt(vars[1]);
                 }
             } else if(trimmed.startsWith("kerning ")) {
                 // kerning first=86 second=58 amount=-1
@@ -219,24 +340,36 @@ public class BitmapFont implements Disposable {
                     else if (vars[0].contentEquals("chnl"))
                         glyph.chnl = Integer.parseInt(vars[1]);
                 }
-                if(glyph.page != 0)
-                    throw new RuntimeException("BitmapFont: multi-page not supported");
-
-                //char id=65 x=80 y=33 width=11 height=13 xoffset=-1 yoffset=2 xadvance=9 page=0 chnl=0
-                glyph.region = new TextureRegion(fontTexture,
-                            glyph.x,  glyph.y, glyph.w, glyph.h);
-
+                glyphs.add(glyph);
                 glyphMap.put(glyph.id, glyph);
                 if(glyph.id == 0)
                     fallbackGlyph = glyph;
 
             }
         }
+        if(pageFiles.isEmpty() || pageFiles.contains(null))
+            throw new RuntimeException("BitmapFont: missing page in fnt file "+path);
+        if(pageWidth <= 0 || pageHeight <= 0)
+            throw new RuntimeException("BitmapFont: missing scaleW or scaleH in fnt file "+path);
 
+        // texture coordinates are computed from the page size, so that pages can be loaded later
+        for(Glyph glyph : glyphs){
+            if(glyph.page < 0 || glyph.page >= pageFiles.size())
+                throw new RuntimeException("BitmapFont: invalid page "+glyph.page+" for char "+glyph.id+" in fnt file "+path);
+            glyph.u = glyph.x / (float)pageWidth;
+            glyph.v = (glyph.y + glyph.h) / (float)pageHeight;
+            glyph.u2 = (glyph.x + glyph.w) / (float)pageWidth;
+            glyph.v2 = glyph.y / (float)pageHeight;
+        }
     }
 
     @Override
     public void dispose() {
-        fontTexture.dispose();
+        for(int page = 0; page < pages.length; page++){
+            if(pages[page] != null)
+                pages[page].dispose();
+            pages[page] = null;
+        }
+        numResidentPages = 0;
     }
 }
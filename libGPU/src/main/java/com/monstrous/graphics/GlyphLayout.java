@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.graphics;
+
+import java.util.Arrays;
+
+/** Positions of the glyphs of a text, computed once by setText() and drawn with BitmapFont.draw(batch, layout, x, y).
+ *
+ * Supports multiple lines ('\n'), word wrapping to a target width and horizontal alignment of each line.
+ * Text is read as Unicode code points. Glyphs refer to font pages rather than textures, so the font may unload pages in the meantime.
+ * The layout uses the font scale at the time of setText(). Reuse the layout object when the text changes, it keeps its arrays.
+ */
+public class GlyphLayout {
+    public static final int ALIGN_LEFT = 0;
+    public static final int ALIGN_CENTER = 1;
+    public static final int ALIGN_RIGHT = 2;
+
+    static final int GLYPH_SIZE = 8;          // x, y, w, h, u, v, u2, v2
+
+    public float width;         // width of the widest line
+    public float height;        // number of lines times line height
+    public int numLines;
+
+    int glyphCount;
+    float[] glyphData = new float[16 * GLYPH_SIZE];   // position relative to top left of the layout and texture coordinates per glyph
+    int[] glyphPages = new int[16];                    // font page per glyph
+
+    public GlyphLayout() {
+    }
+
+    public GlyphLayout(BitmapFont font, CharSequence text) {
+        setText(font, text);
+    }
+
+    public void setText(BitmapFont font, CharSequence text) {
+        setText(font, text, 0, ALIGN_LEFT, false);
+    }
+
+    /**
+     * @param targetWidth   width used for alignment and wrapping
+     * @param align         ALIGN_LEFT, ALIGN_CENTER or ALIGN_RIGHT
+     * @param wrap          break lines at spaces to keep them within targetWidth
+     */
+    public void setText(BitmapFont font, CharSequence text, float targetWidth, int align, boolean wrap) {
+        glyphCount = 0;
+        numLines = 0;
+        width = 0;
+        int len = text.length();
+        int start = 0;
+        for (int i = 0; i <= len; i++) {
+            if (i == len || text.charAt(i) == '\n') {
+                addParagraph(font, text, start, i, targetWidth, align, wrap);
+                start = i + 1;
+            }
+        }
+        height = numLines * font.getLineHeight();
+    }
+
+    // lay out the text between start and end, which contains no newlines
+    private void addParagraph(BitmapFont font, CharSequence text, int start, int end, float targetWidth, int align, boolean wrap) {
+        int lineStart = start;
+        int lastSpace = -1;
+        float x = 0;
+        for (int i = start; i < end; ) {
+            int ch = Character.codePointAt(text, i);
+            BitmapFont.Glyph glyph = font.getGlyph(ch);
+            float advance = glyph.xadvance * font.getScaleX();
+            if (wrap && ch != ' ' && x + advance > targetWidth && lastSpace > lineStart) {
+                // break at the last space and continue with the word after it
+                addLine(font, text, lineStart, lastSpace, targetWidth, align);
+                lineStart = lastSpace + 1;
+                lastSpace = -1;
+                x = font.width(text, lineStart, i);
+            }
+            if (ch == ' ')
+                lastSpace = i;
+            x += advance;
+            i += Character.charCount(ch);
+            if (i < end)
+                x += font.getKerning(glyph.id, Character.codePointAt(text, i)) * font.getScaleX();
+        }
+        addLine(font, text, lineStart, end, targetWidth, align);
+    }
+
+    private void addLine(BitmapFont font, CharSequence text, int start, int end, float targetWidth, int align) {
+        float scaleX = font.getScaleX();
+        float scaleY = font.getScaleY();
+        float lineWidth = font.width(text, start, end);
+        width = Math.max(width, lineWidth);
+
+        float x = 0;
+        if (align == ALIGN_CENTER)
+            x = (targetWidth - lineWidth) / 2f;
+        else if (align == ALIGN_RIGHT)
+            x = targetWidth - lineWidth;
+        float y = -numLines * font.getLineHeight();
+        numLines++;
+
+        for (int i = start; i < end; ) {
+            int ch = Character.codePointAt(text, i);
+            i += Character.charCount(ch);
+            BitmapFont.Glyph glyph = font.getGlyph(ch);
+            if (glyph.w > 0 && glyph.h > 0) {       // e.g. space has nothing to draw
+                ensureCapacity(glyphCount + 1);
+                int offset = glyphCount * GLYPH_SIZE;
+                glyphData[offset] = x + glyph.xoffset * scaleX;
+                glyphData[offset + 1] = y - (glyph.h + glyph.yoffset) * scaleY;
+                glyphData[offset + 2] = glyph.w * scaleX;
+                glyphData[offset + 3] = glyph.h * scaleY;
+                glyphData[offset + 4] = glyph.u;
+                glyphData[offset + 5] = glyph.v;
+                glyphData[offset + 6] = glyph.u2;
+                glyphData[offset + 7] = glyph.v2;
+                glyphPages[glyphCount] = glyph.page;
+                glyphCount++;
+            }
+            x += glyph.xadvance * scaleX;
+            if (i < end)
+                x += font.getKerning(glyph.id, Character.codePointAt(text, i)) * scaleX;
+        }
+    }
+
+    private void ensureCapacity(int count) {
+        if (count <= glyphPages.length)
+            return;
+        int capacity = Math.max(count, 2 * glyphPages.length);
+        glyphPages = Arrays.copyOf(glyphPages, capacity);
+        glyphData = Arrays.copyOf(glyphData, capacity * GLYPH_SIZE);
+    }
+
+    /** number of glyphs to draw, excluding spaces */
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    public void reset() {
+        glyphCount = 0;
+        numLines = 0;
+        width = 0;
+        height = 0;
+    }
+}
@@ -21,9 +21,14 @@ import com.monstrous.graphics.webgpu.*;
 import com.monstrous.utils.Disposable;
 import com.monstrous.webgpu.*;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 
 public class Material implements Disposable {
     private static final int MATERIAL_UB_SIZE = 8 * Float.BYTES;
+    private static final AtomicInteger nextSortId = new AtomicInteger();
+
+    public final int sortId = nextSortId.getAndIncrement();      // unique number, used in render sort keys
 
     public Color baseColor;
     public Texture diffuseTexture;
@@ -34,6 +39,7 @@ public class Material implements Disposable {
     public boolean hasNormalMap;
     public float metallicFactor = 0.0f;
     public float roughnessFactor = 0.5f;
+    public boolean translucent;     // rendered after the opaque materials, back to front. Set this for textures with transparency.
 
     private static Texture whitePixel;  // fallback texture
     private static Texture blackPixel;  // fallback texture
@@ -49,12 +55,18 @@ public class Material implements Disposable {
         System.out.println("Loading material: "+materialData.name);
 
         baseColor = new Color(materialData.diffuse);
-        if(materialData.diffuseMapData == null)
+        translucent = baseColor.a < 1f;
+        if(materialData.diffuseMap != null)
+            this.diffuseTexture = new Texture(materialData.diffuseMap);
+        else if(materialData.diffuseMapData == null)
             this.diffuseTexture = getDefaultWhiteTexture();
         else
             this.diffuseTexture = new Texture(materialData.diffuseMapData, materialData.name+".diffuse", useMipMapping);
 
-        if( materialData.normalMapData != null) {
+        if( materialData.normalMap != null) {
+            this.normalTexture = new Texture(materialData.normalMap);
+            hasNormalMap = true;
+        } else if( materialData.normalMapData != null) {
             this.normalTexture = new Texture(materialData.normalMapData, materialData.name+".normal", useMipMapping);
             hasNormalMap = true;
         } else {
@@ -62,7 +74,9 @@ public class Material implements Disposable {
             hasNormalMap = false;
         }
 
-        if( materialData.emissiveMapData != null)
+        if( materialData.emissiveMap != null)
+            this.emissiveTexture = new Texture(materialData.emissiveMap);
+        else if( materialData.emissiveMapData != null)
             this.emissiveTexture = new Texture(materialData.emissiveMapData, materialData.name+".emissive", useMipMapping);
         else
             this.emissiveTexture = getDefaultBlackTexture();    // no emissive colour
@@ -74,7 +88,9 @@ public class Material implements Disposable {
         if(metallicFactor < 0)  // not provided
             metallicFactor = 1f; // default
 
-        if( materialData.metallicRoughnessMapData != null)
+        if( materialData.metallicRoughnessMap != null)
+            this.metallicRoughnessTexture = new Texture(materialData.metallicRoughnessMap);
+        else if( materialData.metallicRoughnessMapData != null)
             this.metallicRoughnessTexture = new Texture(materialData.metallicRoughnessMapData, materialData.name+".MR", useMipMapping);
         else
             this.metallicRoughnessTexture = getDefaultWhiteTexture();
@@ -96,6 +112,7 @@ public class Material implements Disposable {
 
     public Material(Color baseColor) {
         this.baseColor = new Color(baseColor);
+        translucent = baseColor.a < 1f;
         this.diffuseTexture = getDefaultWhiteTexture();
         this.normalTexture = getDefaultBlackTexture();
         hasNormalMap = false;
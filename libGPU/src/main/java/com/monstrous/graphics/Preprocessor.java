@@ -23,7 +23,7 @@ public class Preprocessor {
 
     private static final Map<String,String> defineMap = new HashMap<>();
 
-    public static String process(String input){
+    public static synchronized String process(String input){
         defineMap.clear();
         StringBuffer output = new StringBuffer();
         int nestDepth = 0;
@@ -1,5 +1,6 @@
 package com.monstrous.graphics;
 
+import com.monstrous.graphics.g3d.BoundingBox;
 import com.monstrous.graphics.g3d.MeshPart;
 import com.monstrous.graphics.g3d.Model;
 import com.monstrous.graphics.g3d.ModelInstance;
@@ -8,8 +9,10 @@ import com.monstrous.math.Matrix4;
 public class Renderable {
     public MeshPart meshPart;
     public Material material;
-    public Matrix4 modelTransform;
+    public final Matrix4 modelTransform = new Matrix4();      // owned by the renderable, so that it can be reused
     public ModelInstance modelInstance; // for skinning TMP?
+    public final BoundingBox worldBounds = new BoundingBox();     // mesh part bounds in world space, set by ModelBatch for culling
+    public long sortKey;            // draw order key, set by ModelBatch
 
     public Renderable(){
     }
@@ -17,14 +20,14 @@ public class Renderable {
     public Renderable(MeshPart meshPart, Material material, Matrix4 modelTransform, ModelInstance modelInstance) {
         this.meshPart = meshPart;
         this.material = material;
-        this.modelTransform = new Matrix4(modelTransform);  // need a copy because it may be changed
+        this.modelTransform.set(modelTransform);  // need a copy because it may be changed
         this.modelInstance = modelInstance;
     }
 
     public void set(MeshPart meshPart, Material material, Matrix4 modelTransform, ModelInstance modelInstance) {
         this.meshPart = meshPart;
         this.material = material;
-        this.modelTransform = new Matrix4(modelTransform);  // need a copy because it may be changed
+        this.modelTransform.set(modelTransform);  // need a copy because it may be changed
         this.modelInstance = modelInstance;
     }
 }
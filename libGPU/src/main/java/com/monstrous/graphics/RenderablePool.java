@@ -3,6 +3,7 @@ package com.monstrous.graphics;
 import java.util.ArrayList;
 
 // pool to allow reuse of Renderables with having to allocate/free them
+// the free renderables are kept on a stack, so that obtain() and free() take constant time
 //
 public class RenderablePool {
     private final ArrayList<Renderable> pool;
@@ -18,14 +19,19 @@ public class RenderablePool {
     public Renderable obtain(){
         if(pool.isEmpty())
             return new Renderable();
-        Renderable renderable = pool.remove(0);
+        Renderable renderable = pool.remove(pool.size()-1);
         renderable.material = null;
-        renderable.modelTransform = null;
         renderable.meshPart = null;
+        renderable.modelInstance = null;
         return renderable;
     }
 
     public void free(Renderable renderable){
         pool.add(renderable);
     }
+
+    /** number of free renderables in the pool */
+    public int size(){
+        return pool.size();
+    }
 }
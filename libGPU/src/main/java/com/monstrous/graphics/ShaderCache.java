@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.graphics;
+
+import com.monstrous.Files;
+import com.monstrous.ShaderPrefix;
+import com.monstrous.graphics.webgpu.PipelineManifest;
+import com.monstrous.graphics.webgpu.PipelineSpecification;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** On-disk cache of preprocessed shader sources and of the pipeline manifests.
+ *
+ * Each shader variant (prefix + source) is preprocessed once and stored under a content hash, so that later runs
+ * can skip the preprocessor. The pipeline manifests record which pipeline specifications were used so that the
+ * pipelines can be created at start-up instead of on the first draw call.
+ * See ApplicationConfiguration.shaderCacheDirectory.
+ */
+public class ShaderCache {
+    private final File directory;
+    private final Map<String, String> processedSources;     // content hash -> preprocessed source
+    private final Map<String, PipelineManifest> manifests;
+    private Thread preloadThread;
+
+    // statistics
+    public int hits;
+    public int misses;
+
+    public ShaderCache(File directory) {
+        this.directory = directory;
+        if(!directory.exists() && !directory.mkdirs())
+            throw new RuntimeException("ShaderCache: cannot create directory "+directory);
+        processedSources = new ConcurrentHashMap<>();
+        manifests = new HashMap<>();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /** returns the preprocessed version of the shader source, from the cache if possible. */
+    public String process(String shaderSource) {
+        String key = contentHash(shaderSource);
+        String processed = processedSources.get(key);
+        if(processed == null) {
+            // computeIfAbsent makes sure a variant is read or preprocessed only once, also while preload() is running
+            boolean[] loaded = new boolean[1];
+            processed = processedSources.computeIfAbsent(key, k -> {
+                loaded[0] = true;
+                return load(k, shaderSource);
+            });
+            if(loaded[0])
+                return processed;
+        }
+        synchronized (this) {
+            hits++;
+        }
+        return processed;
+    }
+
+    // read the variant from disk or preprocess it and write it to disk
+    private String load(String key, String shaderSource) {
+        File file = new File(directory, key + ".wgsl");
+        if(file.exists()) {
+            try {
+                String processed = new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                synchronized (this) {
+                    hits++;
+                }
+                return processed;
+            } catch (IOException e) {
+                // just treat as a miss
+            }
+        }
+        synchronized (this) {
+            misses++;
+        }
+        String processed = Preprocessor.process(shaderSource);
+        write(file, processed);
+        return processed;
+    }
+
+    /** get the pipeline manifest with the given name, e.g. "ModelBatch". It is loaded from disk on first use. */
+    public synchronized PipelineManifest getManifest(String name) {
+        PipelineManifest manifest = manifests.get(name);
+        if(manifest == null) {
+            manifest = new PipelineManifest(new File(directory, name + ".manifest"));
+            manifest.load();
+            manifests.put(name, manifest);
+        }
+        return manifest;
+    }
+
+    /** Preprocess the shader variants of all the pipelines in the manifest on a background thread.
+     * Only the CPU-side work is done here; the pipelines are still created on the render thread (see Pipelines.warmUp()).
+     */
+    public void preload(String manifestName) {
+        PipelineManifest manifest = getManifest(manifestName);
+        preloadThread = new Thread(() -> {
+            for (PipelineSpecification spec : manifest.getSpecifications()) {
+                try {
+                    String prefix = ShaderPrefix.buildPrefix(spec.vertexAttributes, spec.hasShadows(), spec.hasCubeMap(), spec.usesImageBasedLighting());
+                    process(prefix + Files.classpath(spec.shaderFilePath).readString());
+                } catch (RuntimeException e) {
+                    System.out.println("ShaderCache: cannot preload " + spec.shaderFilePath + ": " + e.getMessage());
+                }
+            }
+        }, "Shader cache preload");
+        preloadThread.setDaemon(true);
+        preloadThread.start();
+    }
+
+    /** wait for preloading to finish */
+    public void finishPreload() {
+        if(preloadThread == null)
+            return;
+        try {
+            preloadThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        preloadThread = null;
+    }
+
+    /** remove all cached shader sources and manifests from disk. */
+    public synchronized void clear() {
+        processedSources.clear();
+        for(PipelineManifest manifest : manifests.values())
+            manifest.clear();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".wgsl") || name.endsWith(".manifest"));
+        if(files != null) {
+            for (File file : files)
+                file.delete();
+        }
+    }
+
+    // write to a temporary file first, so that a partly written file is never read back
+    private void write(File file, String content) {
+        Path tmp = null;
+        try {
+            tmp = java.nio.file.Files.createTempFile(directory.toPath(), file.getName(), ".tmp");
+            java.nio.file.Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+            java.nio.file.Files.move(tmp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.out.println("ShaderCache: cannot write " + file + ": " + e.getMessage());
+            if(tmp != null)
+                tmp.toFile().delete();
+        }
+    }
+
+    /** hex string of the SHA-256 hash of the content */
+    public static String contentHash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash)
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("ShaderCache: SHA-256 not available", e);
+        }
+    }
+}
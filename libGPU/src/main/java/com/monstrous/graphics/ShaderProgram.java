@@ -47,7 +47,11 @@ public class ShaderProgram implements Disposable {
     private void compile(String name, String shaderSource){
         this.name = name;
 
-        String processedSource = Preprocessor.process(shaderSource);
+        String processedSource;
+        if(LibGPU.shaderCache != null)
+            processedSource = LibGPU.shaderCache.process(shaderSource);
+        else
+            processedSource = Preprocessor.process(shaderSource);
 
         // Create Shader Module
         WGPUShaderModuleDescriptor shaderDesc = WGPUShaderModuleDescriptor.createDirect();
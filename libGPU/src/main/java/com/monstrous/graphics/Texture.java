@@ -101,6 +101,25 @@ public class Texture implements Disposable {
         loadFileData(byteArray, name, mipMapping);
     }
 
+    /** upload an image that was decoded in advance, e.g. on a loader thread */
+    public Texture(TextureData data) {
+        this.width = data.width;
+        this.height = data.height;
+        format = WGPUTextureFormat.RGBA8Unorm;
+        mipLevelCount = data.mipLevels.length;
+        numSamples = 1;
+        int textureUsage = WGPUTextureUsage.TextureBinding | WGPUTextureUsage.CopyDst;
+        create( data.name, mipLevelCount, textureUsage, format, 1, numSamples, null);
+
+        int mipLevelWidth = width;
+        int mipLevelHeight = height;
+        for(int mipLevel = 0; mipLevel < mipLevelCount; mipLevel++) {
+            loadMipLevel(JavaWebGPU.createByteArrayPointer(data.mipLevels[mipLevel]), mipLevelWidth, mipLevelHeight, 0, mipLevel);
+            mipLevelWidth /= 2;
+            mipLevelHeight /= 2;
+        }
+    }
+
     public void loadFileData(byte[] byteArray, String name, boolean mipMapping) {
         Pointer data = JavaWebGPU.createByteArrayPointer(byteArray);
         image = JavaWebGPU.getUtils().gdx2d_load(data, byteArray.length);        // use native function to parse image file
@@ -469,36 +488,15 @@ public class Texture implements Disposable {
         byte[] prevPixels = null;
         for(int mipLevel = 0; mipLevel < mipLevelCount; mipLevel++) {
 
-            byte[] pixels = new byte[4 * mipLevelWidth * mipLevelHeight];
-
+            byte[] pixels;
             if(mipLevel == 0){
                 // fast copy for most common case: mip level 0
+                pixels = new byte[4 * mipLevelWidth * mipLevelHeight];
                 pixelPtr.get(0, pixels, 0, numComponents * mipLevelWidth * mipLevelHeight);
             }
             else {
                 // todo with compute shader
-                int offset = 0;
-                for (int y = 0; y < mipLevelHeight; y++) {
-                    for (int x = 0; x < mipLevelWidth; x++) {
-
-                        // Get the corresponding 4 pixels from the previous level
-                        int offset00 = 4 * ((2 * y + 0) * (2 * mipLevelWidth) + (2 * x + 0));
-                        int offset01 = 4 * ((2 * y + 0) * (2 * mipLevelWidth) + (2 * x + 1));
-                        int offset10 = 4 * ((2 * y + 1) * (2 * mipLevelWidth) + (2 * x + 0));
-                        int offset11 = 4 * ((2 * y + 1) * (2 * mipLevelWidth) + (2 * x + 1));
-
-                        // Average r, g and b components
-                        // beware that java bytes are signed. So we convert to integer first
-                        int r = toUnsignedInt(prevPixels[offset00]) + toUnsignedInt(prevPixels[offset01]) + toUnsignedInt(prevPixels[offset10]) + toUnsignedInt(prevPixels[offset11]);
-                        int g = toUnsignedInt(prevPixels[offset00 + 1]) + toUnsignedInt(prevPixels[offset01 + 1]) + toUnsignedInt(prevPixels[offset10 + 1]) + toUnsignedInt(prevPixels[offset11 + 1]);
-                        int b = toUnsignedInt(prevPixels[offset00 + 2]) + toUnsignedInt(prevPixels[offset01 + 2]) + toUnsignedInt(prevPixels[offset10 + 2]) + toUnsignedInt(prevPixels[offset11 + 2]);
-                        int a = toUnsignedInt(prevPixels[offset00 + 3]) + toUnsignedInt(prevPixels[offset01 + 3]) + toUnsignedInt(prevPixels[offset10 + 3]) + toUnsignedInt(prevPixels[offset11 + 3]);
-                        pixels[offset++] = (byte) (r >> 2);    // divide by 4
-                        pixels[offset++] = (byte) (g >> 2);
-                        pixels[offset++] = (byte) (b >> 2);
-                        pixels[offset++] = (byte) (a >> 2);  // alpha
-                    }
-                }
+                pixels = TextureData.downsample(prevPixels, mipLevelWidth, mipLevelHeight);
             }
 
 
@@ -618,10 +616,6 @@ public class Texture implements Disposable {
     }
 
 
-    private static int toUnsignedInt(byte x) {
-        return ((int) x) & 0xff;
-    }
-
     public static int numComponents(WGPUTextureFormat format ){
         int n = 4;
         switch(format) {
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.graphics;
+
+import com.monstrous.utils.JavaWebGPU;
+import jnr.ffi.Pointer;
+
+/** Decoded RGBA8 image with its mip levels. It is created without any GPU calls, so it can be prepared on a loader
+ * thread, after which Texture(TextureData) only has to upload the pixels.
+ */
+public class TextureData {
+    public final String name;
+    public final int width;
+    public final int height;
+    public final byte[][] mipLevels;        // RGBA pixels per mip level, level 0 is the full size image
+
+    /** @param pixels RGBA pixels, 4 bytes per pixel */
+    public TextureData(String name, int width, int height, byte[] pixels, boolean mipMapping) {
+        if(pixels.length != 4*width*height) throw new IllegalArgumentException("TextureData: pixel array is wrong size.");
+        this.name = name;
+        this.width = width;
+        this.height = height;
+
+        int levels = mipMapping ? mipLevelCount(width, height) : 1;
+        mipLevels = new byte[levels][];
+        mipLevels[0] = pixels;
+        int levelWidth = width;
+        int levelHeight = height;
+        for(int level = 1; level < levels; level++) {
+            levelWidth /= 2;
+            levelHeight /= 2;
+            mipLevels[level] = downsample(mipLevels[level-1], levelWidth, levelHeight);
+        }
+    }
+
+    /** Decode an image file, e.g. a PNG. fileData contains the full file content, i.e. including the file header. */
+    public static TextureData decode(byte[] fileData, String name, boolean mipMapping) {
+        Pointer data = JavaWebGPU.createByteArrayPointer(fileData);
+        Pointer image = JavaWebGPU.getUtils().gdx2d_load(data, fileData.length);        // use native function to parse image file, converts to RGBA
+        PixmapInfo info = PixmapInfo.createAt(image);
+        int width = info.width.intValue();
+        int height = info.height.intValue();
+        byte[] pixels = new byte[4 * width * height];
+        info.pixels.get().get(0, pixels, 0, pixels.length);
+        JavaWebGPU.getUtils().gdx2d_free(image);
+        return new TextureData(name, width, height, pixels, mipMapping);
+    }
+
+    /** same number of levels as Texture uses for mip mapping */
+    public static int mipLevelCount(int width, int height) {
+        int levels = 0;
+        int size = Math.max(width, height);
+        while ((size >>= 1) > 0)
+            levels++;
+        return Math.max(1, levels);
+    }
+
+    /** Average each block of 2x2 pixels of the previous level into a level of width x height pixels. */
+    public static byte[] downsample(byte[] prevPixels, int width, int height) {
+        byte[] pixels = new byte[4 * width * height];
+        int offset = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // Get the corresponding 4 pixels from the previous level
+                int offset00 = 4 * ((2 * y + 0) * (2 * width) + (2 * x + 0));
+                int offset01 = 4 * ((2 * y + 0) * (2 * width) + (2 * x + 1));
+                int offset10 = 4 * ((2 * y + 1) * (2 * width) + (2 * x + 0));
+                int offset11 = 4 * ((2 * y + 1) * (2 * width) + (2 * x + 1));
+
+                // Average r, g, b and a components, java bytes are signed so convert to integer first
+                for(int c = 0; c < 4; c++) {
+                    int sum = (prevPixels[offset00 + c] & 0xff) + (prevPixels[offset01 + c] & 0xff)
+                            + (prevPixels[offset10 + c] & 0xff) + (prevPixels[offset11 + c] & 0xff);
+                    pixels[offset++] = (byte) (sum >> 2);    // divide by 4
+                }
+            }
+        }
+        return pixels;
+    }
+}
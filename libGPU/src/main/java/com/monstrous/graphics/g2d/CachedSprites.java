@@ -0,0 +1,237 @@
+package com.monstrous.graphics.g2d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/** Vertex data of the caches of a SpriteCache, without the GPU side.
+ *
+ * All caches share one vertex array, each cache has a fixed range of it. Within a cache the sprites are grouped per texture,
+ * in the order the textures were first added, so that a cache is drawn with one draw call per texture.
+ *
+ * Every cache keeps the range of sprites that changed since the last upload. upload() copies only those ranges into a
+ * staging buffer that is reused for all uploads.
+ *
+ * @param <T> texture type
+ */
+public class CachedSprites<T> {
+
+    public final static int VERTEX_FLOATS = 5;        // x, y, rgba, u, v
+    public final static int SPRITE_FLOATS = 4 * VERTEX_FLOATS;
+    public final static int SPRITE_BYTES = SPRITE_FLOATS * Float.BYTES;
+
+    /** receives the changed vertex data, offset is in bytes from the start of the vertex data of all caches */
+    public interface Uploader {
+        void write(int offset, ByteBuffer data, int size);
+    }
+
+    private static class Cache<T> {
+        int offset;             // first sprite in the vertex data
+        int capacity;           // in sprites
+        int count;
+        ArrayList<T> textures = new ArrayList<>();  // one group of sprites per texture
+        int[] groupCounts;
+        int[] slots;            // position within the cache of each sprite, in the order they were added
+        int dirtyStart, dirtyEnd;   // range of sprites to upload, empty if dirtyStart >= dirtyEnd
+    }
+
+    private final int size;
+    private final float[] vertices;             // vertex data of all caches
+    private final ArrayList<Cache<T>> caches = new ArrayList<>();
+    private int used;                           // sprites in use by the caches
+    private ByteBuffer staging;                 // changed sprites on their way to the GPU
+    private FloatBuffer stagingData;
+
+    // cache under construction
+    private Cache<T> current;
+    private float[] pending = new float[64 * SPRITE_FLOATS];
+    private ArrayList<T> pendingTextures = new ArrayList<>();
+    private int[] group = new int[64];
+
+    /** @param size    maximum number of sprites over all caches */
+    public CachedSprites(int size) {
+        if(size <= 0)
+            throw new IllegalArgumentException("SpriteCache: size must be positive.");
+        this.size = size;
+        vertices = new float[size * SPRITE_FLOATS];
+        allocateStaging(Math.min(size, 64));
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /** start a new cache */
+    public void beginCache() {
+        if(current != null)
+            throw new RuntimeException("SpriteCache: endCache() must be called before beginCache().");
+        current = new Cache<>();
+        current.offset = used;
+        pendingTextures.clear();
+    }
+
+    /** redefine an existing cache, it can hold at most as many sprites as when it was first defined */
+    public void beginCache(int cacheId) {
+        if(current != null)
+            throw new RuntimeException("SpriteCache: endCache() must be called before beginCache().");
+        current = caches.get(cacheId);
+        pendingTextures.clear();
+    }
+
+    /** @return id of the cache */
+    public int endCache() {
+        if(current == null)
+            throw new RuntimeException("SpriteCache: beginCache() must be called before endCache().");
+        Cache<T> cache = current;
+        current = null;
+        int numPending = pendingTextures.size();
+        int cacheId = caches.indexOf(cache);
+        if(cacheId < 0) {
+            if(cache.offset + numPending > size)
+                throw new RuntimeException("SpriteCache: out of space, size is "+size+" sprites.");
+            cache.capacity = numPending;
+            used += numPending;
+            caches.add(cache);
+            cacheId = caches.size()-1;
+        }
+        else if(numPending > cache.capacity)
+            throw new RuntimeException("SpriteCache: cache "+cacheId+" can hold at most "+cache.capacity+" sprites.");
+
+        groupPerTexture(cache);
+        cache.dirtyStart = 0;
+        cache.dirtyEnd = cache.count;
+        return cacheId;
+    }
+
+    // sort the pending sprites by texture into the vertex data of the cache
+    private void groupPerTexture(Cache<T> cache) {
+        int numPending = pendingTextures.size();
+        ArrayList<T> textures = cache.textures;
+        textures.clear();
+        int[] counts = new int[8];
+        for(int i = 0; i < numPending; i++){
+            int index = textures.indexOf(pendingTextures.get(i));
+            if(index < 0) {
+                index = textures.size();
+                textures.add(pendingTextures.get(i));
+                if(index == counts.length)
+                    counts = Arrays.copyOf(counts, 2 * counts.length);
+            }
+            group[i] = index;
+            counts[index]++;
+        }
+        int numGroups = textures.size();
+        int[] next = new int[numGroups];
+        for(int g = 1; g < numGroups; g++)
+            next[g] = next[g-1] + counts[g-1];
+
+        cache.count = numPending;
+        cache.groupCounts = Arrays.copyOf(counts, numGroups);
+        cache.slots = new int[numPending];
+        for(int i = 0; i < numPending; i++){
+            int slot = next[group[i]]++;
+            cache.slots[i] = slot;
+            System.arraycopy(pending, i * SPRITE_FLOATS, vertices, (cache.offset + slot) * SPRITE_FLOATS, SPRITE_FLOATS);
+        }
+        pendingTextures.clear();
+    }
+
+    /** add a sprite to the cache under construction from 20 floats: x, y, packed colour, u, v for each corner */
+    public void add(T texture, float[] sprite) {
+        if(current == null)
+            throw new RuntimeException("SpriteCache: beginCache() must be called before add().");
+        int numPending = pendingTextures.size();
+        if(numPending == group.length) {
+            group = Arrays.copyOf(group, 2 * numPending);
+            pending = Arrays.copyOf(pending, 2 * numPending * SPRITE_FLOATS);
+        }
+        System.arraycopy(sprite, 0, pending, numPending * SPRITE_FLOATS, SPRITE_FLOATS);
+        pendingTextures.add(texture);
+    }
+
+    /** change a sprite of a cache from 20 floats, index is the order in which it was added. The texture stays the same. */
+    public void set(int cacheId, int index, float[] sprite) {
+        Cache<T> cache = caches.get(cacheId);
+        if(index < 0 || index >= cache.count)
+            throw new IllegalArgumentException("SpriteCache: no sprite "+index+" in cache.");
+        int slot = cache.slots[index];
+        System.arraycopy(sprite, 0, vertices, (cache.offset + slot) * SPRITE_FLOATS, SPRITE_FLOATS);
+        if(cache.dirtyStart >= cache.dirtyEnd) {
+            cache.dirtyStart = slot;
+            cache.dirtyEnd = slot + 1;
+        }
+        else {
+            cache.dirtyStart = Math.min(cache.dirtyStart, slot);
+            cache.dirtyEnd = Math.max(cache.dirtyEnd, slot + 1);
+        }
+    }
+
+    /** remove all caches */
+    public void clear() {
+        if(current != null)
+            throw new RuntimeException("SpriteCache: endCache() must be called before clear().");
+        caches.clear();
+        used = 0;
+    }
+
+    /** pass the changed sprites of all caches to the uploader, afterwards no sprites are changed.
+     * @return number of bytes uploaded */
+    public int upload(Uploader uploader) {
+        int bytes = 0;
+        for(int i = 0; i < caches.size(); i++){
+            Cache<T> cache = caches.get(i);
+            if(cache.dirtyStart >= cache.dirtyEnd)
+                continue;
+            int numSprites = cache.dirtyEnd - cache.dirtyStart;
+            if(numSprites * SPRITE_BYTES > staging.capacity())
+                allocateStaging(Math.min(Math.max(numSprites, 2 * staging.capacity() / SPRITE_BYTES), size));
+            stagingData.clear();
+            stagingData.put(vertices, (cache.offset + cache.dirtyStart) * SPRITE_FLOATS, numSprites * SPRITE_FLOATS);
+            uploader.write((cache.offset + cache.dirtyStart) * SPRITE_BYTES, staging, numSprites * SPRITE_BYTES);
+            bytes += numSprites * SPRITE_BYTES;
+            cache.dirtyStart = cache.dirtyEnd = 0;
+        }
+        return bytes;
+    }
+
+    private void allocateStaging(int numSprites) {
+        staging = ByteBuffer.allocateDirect(numSprites * SPRITE_BYTES);
+        staging.order(ByteOrder.nativeOrder());  // important
+        stagingData = staging.asFloatBuffer();
+    }
+
+    /** true between beginCache() and endCache() */
+    public boolean isBuilding() {
+        return current != null;
+    }
+
+    public int getNumCaches() {
+        return caches.size();
+    }
+
+    /** first sprite of the cache in the vertex data of all caches */
+    public int getOffset(int cacheId) {
+        return caches.get(cacheId).offset;
+    }
+
+    /** number of sprites in the cache */
+    public int getCount(int cacheId) {
+        return caches.get(cacheId).count;
+    }
+
+    /** number of textures, i.e. groups of sprites, of the cache */
+    public int getNumGroups(int cacheId) {
+        return caches.get(cacheId).textures.size();
+    }
+
+    public T getTexture(int cacheId, int group) {
+        return caches.get(cacheId).textures.get(group);
+    }
+
+    /** number of sprites of a group, the groups follow each other in the vertex data of the cache */
+    public int getGroupCount(int cacheId, int group) {
+        return caches.get(cacheId).groupCounts[group];
+    }
+}
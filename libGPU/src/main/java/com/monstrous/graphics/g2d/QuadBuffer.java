@@ -0,0 +1,166 @@
+package com.monstrous.graphics.g2d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+
+/** GPU vertex and index buffers for batches of quads, as used by SpriteBatch.
+ *
+ * The vertex buffer is used as a ring per frame: each upload is appended after the previous one, so that all batches of a frame,
+ * also from different render passes, keep their own data until the frame is submitted. The next frame starts again at the front.
+ * If a frame needs more space the vertex buffer is replaced by one of twice the size.
+ *
+ * The index buffer holds two triangles per quad and is regenerated when a batch has more quads than it covers.
+ * It uses 16-bit indices up to 16K quads and 32-bit indices beyond that.
+ *
+ * Replaced buffers may still be used by draw calls of the current frame, so they are only released at the start of the next frame.
+ *
+ * @param <B> buffer type of the backend
+ */
+public class QuadBuffer<B> {
+
+    /** creates, fills and releases the actual buffers */
+    public interface Backend<B> {
+        B createVertexBuffer(int size);
+        B createIndexBuffer(int size);
+        void write(B buffer, int offset, ByteBuffer data, int size);
+        void release(B buffer);
+    }
+
+    public final static int MAX_QUADS_16BIT = 16384;        // 4 vertices per quad, 65536 vertices
+
+    private final Backend<B> backend;
+    private B vertexBuffer;
+    private int vertexCapacity;         // in bytes
+    private int vertexOffset;           // in bytes
+    private B indexBuffer;
+    private int indexCapacity;          // in quads
+    private boolean uint32;
+    private final ArrayList<B> retired = new ArrayList<>();
+    private long frameId = -1;
+
+    public int bytesUploaded;           // vertex and index data uploaded in the current frame
+    public int numGrows;                // number of times a buffer was replaced by a larger one
+
+    /**
+     * @param backend           buffer backend
+     * @param vertexCapacity    initial size of the vertex buffer in bytes
+     * @param quadCapacity      initial number of quads covered by the index buffer
+     */
+    public QuadBuffer(Backend<B> backend, int vertexCapacity, int quadCapacity) {
+        if(vertexCapacity <= 0 || quadCapacity <= 0)
+            throw new IllegalArgumentException("QuadBuffer: capacity must be positive.");
+        this.backend = backend;
+        this.vertexCapacity = vertexCapacity;
+        vertexBuffer = backend.createVertexBuffer(vertexCapacity);
+        createIndexBuffer(quadCapacity);
+    }
+
+    /** call at the start of each batch, the ring restarts when the frame id has changed */
+    public void beginFrame(long frameId) {
+        if(frameId == this.frameId)
+            return;
+        this.frameId = frameId;
+        vertexOffset = 0;
+        bytesUploaded = 0;
+        // previous frame has been submitted, so replaced buffers are no longer in use
+        for(int i = 0; i < retired.size(); i++)
+            backend.release(retired.get(i));
+        retired.clear();
+    }
+
+    /** make sure the index buffer covers at least this number of quads */
+    public void reserveQuads(int numQuads) {
+        if(numQuads <= indexCapacity)
+            return;
+        retired.add(indexBuffer);
+        numGrows++;
+        createIndexBuffer(Math.max(numQuads, 2 * indexCapacity));
+    }
+
+    /** upload vertex data from the start of the byte buffer.
+     * @return offset in bytes of the data in the vertex buffer */
+    public int upload(ByteBuffer data, int size) {
+        if(vertexOffset + size > vertexCapacity) {
+            // earlier batches of this frame still refer to the old buffer
+            retired.add(vertexBuffer);
+            numGrows++;
+            vertexCapacity = Math.max(2 * vertexCapacity, size);
+            vertexBuffer = backend.createVertexBuffer(vertexCapacity);
+            vertexOffset = 0;
+        }
+        int offset = vertexOffset;
+        backend.write(vertexBuffer, offset, data, size);
+        vertexOffset += size;
+        bytesUploaded += size;
+        return offset;
+    }
+
+    public B getVertexBuffer() {
+        return vertexBuffer;
+    }
+
+    public int getVertexCapacity() {
+        return vertexCapacity;
+    }
+
+    public B getIndexBuffer() {
+        return indexBuffer;
+    }
+
+    /** number of quads covered by the index buffer */
+    public int getQuadCapacity() {
+        return indexCapacity;
+    }
+
+    /** true if the index buffer uses 32-bit indices, false for 16-bit indices */
+    public boolean isUint32() {
+        return uint32;
+    }
+
+    /** size in bytes of the indices for a number of quads */
+    public int getIndexSize(int numQuads) {
+        return numQuads * 6 * (uint32 ? Integer.BYTES : Short.BYTES);
+    }
+
+    public void dispose() {
+        beginFrame(frameId+1);      // releases retired buffers
+        backend.release(vertexBuffer);
+        backend.release(indexBuffer);
+        vertexBuffer = null;
+        indexBuffer = null;
+    }
+
+    // the index buffer is fixed and only has to be filled when it is created
+    private void createIndexBuffer(int numQuads) {
+        indexCapacity = numQuads;
+        uint32 = numQuads > MAX_QUADS_16BIT;
+        int size = getIndexSize(numQuads);
+        size = (size + 3) & ~3; // round up to the next multiple of 4
+
+        ByteBuffer bb = ByteBuffer.allocateDirect(size);
+        bb.order(ByteOrder.nativeOrder());  // important
+        for(int i = 0; i < numQuads; i++){
+            int vertexOffset = i * 4;
+            // two triangles per quad
+            putIndex(bb, vertexOffset);
+            putIndex(bb, vertexOffset + 1);
+            putIndex(bb, vertexOffset + 2);
+
+            putIndex(bb, vertexOffset);
+            putIndex(bb, vertexOffset + 2);
+            putIndex(bb, vertexOffset + 3);
+        }
+        bb.clear();
+        indexBuffer = backend.createIndexBuffer(size);
+        backend.write(indexBuffer, 0, bb, size);
+        bytesUploaded += size;
+    }
+
+    private void putIndex(ByteBuffer bb, int index) {
+        if(uint32)
+            bb.putInt(index);
+        else
+            bb.putShort((short)index);
+    }
+}
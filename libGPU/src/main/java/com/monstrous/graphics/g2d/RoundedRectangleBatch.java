@@ -15,39 +15,42 @@ import jnr.ffi.Pointer;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-import java.nio.ShortBuffer;
+import java.util.ArrayList;
 
 // todo handle small rectangles e.g. 10x10
 
+// Rounded rectangles are drawn with instancing: one quad of 4 vertices and a record per rectangle in a storage buffer
+// (see RoundedRectangleInstances), which the vertex shader expands to the rectangle's corners.
+
 public class RoundedRectangleBatch implements Disposable {
-    private WebGPU_JNI webGPU;
     private ShaderProgram specificShader;
     private int maxSprites;
     private boolean begun;
-    private int vertexSize;
-    private final FloatBuffer vertexData;     // float buffer view on byte buffer
-    private final Pointer vertexDataPtr;      // Pointer wrapped around the byte buffer
-    private int numRects;
+    private final RoundedRectangleInstances instances;     // records of the current batch
+    private final Pointer instancesPtr;         // Pointer wrapped around the records
     private final Color tint;
     private final Vector2 dropShadow;
-    private Buffer vertexBuffer;
+    private Buffer quadBuffer;
     private Buffer indexBuffer;
+    private Buffer storageBuffer;               // records of all batches of the frame
+    private final ArrayList<Buffer> retired = new ArrayList<>();   // replaced storage buffers that may be in use by this frame
+    private long frameId = -1;
     private UniformBuffer uniformBuffer;
     private final BindGroupLayout bindGroupLayout;
+    private BindGroup bindGroup;
     private VertexAttributes vertexAttributes;
-    private VertexAttributes defaultVertexAttributes;
     private final PipelineLayout pipelineLayout;
     private PipelineSpecification pipelineSpec;
     private int uniformBufferSize;
     private final Matrix4 projectionMatrix;
     private RenderPass renderPass;
-    private int vbOffset;
+    private int storageOffset;                  // in bytes
     private final Pipelines pipelines;
     private Pipeline prevPipeline;
     private boolean blendingEnabled;
     public int maxSpritesInBatch;
     public int renderCalls;
+    public int bytesUploaded;                   // instance data uploaded since begin()
 
 
     public RoundedRectangleBatch() {
@@ -58,36 +61,26 @@ public class RoundedRectangleBatch implements Disposable {
         this(maxSprites, null);
     }
 
+    /**
+     * @param maxSprites        number of rectangles per batch, the batch is flushed when it is full
+     * @param specificShader    specific ShaderProgram to use, must be compatible with "roundedRectangles.wgsl". Leave null to use the default shader.
+     */
     public RoundedRectangleBatch(int maxSprites, ShaderProgram specificShader) {
         this.maxSprites = maxSprites;
         this.specificShader = specificShader;
 
         dropShadow = new Vector2();
         begun = false;
-        webGPU = LibGPU.webGPU;
 
         vertexAttributes = new VertexAttributes();
-        vertexAttributes.add(VertexAttribute.Usage.POSITION, "position",    WGPUVertexFormat.Float32x2, 0 );
-        vertexAttributes.add(VertexAttribute.Usage.COLOR,   "color",        WGPUVertexFormat.Float32x4, 1 );
-        vertexAttributes.add(VertexAttribute.Usage.GENERIC, "center",       WGPUVertexFormat.Float32x2, 2 );
-        vertexAttributes.add(VertexAttribute.Usage.GENERIC, "size",         WGPUVertexFormat.Float32x2, 3 );
-        vertexAttributes.add(VertexAttribute.Usage.GENERIC, "radius",       WGPUVertexFormat.Float32x2, 4 );
-        vertexAttributes.add(VertexAttribute.Usage.GENERIC, "dropShadow",   WGPUVertexFormat.Float32x2, 5 );
-
+        vertexAttributes.add(VertexAttribute.Usage.GENERIC, "corner",    WGPUVertexFormat.Float32x2, 0 );
         vertexAttributes.end();
-        defaultVertexAttributes = vertexAttributes;
 
-        vertexSize = vertexAttributes.getVertexSizeInBytes(); // bytes
+        instances = new RoundedRectangleInstances(maxSprites);
+        instancesPtr = Pointer.wrap(JavaWebGPU.getRuntime(), instances.getData());
 
-        // allocate data buffers based on default vertex attributes which are assumed to be the worst case.
-        // i.e. with setVertexAttributes() you can specify a subset
         createBuffers();
-        fillIndexBuffer();
-
-        ByteBuffer vertexBB = ByteBuffer.allocateDirect(maxSprites * 4 * vertexSize);
-        vertexBB.order(ByteOrder.nativeOrder());  // important
-        vertexData = vertexBB.asFloatBuffer();
-        vertexDataPtr = Pointer.wrap(JavaWebGPU.getRuntime(), vertexBB);
+        fillQuadBuffers();
 
         projectionMatrix = new Matrix4();
         projectionMatrix.setToOrtho(0f, LibGPU.graphics.getWidth(),  0, LibGPU.graphics.getHeight(), -1f, 1f);
@@ -102,26 +95,19 @@ public class RoundedRectangleBatch implements Disposable {
         pipelineSpec.shaderFilePath = "shaders/roundedRectangles.wgsl"; //Files.classpath("shaders/roundedRectangles.wgsl");
     }
 
-    // the index buffer is fixed and only has to be filled on start-up
-    private void fillIndexBuffer(){
-        ByteBuffer bb = ByteBuffer.allocateDirect(maxSprites*6*Short.BYTES);
+    // the quad and its indices are fixed and only have to be filled on start-up
+    private void fillQuadBuffers(){
+        float[] corners = { 0, 0,   0, 1,   1, 1,   1, 0 };
+        ByteBuffer bb = ByteBuffer.allocateDirect(corners.length * Float.BYTES);
         bb.order(ByteOrder.nativeOrder());  // important
-        ShortBuffer indexData = bb.asShortBuffer();
-        for(int i = 0; i < maxSprites; i++){
-            short vertexOffset = (short)(i * 4);
-            // two triangles per sprite
-            indexData.put(vertexOffset);
-            indexData.put((short)(vertexOffset + 1));
-            indexData.put((short)(vertexOffset + 2));
-
-            indexData.put(vertexOffset);
-            indexData.put((short)(vertexOffset + 2));
-            indexData.put((short)(vertexOffset + 3));
-        }
-        indexData.flip();
-        Pointer indexDataPtr = Pointer.wrap(JavaWebGPU.getRuntime(), bb);
-        LibGPU.queue.writeBuffer(indexBuffer, 0, indexDataPtr,  maxSprites *6*Short.BYTES);
-        //webGPU.wgpuQueueWriteBuffer(LibGPU.queue, indexBuffer.getHandle(), 0, indexDataPtr, (long) maxSprites *6*Short.BYTES);
+        bb.asFloatBuffer().put(corners);
+        LibGPU.queue.writeBuffer(quadBuffer, 0, Pointer.wrap(JavaWebGPU.getRuntime(), bb), corners.length * Float.BYTES);
+
+        short[] indices = { 0, 1, 2,   0, 2, 3,   0, 0 };      // padded to a multiple of 4 bytes
+        ByteBuffer ib = ByteBuffer.allocateDirect(indices.length * Short.BYTES);
+        ib.order(ByteOrder.nativeOrder());
+        ib.asShortBuffer().put(indices);
+        LibGPU.queue.writeBuffer(indexBuffer, 0, Pointer.wrap(JavaWebGPU.getRuntime(), ib), indices.length * Short.BYTES);
     }
 
 
@@ -144,13 +130,20 @@ public class RoundedRectangleBatch implements Disposable {
         if (begun)
             throw new RuntimeException("Must end() before begin()");
         begun = true;
-        numRects = 0;
-        vbOffset = 0;
-        vertexData.clear();
-        vertexAttributes = defaultVertexAttributes;
-        vertexSize = vertexAttributes.getVertexSizeInBytes(); // bytes
+        instances.clear();
         maxSpritesInBatch = 0;
         renderCalls = 0;
+        bytesUploaded = 0;
+
+        // the storage buffer is used as a ring per frame, so that several passes in a frame keep their own records
+        long frame = LibGPU.graphics.getFrameId();
+        if(frame != frameId) {
+            frameId = frame;
+            storageOffset = 0;
+            for(Buffer buffer : retired)
+                buffer.dispose();
+            retired.clear();
+        }
 
         prevPipeline = null;
 
@@ -162,44 +155,47 @@ public class RoundedRectangleBatch implements Disposable {
         pipelineSpec.shader = specificShader;
         pipelineSpec.vertexAttributes = vertexAttributes;
         pipelineSpec.numSamples =  LibGPU.app.configuration.numSamples;
+        pipelineSpec.recalcHash();
         setPipeline();
         setUniforms();
     }
 
     public void flush() {
+        int numRects = instances.getCount();
         if(numRects == 0)
             return;
         if(numRects > maxSpritesInBatch)
             maxSpritesInBatch = numRects;
         renderCalls++;
 
-        // Add number of vertices to the GPU's vertex buffer
-        //
-        int numBytes = numRects * 4 * vertexSize;
-
-        // append new vertex data to GPU vertex buffer
-        LibGPU.queue.writeBuffer(vertexBuffer, vbOffset, vertexDataPtr, numBytes);
-        //webGPU.wgpuQueueWriteBuffer(LibGPU.queue, vertexBuffer.getHandle(), vbOffset, vertexDataPtr, numBytes);
-
-        // bind uniforms
-        BindGroup bg = makeBindGroup(bindGroupLayout, uniformBuffer);
-
-        // Set vertex buffer while encoding the render pass
-        // use an offset to set the vertex buffer for this batch
-        renderPass.setVertexBuffer( 0, vertexBuffer.getHandle(), vbOffset, numBytes);
-        renderPass.setIndexBuffer( indexBuffer.getHandle(), WGPUIndexFormat.Uint16, 0, (long)numRects*6*Short.BYTES);
+        int numBytes = instances.getSizeInBytes();
+        if(storageOffset + numBytes > storageBuffer.getSize()){
+            // earlier batches of this frame still refer to the current buffer
+            retired.add(storageBuffer);
+            storageBuffer = createStorageBuffer(Math.max(2 * storageBuffer.getSize(), numBytes));
+            storageOffset = 0;
+            bindGroup.dispose();
+            bindGroup = null;
+        }
 
-        renderPass.setBindGroup( 0, bg.getHandle(), 0, JavaWebGPU.createNullPointer());
+        // append the records to the storage buffer
+        LibGPU.queue.writeBuffer(storageBuffer, storageOffset, instancesPtr, numBytes);
+        bytesUploaded += numBytes;
 
+        // the bind group is kept until the storage buffer is replaced
+        if(bindGroup == null)
+            bindGroup = makeBindGroup(bindGroupLayout, uniformBuffer, storageBuffer);
 
-        renderPass.drawIndexed( numRects*6, 1, 0, 0, 0);
+        renderPass.setVertexBuffer( 0, quadBuffer.getHandle(), 0, quadBuffer.getSize());
+        renderPass.setIndexBuffer( indexBuffer.getHandle(), WGPUIndexFormat.Uint16, 0, 6*Short.BYTES);
 
-        bg.dispose();
+        renderPass.setBindGroup( 0, bindGroup.getHandle(), 0, JavaWebGPU.createNullPointer());
 
-        vbOffset += numBytes;
+        // the first instance selects the first record of this batch
+        renderPass.drawIndexed( 6, numRects, 0, 0, storageOffset / RoundedRectangleInstances.RECORD_BYTES);
 
-        vertexData.clear(); // reset fill position for next batch
-        numRects = 0;   // reset
+        storageOffset += numBytes;
+        instances.clear();   // reset
     }
 
     public void end() {
@@ -250,76 +246,34 @@ public class RoundedRectangleBatch implements Disposable {
         if (!begun)
             throw new RuntimeException("RRBatch: Must call begin() before draw().");
 
-        if(numRects == maxSprites)
-            throw new RuntimeException("RRBatch: Too many sprites.");
-
-        addRect(tint, x, y, width, height, radius);
-        numRects++;
-    }
-
-
-
-    private void addRect(Color color, float x, float y, float w, float h, float radius) {
-        float cx = x + w/2;
-        float cy = LibGPU.graphics.getHeight() - (y+h/2);
-
-        addVertex(x, y, color, cx, cy, w, h, radius, dropShadow);
-        addVertex(x, y+h, color, cx, cy, w, h, radius, dropShadow);
-        addVertex(x+w, y+h, color, cx, cy, w, h, radius, dropShadow);
-        addVertex(x+w, y, color, cx, cy, w, h, radius, dropShadow);
-    }
-
-    private void addVertex(float x, float y, Color tint, float cx, float cy, float w, float h, float radius, Vector2 dropShadow) {
-        // vertex position
-        vertexData.put(x);
-        vertexData.put(y);
-
-        // color
-        vertexData.put(tint.r);
-        vertexData.put(tint.g);
-        vertexData.put(tint.b);
-        vertexData.put(tint.a);
-
-        // centre
-        vertexData.put(cx);
-        vertexData.put(cy);
-
-        // size
-        vertexData.put(w);
-        vertexData.put(h);
-
-        // radius
-        vertexData.put(radius);
-        vertexData.put(0f);
+        if(instances.isFull())
+            flush();
 
-        // drop shadow offset
-        vertexData.put(dropShadow.x);
-        vertexData.put(dropShadow.y);
+        instances.add(x, y, width, height, radius, tint, dropShadow.x, dropShadow.y);
     }
 
-//    private void setUniformMatrix(Pointer data, int offset, Matrix4 mat) {
-//        for (int i = 0; i < 16; i++) {
-//            data.putFloat(offset + i * Float.BYTES, mat.val[i]);
-//        }
-//    }
 
     private void createBuffers() {
+        // Create vertex buffer and index buffer for one quad
+        quadBuffer = new Buffer("RRBatch quad buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Vertex, 8 * Float.BYTES);
+        indexBuffer = new Buffer("RRBatch index buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Index, 8 * Short.BYTES);
+        storageBuffer = createStorageBuffer((long) maxSprites * RoundedRectangleInstances.RECORD_BYTES);
 
-        long indexSize = (long) maxSprites * 6 * Short.BYTES;
-        indexSize = (indexSize + 3) & ~3; // round up to the next multiple of 4
-
-        // Create vertex buffer and index buffer
-        vertexBuffer = new Buffer("Vertex buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Vertex, (long) maxSprites * 4 * vertexSize);
-        indexBuffer = new Buffer("Index buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Index, indexSize);
-
-        // Create uniform buffer
-        uniformBufferSize = 16 * Float.BYTES;
+        // Create uniform buffer: projection matrix and screen size, padded to 16 bytes
+        uniformBufferSize = 20 * Float.BYTES;
         uniformBuffer = new UniformBuffer(uniformBufferSize,WGPUBufferUsage.CopyDst |WGPUBufferUsage.Uniform  );
     }
 
+    private Buffer createStorageBuffer(long size) {
+        return new Buffer("RRBatch instance buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Storage, size);
+    }
+
     private void setUniforms(){
         uniformBuffer.beginFill();
         uniformBuffer.append(projectionMatrix);
+        uniformBuffer.append((float)LibGPU.graphics.getWidth());
+        uniformBuffer.append((float)LibGPU.graphics.getHeight());
+        uniformBuffer.pad(2*Float.BYTES);
         uniformBuffer.endFill();
     }
 
@@ -327,15 +281,17 @@ public class RoundedRectangleBatch implements Disposable {
         BindGroupLayout layout = new BindGroupLayout("RRBatch bind group layout");
         layout.begin();
         layout.addBuffer(0, WGPUShaderStage.Vertex, WGPUBufferBindingType.Uniform, uniformBufferSize, false);
+        layout.addBuffer(1, WGPUShaderStage.Vertex, WGPUBufferBindingType.ReadOnlyStorage, RoundedRectangleInstances.RECORD_BYTES, false);
         layout.end();
         return layout;
     }
 
 
-    private BindGroup makeBindGroup(BindGroupLayout bindGroupLayout, Buffer uniformBuffer) {
+    private BindGroup makeBindGroup(BindGroupLayout bindGroupLayout, Buffer uniformBuffer, Buffer storageBuffer) {
         BindGroup bg = new BindGroup(bindGroupLayout);
         bg.begin();
         bg.addBuffer(0, uniformBuffer);
+        bg.addBuffer(1, storageBuffer);
         bg.end();
         return bg;
     }
@@ -344,8 +300,14 @@ public class RoundedRectangleBatch implements Disposable {
     @Override
     public void dispose(){
         pipelines.dispose();
-        vertexBuffer.dispose();
+        if(bindGroup != null)
+            bindGroup.dispose();
+        for(Buffer buffer : retired)
+            buffer.dispose();
+        retired.clear();
+        quadBuffer.dispose();
         indexBuffer.dispose();
+        storageBuffer.dispose();
         uniformBuffer.dispose();
         bindGroupLayout.dispose();
         pipelineLayout.dispose();
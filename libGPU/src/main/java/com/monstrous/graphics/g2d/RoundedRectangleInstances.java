@@ -0,0 +1,71 @@
+package com.monstrous.graphics.g2d;
+
+import com.monstrous.graphics.Color;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/** Per-instance records of RoundedRectangleBatch, packed on the CPU for upload to a storage buffer.
+ *
+ * Record layout, matching struct Rect in roundedRectangles.wgsl (32 bytes):
+ *  x, y, width, height : f32   (bottom left corner and size)
+ *  shadowX, shadowY    : f32   (drop shadow offset)
+ *  radius              : f32
+ *  color               : u32   (ABGR, i.e. red in the lowest byte)
+ */
+public class RoundedRectangleInstances {
+    public final static int RECORD_FLOATS = 8;
+    public final static int RECORD_BYTES = RECORD_FLOATS * Float.BYTES;
+
+    private final ByteBuffer data;
+    private final int capacity;
+    private int count;
+
+    public RoundedRectangleInstances(int capacity) {
+        if(capacity <= 0)
+            throw new IllegalArgumentException("RoundedRectangleInstances: capacity must be positive.");
+        this.capacity = capacity;
+        data = ByteBuffer.allocateDirect(capacity * RECORD_BYTES);
+        data.order(ByteOrder.nativeOrder());  // important
+    }
+
+    public void add(float x, float y, float width, float height, float radius, Color color, float shadowX, float shadowY) {
+        if(count == capacity)
+            throw new RuntimeException("RoundedRectangleInstances: full, capacity is "+capacity);
+        int offset = count * RECORD_BYTES;
+        data.putFloat(offset, x);
+        data.putFloat(offset + 4, y);
+        data.putFloat(offset + 8, width);
+        data.putFloat(offset + 12, height);
+        data.putFloat(offset + 16, shadowX);
+        data.putFloat(offset + 20, shadowY);
+        data.putFloat(offset + 24, radius);
+        data.putInt(offset + 28, color.toIntBits());
+        count++;
+    }
+
+    public boolean isFull() {
+        return count == capacity;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSizeInBytes() {
+        return count * RECORD_BYTES;
+    }
+
+    /** direct byte buffer with the records from position 0 */
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+}
@@ -0,0 +1,376 @@
+package com.monstrous.graphics.g2d;
+
+import com.monstrous.graphics.Color;
+import com.monstrous.graphics.g2d.ShapeRenderer.ShapeType;
+import com.monstrous.utils.IntMap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/** Vertices and indices of 2d shapes, as used by ShapeRenderer. This is the CPU side only, the renderer uploads the data.
+ *
+ * Every shape is made of triangles: outlines (ShapeType.Line) are strips of lineWidth wide, filled shapes (ShapeType.Filled)
+ * are quads or triangle fans. A vertex is x, y and a packed colour. The staging buffers grow as needed up to MAX_VERTICES,
+ * after which the batch is handed to the flush callback.
+ */
+public class ShapeBuilder {
+
+    /** maximum number of vertices per batch, because of 16-bit indices */
+    public final static int MAX_VERTICES = 65536;
+
+    final static int VERTEX_FLOATS = 3;     // x, y, packed colour
+
+    private final Runnable flush;           // called when the batch is full, must upload the batch and call clear()
+    private boolean begun;
+    private ShapeType shapeType = ShapeType.Filled;
+    private ByteBuffer vertexBB;            // staging area for vertex data of one batch
+    private FloatBuffer vertexData;
+    private ByteBuffer indexBB;             // staging area for index data of one batch
+    private ShortBuffer indexData;
+    private int vertexCapacity;             // in vertices
+    private int indexCapacity;              // in indices
+    private int numVertices;
+    private int numIndices;
+    private final Color tint = new Color(Color.WHITE);
+    private float col;                      // packed colour of the current shape
+    private float lineWidth = 1f;
+    private final IntMap<float[]> circleTables = new IntMap<>();    // unit circle per segment count: cos, sin
+    private float[] arcTable = new float[64];
+
+    /**
+     * @param vertexCapacity    initial number of vertices, grows when needed
+     * @param indexCapacity     initial number of indices, grows when needed
+     * @param flush             called when a shape doesn't fit in the batch anymore
+     */
+    public ShapeBuilder(int vertexCapacity, int indexCapacity, Runnable flush) {
+        this.flush = flush;
+        allocateStaging(Math.min(vertexCapacity, MAX_VERTICES), indexCapacity);
+    }
+
+    /** start a batch with the default state: filled shapes, white, line width 1 */
+    public void begin() {
+        begun = true;
+        clear();
+        shapeType = ShapeType.Filled;
+        tint.set(1,1,1,1);
+        lineWidth = 1f;
+    }
+
+    public void end() {
+        begun = false;
+    }
+
+    /** remove all shapes, e.g. after they have been uploaded */
+    public void clear() {
+        vertexData.clear();
+        indexData.clear();
+        numVertices = 0;
+        numIndices = 0;
+    }
+
+    public int getNumVertices() {
+        return numVertices;
+    }
+
+    public int getNumIndices() {
+        return numIndices;
+    }
+
+    /** vertex data of the batch, in native byte order. The buffer is replaced when the staging area grows. */
+    public ByteBuffer getVertexBytes() {
+        return vertexBB;
+    }
+
+    /** index data of the batch, in native byte order. The buffer is replaced when the staging area grows. */
+    public ByteBuffer getIndexBytes() {
+        return indexBB;
+    }
+
+    /** size of the index data, padded with a zero index to a multiple of 4 bytes */
+    public int getPaddedIndexSize() {
+        int indexBytes = numIndices * Short.BYTES;
+        int paddedIndexBytes = (indexBytes + 3) & ~3;  // writes must be a multiple of 4 bytes
+        if(paddedIndexBytes > indexBytes)
+            indexData.put(numIndices, (short)0);
+        return paddedIndexBytes;
+    }
+
+    /** shape type for rect(), triangle(), circle(), arc() and polygon() */
+    public void set(ShapeType shapeType){
+        this.shapeType = shapeType;
+    }
+
+    public ShapeType getShapeType(){
+        return shapeType;
+    }
+
+    public void setColor(float r, float g, float b, float a){
+        tint.set(r,g,b,a);
+    }
+
+    public void setColor(Color color){
+        tint.set(color);
+    }
+
+    public void setLineWidth(float w){
+        this.lineWidth = w;
+    }
+
+    /** rectangle outline or filled rectangle, depending on the shape type */
+    public void rect(float x, float y, float w, float h){
+        if(shapeType == ShapeType.Line)
+            box(x, y, x+w, y+h);
+        else
+            filledRect(x, y, w, h);
+    }
+
+    /** rectangle outline between two corners, regardless of the shape type */
+    public void box(float x1, float y1, float x2, float y2){
+        filledRect(x1, y1, lineWidth+x2-x1, lineWidth);
+        filledRect(x1, y2, lineWidth+x2-x1, lineWidth);
+        filledRect(x1, y1, lineWidth, lineWidth+y2-y1);
+        filledRect(x2, y1,  lineWidth, lineWidth+y2-y1);
+    }
+
+    public void triangle (float x1, float y1, float x2, float y2, float x3, float y3){
+        if(shapeType == ShapeType.Line) {
+            line(x1, y1, x2, y2);
+            line(x2, y2, x3, y3);
+            line(x3, y3, x1, y1);
+            return;
+        }
+        int base = reserve(3, 3);
+        col = tint.toFloatBits();
+        vertex(x1, y1);
+        vertex(x2, y2);
+        vertex(x3, y3);
+        triangleIndices(base, base+1, base+2);
+    }
+
+    /** line of lineWidth wide */
+    public void line(float x1, float y1, float x2, float y2){
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float len = (float)Math.sqrt(dx*dx + dy*dy);
+        if(len == 0)
+            return;
+        // normal of half the line width
+        float nx = -dy * 0.5f * lineWidth / len;
+        float ny = dx * 0.5f * lineWidth / len;
+
+        int base = reserve(4, 6);
+        col = tint.toFloatBits();
+        vertex(x1+nx, y1+ny);
+        vertex(x2+nx, y2+ny);
+        vertex(x2-nx, y2-ny);
+        vertex(x1-nx, y1-ny);
+        quadIndices(base);
+    }
+
+    /** connected lines through the points (x0, y0, x1, y1, ...) */
+    public void polyline(float[] vertices){
+        polyline(vertices, 0, vertices.length);
+    }
+
+    public void polyline(float[] vertices, int offset, int count){
+        if(count < 4 || count % 2 != 0)
+            throw new IllegalArgumentException("ShapeRenderer.polyline: needs at least 2 points and an even number of floats");
+        for(int i = offset; i < offset + count - 2; i += 2)
+            line(vertices[i], vertices[i+1], vertices[i+2], vertices[i+3]);
+    }
+
+    /** closed polygon through the points (x0, y0, x1, y1, ...). Filled polygons must be convex. */
+    public void polygon(float[] vertices){
+        polygon(vertices, 0, vertices.length);
+    }
+
+    public void polygon(float[] vertices, int offset, int count){
+        if(count < 6 || count % 2 != 0)
+            throw new IllegalArgumentException("ShapeRenderer.polygon: needs at least 3 points and an even number of floats");
+        int numPoints = count / 2;
+        if(shapeType == ShapeType.Line) {
+            polyline(vertices, offset, count);
+            line(vertices[offset+count-2], vertices[offset+count-1], vertices[offset], vertices[offset+1]);
+            return;
+        }
+        // triangle fan from the first point
+        int base = reserve(numPoints, 3 * (numPoints - 2));
+        col = tint.toFloatBits();
+        for(int i = offset; i < offset + count; i += 2)
+            vertex(vertices[i], vertices[i+1]);
+        for(int i = 1; i < numPoints - 1; i++)
+            triangleIndices(base, base+i, base+i+1);
+    }
+
+    public void circle(float x, float y, float radius){
+        circle(x, y, radius, defaultSegments(radius));
+    }
+
+    public void circle(float x, float y, float radius, int segments){
+        if(segments < 3)
+            throw new IllegalArgumentException("ShapeRenderer.circle: needs at least 3 segments");
+        float[] unit = getCircleTable(segments);
+        if(shapeType == ShapeType.Line)
+            ring(x, y, radius, unit, segments, true);
+        else
+            fan(x, y, radius, unit, segments, true);
+    }
+
+    /** arc from start angle over a number of degrees, counter-clockwise. The outline includes the two radii. */
+    public void arc(float x, float y, float radius, float start, float degrees){
+        arc(x, y, radius, start, degrees, Math.max(1, (int)(defaultSegments(radius) * Math.abs(degrees) / 360f)));
+    }
+
+    public void arc(float x, float y, float radius, float start, float degrees, int segments){
+        if(segments < 1)
+            throw new IllegalArgumentException("ShapeRenderer.arc: needs at least 1 segment");
+        // points on the unit circle by rotating over a fixed step
+        int numPoints = segments + 1;
+        if(arcTable.length < 2 * numPoints)
+            arcTable = new float[2 * numPoints];
+        double step = Math.toRadians(degrees) / segments;
+        float cosStep = (float)Math.cos(step);
+        float sinStep = (float)Math.sin(step);
+        float cx = (float)Math.cos(Math.toRadians(start));
+        float sy = (float)Math.sin(Math.toRadians(start));
+        for(int i = 0; i < numPoints; i++){
+            arcTable[2*i] = cx;
+            arcTable[2*i+1] = sy;
+            float t = cx * cosStep - sy * sinStep;
+            sy = cx * sinStep + sy * cosStep;
+            cx = t;
+        }
+        if(shapeType == ShapeType.Line) {
+            ring(x, y, radius, arcTable, numPoints, false);
+            line(x, y, x + radius * arcTable[0], y + radius * arcTable[1]);
+            line(x, y, x + radius * arcTable[2*segments], y + radius * arcTable[2*segments+1]);
+        }
+        else
+            fan(x, y, radius, arcTable, numPoints, false);
+    }
+
+    private static int defaultSegments(float radius){
+        return Math.max(8, (int)(6 * (float)Math.cbrt(radius)));
+    }
+
+    // unit circle points for a segment count, computed once per segment count
+    private float[] getCircleTable(int segments){
+        float[] table = circleTables.get(segments);
+        if(table == null){
+            table = new float[2 * segments];
+            for(int i = 0; i < segments; i++){
+                double angle = 2.0 * Math.PI * i / segments;
+                table[2*i] = (float)Math.cos(angle);
+                table[2*i+1] = (float)Math.sin(angle);
+            }
+            circleTables.put(segments, table);
+        }
+        return table;
+    }
+
+    // outline of lineWidth along points on a circle: an outer and an inner vertex per point
+    private void ring(float x, float y, float radius, float[] unit, int numPoints, boolean closed){
+        int numSegments = closed ? numPoints : numPoints - 1;
+        int base = reserve(2 * numPoints, 6 * numSegments);
+        col = tint.toFloatBits();
+        float outer = radius + 0.5f * lineWidth;
+        float inner = Math.max(0, radius - 0.5f * lineWidth);
+        for(int i = 0; i < numPoints; i++){
+            vertex(x + outer * unit[2*i], y + outer * unit[2*i+1]);
+            vertex(x + inner * unit[2*i], y + inner * unit[2*i+1]);
+        }
+        for(int i = 0; i < numSegments; i++){
+            int a = base + 2*i;
+            int b = base + 2*((i+1) % numPoints);
+            triangleIndices(a, b, b+1);
+            triangleIndices(a, b+1, a+1);
+        }
+    }
+
+    // filled circle or pie slice as a triangle fan around the centre
+    private void fan(float x, float y, float radius, float[] unit, int numPoints, boolean closed){
+        int numSegments = closed ? numPoints : numPoints - 1;
+        int base = reserve(numPoints + 1, 3 * numSegments);
+        col = tint.toFloatBits();
+        vertex(x, y);
+        for(int i = 0; i < numPoints; i++)
+            vertex(x + radius * unit[2*i], y + radius * unit[2*i+1]);
+        for(int i = 0; i < numSegments; i++)
+            triangleIndices(base, base + 1 + i, base + 1 + (i+1) % numPoints);
+    }
+
+    private void filledRect(float x, float y, float w, float h) {
+        int base = reserve(4, 6);
+        col = tint.toFloatBits();
+        vertex(x, y);
+        vertex(x, y + h);
+        vertex(x + w, y + h);
+        vertex(x + w, y);
+        quadIndices(base);
+    }
+
+    private void vertex(float x, float y){
+        vertexData.put(x);
+        vertexData.put(y);
+        vertexData.put(col);
+        numVertices++;
+    }
+
+    private void triangleIndices(int a, int b, int c){
+        indexData.put((short)a);
+        indexData.put((short)b);
+        indexData.put((short)c);
+        numIndices += 3;
+    }
+
+    private void quadIndices(int base){
+        triangleIndices(base, base+1, base+2);
+        triangleIndices(base, base+2, base+3);
+    }
+
+    // make room for a shape, returns the index of its first vertex
+    private int reserve(int vertices, int indices){
+        if (!begun)
+            throw new RuntimeException("ShapeRenderer: Must call begin() before drawing shapes.");
+        if(vertices > MAX_VERTICES)
+            throw new IllegalArgumentException("ShapeRenderer: shape has more than "+MAX_VERTICES+" vertices");
+        if(numVertices + vertices > MAX_VERTICES)
+            flush.run();
+        // +1 to allow padding of the index data to a multiple of 4 bytes
+        if(numVertices + vertices > vertexCapacity || numIndices + indices + 1 > indexCapacity)
+            growStaging(numVertices + vertices, numIndices + indices + 1);
+        return numVertices;
+    }
+
+    // grow the staging buffers and keep the shapes of the current batch
+    private void growStaging(int minVertices, int minIndices){
+        ByteBuffer oldVertices = vertexBB;
+        ByteBuffer oldIndices = indexBB;
+        int vertexBytes = numVertices * VERTEX_FLOATS * Float.BYTES;
+        int indexBytes = numIndices * Short.BYTES;
+        allocateStaging(Math.min(Math.max(minVertices, 2 * vertexCapacity), MAX_VERTICES), Math.max(minIndices, 2 * indexCapacity));
+        oldVertices.clear();
+        oldVertices.limit(vertexBytes);
+        vertexBB.put(oldVertices);
+        vertexBB.clear();
+        oldIndices.clear();
+        oldIndices.limit(indexBytes);
+        indexBB.put(oldIndices);
+        indexBB.clear();
+        vertexData.position(numVertices * VERTEX_FLOATS);
+        indexData.position(numIndices);
+    }
+
+    private void allocateStaging(int numVertices, int numIndices){
+        vertexCapacity = numVertices;
+        indexCapacity = numIndices;
+        vertexBB = ByteBuffer.allocateDirect(vertexCapacity * VERTEX_FLOATS * Float.BYTES);
+        vertexBB.order(ByteOrder.nativeOrder());  // important
+        vertexData = vertexBB.asFloatBuffer();
+        indexBB = ByteBuffer.allocateDirect(((indexCapacity * Short.BYTES) + 3) & ~3);
+        indexBB.order(ByteOrder.nativeOrder());
+        indexData = indexBB.asShortBuffer();
+    }
+}
@@ -6,73 +6,90 @@ import com.monstrous.graphics.VertexAttribute;
 import com.monstrous.graphics.VertexAttributes;
 import com.monstrous.graphics.webgpu.*;
 import com.monstrous.math.Matrix4;
-import com.monstrous.math.Vector2;
 import com.monstrous.utils.Disposable;
 import com.monstrous.utils.JavaWebGPU;
 import com.monstrous.webgpu.*;
 import jnr.ffi.Pointer;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
 
 // based on SpriteBatch but without textures.
-// for now does very limited set of shapes
-// only does line mode, not fill mode.
+// all shapes are triangles, so outlines (ShapeType.Line) and filled shapes (ShapeType.Filled) go in the same batch.
+// the default shape type is Filled, so that rect() fills as it always did; use set() or begin(ShapeType) for outlines.
+// the geometry is built on the CPU by ShapeBuilder, whose staging buffers grow as needed, so that typically
+// all shapes of a begin()/end() are one upload and one draw call.
 
 public class ShapeRenderer implements Disposable {
-    private WebGPU_JNI webGPU;
-    private int maxShapes;
+
+    public enum ShapeType { Line, Filled }
+
+    /** maximum number of vertices per batch, because of 16-bit indices */
+    public final static int MAX_VERTICES = ShapeBuilder.MAX_VERTICES;
+
     private boolean begun;
-    private int vertexSize;
-    private float[] vertFloats;
-    private short[] indexValues;
-    private int numRects;
-    private Color tint;
-    private Pointer vertexBuffer;
-    private Pointer indexBuffer;
-    private Pointer uniformBuffer;
-    private Pointer bindGroupLayout;
-    private VertexAttributes vertexAttributes;
-    private Pointer pipelineLayout;
-    private PipelineSpecification pipelineSpec;
-    private int uniformBufferSize;
-    private Matrix4 projectionMatrix;
-    private RenderPass renderPass;
+    private final ShapeBuilder shapes;
+    private ByteBuffer vertexBB;            // staging buffers of the shape builder that the pointers are wrapped around
+    private Pointer vertexPtr;
+    private ByteBuffer indexBB;
+    private Pointer indexPtr;
+    private Buffer vertexBuffer;
+    private Buffer indexBuffer;
     private int vbOffset;
     private int ibOffset;
-    private Pipelines pipelines;
+    private final ArrayList<Buffer> retired = new ArrayList<>();   // replaced GPU buffers that may be in use by this frame
+    private long frameId = -1;
+    private final UniformBuffer uniformBuffer;
+    private final BindGroupLayout bindGroupLayout;
+    private final BindGroup bindGroup;
+    private final VertexAttributes vertexAttributes;
+    private final PipelineLayout pipelineLayout;
+    private final PipelineSpecification pipelineSpec;
+    private final Matrix4 projectionMatrix;
+    private RenderPass renderPass;
+    private final Pipelines pipelines;
     private Pipeline prevPipeline;
     private boolean blendingEnabled;
-    private float lineWidth;
+    public int renderCalls;
+    public int bytesUploaded;               // vertex and index bytes uploaded since begin()
 
 
     public ShapeRenderer() {
         this(8192); // default nr
     }
 
+    /** @param maxShapes    initial number of rectangles per batch, grows when needed */
     public ShapeRenderer(int maxShapes) {
-        this.maxShapes = maxShapes;
         begun = false;
-        webGPU = LibGPU.webGPU;
 
         vertexAttributes = new VertexAttributes(VertexAttribute.Usage.POSITION_2D | VertexAttribute.Usage.COLOR_PACKED);
-        vertexSize = vertexAttributes.getVertexSizeInBytes() / Float.BYTES;
 
-        indexValues = new short[maxShapes * 6];    // 6 indices per rectangle
-        vertFloats = new float[maxShapes * 4 * vertexSize]; // 4 points per rectangle
+        shapes = new ShapeBuilder(maxShapes * 4, maxShapes * 6, this::flush);
+        vertexBuffer = createVertexBuffer(shapes.getVertexBytes().capacity());
+        indexBuffer = createIndexBuffer(shapes.getIndexBytes().capacity());
 
         projectionMatrix = new Matrix4();
 
-        tint = new Color(Color.WHITE);
-        lineWidth = 1f;
+        uniformBuffer = new UniformBuffer(16 * Float.BYTES, WGPUBufferUsage.CopyDst | WGPUBufferUsage.Uniform);
 
-        createBuffers();
+        bindGroupLayout = new BindGroupLayout("ShapeRenderer bind group layout");
+        bindGroupLayout.begin();
+        bindGroupLayout.addBuffer(0, WGPUShaderStage.Vertex, WGPUBufferBindingType.Uniform, 16 * Float.BYTES, false);
+        bindGroupLayout.end();
+        pipelineLayout = new PipelineLayout("ShapeRenderer pipeline layout", bindGroupLayout);
 
-        bindGroupLayout = createBindGroupLayout();
-        pipelineLayout = makePipelineLayout(bindGroupLayout);
+        // the uniform buffer does not change, so one bind group is enough
+        bindGroup = new BindGroup(bindGroupLayout);
+        bindGroup.begin();
+        bindGroup.addBuffer(0, uniformBuffer);
+        bindGroup.end();
 
         pipelines = new Pipelines();
         pipelineSpec = new PipelineSpecification(vertexAttributes, "shaders/shape.wgsl");
         pipelineSpec.name = "shape renderer pipeline";
         pipelineSpec.numSamples = LibGPU.app.configuration.numSamples;
+        pipelineSpec.recalcHash();
 
         resize(LibGPU.graphics.getWidth(), LibGPU.graphics.getHeight());
     }
@@ -93,11 +110,11 @@ public class ShapeRenderer implements Disposable {
     }
 
     public void setColor(float r, float g, float b, float a){
-        tint.set(r,g,b,a);
+        shapes.setColor(r,g,b,a);
     }
 
     public void setColor(Color color){
-        tint.set(color);
+        shapes.setColor(color);
     }
 
     public void enableBlending(){
@@ -118,23 +135,48 @@ public class ShapeRenderer implements Disposable {
         setPipeline();
     }
 
+    /** shape type for rect(), triangle(), circle(), arc() and polygon(). Does not cause a flush. */
+    public void set(ShapeType shapeType){
+        shapes.set(shapeType);
+    }
+
+    public ShapeType getShapeType(){
+        return shapes.getShapeType();
+    }
+
     public void begin(){
-        begin(null);
+        begin((Color)null);
     }
 
-    public void begin(Color clearColor) {
-        renderPass = RenderPassBuilder.create(clearColor, LibGPU.app.configuration.numSamples);
+    public void begin(ShapeType shapeType){
+        begin((Color)null);
+        shapes.set(shapeType);
+    }
 
+    /** starts with filled shapes, white and a line width of 1 */
+    public void begin(Color clearColor) {
         if (begun)
             throw new RuntimeException("Must end() before begin()");
+        renderPass = RenderPassBuilder.create(clearColor, LibGPU.app.configuration.numSamples);
+
         begun = true;
-        numRects = 0;
-        vbOffset = 0;
-        ibOffset = 0;
+        shapes.begin();
+        renderCalls = 0;
+        bytesUploaded = 0;
+
+        // GPU buffers are used as a ring per frame, so that several passes in a frame keep their own data
+        long frame = LibGPU.graphics.getFrameId();
+        if(frame != frameId) {
+            frameId = frame;
+            vbOffset = 0;
+            ibOffset = 0;
+            for(Buffer buffer : retired)
+                buffer.dispose();
+            retired.clear();
+        }
 
         prevPipeline = null;
         // set default state
-        tint.set(1,1,1,1);
         blendingEnabled = true;
         pipelineSpec.enableBlending();
         pipelineSpec.disableDepthTest();
@@ -143,38 +185,40 @@ public class ShapeRenderer implements Disposable {
     }
 
     public void flush() {
-        if(numRects == 0)
+        int numIndices = shapes.getNumIndices();
+        if(numIndices == 0)
             return;
+        renderCalls++;
 
-        // Add number of rectangles from vertFloats[] and indexValues[] the GPU's vertex and index buffer
-        //
-        int numFloats = numRects * 4 * vertexSize;
-        Pointer data = JavaWebGPU.createDirectPointer(numFloats * Float.BYTES);
-        data.put(0, vertFloats, 0, numFloats);
-        //LibGPU.queue.writeBuffer(vertexBuffer, vbOffset, data, (int) numFloats*Float.BYTES);
-        webGPU.wgpuQueueWriteBuffer(LibGPU.queue.getHandle(), vertexBuffer, vbOffset, data, (long) numFloats*Float.BYTES);
-
-
-        // Upload index data to the buffer
-        Pointer idata = JavaWebGPU.createDirectPointer( numRects*6*Short.BYTES);
-        idata.put(0, indexValues, 0, numRects*6);
-        webGPU.wgpuQueueWriteBuffer(LibGPU.queue.getHandle(), indexBuffer, ibOffset, idata,  numRects*6*Short.BYTES);
-
-
-        Pointer bg = makeBindGroup();
-
-        // Set vertex buffer while encoding the render pass
-        renderPass.setVertexBuffer( 0, vertexBuffer, vbOffset, (long) numFloats *Float.BYTES);
-        renderPass.setIndexBuffer( indexBuffer, WGPUIndexFormat.Uint16, ibOffset, (long)numRects*6*Short.BYTES);
-
-        renderPass.setBindGroup( 0, bg, 0, JavaWebGPU.createNullPointer());
-        renderPass.drawIndexed( numRects * 6, 1, 0, 0, 0);
-        webGPU.wgpuBindGroupRelease(bg);
+        int vertexBytes = shapes.getNumVertices() * ShapeBuilder.VERTEX_FLOATS * Float.BYTES;
+        int indexBytes = numIndices * Short.BYTES;
+        int paddedIndexBytes = shapes.getPaddedIndexSize();
 
+        // earlier batches of this frame still refer to the current buffers, so grow by replacing them
+        if(vbOffset + vertexBytes > vertexBuffer.getSize()){
+            retired.add(vertexBuffer);
+            vertexBuffer = createVertexBuffer(Math.max(2 * vertexBuffer.getSize(), vertexBytes));
+            vbOffset = 0;
+        }
+        if(ibOffset + paddedIndexBytes > indexBuffer.getSize()){
+            retired.add(indexBuffer);
+            indexBuffer = createIndexBuffer(Math.max(2 * indexBuffer.getSize(), paddedIndexBytes));
+            ibOffset = 0;
+        }
+        wrapStaging();
+        LibGPU.queue.writeBuffer(vertexBuffer, vbOffset, vertexPtr, vertexBytes);
+        LibGPU.queue.writeBuffer(indexBuffer, ibOffset, indexPtr, paddedIndexBytes);
+        bytesUploaded += vertexBytes + paddedIndexBytes;
 
-        vbOffset += numFloats*Float.BYTES;
-        ibOffset += numRects*6*Short.BYTES;
-        numRects = 0;   // reset
+        setPipeline();
+        renderPass.setVertexBuffer( 0, vertexBuffer.getHandle(), vbOffset, vertexBytes);
+        renderPass.setIndexBuffer( indexBuffer.getHandle(), WGPUIndexFormat.Uint16, ibOffset, indexBytes);
+        renderPass.setBindGroup( 0, bindGroup.getHandle(), 0, JavaWebGPU.createNullPointer());
+        renderPass.drawIndexed( numIndices, 1, 0, 0, 0);
+
+        vbOffset += vertexBytes;
+        ibOffset += paddedIndexBytes;
+        shapes.clear();
     }
 
     public void end() {
@@ -182,239 +226,117 @@ public class ShapeRenderer implements Disposable {
             throw new RuntimeException("Cannot end() without begin()");
         begun = false;
         flush();
+        shapes.end();
         renderPass.end();
         renderPass = null;
     }
 
     // create or reuse pipeline on demand to match the pipeline spec
     private void setPipeline() {
-        Pipeline pipeline = pipelines.findPipeline( pipelineLayout, pipelineSpec);
+        Pipeline pipeline = pipelines.findPipeline( pipelineLayout.getHandle(), pipelineSpec);
         if (pipeline != prevPipeline) { // avoid unneeded switches
             renderPass.setPipeline( pipeline.getHandle());
             prevPipeline = pipeline;
         }
     }
 
+    // wrap pointers around the staging buffers, only when the shape builder has replaced them
+    private void wrapStaging(){
+        if(vertexBB != shapes.getVertexBytes()) {
+            vertexBB = shapes.getVertexBytes();
+            vertexPtr = Pointer.wrap(JavaWebGPU.getRuntime(), vertexBB);
+        }
+        if(indexBB != shapes.getIndexBytes()) {
+            indexBB = shapes.getIndexBytes();
+            indexPtr = Pointer.wrap(JavaWebGPU.getRuntime(), indexBB);
+        }
+    }
+
     public void setLineWidth(float w){
-        this.lineWidth = w;
+        shapes.setLineWidth(w);
     }
 
+    /** rectangle outline or filled rectangle, depending on the shape type */
     public void rect(float x, float y, float w, float h){
-        addRect(x,y,w,h);
+        shapes.rect(x, y, w, h);
     }
 
+    /** rectangle outline between two corners, regardless of the shape type */
     public void box(float x1, float y1, float x2, float y2){
-        addRect(x1, y1, lineWidth+x2-x1, lineWidth);
-        addRect(x1, y2, lineWidth+x2-x1, lineWidth);
-        addRect(x1, y1, lineWidth, lineWidth+y2-y1);
-        addRect(x2, y1,  lineWidth, lineWidth+y2-y1);
+        shapes.box(x1, y1, x2, y2);
     }
 
+    /** triangle outline or filled triangle, depending on the shape type */
     public void triangle (float x1, float y1, float x2, float y2, float x3, float y3){
-        line(x1, y1, x2, y2);
-        line(x2, y2, x3, y3);
-        line(x3, y3, x1, y1);
+        shapes.triangle(x1, y1, x2, y2, x3, y3);
     }
 
-    private Vector2 N = new Vector2();
-
+    /** line of lineWidth wide */
     public void line(float x1, float y1, float x2, float y2){
-        float dx = x2 - x1;
-        float dy = y2 - y1;
-        N.set(dy,dx).nor().scl(lineWidth);
-
-        int i = numRects * 4 * vertexSize;
-        vertFloats[i++] = x1-N.x;
-        vertFloats[i++] = y1+N.y;
-        vertFloats[i++] = tint.toFloatBits();
-
-        vertFloats[i++] = x2-N.x;
-        vertFloats[i++] = y2+N.y;
-        vertFloats[i++] = tint.toFloatBits();
-
-        vertFloats[i++] = x2+N.x;
-        vertFloats[i++] = y2-N.y;
-        vertFloats[i++] = tint.toFloatBits();
-
-        vertFloats[i++] = x1+N.x;
-        vertFloats[i++] = y1-N.y;
-        vertFloats[i++] = tint.toFloatBits();;
-
-        int k = numRects * 6;
-        short start = (short)(numRects * 4);
-        indexValues[k++] = start;
-        indexValues[k++] = (short)(start + 1);
-        indexValues[k++] = (short)(start + 2);
-
-        indexValues[k++] = start;
-        indexValues[k++] = (short)(start + 2);
-        indexValues[k++] = (short)(start + 3);
-        numRects++;
-
+        shapes.line(x1, y1, x2, y2);
     }
 
-
-    private void addRect(float x, float y, float w, float h) {
-        int i = numRects * 4 * vertexSize;
-        vertFloats[i++] = x;
-        vertFloats[i++] = y;
-        vertFloats[i++] = tint.toFloatBits();
-
-        vertFloats[i++] = x;
-        vertFloats[i++] = y + h;
-        vertFloats[i++] = tint.toFloatBits();
-
-        vertFloats[i++] = x + w;
-        vertFloats[i++] = y + h;
-        vertFloats[i++] = tint.toFloatBits();;
-
-        vertFloats[i++] = x + w;
-        vertFloats[i++] = y;
-        vertFloats[i++] = tint.toFloatBits();
-
-        int k = numRects * 6;
-        short start = (short)(numRects * 4);
-        indexValues[k++] = start;
-        indexValues[k++] = (short)(start + 1);
-        indexValues[k++] = (short)(start + 2);
-
-        indexValues[k++] = start;
-        indexValues[k++] = (short)(start + 2);
-        indexValues[k++] = (short)(start + 3);
-        numRects++;
+    /** connected lines through the points (x0, y0, x1, y1, ...) */
+    public void polyline(float[] vertices){
+        shapes.polyline(vertices);
     }
 
-
-
-    private void setUniformMatrix(Pointer data, int offset, Matrix4 mat) {
-        for (int i = 0; i < 16; i++) {
-            data.putFloat(offset + i * Float.BYTES, mat.val[i]);
-        }
+    public void polyline(float[] vertices, int offset, int count){
+        shapes.polyline(vertices, offset, count);
     }
 
-    private void createBuffers() {
-        // Create vertex buffer
-        WGPUBufferDescriptor bufferDesc = WGPUBufferDescriptor.createDirect();
-        bufferDesc.setLabel("Vertex buffer");
-        bufferDesc.setUsage(WGPUBufferUsage.CopyDst | WGPUBufferUsage.Vertex);
-        bufferDesc.setSize((long) maxShapes * 4 * vertexSize * Float.BYTES);
-        bufferDesc.setMappedAtCreation(0L);
-        vertexBuffer = webGPU.wgpuDeviceCreateBuffer(LibGPU.device.getHandle(), bufferDesc);
-
-        // Create index buffer
-        bufferDesc.setLabel("Index buffer");
-        bufferDesc.setUsage(WGPUBufferUsage.CopyDst | WGPUBufferUsage.Index);
-        long sz = (long) maxShapes * 6 * Short.BYTES;
-        sz = (sz + 3) & ~3; // round up to the next multiple of 4
-        bufferDesc.setSize(sz);
-        bufferDesc.setMappedAtCreation(0L);
-        indexBuffer = webGPU.wgpuDeviceCreateBuffer(LibGPU.device.getHandle(), bufferDesc);
-
-        // Create uniform buffer
-        uniformBufferSize = 16 * Float.BYTES;
-
-        //WGPUBufferDescriptor bufferDesc = WGPUBufferDescriptor.createDirect();
-        bufferDesc.setLabel("Uniform buffer");
-        bufferDesc.setUsage(WGPUBufferUsage.CopyDst |WGPUBufferUsage.Uniform );
-        bufferDesc.setSize(16 * Float.BYTES);
-        bufferDesc.setMappedAtCreation(0L);
-        uniformBuffer =LibGPU.webGPU.wgpuDeviceCreateBuffer(LibGPU.device.getHandle(),bufferDesc);
+    /** closed polygon through the points (x0, y0, x1, y1, ...). Filled polygons must be convex. */
+    public void polygon(float[] vertices){
+        shapes.polygon(vertices);
     }
 
-    private void setUniforms(){
-        // P matrix: 16 float
-        float[] uniforms = new float[16];
-        Pointer uniformData = JavaWebGPU.createFloatArrayPointer(uniforms);   // copy to native memory
-
-
-        int offset = 0;
-        setUniformMatrix(uniformData, offset, projectionMatrix);
-        offset += 16*Float.BYTES;
-
-        LibGPU.webGPU.wgpuQueueWriteBuffer(LibGPU.queue.getHandle(), uniformBuffer, 0, uniformData, uniformBufferSize);
+    public void polygon(float[] vertices, int offset, int count){
+        shapes.polygon(vertices, offset, count);
     }
 
-    private Pointer createBindGroupLayout() {
-        // Define binding layout
-        WGPUBindGroupLayoutEntry bindingLayout = WGPUBindGroupLayoutEntry.createDirect();
-        setDefault(bindingLayout);
-        bindingLayout.setBinding(0);
-        bindingLayout.setVisibility(WGPUShaderStage.Vertex );
-        bindingLayout.getBuffer().setType(WGPUBufferBindingType.Uniform);
-        bindingLayout.getBuffer().setMinBindingSize(uniformBufferSize);
-        bindingLayout.getBuffer().setHasDynamicOffset(0L);
-
-        // Create a bind group layout
-        WGPUBindGroupLayoutDescriptor bindGroupLayoutDesc = WGPUBindGroupLayoutDescriptor.createDirect();
-        bindGroupLayoutDesc.setNextInChain();
-        bindGroupLayoutDesc.setLabel("ShapeRenderer binding group layout");
-        bindGroupLayoutDesc.setEntryCount(1);
-        bindGroupLayoutDesc.setEntries(bindingLayout); //, texBindingLayout, samplerBindingLayout);
-        return LibGPU.webGPU.wgpuDeviceCreateBindGroupLayout(LibGPU.device.getHandle(), bindGroupLayoutDesc);
+    public void circle(float x, float y, float radius){
+        shapes.circle(x, y, radius);
     }
 
-
-    private Pointer makeBindGroup() {
-        // Create a binding
-        WGPUBindGroupEntry binding = WGPUBindGroupEntry.createDirect();
-        binding.setNextInChain();
-        binding.setBinding(0);  // binding index
-        binding.setBuffer(uniformBuffer);
-        binding.setOffset(0);
-        binding.setSize(uniformBufferSize);
-
-        // A bind group contains one or multiple bindings
-        WGPUBindGroupDescriptor bindGroupDesc = WGPUBindGroupDescriptor.createDirect();
-        bindGroupDesc.setNextInChain();
-        bindGroupDesc.setLayout(bindGroupLayout);
-        // There must be as many bindings as declared in the layout!
-        bindGroupDesc.setEntryCount(1);
-        bindGroupDesc.setEntries(binding);
-        return LibGPU.webGPU.wgpuDeviceCreateBindGroup(LibGPU.device.getHandle(), bindGroupDesc);
+    public void circle(float x, float y, float radius, int segments){
+        shapes.circle(x, y, radius, segments);
     }
 
-    private Pointer makePipelineLayout(Pointer bindGroupLayout) {
-        long[] layouts = new long[1];
-        layouts[0] = bindGroupLayout.address();
-        Pointer layoutPtr = JavaWebGPU.createLongArrayPointer(layouts);
-
-        // Create the pipeline layout to define the bind groups needed : 1 bind group
-        WGPUPipelineLayoutDescriptor layoutDesc = WGPUPipelineLayoutDescriptor.createDirect();
-        layoutDesc.setNextInChain();
-        layoutDesc.setLabel("ShapeRenderer Pipeline Layout");
-        layoutDesc.setBindGroupLayoutCount(1);
-        layoutDesc.setBindGroupLayouts(layoutPtr);
-        return LibGPU.webGPU.wgpuDeviceCreatePipelineLayout(LibGPU.device.getHandle(), layoutDesc);
+    /** arc from start angle over a number of degrees, counter-clockwise. The outline includes the two radii. */
+    public void arc(float x, float y, float radius, float start, float degrees){
+        shapes.arc(x, y, radius, start, degrees);
     }
 
-    private void setDefault(WGPUBindGroupLayoutEntry bindingLayout) {
-
-        bindingLayout.getBuffer().setNextInChain();
-        bindingLayout.getBuffer().setType(WGPUBufferBindingType.Undefined);
-        bindingLayout.getBuffer().setHasDynamicOffset(0L);
-
-        bindingLayout.getSampler().setNextInChain();
-        bindingLayout.getSampler().setType(WGPUSamplerBindingType.Undefined);
+    public void arc(float x, float y, float radius, float start, float degrees, int segments){
+        shapes.arc(x, y, radius, start, degrees, segments);
+    }
 
-        bindingLayout.getStorageTexture().setNextInChain();
-        bindingLayout.getStorageTexture().setAccess(WGPUStorageTextureAccess.Undefined);
-        bindingLayout.getStorageTexture().setFormat(WGPUTextureFormat.Undefined);
-        bindingLayout.getStorageTexture().setViewDimension(WGPUTextureViewDimension.Undefined);
+    private Buffer createVertexBuffer(long size) {
+        return new Buffer("ShapeRenderer vertex buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Vertex, size);
+    }
 
-        bindingLayout.getTexture().setNextInChain();
-        bindingLayout.getTexture().setMultisampled(0L);
-        bindingLayout.getTexture().setSampleType(WGPUTextureSampleType.Undefined);
-        bindingLayout.getTexture().setViewDimension(WGPUTextureViewDimension.Undefined);
+    private Buffer createIndexBuffer(long size) {
+        size = (size + 3) & ~3; // round up to the next multiple of 4
+        return new Buffer("ShapeRenderer index buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Index, size);
+    }
 
+    private void setUniforms(){
+        uniformBuffer.beginFill();
+        uniformBuffer.append(projectionMatrix);
+        uniformBuffer.endFill();
     }
 
     @Override
     public void dispose(){
         pipelines.dispose();
-        webGPU.wgpuBufferRelease(vertexBuffer);
-        webGPU.wgpuBufferRelease(indexBuffer);
-        webGPU.wgpuBufferRelease(uniformBuffer);
-        webGPU.wgpuBindGroupLayoutRelease(bindGroupLayout);
-        //shader.dispose();
+        for(Buffer buffer : retired)
+            buffer.dispose();
+        retired.clear();
+        vertexBuffer.dispose();
+        indexBuffer.dispose();
+        bindGroup.dispose();
+        uniformBuffer.dispose();
+        bindGroupLayout.dispose();
+        pipelineLayout.dispose();
     }
 }
@@ -114,6 +114,11 @@ public class Sprite extends TextureRegion {
     }
 
 
+    // x, y, packed colour, u, v for each corner
+    float[] getVertices(){
+        return vertexData;
+    }
+
     public void draw(SpriteBatch batch){
         batch.draw(texture, vertexData);
     }
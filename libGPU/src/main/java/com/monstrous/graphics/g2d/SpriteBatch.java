@@ -12,7 +12,6 @@ import jnr.ffi.Pointer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
-import java.nio.ShortBuffer;
 
 /**
  * Class to render textured rectangles in batches.
@@ -20,18 +19,24 @@ import java.nio.ShortBuffer;
 public class SpriteBatch implements Disposable {
 
     private final static String DEFAULT_SHADER = "shaders/sprite.wgsl";
+    private final static String MULTI_TEXTURE_SHADER = "shaders/sprite-multitexture.wgsl";
+
+    /** number of textures that can be used in one draw call in multi-texture mode */
+    public final static int MAX_TEXTURE_SLOTS = 8;
+
+    /** the batch size grows up to this number of sprites, beyond that the batch is flushed when it is full */
+    public final static int MAX_SPRITES_PER_BATCH = 1 << 18;
 
     private WebGPU_JNI webGPU;
     private ShaderProgram specificShader;
     private int maxSprites;
     private boolean begun;
     private int vertexSize;
-    private final FloatBuffer vertexData;     // float buffer view on byte buffer
-    private final Pointer vertexDataPtr;      // Pointer wrapped around the byte buffer
+    private ByteBuffer vertexBB;              // staging area for vertex data of one batch
+    private FloatBuffer vertexData;           // float buffer view on byte buffer
     private int numRects;
     private final Color tint;
-    private Buffer vertexBuffer;
-    private Buffer indexBuffer;
+    private final QuadBuffer<Buffer> quads;
     private UniformBuffer uniformBuffer;
     private final BindGroupLayout bindGroupLayout;
     private VertexAttributes vertexAttributes;
@@ -40,15 +45,26 @@ public class SpriteBatch implements Disposable {
     private PipelineSpecification pipelineSpec;
     private int uniformBufferSize;
     private Texture texture;
+    private int slot;                         // slot of the current texture
+    private final boolean multiTexture;
+    private final Texture[] slots;            // textures used by the current batch
+    private int numSlots;
+    private final Texture[] boundSlots;       // textures in bindGroup
+    private BindGroup bindGroup;
     private final Matrix4 projectionMatrix;
     private RenderPass renderPass;
-    private int vbOffset;
     private final Pipelines pipelines;
     private Pipeline prevPipeline;
     private boolean blendingEnabled;
     public int maxSpritesInBatch;
     public int renderCalls;
+    public int flushesTextureChange;      // flushes because a texture was needed while all texture slots were in use
+    public int flushesStateChange;        // flushes because of a change of shader, blending, vertex attributes or projection matrix
+    public int flushesBatchFull;          // flushes because the batch reached MAX_SPRITES_PER_BATCH
+    public int bytesUploaded;             // vertex and index bytes uploaded in the current frame
+    public int bufferGrows;               // number of times the batch or a GPU buffer had to grow
     public int pipelineCount;
+    private int batchGrows;
 
 
     public SpriteBatch() {
@@ -59,33 +75,53 @@ public class SpriteBatch implements Disposable {
         this(maxSprites, null);
     }
 
+    public SpriteBatch(int maxSprites, ShaderProgram specificShader) {
+        this(maxSprites, specificShader, false);
+    }
+
     /** Create a SpriteBatch.
      *
-     * @param maxSprites        maximum number of sprite to be supported (default is 1000)
-     * @param specificShader    specific ShaderProgram to use, must be compatible with "sprite.wgsl". Leave null to use the default shader.
+     * In multi-texture mode up to MAX_TEXTURE_SLOTS textures are bound at the same time and each vertex holds the slot of its texture,
+     * so that switching between these textures does not need a flush.
+     *
+     * @param maxSprites        initial number of sprites per batch (default is 1000), grows when needed
+     * @param specificShader    specific ShaderProgram to use, must be compatible with "sprite.wgsl" (or "sprite-multitexture.wgsl" in multi-texture mode). Leave null to use the default shader.
+     * @param multiTexture      enable multi-texture mode
      */
-    public SpriteBatch(int maxSprites, ShaderProgram specificShader) {
+    public SpriteBatch(int maxSprites, ShaderProgram specificShader, boolean multiTexture) {
         this.maxSprites = maxSprites;
         this.specificShader = specificShader;
+        this.multiTexture = multiTexture;
 
         begun = false;
         webGPU = LibGPU.webGPU;
 
-        vertexAttributes = new VertexAttributes(VertexAttribute.Usage.POSITION_2D|VertexAttribute.Usage.TEXTURE_COORDINATE|VertexAttribute.Usage.COLOR_PACKED);
+        slots = new Texture[multiTexture ? MAX_TEXTURE_SLOTS : 1];
+        boundSlots = new Texture[slots.length];
+
+        if(multiTexture) {
+            vertexAttributes = new VertexAttributes();
+            vertexAttributes.add(VertexAttribute.Usage.POSITION_2D, "position", WGPUVertexFormat.Float32x2, 0);
+            vertexAttributes.add(VertexAttribute.Usage.COLOR_PACKED, "color", WGPUVertexFormat.Unorm8x4, 5);
+            vertexAttributes.add(VertexAttribute.Usage.TEXTURE_COORDINATE, "uv", WGPUVertexFormat.Float32x2, 1);
+            vertexAttributes.add(VertexAttribute.Usage.GENERIC, "slot", WGPUVertexFormat.Float32, 2);
+            vertexAttributes.end();
+        }
+        else
+            vertexAttributes = new VertexAttributes(VertexAttribute.Usage.POSITION_2D|VertexAttribute.Usage.TEXTURE_COORDINATE|VertexAttribute.Usage.COLOR_PACKED);
         defaultVertexAttributes = vertexAttributes;
 
-        // vertex: x, y, u, v, rgba
+        // vertex: x, y, rgba, u, v (, slot)
         vertexSize = vertexAttributes.getVertexSizeInBytes(); // bytes
 
         // allocate data buffers based on default vertex attributes which are assumed to be the worst case.
         // i.e. with setVertexAttributes() you can specify a subset
         createBuffers();
-        fillIndexBuffer();
+        quads = new QuadBuffer<>(new GPUBackend(), maxSprites * 4 * vertexSize, maxSprites);
 
-        ByteBuffer vertexBB = ByteBuffer.allocateDirect(maxSprites * 4 * vertexSize);
+        vertexBB = ByteBuffer.allocateDirect(maxSprites * 4 * vertexSize);
         vertexBB.order(ByteOrder.nativeOrder());  // important
         vertexData = vertexBB.asFloatBuffer();
-        vertexDataPtr = Pointer.wrap(JavaWebGPU.getRuntime(), vertexBB);
 
         projectionMatrix = new Matrix4();
         projectionMatrix.setToOrtho(0f, LibGPU.graphics.getWidth(), 0f, LibGPU.graphics.getHeight(), -1f, 1f);
@@ -101,28 +137,6 @@ public class SpriteBatch implements Disposable {
         pipelineSpec.name = "SpriteBatch pipeline";
     }
 
-    // the index buffer is fixed and only has to be filled on start-up
-    private void fillIndexBuffer(){
-        ByteBuffer bb = ByteBuffer.allocateDirect(maxSprites*6*Short.BYTES);
-        bb.order(ByteOrder.nativeOrder());  // important
-        ShortBuffer indexData = bb.asShortBuffer();
-        for(int i = 0; i < maxSprites; i++){
-            short vertexOffset = (short)(i * 4);
-            // two triangles per sprite
-            indexData.put(vertexOffset);
-            indexData.put((short)(vertexOffset + 1));
-            indexData.put((short)(vertexOffset + 2));
-
-            indexData.put(vertexOffset);
-            indexData.put((short)(vertexOffset + 2));
-            indexData.put((short)(vertexOffset + 3));
-        }
-        indexData.flip();
-        Pointer indexDataPtr = Pointer.wrap(JavaWebGPU.getRuntime(), bb);
-        webGPU.wgpuQueueWriteBuffer(LibGPU.queue.getHandle(), indexBuffer.getHandle(), 0, indexDataPtr, (long) maxSprites *6*Short.BYTES);
-    }
-
-
     public void setColor(float r, float g, float b, float a){
         tint.set(r,g,b,a);
     }
@@ -134,7 +148,7 @@ public class SpriteBatch implements Disposable {
     public void enableBlending(){
         if(blendingEnabled)
            return;
-        flush();
+        flushForStateChange();
         blendingEnabled = true;
         pipelineSpec.enableBlending();
         setPipeline();
@@ -143,7 +157,7 @@ public class SpriteBatch implements Disposable {
     public void disableBlending(){
         if(!blendingEnabled)
             return;
-        flush();
+        flushForStateChange();
         blendingEnabled = false;
         pipelineSpec.disableBlending();
         setPipeline();
@@ -152,11 +166,14 @@ public class SpriteBatch implements Disposable {
     public void setVertexAttributes(VertexAttributes vattr){
         if (!begun) // catch incorrect usage
             throw new RuntimeException("Call begin() before calling setVertexAttributes().");
-        flush();
+        if(multiTexture)
+            throw new RuntimeException("SpriteBatch: setVertexAttributes() is not supported in multi-texture mode.");
+        flushForStateChange();
         vertexAttributes = vattr;
         vertexSize = vertexAttributes.getVertexSizeInBytes(); // bytes
         pipelineSpec.vertexAttributes = vattr;
         pipelineSpec.shader = null;     // force recompile of shader
+        pipelineSpec.recalcHash();
         setPipeline();
     }
 
@@ -173,12 +190,18 @@ public class SpriteBatch implements Disposable {
             throw new RuntimeException("Must end() before begin()");
         begun = true;
         numRects = 0;
-        vbOffset = 0;
+        quads.beginFrame(LibGPU.graphics.getFrameId());
+        bytesUploaded = quads.bytesUploaded;
         vertexData.clear();
         vertexAttributes = defaultVertexAttributes;
         vertexSize = vertexAttributes.getVertexSizeInBytes(); // bytes
         maxSpritesInBatch = 0;
         renderCalls = 0;
+        flushesTextureChange = 0;
+        flushesStateChange = 0;
+        flushesBatchFull = 0;
+        texture = null;
+        numSlots = 0;
 
         prevPipeline = null;
 
@@ -189,9 +212,10 @@ public class SpriteBatch implements Disposable {
         pipelineSpec.disableDepthTest();
         pipelineSpec.shader = specificShader;
         if(specificShader == null)
-            pipelineSpec.shaderFilePath = DEFAULT_SHADER;
+            pipelineSpec.shaderFilePath = multiTexture ? MULTI_TEXTURE_SHADER : DEFAULT_SHADER;
         pipelineSpec.vertexAttributes = vertexAttributes;
         pipelineSpec.numSamples =  LibGPU.app.configuration.numSamples;
+        pipelineSpec.recalcHash();
 
         setUniforms();
 
@@ -213,31 +237,91 @@ public class SpriteBatch implements Disposable {
         int numBytes = numRects * 4 * vertexSize;
 
         // append new vertex data to GPU vertex buffer
-        LibGPU.queue.writeBuffer(vertexBuffer, vbOffset, vertexDataPtr, numBytes);
-        //webGPU.wgpuQueueWriteBuffer(LibGPU.queue, vertexBuffer.getHandle(), vbOffset, vertexDataPtr, numBytes);
-
-        // bind texture
-        BindGroup bg = makeBindGroup(bindGroupLayout, uniformBuffer, texture);
+        quads.reserveQuads(numRects);
+        int vbOffset = quads.upload(vertexBB, numBytes);
+        bytesUploaded = quads.bytesUploaded;
+        bufferGrows = quads.numGrows + batchGrows;
+
+        // bind textures, the bind group is kept until the textures change
+        if(bindGroup == null || slotsChanged()) {
+            if(bindGroup != null)
+                bindGroup.dispose();
+            bindGroup = makeBindGroup(bindGroupLayout, uniformBuffer);
+        }
 
         // Set vertex buffer while encoding the render pass
         // use an offset to set the vertex buffer for this batch
-        renderPass.setVertexBuffer( 0, vertexBuffer.getHandle(), vbOffset, numBytes);
-        renderPass.setIndexBuffer( indexBuffer.getHandle(), WGPUIndexFormat.Uint16, 0, (long)numRects*6*Short.BYTES);
+        renderPass.setVertexBuffer( 0, quads.getVertexBuffer().getHandle(), vbOffset, numBytes);
+        renderPass.setIndexBuffer( quads.getIndexBuffer().getHandle(), quads.isUint32() ? WGPUIndexFormat.Uint32 : WGPUIndexFormat.Uint16, 0, quads.getIndexSize(numRects));
 
-        renderPass.setBindGroup( 0, bg.getHandle(), 0, JavaWebGPU.createNullPointer());
+        renderPass.setBindGroup( 0, bindGroup.getHandle(), 0, JavaWebGPU.createNullPointer());
 
         //renderPass.setScissorRect( 20, 20, 500, 500);
 
         renderPass.drawIndexed( numRects*6, 1, 0, 0, 0);
 
-        bg.dispose();
-
-        vbOffset += numBytes;
-
         vertexData.clear(); // reset fill position for next batch
         numRects = 0;   // reset
     }
 
+    // flush because of a state change
+    private void flushForStateChange(){
+        if(numRects > 0)
+            flushesStateChange++;
+        flush();
+    }
+
+    // the batch is full: grow the staging area or, if it is at its maximum size, flush
+    private void growBatch(){
+        if(maxSprites >= MAX_SPRITES_PER_BATCH){
+            flushesBatchFull++;
+            flush();
+            return;
+        }
+        maxSprites = Math.min(2 * maxSprites, MAX_SPRITES_PER_BATCH);
+        ByteBuffer bb = ByteBuffer.allocateDirect(maxSprites * 4 * defaultVertexAttributes.getVertexSizeInBytes());
+        bb.order(ByteOrder.nativeOrder());  // important
+        FloatBuffer fb = bb.asFloatBuffer();
+        vertexData.flip();
+        fb.put(vertexData);     // keep the sprites of the current batch
+        vertexBB = bb;
+        vertexData = fb;
+        batchGrows++;
+    }
+
+    private boolean slotsChanged(){
+        for(int i = 0; i < numSlots; i++)
+            if(slots[i] != boundSlots[i])
+                return true;
+        return false;
+    }
+
+    // returns the slot for this texture, flushes if the texture is not bound and all slots are in use
+    private int useTexture(Texture texture){
+        if(texture == this.texture)
+            return slot;
+        int index = -1;
+        for(int i = 0; i < numSlots; i++){
+            if(slots[i] == texture){
+                index = i;
+                break;
+            }
+        }
+        if(index < 0){
+            if(numSlots == slots.length){   // all slots in use, need to flush what we have so far
+                if(numRects > 0)
+                    flushesTextureChange++;
+                flush();
+                numSlots = 0;
+            }
+            index = numSlots++;
+            slots[index] = texture;
+        }
+        this.texture = texture;
+        slot = index;
+        return index;
+    }
+
     public void end() {
         if (!begun) // catch incorrect usage
             throw new RuntimeException("Cannot end() without begin()");
@@ -258,11 +342,11 @@ public class SpriteBatch implements Disposable {
     }
 
     public void setShader(ShaderProgram shaderProgram) {
-        flush();
+        flushForStateChange();
         if (shaderProgram == null) {
             pipelineSpec.shader = specificShader;
             if (specificShader == null)
-                pipelineSpec.shaderFilePath = DEFAULT_SHADER;
+                pipelineSpec.shaderFilePath = multiTexture ? MULTI_TEXTURE_SHADER : DEFAULT_SHADER;
             pipelineSpec.recalcHash();
         }
         else {
@@ -282,7 +366,7 @@ public class SpriteBatch implements Disposable {
 
     public void setProjectionMatrix(Matrix4 projection) {
         if(begun)
-            flush();
+            flushForStateChange();
         projectionMatrix.set(projection);
         setUniforms();
     }
@@ -310,12 +394,9 @@ public class SpriteBatch implements Disposable {
             throw new RuntimeException("SpriteBatch: Must call begin() before draw().");
 
         if(numRects == maxSprites)
-            throw new RuntimeException("SpriteBatch: Too many sprites.");
+            growBatch();
 
-        if(texture != this.texture) { // changing texture, need to flush what we have so far
-            flush();
-            this.texture = texture;
-        }
+        useTexture(texture);
         addRect(x, y, width, height, u, v, u2, v2);
         numRects++;
     }
@@ -328,15 +409,17 @@ public class SpriteBatch implements Disposable {
             throw new RuntimeException("SpriteBatch: Must call begin() before draw().");
 
         if(numRects == maxSprites)
-            throw new RuntimeException("SpriteBatch: Too many sprites.");
-
-        if(texture != this.texture) { // changing texture, need to flush what we have so far
-            flush();
-            this.texture = texture;
-        }
-        for(int i = 0; i < vertices.length; i++){
-            vertexData.put(vertices[i]);
+            growBatch();
+
+        int textureSlot = useTexture(texture);
+        if(multiTexture) {
+            for (int i = 0; i < vertices.length; i += 5) {
+                vertexData.put(vertices, i, 5);
+                vertexData.put(textureSlot);
+            }
         }
+        else
+            vertexData.put(vertices);
         numRects++;
     }
 
@@ -345,6 +428,7 @@ public class SpriteBatch implements Disposable {
         boolean hasColor = vertexAttributes.hasUsage(VertexAttribute.Usage.COLOR_PACKED);
         boolean hasUV = vertexAttributes.hasUsage(VertexAttribute.Usage.TEXTURE_COORDINATE);
         float col = tint.toFloatBits();
+        float slot = this.slot;
 
         vertexData.put(x);
         vertexData.put(y);
@@ -355,6 +439,9 @@ public class SpriteBatch implements Disposable {
             vertexData.put(u);
             vertexData.put(v);
         }
+        if(multiTexture) {
+            vertexData.put(slot);
+        }
 
         vertexData.put(x);
         vertexData.put(y+h);
@@ -365,6 +452,9 @@ public class SpriteBatch implements Disposable {
             vertexData.put(u);
             vertexData.put(v2);
         }
+        if(multiTexture) {
+            vertexData.put(slot);
+        }
 
 
         vertexData.put(x+w);
@@ -376,6 +466,9 @@ public class SpriteBatch implements Disposable {
             vertexData.put(u2);
             vertexData.put(v2);
         }
+        if(multiTexture) {
+            vertexData.put(slot);
+        }
 
 
         vertexData.put(x+w);
@@ -387,6 +480,9 @@ public class SpriteBatch implements Disposable {
             vertexData.put(u2);
             vertexData.put(v);
         }
+        if(multiTexture) {
+            vertexData.put(slot);
+        }
 
     }
 
@@ -394,13 +490,6 @@ public class SpriteBatch implements Disposable {
 
     private void createBuffers() {
 
-        long indexSize = (long) maxSprites * 6 * Short.BYTES;
-        indexSize = (indexSize + 3) & ~3; // round up to the next multiple of 4
-
-        // Create vertex buffer and index buffer
-        vertexBuffer = new Buffer("Vertex buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Vertex, (long) maxSprites * 4 * vertexSize);
-        indexBuffer = new Buffer("Index buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Index, indexSize);
-
         // Create uniform buffer
         uniformBufferSize = 16 * Float.BYTES;
         uniformBuffer = new UniformBuffer(uniformBufferSize,WGPUBufferUsage.CopyDst |WGPUBufferUsage.Uniform  );
@@ -416,30 +505,70 @@ public class SpriteBatch implements Disposable {
         BindGroupLayout layout = new BindGroupLayout("SpriteBatch bind group layout");
         layout.begin();
         layout.addBuffer(0, WGPUShaderStage.Vertex, WGPUBufferBindingType.Uniform, uniformBufferSize, false);
-        layout.addTexture(1, WGPUShaderStage.Fragment, WGPUTextureSampleType.Float, WGPUTextureViewDimension._2D, false);
-        layout.addSampler(2, WGPUShaderStage.Fragment, WGPUSamplerBindingType.Filtering );
+        // textures at 1..n, samplers at n+1..2n
+        for(int i = 0; i < slots.length; i++)
+            layout.addTexture(1+i, WGPUShaderStage.Fragment, WGPUTextureSampleType.Float, WGPUTextureViewDimension._2D, false);
+        for(int i = 0; i < slots.length; i++)
+            layout.addSampler(1+slots.length+i, WGPUShaderStage.Fragment, WGPUSamplerBindingType.Filtering );
 
         layout.end();
         return layout;
     }
 
 
-    private BindGroup makeBindGroup(BindGroupLayout bindGroupLayout, Buffer uniformBuffer, Texture texture) {
+    private BindGroup makeBindGroup(BindGroupLayout bindGroupLayout, Buffer uniformBuffer) {
+        // unused slots are filled with the first texture
+        for(int i = 0; i < slots.length; i++)
+            boundSlots[i] = i < numSlots ? slots[i] : slots[0];
+
         BindGroup bg = new BindGroup(bindGroupLayout);
         bg.begin();
         bg.addBuffer(0, uniformBuffer);
-        bg.addTexture(1, texture.getTextureView());
-        bg.addSampler(2, texture.getSampler());
+        for(int i = 0; i < slots.length; i++) {
+            bg.addTexture(1 + i, boundSlots[i].getTextureView());
+            bg.addSampler(1 + slots.length + i, boundSlots[i].getSampler());
+        }
         bg.end();
         return bg;
     }
 
 
+    // vertex and index buffers on the GPU
+    private static class GPUBackend implements QuadBuffer.Backend<Buffer> {
+        private ByteBuffer data;
+        private Pointer dataPtr;        // Pointer wrapped around data
+
+        @Override
+        public Buffer createVertexBuffer(int size) {
+            return new Buffer("SpriteBatch vertex buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Vertex, size);
+        }
+
+        @Override
+        public Buffer createIndexBuffer(int size) {
+            return new Buffer("SpriteBatch index buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Index, size);
+        }
+
+        @Override
+        public void write(Buffer buffer, int offset, ByteBuffer data, int size) {
+            if(data != this.data) {
+                this.data = data;
+                dataPtr = Pointer.wrap(JavaWebGPU.getRuntime(), data);
+            }
+            LibGPU.queue.writeBuffer(buffer, offset, dataPtr, size);
+        }
+
+        @Override
+        public void release(Buffer buffer) {
+            buffer.dispose();
+        }
+    }
+
     @Override
     public void dispose(){
+        if(bindGroup != null)
+            bindGroup.dispose();
         pipelines.dispose();
-        vertexBuffer.dispose();
-        indexBuffer.dispose();
+        quads.dispose();
         uniformBuffer.dispose();
         bindGroupLayout.dispose();
         pipelineLayout.dispose();
@@ -0,0 +1,320 @@
+package com.monstrous.graphics.g2d;
+
+import com.monstrous.LibGPU;
+import com.monstrous.graphics.*;
+import com.monstrous.graphics.webgpu.*;
+import com.monstrous.math.Matrix4;
+import com.monstrous.utils.Disposable;
+import com.monstrous.utils.JavaWebGPU;
+import com.monstrous.webgpu.*;
+import jnr.ffi.Pointer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+
+/**
+ * Class to render static sprites, e.g. a tile map or a background, without uploading them every frame.
+ *
+ * Sprites are added between beginCache() and endCache(). The vertices of a cache are kept in a GPU vertex buffer,
+ * grouped per texture, so that drawing a cache only takes one draw call per texture.
+ * Within a cache the textures are drawn in the order they were first added.
+ *
+ * Single sprites of a cache can be changed with set(). Only the changed range of the cache is uploaded again at the next begin().
+ * The CPU side of the caches is kept by CachedSprites.
+ *
+ * A bind group is created per texture on first use and kept until clear() or dispose().
+ *
+ * Usage:
+ *  cache.beginCache();
+ *  cache.add(...);
+ *  int id = cache.endCache();
+ *  ...
+ *  cache.begin();
+ *  cache.draw(id);
+ *  cache.end();
+ */
+public class SpriteCache implements Disposable {
+
+    private final static String SHADER = "shaders/sprite.wgsl";
+    private final static int SPRITE_BYTES = CachedSprites.SPRITE_BYTES;
+
+    private final CachedSprites<Texture> sprites;
+    private ByteBuffer uploadBB;                // staging buffer of the sprites that the pointer is wrapped around
+    private Pointer uploadPtr;
+    private final Buffer vertexBuffer;
+    private final Buffer indexBuffer;
+    private final int maxQuadsPerDraw;
+    private final float[] spriteVertices = new float[CachedSprites.SPRITE_FLOATS];
+
+    private final Color color;
+    private final Matrix4 projectionMatrix;
+    private final VertexAttributes vertexAttributes;
+    private final UniformBuffer uniformBuffer;
+    private final BindGroupLayout bindGroupLayout;
+    private final PipelineLayout pipelineLayout;
+    private final PipelineSpecification pipelineSpec;
+    private final Pipelines pipelines;
+    private final HashMap<Texture, BindGroup> bindGroups = new HashMap<>();
+    private RenderPass renderPass;
+    private boolean begun;
+
+    public int renderCalls;             // draw calls since begin()
+    public int bytesUploaded;           // bytes of vertex data uploaded by the last begin()
+
+
+    public SpriteCache() {
+        this(1000);
+    }
+
+    /** @param size    maximum number of sprites over all caches */
+    public SpriteCache(int size) {
+        sprites = new CachedSprites<>(size);
+
+        vertexAttributes = new VertexAttributes(VertexAttribute.Usage.POSITION_2D|VertexAttribute.Usage.TEXTURE_COORDINATE|VertexAttribute.Usage.COLOR_PACKED);
+        if(vertexAttributes.getVertexSizeInBytes() != CachedSprites.VERTEX_FLOATS * Float.BYTES)
+            throw new RuntimeException("SpriteCache: unexpected vertex size.");
+
+        vertexBuffer = new Buffer("SpriteCache vertex buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Vertex, (long) size * SPRITE_BYTES);
+
+        // groups larger than this are drawn in several calls, so that 16-bit indices are always enough
+        maxQuadsPerDraw = Math.min(size, QuadBuffer.MAX_QUADS_16BIT);
+        indexBuffer = createIndexBuffer(maxQuadsPerDraw);
+
+        color = new Color(Color.WHITE);
+        projectionMatrix = new Matrix4();
+        projectionMatrix.setToOrtho(0f, LibGPU.graphics.getWidth(), 0f, LibGPU.graphics.getHeight(), -1f, 1f);
+        uniformBuffer = new UniformBuffer(16 * Float.BYTES, WGPUBufferUsage.CopyDst | WGPUBufferUsage.Uniform);
+        setUniforms();
+
+        bindGroupLayout = new BindGroupLayout("SpriteCache bind group layout");
+        bindGroupLayout.begin();
+        bindGroupLayout.addBuffer(0, WGPUShaderStage.Vertex, WGPUBufferBindingType.Uniform, 16 * Float.BYTES, false);
+        bindGroupLayout.addTexture(1, WGPUShaderStage.Fragment, WGPUTextureSampleType.Float, WGPUTextureViewDimension._2D, false);
+        bindGroupLayout.addSampler(2, WGPUShaderStage.Fragment, WGPUSamplerBindingType.Filtering);
+        bindGroupLayout.end();
+        pipelineLayout = new PipelineLayout("SpriteCache pipeline layout", bindGroupLayout);
+
+        pipelines = new Pipelines();
+        pipelineSpec = new PipelineSpecification(vertexAttributes, SHADER);
+        pipelineSpec.name = "SpriteCache pipeline";
+        pipelineSpec.enableBlending();
+        pipelineSpec.disableDepthTest();
+    }
+
+    /** colour for the sprites that are added or set after this call */
+    public void setColor(Color color){
+        this.color.set(color);
+    }
+
+    public void setColor(float r, float g, float b, float a){
+        color.set(r, g, b, a);
+    }
+
+    /** start a new cache */
+    public void beginCache() {
+        if(begun)
+            throw new RuntimeException("SpriteCache: end() must be called before beginCache().");
+        sprites.beginCache();
+    }
+
+    /** redefine an existing cache, it can hold at most as many sprites as when it was first defined */
+    public void beginCache(int cacheId) {
+        if(begun)
+            throw new RuntimeException("SpriteCache: end() must be called before beginCache().");
+        sprites.beginCache(cacheId);
+    }
+
+    /** @return id of the cache to use for draw() and set() */
+    public int endCache() {
+        return sprites.endCache();
+    }
+
+    public void add(Texture texture, float x, float y) {
+        add(texture, x, y, texture.getWidth(), texture.getHeight());
+    }
+
+    public void add(Texture texture, float x, float y, float w, float h) {
+        add(texture, x, y, w, h, 0f, 1f, 1f, 0f);
+    }
+
+    public void add(TextureRegion region, float x, float y) {
+        add(region.texture, x, y, region.regionWidth, region.regionHeight, region.u, region.v2, region.u2, region.v);
+    }
+
+    public void add(TextureRegion region, float x, float y, float w, float h) {
+        add(region.texture, x, y, w, h, region.u, region.v, region.u2, region.v2);
+    }
+
+    public void add(Sprite sprite) {
+        add(sprite.texture, sprite.getVertices());
+    }
+
+    public void add(Texture texture, float x, float y, float w, float h, float u, float v, float u2, float v2) {
+        putRect(spriteVertices, x, y, w, h, u, v, u2, v2);
+        sprites.add(texture, spriteVertices);
+    }
+
+    /** add a sprite from 20 floats: x, y, packed colour, u, v for each corner */
+    public void add(Texture texture, float[] vertices) {
+        if(vertices.length != CachedSprites.SPRITE_FLOATS)
+            throw new IllegalArgumentException("SpriteCache.add: vertices must have length "+CachedSprites.SPRITE_FLOATS);
+        sprites.add(texture, vertices);
+    }
+
+    /** change a sprite of a cache, index is the order in which it was added. The texture of the sprite stays the same. */
+    public void set(int cacheId, int index, float x, float y, float w, float h, float u, float v, float u2, float v2) {
+        putRect(spriteVertices, x, y, w, h, u, v, u2, v2);
+        sprites.set(cacheId, index, spriteVertices);
+    }
+
+    /** change a sprite of a cache from 20 floats, index is the order in which it was added. */
+    public void set(int cacheId, int index, float[] vertices) {
+        if(vertices.length != CachedSprites.SPRITE_FLOATS)
+            throw new IllegalArgumentException("SpriteCache.set: vertices must have length "+CachedSprites.SPRITE_FLOATS);
+        sprites.set(cacheId, index, vertices);
+    }
+
+    private void putRect(float[] vertices, float x, float y, float w, float h, float u, float v, float u2, float v2) {
+        float col = color.toFloatBits();
+        int i = 0;
+        vertices[i++] = x;      vertices[i++] = y;      vertices[i++] = col; vertices[i++] = u;  vertices[i++] = v;
+        vertices[i++] = x;      vertices[i++] = y+h;    vertices[i++] = col; vertices[i++] = u;  vertices[i++] = v2;
+        vertices[i++] = x+w;    vertices[i++] = y+h;    vertices[i++] = col; vertices[i++] = u2; vertices[i++] = v2;
+        vertices[i++] = x+w;    vertices[i++] = y;      vertices[i++] = col; vertices[i++] = u2; vertices[i] = v;
+    }
+
+    /** remove all caches and release the bind groups of their textures */
+    public void clear() {
+        if(begun)
+            throw new RuntimeException("SpriteCache: end() must be called before clear().");
+        sprites.clear();
+        for(BindGroup bg : bindGroups.values())
+            bg.dispose();
+        bindGroups.clear();
+    }
+
+    public Matrix4 getProjectionMatrix() {
+        return projectionMatrix;
+    }
+
+    public void setProjectionMatrix(Matrix4 projection) {
+        if(begun)
+            throw new RuntimeException("SpriteCache: setProjectionMatrix() cannot be called between begin() and end().");
+        projectionMatrix.set(projection);
+        setUniforms();
+    }
+
+    public void begin() {
+        if(begun)
+            throw new RuntimeException("SpriteCache: must end() before begin()");
+        if(sprites.isBuilding())
+            throw new RuntimeException("SpriteCache: endCache() must be called before begin().");
+        begun = true;
+        renderCalls = 0;
+
+        // upload the changed parts of the caches
+        bytesUploaded = sprites.upload(this::write);
+
+        renderPass = RenderPassBuilder.create(null, LibGPU.app.configuration.numSamples);
+        pipelineSpec.numSamples = LibGPU.app.configuration.numSamples;
+        pipelineSpec.recalcHash();
+        Pipeline pipeline = pipelines.findPipeline(pipelineLayout.getHandle(), pipelineSpec);
+        renderPass.setPipeline(pipeline.getHandle());
+        renderPass.setIndexBuffer(indexBuffer.getHandle(), WGPUIndexFormat.Uint16, 0, indexBuffer.getSize());
+    }
+
+    /** draw a cache, no vertex data is uploaded */
+    public void draw(int cacheId) {
+        if(!begun)
+            throw new RuntimeException("SpriteCache: must call begin() before draw().");
+        int count = sprites.getCount(cacheId);
+        if(count == 0)
+            return;
+        renderPass.setVertexBuffer(0, vertexBuffer.getHandle(), (long) sprites.getOffset(cacheId) * SPRITE_BYTES, (long) count * SPRITE_BYTES);
+        int first = 0;
+        for(int g = 0; g < sprites.getNumGroups(cacheId); g++){
+            renderPass.setBindGroup(0, getBindGroup(sprites.getTexture(cacheId, g)).getHandle());
+            int end = first + sprites.getGroupCount(cacheId, g);
+            for(int quad = first; quad < end; quad += maxQuadsPerDraw){
+                int numQuads = Math.min(maxQuadsPerDraw, end - quad);
+                renderPass.drawIndexed(numQuads * 6, 1, 0, quad * 4, 0);
+                renderCalls++;
+            }
+            first = end;
+        }
+    }
+
+    public void end() {
+        if(!begun)
+            throw new RuntimeException("SpriteCache: cannot end() without begin()");
+        begun = false;
+        renderPass.end();
+        renderPass = null;
+    }
+
+    // upload changed sprites, the pointer is only wrapped again when the staging buffer has grown
+    private void write(int offset, ByteBuffer data, int size) {
+        if(data != uploadBB) {
+            uploadBB = data;
+            uploadPtr = Pointer.wrap(JavaWebGPU.getRuntime(), data);
+        }
+        LibGPU.queue.writeBuffer(vertexBuffer, offset, uploadPtr, size);
+    }
+
+    // bind groups are kept per texture until clear() or dispose()
+    private BindGroup getBindGroup(Texture texture) {
+        BindGroup bg = bindGroups.get(texture);
+        if(bg == null) {
+            bg = new BindGroup(bindGroupLayout);
+            bg.begin();
+            bg.addBuffer(0, uniformBuffer);
+            bg.addTexture(1, texture.getTextureView());
+            bg.addSampler(2, texture.getSampler());
+            bg.end();
+            bindGroups.put(texture, bg);
+        }
+        return bg;
+    }
+
+    private void setUniforms(){
+        uniformBuffer.beginFill();
+        uniformBuffer.append(projectionMatrix);
+        uniformBuffer.endFill();
+    }
+
+    // the index buffer is fixed: two triangles per quad
+    private static Buffer createIndexBuffer(int numQuads) {
+        int size = numQuads * 6 * Short.BYTES;
+        size = (size + 3) & ~3; // round up to the next multiple of 4
+        ByteBuffer bb = ByteBuffer.allocateDirect(size);
+        bb.order(ByteOrder.nativeOrder());  // important
+        for(int i = 0; i < numQuads; i++){
+            short vertexOffset = (short)(i * 4);
+            bb.putShort(vertexOffset);
+            bb.putShort((short)(vertexOffset + 1));
+            bb.putShort((short)(vertexOffset + 2));
+
+            bb.putShort(vertexOffset);
+            bb.putShort((short)(vertexOffset + 2));
+            bb.putShort((short)(vertexOffset + 3));
+        }
+        bb.clear();
+        Buffer buffer = new Buffer("SpriteCache index buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Index, size);
+        buffer.write(0, Pointer.wrap(JavaWebGPU.getRuntime(), bb), size);
+        return buffer;
+    }
+
+    @Override
+    public void dispose() {
+        for(BindGroup bg : bindGroups.values())
+            bg.dispose();
+        bindGroups.clear();
+        pipelines.dispose();
+        vertexBuffer.dispose();
+        indexBuffer.dispose();
+        uniformBuffer.dispose();
+        bindGroupLayout.dispose();
+        pipelineLayout.dispose();
+    }
+}
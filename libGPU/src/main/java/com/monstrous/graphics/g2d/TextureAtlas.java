@@ -0,0 +1,70 @@
+package com.monstrous.graphics.g2d;
+
+import com.monstrous.FileHandle;
+import com.monstrous.graphics.Texture;
+import com.monstrous.graphics.TextureRegion;
+import com.monstrous.utils.Disposable;
+import com.monstrous.utils.JavaWebGPU;
+import com.monstrous.webgpu.WGPUTextureFormat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/** A set of images packed into a few textures, so that a SpriteBatch can draw them without switching textures.
+ *
+ * Create it directly from a TexturePacker, or load an atlas that was saved with TexturePacker.save().
+ */
+public class TextureAtlas implements Disposable {
+
+    private final ArrayList<Texture> pages = new ArrayList<>();
+    private final Map<String, TextureRegion> regions = new HashMap<>();
+
+    /** create textures for the pages of a packer */
+    public TextureAtlas(TexturePacker packer, boolean mipMapping) {
+        TextureAtlasData data = packer.pack("page");
+        for (int page = 0; page < data.pages.size(); page++) {
+            TextureAtlasData.Page p = data.pages.get(page);
+            Texture texture = new Texture(p.width, p.height, mipMapping, false, WGPUTextureFormat.RGBA8Unorm, 1);
+            texture.load(JavaWebGPU.createByteArrayPointer(packer.getPagePixels(page)), 0);
+            pages.add(texture);
+        }
+        addRegions(data);
+    }
+
+    /** load an atlas file and its page images, which are expected in the same directory */
+    public TextureAtlas(FileHandle atlasFile, boolean mipMapping) {
+        TextureAtlasData data = TextureAtlasData.read(atlasFile);
+        File directory = atlasFile.file.getParentFile();
+        for (TextureAtlasData.Page p : data.pages) {
+            Texture texture = new Texture(new FileHandle(new File(directory, p.fileName), atlasFile.type), mipMapping);
+            if (texture.getWidth() != p.width || texture.getHeight() != p.height)
+                throw new RuntimeException("TextureAtlas: page " + p.fileName + " does not match the size in the atlas file.");
+            pages.add(texture);
+        }
+        addRegions(data);
+    }
+
+    private void addRegions(TextureAtlasData data) {
+        for (TextureAtlasData.Region region : data.regions)
+            regions.put(region.name, new TextureRegion(pages.get(region.page), region.x, region.y, region.width, region.height));
+    }
+
+    /** returns the region with this name or null if there is none */
+    public TextureRegion findRegion(String name) {
+        return regions.get(name);
+    }
+
+    public ArrayList<Texture> getPages() {
+        return pages;
+    }
+
+    @Override
+    public void dispose() {
+        for (Texture texture : pages)
+            texture.dispose();
+        pages.clear();
+        regions.clear();
+    }
+}
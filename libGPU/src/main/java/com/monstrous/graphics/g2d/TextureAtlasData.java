@@ -0,0 +1,124 @@
+package com.monstrous.graphics.g2d;
+
+import com.monstrous.FileHandle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/** Layout of a texture atlas: the page images and the position of each region on a page.
+ * Produced by TexturePacker and stored in a text file next to the page images, so that the packing can be skipped on later runs.
+ *
+ * File format:
+ * <pre>
+ * page file=atlas0.png width=512 height=256
+ * region page=0 x=2 y=2 width=30 height=14 name=hero
+ * </pre>
+ * Positions are in pixels from the top left of the page and exclude the padding. The name is the rest of the line, so it may contain spaces.
+ */
+public class TextureAtlasData {
+
+    public static class Page {
+        public String fileName;
+        public int width, height;
+
+        public Page(String fileName, int width, int height) {
+            this.fileName = fileName;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public static class Region {
+        public String name;
+        public int page;
+        public int x, y, width, height;
+
+        public Region(String name, int page, int x, int y, int width, int height) {
+            this.name = name;
+            this.page = page;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public final ArrayList<Page> pages = new ArrayList<>();
+    public final ArrayList<Region> regions = new ArrayList<>();
+
+    public Region findRegion(String name){
+        for(Region region : regions)
+            if(region.name.equals(name))
+                return region;
+        return null;
+    }
+
+    public void write(Writer writer) throws IOException {
+        for(Page page : pages)
+            writer.write("page file="+page.fileName+" width="+page.width+" height="+page.height+"\n");
+        for(Region region : regions)
+            writer.write("region page="+region.page+" x="+region.x+" y="+region.y+" width="+region.width+" height="+region.height+" name="+region.name+"\n");
+    }
+
+    public static TextureAtlasData read(FileHandle file){
+        return read(new StringReader(file.readString()));
+    }
+
+    public static TextureAtlasData read(Reader reader) {
+        TextureAtlasData data = new TextureAtlasData();
+        BufferedReader lines = new BufferedReader(reader);
+        try {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.startsWith("page ")) {
+                    // page file=atlas0.png width=512 height=256
+                    String fileName = null;
+                    int width = 0, height = 0;
+                    for (String word : trimmed.split(" ")) {
+                        String[] vars = word.split("=", 2);
+                        if (vars[0].contentEquals("file"))
+                            fileName = vars[1];
+                        else if (vars[0].contentEquals("width"))
+                            width = Integer.parseInt(vars[1]);
+                        else if (vars[0].contentEquals("height"))
+                            height = Integer.parseInt(vars[1]);
+                    }
+                    if (fileName == null || width <= 0 || height <= 0)
+                        throw new RuntimeException("Invalid page line in atlas file: " + trimmed);
+                    data.pages.add(new Page(fileName, width, height));
+                } else if (trimmed.startsWith("region ")) {
+                    // region page=0 x=2 y=2 width=30 height=14 name=hero
+                    int nameStart = trimmed.indexOf(" name=");
+                    if (nameStart < 0)
+                        throw new RuntimeException("Invalid region line in atlas file: " + trimmed);
+                    String name = trimmed.substring(nameStart + 6);
+                    int page = -1, x = 0, y = 0, width = 0, height = 0;
+                    for (String word : trimmed.substring(0, nameStart).split(" ")) {
+                        String[] vars = word.split("=");
+                        if (vars[0].contentEquals("page"))
+                            page = Integer.parseInt(vars[1]);
+                        else if (vars[0].contentEquals("x"))
+                            x = Integer.parseInt(vars[1]);
+                        else if (vars[0].contentEquals("y"))
+                            y = Integer.parseInt(vars[1]);
+                        else if (vars[0].contentEquals("width"))
+                            width = Integer.parseInt(vars[1]);
+                        else if (vars[0].contentEquals("height"))
+                            height = Integer.parseInt(vars[1]);
+                    }
+                    if (page < 0 || page >= data.pages.size())
+                        throw new RuntimeException("Invalid page in atlas file: " + trimmed);
+                    data.regions.add(new Region(name, page, x, y, width, height));
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading atlas file.", ex);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,286 @@
+package com.monstrous.graphics.g2d;
+
+import com.monstrous.FileHandle;
+import com.monstrous.graphics.ImageSave;
+import com.monstrous.graphics.PixmapInfo;
+import com.monstrous.utils.JavaWebGPU;
+import jnr.ffi.Pointer;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/** Packs images into one or more atlas pages using the MaxRects algorithm (best short side fit).
+ *
+ * Each image is surrounded by padding pixels. By default the edge pixels of the image are repeated into the padding,
+ * so that bilinear filtering and the first mip levels do not pick up pixels from neighbouring images.
+ * Pages are shrunk to the smallest power of two that holds their images.
+ *
+ * Packing only needs the image sizes, so it can run without a GPU. Use TextureAtlas to create textures from the result,
+ * or save() to store the pages and layout for later use.
+ */
+public class TexturePacker {
+
+    private static class Image {
+        String name;
+        int index;             // order in which the image was added
+        int width, height;
+        byte[] pixels;         // RGBA, may be null when only the layout is needed
+    }
+
+    private static class Rect {
+        int x, y, width, height;
+
+        Rect(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        boolean contains(Rect r) {
+            return r.x >= x && r.y >= y && r.x + r.width <= x + width && r.y + r.height <= y + height;
+        }
+    }
+
+    // free space of one page
+    private static class MaxRects {
+        final ArrayList<Rect> free = new ArrayList<>();
+
+        MaxRects(int width, int height) {
+            free.add(new Rect(0, 0, width, height));
+        }
+
+        // returns the position for a rectangle of this size or null if it does not fit
+        Rect insert(int width, int height) {
+            Rect best = null;
+            int bestShortSide = Integer.MAX_VALUE;
+            int bestLongSide = Integer.MAX_VALUE;
+            for (Rect r : free) {
+                if (r.width < width || r.height < height)
+                    continue;
+                int dw = r.width - width;
+                int dh = r.height - height;
+                int shortSide = Math.min(dw, dh);
+                int longSide = Math.max(dw, dh);
+                if (shortSide < bestShortSide || (shortSide == bestShortSide && longSide < bestLongSide)) {
+                    best = r;
+                    bestShortSide = shortSide;
+                    bestLongSide = longSide;
+                }
+            }
+            if (best == null)
+                return null;
+            Rect placed = new Rect(best.x, best.y, width, height);
+            split(placed);
+            return placed;
+        }
+
+        // split every free rectangle that overlaps the placed one into up to four maximal free rectangles
+        private void split(Rect used) {
+            int count = free.size();
+            for (int i = 0; i < count; i++) {
+                Rect r = free.get(i);
+                if (used.x >= r.x + r.width || used.x + used.width <= r.x || used.y >= r.y + r.height || used.y + used.height <= r.y)
+                    continue;
+                if (used.x > r.x)
+                    free.add(new Rect(r.x, r.y, used.x - r.x, r.height));
+                if (used.x + used.width < r.x + r.width)
+                    free.add(new Rect(used.x + used.width, r.y, r.x + r.width - (used.x + used.width), r.height));
+                if (used.y > r.y)
+                    free.add(new Rect(r.x, r.y, r.width, used.y - r.y));
+                if (used.y + used.height < r.y + r.height)
+                    free.add(new Rect(r.x, used.y + used.height, r.width, r.y + r.height - (used.y + used.height)));
+                free.remove(i);
+                i--;
+                count--;
+            }
+            // remove free rectangles that are contained in another one
+            for (int i = 0; i < free.size(); i++) {
+                for (int j = i + 1; j < free.size(); j++) {
+                    if (free.get(j).contains(free.get(i))) {
+                        free.remove(i);
+                        i--;
+                        break;
+                    }
+                    if (free.get(i).contains(free.get(j))) {
+                        free.remove(j);
+                        j--;
+                    }
+                }
+            }
+        }
+    }
+
+    private final int maxPageWidth;
+    private final int maxPageHeight;
+    private final int padding;
+    public boolean duplicateEdges = true;      // fill the padding with the edge pixels of the image
+    private final ArrayList<Image> images = new ArrayList<>();
+    private TextureAtlasData data;          // result of the last pack()
+    private String packedName;
+
+    public TexturePacker() {
+        this(1024, 1024, 2);
+    }
+
+    /**
+     * @param maxPageWidth     maximum width of a page in pixels
+     * @param maxPageHeight    maximum height of a page in pixels
+     * @param padding          pixels around each image
+     */
+    public TexturePacker(int maxPageWidth, int maxPageHeight, int padding) {
+        if (maxPageWidth <= 0 || maxPageHeight <= 0 || padding < 0)
+            throw new IllegalArgumentException("TexturePacker: invalid page size or padding.");
+        this.maxPageWidth = maxPageWidth;
+        this.maxPageHeight = maxPageHeight;
+        this.padding = padding;
+    }
+
+    /** add an image file, e.g. a PNG, under its file name without extension */
+    public void add(FileHandle file) {
+        String name = file.file.getName();
+        int dot = name.lastIndexOf('.');
+        add(dot > 0 ? name.substring(0, dot) : name, file);
+    }
+
+    public void add(String name, FileHandle file) {
+        byte[] fileData = file.readAllBytes();
+        Pointer data = JavaWebGPU.createByteArrayPointer(fileData);
+        Pointer image = JavaWebGPU.getUtils().gdx2d_load(data, fileData.length);        // use native function to parse image file, converts to RGBA
+        PixmapInfo info = PixmapInfo.createAt(image);
+        int width = info.width.intValue();
+        int height = info.height.intValue();
+        byte[] pixels = new byte[4 * width * height];
+        info.pixels.get().get(0, pixels, 0, pixels.length);
+        JavaWebGPU.getUtils().gdx2d_free(image);
+        add(name, width, height, pixels);
+    }
+
+    /** add an image with RGBA pixels, 4 bytes per pixel, rows from top to bottom.
+     * Pixels may be null if only the layout is needed. */
+    public void add(String name, int width, int height, byte[] pixels) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("TexturePacker: invalid image size for " + name);
+        if (pixels != null && pixels.length != 4 * width * height)
+            throw new IllegalArgumentException("TexturePacker: pixel array is wrong size for " + name);
+        if (width + 2 * padding > maxPageWidth || height + 2 * padding > maxPageHeight)
+            throw new IllegalArgumentException("TexturePacker: image does not fit on a page: " + name);
+        Image img = new Image();
+        img.name = name;
+        img.index = images.size();
+        img.width = width;
+        img.height = height;
+        img.pixels = pixels;
+        images.add(img);
+        data = null;
+    }
+
+    /** pack the images added so far. The result is kept until another image is added.
+     *
+     * @param pageFileName  base name for the page files, e.g. "ui" gives ui0.png, ui1.png, etc.
+     */
+    public TextureAtlasData pack(String pageFileName) {
+        if (data != null && pageFileName.equals(packedName))
+            return data;
+
+        // place large images first, this gives a tighter packing
+        ArrayList<Image> sorted = new ArrayList<>(images);
+        sorted.sort((a, b) -> {
+            int d = Math.max(b.width, b.height) - Math.max(a.width, a.height);
+            if (d == 0)
+                d = b.width * b.height - a.width * a.height;
+            return d;
+        });
+
+        ArrayList<MaxRects> pages = new ArrayList<>();
+        Rect[] placed = new Rect[images.size()];
+        int[] pageOf = new int[images.size()];
+        for (Image img : sorted) {
+            int w = img.width + 2 * padding;
+            int h = img.height + 2 * padding;
+            Rect r = null;
+            int page;
+            for (page = 0; page < pages.size(); page++) {
+                r = pages.get(page).insert(w, h);
+                if (r != null)
+                    break;
+            }
+            if (r == null) {
+                pages.add(new MaxRects(maxPageWidth, maxPageHeight));
+                r = pages.get(page).insert(w, h);
+            }
+            placed[img.index] = r;
+            pageOf[img.index] = page;
+        }
+
+        // shrink each page to the power of two that covers its images
+        int[] pageWidth = new int[pages.size()];
+        int[] pageHeight = new int[pages.size()];
+        for (int i = 0; i < placed.length; i++) {
+            Rect r = placed[i];
+            pageWidth[pageOf[i]] = Math.max(pageWidth[pageOf[i]], r.x + r.width);
+            pageHeight[pageOf[i]] = Math.max(pageHeight[pageOf[i]], r.y + r.height);
+        }
+
+        data = new TextureAtlasData();
+        packedName = pageFileName;
+        for (int page = 0; page < pages.size(); page++)
+            data.pages.add(new TextureAtlasData.Page(pageFileName + page + ".png",
+                    Math.min(maxPageWidth, nextPowerOfTwo(pageWidth[page])), Math.min(maxPageHeight, nextPowerOfTwo(pageHeight[page]))));
+        // regions are listed in the order the images were added
+        for (Image img : images) {
+            Rect r = placed[img.index];
+            data.regions.add(new TextureAtlasData.Region(img.name, pageOf[img.index], r.x + padding, r.y + padding, img.width, img.height));
+        }
+        return data;
+    }
+
+    /** RGBA pixels of a packed page */
+    public byte[] getPagePixels(int page) {
+        if (data == null)
+            throw new RuntimeException("TexturePacker: call pack() first.");
+        TextureAtlasData.Page p = data.pages.get(page);
+        byte[] pixels = new byte[4 * p.width * p.height];
+        for (int i = 0; i < images.size(); i++) {
+            TextureAtlasData.Region region = data.regions.get(i);
+            Image img = images.get(i);
+            if (region.page != page || img.pixels == null)
+                continue;
+            int border = duplicateEdges ? padding : 0;
+            for (int y = -border; y < img.height + border; y++) {
+                int srcY = Math.max(0, Math.min(img.height - 1, y));
+                for (int x = -border; x < img.width + border; x++) {
+                    int srcX = Math.max(0, Math.min(img.width - 1, x));
+                    System.arraycopy(img.pixels, 4 * (srcY * img.width + srcX), pixels, 4 * ((region.y + y) * p.width + region.x + x), 4);
+                }
+            }
+        }
+        return pixels;
+    }
+
+    /** pack and write the page images and the layout file to a directory.
+     * Load the result with new TextureAtlas(Files.internal(directory+"/"+name+".atlas")). */
+    public TextureAtlasData save(String directory, String name) {
+        TextureAtlasData data = pack(name);
+        for (int page = 0; page < data.pages.size(); page++) {
+            TextureAtlasData.Page p = data.pages.get(page);
+            ImageSave.saveToPNG(new File(directory, p.fileName).getPath(), getPagePixels(page), p.width, p.height, 4, 4 * p.width);
+        }
+        try (Writer writer = new FileWriter(new File(directory, name + ".atlas"))) {
+            data.write(writer);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error writing atlas file.", ex);
+        }
+        return data;
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        int pot = 1;
+        while (pot < value)
+            pot <<= 1;
+        return pot;
+    }
+}
@@ -28,8 +28,8 @@ public class BoundingBox {
     }
 
     public void set(Vector3 min, Vector3 max){
-        min.set(min);
-        max.set(max);
+        this.min.set(min);
+        this.max.set(max);
     }
 
     public void set(BoundingBox bbox){
@@ -42,6 +42,19 @@ public class BoundingBox {
         max.set(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
     }
 
+    /** returns false if the box is cleared (empty), i.e. its extent is unknown */
+    public boolean isValid(){
+        return min.x <= max.x && min.y <= max.y && min.z <= max.z;
+    }
+
+    /** extend bounding box to contain another bounding box */
+    public void ext(BoundingBox bbox){
+        if(!bbox.isValid())
+            return;
+        ext(bbox.min.x, bbox.min.y, bbox.min.z);
+        ext(bbox.max.x, bbox.max.y, bbox.max.z);
+    }
+
     /** extend bounding box with vertex, growing it if needed */
     public void ext(Vector3 v){
         ext(v.x, v.y, v.z);
@@ -58,24 +71,32 @@ public class BoundingBox {
         max.z = max(max.z, z);
     }
 
+    /** Transform the box and replace it by the axis-aligned box that contains the transformed box.
+     * Note that this new AABB may be larger that the original and may not be a snug fit for the original source data.
+     * Does not allocate memory.
+     */
     public void transform(Matrix4 transform){
-        Vector3 tmpMin = new Vector3(min);
-        Vector3 tmpMax = new Vector3(max);
-
-        tmpMin.mul(transform);
-        tmpMax.mul(transform);
-        // make a new AABB containing all 8 corners of the transformed AABB
-        // note that this new AABB may be larger that the original and may not
-        // be a snug fit for the original source data.
-        clear();
-        ext(tmpMin.x, tmpMin.y, tmpMin.z);
-        ext(tmpMax.x, tmpMin.y, tmpMin.z);
-        ext(tmpMin.x, tmpMax.y, tmpMin.z);
-        ext(tmpMax.x, tmpMax.y, tmpMin.z);
-        ext(tmpMin.x, tmpMin.y, tmpMax.z);
-        ext(tmpMax.x, tmpMin.y, tmpMax.z);
-        ext(tmpMin.x, tmpMax.y, tmpMax.z);
-        ext(tmpMax.x, tmpMax.y, tmpMax.z);
+        if(!isValid())
+            return;
+        final float[] m = transform.val;
+        float cx = (min.x + max.x) * 0.5f;
+        float cy = (min.y + max.y) * 0.5f;
+        float cz = (min.z + max.z) * 0.5f;
+        float ex = (max.x - min.x) * 0.5f;
+        float ey = (max.y - min.y) * 0.5f;
+        float ez = (max.z - min.z) * 0.5f;
+
+        // transformed centre
+        float tcx = m[Matrix4.M00] * cx + m[Matrix4.M01] * cy + m[Matrix4.M02] * cz + m[Matrix4.M03];
+        float tcy = m[Matrix4.M10] * cx + m[Matrix4.M11] * cy + m[Matrix4.M12] * cz + m[Matrix4.M13];
+        float tcz = m[Matrix4.M20] * cx + m[Matrix4.M21] * cy + m[Matrix4.M22] * cz + m[Matrix4.M23];
+        // extent of the transformed box projected on each axis
+        float tex = Math.abs(m[Matrix4.M00]) * ex + Math.abs(m[Matrix4.M01]) * ey + Math.abs(m[Matrix4.M02]) * ez;
+        float tey = Math.abs(m[Matrix4.M10]) * ex + Math.abs(m[Matrix4.M11]) * ey + Math.abs(m[Matrix4.M12]) * ez;
+        float tez = Math.abs(m[Matrix4.M20]) * ex + Math.abs(m[Matrix4.M21]) * ey + Math.abs(m[Matrix4.M22]) * ez;
+
+        min.set(tcx - tex, tcy - tey, tcz - tez);
+        max.set(tcx + tex, tcy + tey, tcz + tez);
     }
 
 }
@@ -0,0 +1,477 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.graphics.g3d;
+
+import com.monstrous.math.Frustum;
+import com.monstrous.math.Plane;
+
+import java.util.List;
+
+/** Spatial index of objects (e.g. model instances) by their bounding box, to find the objects in a camera frustum
+ * without testing each object individually.
+ *
+ * This is a dynamic AABB tree: leaves hold a bounding box enlarged by a margin, so that small movements don't require
+ * an update of the tree. Internal nodes hold the union of their children and the tree is kept balanced by rotations.
+ * A frustum query descends the tree, skipping subtrees that are outside the frustum and accepting subtrees that
+ * are completely inside without further plane tests.
+ *
+ * Nodes are stored in parallel arrays, so there are no allocations after the arrays have grown to size.
+ *
+ * Usage:
+ *      int id = bvh.add(instance, instance.boundingBox);
+ *      ...
+ *      instance.update();
+ *      bvh.move(id, instance.boundingBox);
+ *      ...
+ *      bvh.query(camera.frustum, visibleInstances);
+ */
+public class BoundingVolumeHierarchy<T> {
+    private static final int NULL = -1;
+    private static final int ALL_PLANES = 0x3F;     // one bit per frustum plane
+
+    private final float margin;
+    private int capacity;
+    private float[] bounds;     // per node: minX, minY, minZ, maxX, maxY, maxZ
+    private int[] parent;       // for nodes on the free list: next free node
+    private int[] child1;       // NULL for leaves
+    private int[] child2;
+    private int[] height;       // 0 for leaves, -1 for free nodes
+    private Object[] objects;   // only for leaves
+    private int root;
+    private int freeList;
+    private int nodeCount;
+    private int leafCount;
+
+    // work arrays for queries
+    private int[] stack;
+    private int[] stackMask;
+    private final float[] planes = new float[6*4];
+
+    public int nodesVisited;    // statistics of last query
+
+    public BoundingVolumeHierarchy() {
+        this(0.1f);
+    }
+
+    /** @param margin  size by which leaf boxes are enlarged, i.e. how far an object may move before the tree is updated */
+    public BoundingVolumeHierarchy(float margin) {
+        this.margin = margin;
+        capacity = 16;
+        bounds = new float[capacity*6];
+        parent = new int[capacity];
+        child1 = new int[capacity];
+        child2 = new int[capacity];
+        height = new int[capacity];
+        objects = new Object[capacity];
+        stack = new int[64];
+        stackMask = new int[64];
+        clear();
+    }
+
+    /** remove all objects */
+    public void clear(){
+        root = NULL;
+        nodeCount = 0;
+        leafCount = 0;
+        freeList = NULL;
+        for(int i = 0; i < capacity; i++)
+            objects[i] = null;
+        addToFreeList(0);
+    }
+
+    /** number of objects in the index */
+    public int size(){
+        return leafCount;
+    }
+
+    /** height of the tree, 0 for a single object. For diagnostics. */
+    public int getHeight(){
+        return root == NULL ? 0 : height[root];
+    }
+
+    /** Add an object with its bounding box. Returns an id to use for move() and remove(). */
+    public int add(T object, BoundingBox box){
+        if(!box.isValid())
+            throw new IllegalArgumentException("BoundingVolumeHierarchy: bounding box is empty");
+        int leaf = allocateNode();
+        setFatBounds(leaf, box);
+        objects[leaf] = object;
+        height[leaf] = 0;
+        insertLeaf(leaf);
+        leafCount++;
+        return leaf;
+    }
+
+    public void remove(int id){
+        checkLeaf(id);
+        removeLeaf(id);
+        freeNode(id);
+        leafCount--;
+    }
+
+    /** Update the bounding box of an object. Returns true if the tree had to be updated, i.e. the object moved outside its margin. */
+    public boolean move(int id, BoundingBox box){
+        checkLeaf(id);
+        int b = id*6;
+        if(bounds[b] <= box.min.x && bounds[b+1] <= box.min.y && bounds[b+2] <= box.min.z &&
+           bounds[b+3] >= box.max.x && bounds[b+4] >= box.max.y && bounds[b+5] >= box.max.z)
+            return false;   // still within the enlarged box
+        removeLeaf(id);
+        setFatBounds(id, box);
+        insertLeaf(id);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int id){
+        checkLeaf(id);
+        return (T) objects[id];
+    }
+
+    /** Add the objects that are (possibly partially) inside the frustum to the result list.
+     * Note that the test is conservative: objects just outside the frustum, within the margin, may also be returned.
+     * Returns the number of objects added. */
+    @SuppressWarnings("unchecked")
+    public int query(Frustum frustum, List<T> result){
+        nodesVisited = 0;
+        if(root == NULL)
+            return 0;
+        for(int i = 0; i < 6; i++){
+            Plane plane = frustum.planes[i];
+            planes[4*i] = plane.normal.x;
+            planes[4*i+1] = plane.normal.y;
+            planes[4*i+2] = plane.normal.z;
+            planes[4*i+3] = plane.distance;
+        }
+
+        int count = 0;
+        int top = 0;
+        stack[top] = root;
+        stackMask[top++] = ALL_PLANES;
+        while(top > 0){
+            top--;
+            int node = stack[top];
+            int mask = stackMask[top];
+            nodesVisited++;
+
+            if(mask != 0) {   // otherwise the parent was completely inside the frustum
+                int b = node*6;
+                float cx = (bounds[b] + bounds[b+3]) * 0.5f;
+                float cy = (bounds[b+1] + bounds[b+4]) * 0.5f;
+                float cz = (bounds[b+2] + bounds[b+5]) * 0.5f;
+                float ex = (bounds[b+3] - bounds[b]) * 0.5f;
+                float ey = (bounds[b+4] - bounds[b+1]) * 0.5f;
+                float ez = (bounds[b+5] - bounds[b+2]) * 0.5f;
+                boolean outside = false;
+                for(int i = 0; i < 6; i++){
+                    if((mask & (1 << i)) == 0)
+                        continue;
+                    float nx = planes[4*i], ny = planes[4*i+1], nz = planes[4*i+2];
+                    float dist = nx * cx + ny * cy + nz * cz + planes[4*i+3];
+                    float radius = Math.abs(nx) * ex + Math.abs(ny) * ey + Math.abs(nz) * ez;
+                    if(dist + radius < 0) {
+                        outside = true;     // completely behind this plane
+                        break;
+                    }
+                    if(dist - radius >= 0)
+                        mask &= ~(1 << i);  // completely in front of this plane, no need to test children against it
+                }
+                if(outside)
+                    continue;
+            }
+
+            if(child1[node] == NULL){
+                result.add((T) objects[node]);
+                count++;
+            } else {
+                if(top + 2 > stack.length) {
+                    stack = grow(stack, stack.length * 2);
+                    stackMask = grow(stackMask, stackMask.length * 2);
+                }
+                stack[top] = child1[node];
+                stackMask[top++] = mask;
+                stack[top] = child2[node];
+                stackMask[top++] = mask;
+            }
+        }
+        return count;
+    }
+
+    private void checkLeaf(int id){
+        if(id < 0 || id >= capacity || height[id] != 0)
+            throw new IllegalArgumentException("BoundingVolumeHierarchy: invalid id "+id);
+    }
+
+    private void setFatBounds(int node, BoundingBox box){
+        int b = node*6;
+        bounds[b] = box.min.x - margin;
+        bounds[b+1] = box.min.y - margin;
+        bounds[b+2] = box.min.z - margin;
+        bounds[b+3] = box.max.x + margin;
+        bounds[b+4] = box.max.y + margin;
+        bounds[b+5] = box.max.z + margin;
+    }
+
+    private int allocateNode(){
+        if(freeList == NULL){
+            int newCapacity = capacity * 2;
+            bounds = grow(bounds, newCapacity*6);
+            parent = grow(parent, newCapacity);
+            child1 = grow(child1, newCapacity);
+            child2 = grow(child2, newCapacity);
+            height = grow(height, newCapacity);
+            Object[] newObjects = new Object[newCapacity];
+            System.arraycopy(objects, 0, newObjects, 0, capacity);
+            objects = newObjects;
+            int oldCapacity = capacity;
+            capacity = newCapacity;
+            addToFreeList(oldCapacity);
+        }
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        child1[node] = NULL;
+        child2[node] = NULL;
+        height[node] = 0;
+        objects[node] = null;
+        nodeCount++;
+        return node;
+    }
+
+    private void freeNode(int node){
+        parent[node] = freeList;
+        height[node] = -1;
+        objects[node] = null;
+        freeList = node;
+        nodeCount--;
+    }
+
+    // put nodes from start up to capacity on the free list
+    private void addToFreeList(int start){
+        for(int i = start; i < capacity-1; i++){
+            parent[i] = i+1;
+            height[i] = -1;
+        }
+        parent[capacity-1] = freeList;
+        height[capacity-1] = -1;
+        freeList = start;
+    }
+
+    private void insertLeaf(int leaf){
+        if(root == NULL){
+            root = leaf;
+            parent[root] = NULL;
+            return;
+        }
+
+        // find the best sibling using the surface area heuristic
+        int index = root;
+        while(child1[index] != NULL){
+            int c1 = child1[index];
+            int c2 = child2[index];
+
+            float area = area(index);
+            float combinedArea = combinedArea(index, leaf);
+            // cost of creating a new parent for this node and the new leaf
+            float cost = 2f * combinedArea;
+            // minimum cost of pushing the leaf further down the tree
+            float inheritanceCost = 2f * (combinedArea - area);
+            float cost1 = descendCost(c1, leaf) + inheritanceCost;
+            float cost2 = descendCost(c2, leaf) + inheritanceCost;
+
+            if(cost < cost1 && cost < cost2)
+                break;
+            index = cost1 < cost2 ? c1 : c2;
+        }
+        int sibling = index;
+
+        // create a new parent
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        setCombined(newParent, leaf, sibling);
+        height[newParent] = height[sibling] + 1;
+        if(oldParent != NULL){
+            if(child1[oldParent] == sibling)
+                child1[oldParent] = newParent;
+            else
+                child2[oldParent] = newParent;
+        } else
+            root = newParent;
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        refit(parent[leaf]);
+    }
+
+    private void removeLeaf(int leaf){
+        if(leaf == root){
+            root = NULL;
+            return;
+        }
+        int p = parent[leaf];
+        int grandParent = parent[p];
+        int sibling = child1[p] == leaf ? child2[p] : child1[p];
+        if(grandParent != NULL){
+            // replace the parent by the sibling
+            if(child1[grandParent] == p)
+                child1[grandParent] = sibling;
+            else
+                child2[grandParent] = sibling;
+            parent[sibling] = grandParent;
+            freeNode(p);
+            refit(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(p);
+        }
+    }
+
+    // walk back up the tree fixing heights and bounds
+    private void refit(int index){
+        while(index != NULL){
+            index = balance(index);
+            int c1 = child1[index];
+            int c2 = child2[index];
+            height[index] = 1 + Math.max(height[c1], height[c2]);
+            setCombined(index, c1, c2);
+            index = parent[index];
+        }
+    }
+
+    // perform a left or right rotation if node A is imbalanced, returns the new root of the subtree
+    private int balance(int iA){
+        if(child1[iA] == NULL || height[iA] < 2)
+            return iA;
+
+        int iB = child1[iA];
+        int iC = child2[iA];
+        int balance = height[iC] - height[iB];
+
+        if(balance > 1){        // rotate C up
+            int iF = child1[iC];
+            int iG = child2[iC];
+            child1[iC] = iA;
+            parent[iC] = parent[iA];
+            parent[iA] = iC;
+            replaceChild(parent[iC], iA, iC);
+            if(height[iF] > height[iG]){
+                child2[iC] = iF;
+                child2[iA] = iG;
+                parent[iG] = iA;
+                setCombined(iA, iB, iG);
+                setCombined(iC, iA, iF);
+                height[iA] = 1 + Math.max(height[iB], height[iG]);
+                height[iC] = 1 + Math.max(height[iA], height[iF]);
+            } else {
+                child2[iC] = iG;
+                child2[iA] = iF;
+                parent[iF] = iA;
+                setCombined(iA, iB, iF);
+                setCombined(iC, iA, iG);
+                height[iA] = 1 + Math.max(height[iB], height[iF]);
+                height[iC] = 1 + Math.max(height[iA], height[iG]);
+            }
+            return iC;
+        }
+        if(balance < -1){       // rotate B up
+            int iD = child1[iB];
+            int iE = child2[iB];
+            child1[iB] = iA;
+            parent[iB] = parent[iA];
+            parent[iA] = iB;
+            replaceChild(parent[iB], iA, iB);
+            if(height[iD] > height[iE]){
+                child2[iB] = iD;
+                child1[iA] = iE;
+                parent[iE] = iA;
+                setCombined(iA, iC, iE);
+                setCombined(iB, iA, iD);
+                height[iA] = 1 + Math.max(height[iC], height[iE]);
+                height[iB] = 1 + Math.max(height[iA], height[iD]);
+            } else {
+                child2[iB] = iE;
+                child1[iA] = iD;
+                parent[iD] = iA;
+                setCombined(iA, iC, iD);
+                setCombined(iB, iA, iE);
+                height[iA] = 1 + Math.max(height[iC], height[iD]);
+                height[iB] = 1 + Math.max(height[iA], height[iE]);
+            }
+            return iB;
+        }
+        return iA;
+    }
+
+    private void replaceChild(int p, int oldChild, int newChild){
+        if(p == NULL)
+            root = newChild;
+        else if(child1[p] == oldChild)
+            child1[p] = newChild;
+        else
+            child2[p] = newChild;
+    }
+
+    private float descendCost(int child, int leaf){
+        if(child1[child] == NULL)
+            return combinedArea(child, leaf);
+        return combinedArea(child, leaf) - area(child);
+    }
+
+    // half surface area, which is proportional to the chance a random ray hits the box
+    private float area(int node){
+        int b = node*6;
+        float dx = bounds[b+3] - bounds[b];
+        float dy = bounds[b+4] - bounds[b+1];
+        float dz = bounds[b+5] - bounds[b+2];
+        return dx*dy + dy*dz + dz*dx;
+    }
+
+    private float combinedArea(int n1, int n2){
+        int b1 = n1*6;
+        int b2 = n2*6;
+        float dx = Math.max(bounds[b1+3], bounds[b2+3]) - Math.min(bounds[b1], bounds[b2]);
+        float dy = Math.max(bounds[b1+4], bounds[b2+4]) - Math.min(bounds[b1+1], bounds[b2+1]);
+        float dz = Math.max(bounds[b1+5], bounds[b2+5]) - Math.min(bounds[b1+2], bounds[b2+2]);
+        return dx*dy + dy*dz + dz*dx;
+    }
+
+    private void setCombined(int node, int n1, int n2){
+        int b = node*6;
+        int b1 = n1*6;
+        int b2 = n2*6;
+        for(int i = 0; i < 3; i++) {
+            bounds[b+i] = Math.min(bounds[b1+i], bounds[b2+i]);
+            bounds[b+3+i] = Math.max(bounds[b1+3+i], bounds[b2+3+i]);
+        }
+    }
+
+    private static float[] grow(float[] array, int newSize){
+        float[] newArray = new float[newSize];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private static int[] grow(int[] array, int newSize){
+        int[] newArray = new int[newSize];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+}
@@ -23,15 +23,18 @@ import com.monstrous.graphics.loaders.MeshData;
 import com.monstrous.graphics.webgpu.Buffer;
 import com.monstrous.graphics.webgpu.IndexBuffer;
 import com.monstrous.graphics.webgpu.VertexBuffer;
-import com.monstrous.math.Vector3;
 import com.monstrous.utils.JavaWebGPU;
 import com.monstrous.webgpu.WGPUBufferUsage;
 import com.monstrous.webgpu.WGPUIndexFormat;
 import jnr.ffi.Pointer;
 
-import java.util.ArrayList;
+import java.nio.FloatBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Mesh {
+    private static final AtomicInteger nextSortId = new AtomicInteger();
+
+    public final int sortId = nextSortId.getAndIncrement();      // unique number, used in render sort keys
 
     private VertexBuffer vertexBuffer;
     private IndexBuffer indexBuffer;
@@ -41,21 +44,31 @@ public class Mesh {
 
     public Mesh(){
         boundingBox = new BoundingBox();
+        boundingBox.clear();    // unknown until vertices are provided
     }
 
     public Mesh(MeshData data) {
         this();
         setVertexAttributes(data.vertexAttributes);
 
-        vertexCount = data.vertFloats.size() * Float.BYTES / data.vertexAttributes.getVertexSizeInBytes();
-
-        // todo use FloatBuffer in MeshData?
-
-        vertexBuffer = new VertexBuffer(data.vertFloats.size() *Float.BYTES);
-        vertexBuffer.setVertices(data.vertFloats);
+        if(data.vertexData != null) {
+            // uploaded straight from the loader's direct buffer
+            vertexCount = data.vertexData.remaining() / data.vertexAttributes.getVertexSizeInBytes();
+            vertexBuffer = new VertexBuffer(data.vertexData.remaining());
+            vertexBuffer.setVertices(data.vertexData);
+            calculateBoundingBox(data.vertexData.asFloatBuffer());
+        }
+        else {
+            vertexCount = data.vertFloats.size * Float.BYTES / data.vertexAttributes.getVertexSizeInBytes();
+            vertexBuffer = new VertexBuffer(data.vertFloats.size * Float.BYTES);
+            vertexBuffer.setVertices(data.vertFloats);
+            calculateBoundingBox(FloatBuffer.wrap(data.vertFloats.items));
+        }
 
-        if(data.indexValues.size() > 0)
-            indexBuffer = new IndexBuffer(data.indexValues, data.indexSizeInBytes);
+        if(data.indexData != null)
+            indexBuffer = new IndexBuffer(data.indexData, data.indexSizeInBytes, data.indexData.remaining() / data.indexSizeInBytes);
+        else if(data.indexValues.size > 0)
+            indexBuffer = new IndexBuffer(data.indexValues);
     }
 
 
@@ -68,22 +81,23 @@ public class Mesh {
         if(vertexBuffer == null)
             vertexBuffer = new VertexBuffer(vertexData.length *Float.BYTES);
         vertexBuffer.setVertices(vertexData);
+        if(vertexAttributes != null) {
+            vertexCount = vertexData.length * Float.BYTES / vertexAttributes.getVertexSizeInBytes();
+            calculateBoundingBox(FloatBuffer.wrap(vertexData));
+        }
     }
 
-
-    private void calculateBoundingBox(float[] vertexData){
+    // if there is no POSITION attribute the bounding box is left empty, which means it will not be culled
+    private void calculateBoundingBox(FloatBuffer vertexData){
+        boundingBox.clear();
         int stride = vertexAttributes.getVertexSizeInBytes()/Float.BYTES;   // stride in floats
         int positionOffset = vertexAttributes.getOffset(VertexAttribute.Usage.POSITION);
         if(positionOffset < 0)
-            throw new RuntimeException("Mesh has no POSITION information.");
-        boundingBox.clear();
-        Vector3 vertex = new Vector3();
+            return;
+        positionOffset /= Float.BYTES;
         for(int i = 0; i < vertexCount; i++){
             int index = i*stride + positionOffset;
-            vertex.x = vertexData[index];
-            vertex.y = vertexData[index+1];
-            vertex.z = vertexData[index+2];
-            boundingBox.ext(vertex);
+            boundingBox.ext(vertexData.get(index), vertexData.get(index+1), vertexData.get(index+2));
         }
     }
 
@@ -117,6 +117,10 @@ public class MeshBuilder {
     public void endPart(){
         if(part != null){
             part.setSize(numIndices - part.getOffset());
+            // bounds of the vertices referenced by this part
+            part.boundingBox.clear();
+            for(int i = part.getOffset(); i < numIndices; i++)
+                part.boundingBox.ext(vertices[indices[i]].position);
             part = null;
         }
     }
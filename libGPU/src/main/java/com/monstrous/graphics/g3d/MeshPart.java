@@ -2,17 +2,25 @@ package com.monstrous.graphics.g3d;
 
 import com.monstrous.webgpu.WGPUPrimitiveTopology;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class MeshPart {
+    private static final AtomicInteger nextSortId = new AtomicInteger();
+
+    public final int sortId = nextSortId.getAndIncrement();      // unique number, used in render sort keys
     private final Mesh mesh;
     public final String id;
     private final WGPUPrimitiveTopology topology;
     private int offset;         // offset in vertex buffer (in number of vertices) or in case of an indexed mesh, offset in index buffer  (in number of indices)
     private int size;           // size in vertices or indices
+    public final BoundingBox boundingBox;   // local bounds in mesh coordinates, empty if unknown
 
     public MeshPart(Mesh mesh, String id, WGPUPrimitiveTopology topology) {
         this.mesh = mesh;
         this.id = id;
         this.topology = topology;
+        // by default use the bounds of the whole mesh, this is conservative for a part covering a subset of the mesh
+        this.boundingBox = new BoundingBox(mesh.boundingBox);
     }
 
     public MeshPart(Mesh mesh, String id, WGPUPrimitiveTopology topology, int offset, int size) {
@@ -44,16 +52,4 @@ public class MeshPart {
     public WGPUPrimitiveTopology getTopology() {
         return topology;
     }
-
-    // todo to calc the bbox we need to get vertex data out of the buffer again
-//    public void calculateBounds(){
-//        int offset = mesh.vertexAttributes.getOffset(VertexAttribute.Usage.POSITION);
-//        if(offset < 0)
-//            throw new RuntimeException("Mesh has no POSITION information.");
-//
-//        boundingBox.clear();
-//        for(int i = 0; i < size; i++){
-//            mesh.getIndexBuffer().
-//        }
-//    }
 }
@@ -53,24 +53,30 @@ public class Model implements Disposable {
     }
 
     public Model(String filePath) {
+        this(filePath, createLoader(filePath));
+    }
+
+    /** Load with a specific loader, e.g. one on which prepare(filePath) was already called on a loader thread. */
+    public Model(String filePath, ModelLoader loader) {
         this();
         this.filePath = filePath.toLowerCase();
-
-        // check file extension to choose loader
-        ModelLoader loader = null;
-        if (this.filePath.endsWith("obj")) {
-            loader = new ObjLoader();
-        } else if (this.filePath.endsWith("gltf")) {
-            loader = new GLTFLoader();
-        } else if (this.filePath.endsWith("glb")) {
-            loader = new GLBLoader();
-        } else
-            throw new RuntimeException("Model: file name extension not supported : " + filePath);
-
         loader.loadFromFile(this, filePath);
         makeInverseBoneBuffer();
     }
 
+    /** check file extension to choose loader */
+    public static ModelLoader createLoader(String filePath) {
+        String name = filePath.toLowerCase();
+        if (name.endsWith("obj"))
+            return new ObjLoader();
+        else if (name.endsWith("gltf"))
+            return new GLTFLoader();
+        else if (name.endsWith("glb"))
+            return new GLBLoader();
+        else
+            throw new RuntimeException("Model: file name extension not supported : " + filePath);
+    }
+
     public Model(Mesh mesh, Material material) {
         this(mesh, WGPUPrimitiveTopology.TriangleList, material);
     }
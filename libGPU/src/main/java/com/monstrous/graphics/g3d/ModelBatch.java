@@ -31,15 +31,20 @@ import com.monstrous.webgpu.*;
 import jnr.ffi.Pointer;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 public class ModelBatch implements Disposable {
 
     private final int MAX_PASSES = 40;
     private final int MAX_DIR_LIGHTS = 5;
     private final int MAX_POINT_LIGHTS = 5;
-    private final int MAX_INSTANCES = 4096;
+    private final int INITIAL_INSTANCES = 4096;     // initial capacity of the instance buffer, it grows when needed
+    private final int INSTANCE_SIZE = 16*Float.BYTES;  // data size per instance
+    private final int MAX_FRAME_BIND_GROUPS = 8;    // e.g. for different environments or shadow maps per frame
 
     private final int FRAME_UB_SIZE = 816;      // check...
 
@@ -57,6 +62,10 @@ public class ModelBatch implements Disposable {
     private BindGroup frameBindGroup;
     private BindGroup instancingBindGroup;
     private BindGroup skinningBindGroup;
+    private BindGroup dummySkinningBindGroup;
+    private final List<FrameBindGroup> frameBindGroups = new ArrayList<>();       // most recently used last
+    private final Map<Buffer, SkinningBindGroup> skinningBindGroups = new HashMap<>();  // keyed on joint buffer
+    private int skinningSweepSize = 16;
     private Material prevMaterial;
     private ModelInstance prevModelInstance;
     private Mesh currentMesh;
@@ -66,9 +75,8 @@ public class ModelBatch implements Disposable {
     private Pipeline prevPipeline;
     private RenderPassType passType;
     private PipelineSpecification pipelineSpec;
-    private final List<Renderable> renderables;
-    private final List<Renderable> visibleRenderables;
-    private final RenderablePool pool;
+    private final RenderQueue queue;
+    private List<Renderable> visibleRenderables;
 
     public Environment environment;
     public int numPipelines;
@@ -77,9 +85,17 @@ public class ModelBatch implements Disposable {
     public int drawCalls;
     public int numEmitted;
     public int instancingJoins; // number of renderables that could be combined by instancing
+    public int numVisible;      // number of renderables that passed frustum culling
+    public int numCulled;       // number of renderables removed by frustum culling
+    public int bindGroupsCreated;   // number of bind groups created in this pass, should be zero in steady state
+    public boolean frustumCulling = true;
 
     private DirectionalLight defaultDirectionalLight;
-    private UniformBuffer instanceBuffer;
+    private Buffer instanceBuffer;
+    private Pointer instanceData;       // staging area in native memory for the instance data of one pass
+    private int instanceCapacity;
+    private final List<Buffer> retiredBuffers = new ArrayList<>();    // replaced instance buffers that may be in use by this frame
+    private long frameId = -1;
     private CubeMap dummyCubemap;
     private Texture dummyShadowMap;
     private Texture dummy2DTexture;
@@ -93,9 +109,7 @@ public class ModelBatch implements Disposable {
         device = LibGPU.device.getHandle();
 
         pipelines = new Pipelines();
-        renderables = new ArrayList<>();
-        visibleRenderables = new ArrayList<>();
-        pool = new RenderablePool(1000);
+        queue = new RenderQueue();
         pipelineSpec = new PipelineSpecification();
 
         defaultDirectionalLight = new DirectionalLight(new Color(1,0,0,1), new Vector3(0, -1, 0));
@@ -116,11 +130,16 @@ public class ModelBatch implements Disposable {
         dummyCubemap = new CubeMap(1,1);
         dummy2DTexture = new Texture(1,1);
 
-        int instanceSize = 16*Float.BYTES;      // data size per instance
-        // todo is this a uniform buffer or a storage buffer?
-        instanceBuffer = new UniformBuffer(instanceSize, WGPUBufferUsage.CopyDst | WGPUBufferUsage.Storage, MAX_INSTANCES);
+        ensureInstanceCapacity(INITIAL_INSTANCES);
+        instancingBindGroup = createInstancingBindGroup(instancingBindGroupLayout, instanceBuffer);
 
         sampler = makeShadowSampler();
+
+        // create the pipelines used in a previous run up front, if the shader cache is enabled
+        if(LibGPU.shaderCache != null) {
+            pipelines.setManifest(LibGPU.shaderCache.getManifest("ModelBatch"));
+            pipelines.warmUp(pipelineLayout.getHandle());
+        }
     }
 
     /** Call this to hot-load shaders as they will all be recompiled. */
@@ -128,6 +147,22 @@ public class ModelBatch implements Disposable {
         pipelines.clear();
     }
 
+    /** Limit the number of cached pipelines, the least recently used ones are disposed. Use 0 for no limit (default). */
+    public void setMaxPipelines(int maxPipelines){
+        pipelines.setMaxPipelines(maxPipelines);
+    }
+
+    /** Gather, cull and sort renderables in parallel on the given pool, or pass null to do this on the render thread (default).
+     * The draw calls are always issued from the thread calling end(). */
+    public void setParallel(ForkJoinPool forkJoinPool){
+        queue.setParallel(forkJoinPool);
+    }
+
+    /** pipeline cache, e.g. for statistics */
+    public Pipelines getPipelines(){
+        return pipelines;
+    }
+
 
     public void begin(Camera camera){
         begin(camera, null, null, null, null);
@@ -150,6 +185,15 @@ public class ModelBatch implements Disposable {
         this.environment = environment;
         this.passType = passType;
 
+        // the previous frame has been submitted, so replaced instance buffers are no longer in use
+        long frame = LibGPU.graphics.getFrameId();
+        if(frame != frameId) {
+            frameId = frame;
+            for(Buffer buffer : retiredBuffers)
+                buffer.dispose();
+            retiredBuffers.clear();
+        }
+
         // create a new render pass
 
         int samples = (outputTexture != null) ? outputTexture.getNumSamples() : LibGPU.app.configuration.numSamples;
@@ -168,34 +212,40 @@ public class ModelBatch implements Disposable {
         drawCalls = 0;
         numEmitted = 0;
         instancingJoins = 0;
+        numVisible = 0;
+        numCulled = 0;
+        bindGroupsCreated = 0;
 
         writeFrameUniforms(frameUniformBuffer, camera, environment, LibGPU.graphics.passNumber);
-        frameBindGroup = makeFrameBindGroup(frameBindGroupLayout, sampler, frameUniformBuffer);
+        frameBindGroup = getFrameBindGroup();
 
         // use dynamic offset for the frame uniform buffer slice of this pass
         pass.setBindGroup(0, frameBindGroup.getHandle(), LibGPU.graphics.passNumber * frameUniformBuffer.getUniformStride());
         LibGPU.graphics.passNumber++;
 
-        instancingBindGroup = createInstancingBindGroup(instancingBindGroupLayout, instanceBuffer);
         pass.setBindGroup(2, instancingBindGroup.getHandle());
 
         // set skinning bind group to use fake non-zero buffer to avoid complaints from webgpu
-        skinningBindGroup = createSkinningBindGroup(skinningBindGroupLayout, dummyBuffer, dummyBuffer);
+        if(dummySkinningBindGroup == null)
+            dummySkinningBindGroup = createSkinningBindGroup(skinningBindGroupLayout, dummyBuffer, dummyBuffer);
+        skinningBindGroup = dummySkinningBindGroup;
         pass.setBindGroup(3, skinningBindGroup.getHandle());
     }
 
     public void render(ArrayList<ModelInstance> instances) {
-        for(ModelInstance instance : instances)
-            render(instance);
+        for(int i = 0; i < instances.size(); i++)
+            render(instances.get(i));
     }
 
+    /** Render a model instance. Note that the renderables are collected in end(), so the instance transform should not
+     * be changed before then. */
     public void render(ModelInstance instance){
-
-        instance.getRenderables((ArrayList<Renderable>) renderables, pool);
+        queue.add(instance);
     }
 
+    /** Render a renderable. The renderable remains owned by the caller. */
     public void render(Renderable renderable) {
-        renderables.add( renderable );
+        queue.add( renderable );
     }
 
 
@@ -207,42 +257,24 @@ public class ModelBatch implements Disposable {
 
     public void end(){
         finalizeRenderables();
+        prepareInstanceBuffer(visibleRenderables.size());
         emitRenderables();
+        uploadInstances();
         close();
-
     }
 
 
-    // sort comparator to sort on material to reduce number of material switches.
-    //
-    private static class RenderableComparator implements Comparator<Renderable> {
-        @Override
-        public int compare(Renderable r1, Renderable r2) {
-            //return r1.meshPart.hashCode() - r2.meshPart.hashCode();
-            return r1.material.sortCode() - r2.material.sortCode();
-        }
-    }
-
-    private final RenderableComparator comparator = new RenderableComparator();
-
     private MeshPart prevMeshPart;
     private int instanceCount;
     private int renderablesCount;
 
-    /** sort the gathered renderables and perform frustum culling to populate visibleRenderables */
+    /** gather the renderables, perform frustum culling and sort them to populate visibleRenderables */
     private void finalizeRenderables() {
-        // sort renderables to minimize material switching, to do: depth sorting etc.
-        renderables.sort(comparator);
-
-        // culling
-        visibleRenderables.clear();
-        for(Renderable renderable : renderables) {
-            if(isVisible(renderable))
-                visibleRenderables.add(renderable);
-            else
-                pool.free(renderable);
-        }
-        renderables.clear();
+        queue.frustumCulling = frustumCulling;
+        queue.setPass(passType);
+        visibleRenderables = queue.process(camera);
+        numVisible = queue.numVisible;
+        numCulled = queue.numCulled;
     }
 
     /** issue draw calls for the visibleRenderables */
@@ -251,21 +283,18 @@ public class ModelBatch implements Disposable {
         instanceCount = 0;
         renderablesCount = 0;
         currentMesh = null;
-        for(Renderable renderable : visibleRenderables) {
-            emit(renderable);
+        for(int i = 0; i < visibleRenderables.size(); i++) {
+            emit(visibleRenderables.get(i));
         }
         emitMeshPart(prevMeshPart, instanceCount, renderablesCount);
     }
 
     /** skybox rendering and clean-up */
     private void close(){
-        for(Renderable renderable : visibleRenderables) {
-            pool.free(renderable);
-        }
-        visibleRenderables.clear();
+        queue.reset();
+        visibleRenderables = null;
 
-        frameBindGroup.dispose();
-        instancingBindGroup.dispose();
+        frameBindGroup = null;
 
         if(passType == RenderPassType.COLOR_PASS && environment.skybox != null) // todo move out skybox rendering
             environment.skybox.render(camera, pass);
@@ -275,17 +304,6 @@ public class ModelBatch implements Disposable {
         numPipelines = pipelines.size();        // for statistics
     }
 
-    private BoundingBox bbox = new BoundingBox();
-
-    /** Frustum culling using a transformed mesh bounding box */
-    private boolean isVisible(Renderable renderable){
-        return true;
-//        bbox.set(renderable.meshPart.getMesh().boundingBox);
-//        bbox.transform(renderable.modelTransform);
-//        return camera.frustum.boundsInFrustum(bbox);
-    }
-
-
     // this will actually generate the draw calls for the renderable
     private void emit(Renderable renderable) {
         numEmitted++;
@@ -318,8 +336,7 @@ public class ModelBatch implements Disposable {
             prevModelInstance = modelInstance;
             if(modelInstance != null && modelInstance.jointBuffer != null) {
                 updateJointBuffer(modelInstance);
-                // note: perhaps the bind group should be part of model instance
-                skinningBindGroup = createSkinningBindGroup(skinningBindGroupLayout, modelInstance.jointBuffer, modelInstance.model.inverseBoneBuffer);
+                skinningBindGroup = getSkinningBindGroup(modelInstance.jointBuffer, modelInstance.model.inverseBoneBuffer);
                 pass.setBindGroup(3, skinningBindGroup.getHandle());
             }
         }
@@ -406,6 +423,19 @@ public class ModelBatch implements Disposable {
 
         frameUniformBuffer.dispose();
         instanceBuffer.dispose();
+        for(Buffer buffer : retiredBuffers)
+            buffer.dispose();
+        retiredBuffers.clear();
+
+        instancingBindGroup.dispose();
+        if(dummySkinningBindGroup != null)
+            dummySkinningBindGroup.dispose();
+        for(FrameBindGroup entry : frameBindGroups)
+            entry.bindGroup.dispose();
+        frameBindGroups.clear();
+        for(SkinningBindGroup entry : skinningBindGroups.values())
+            entry.bindGroup.dispose();
+        skinningBindGroups.clear();
 
         LibGPU.webGPU.wgpuSamplerRelease(sampler);
         // todo check everything is cleaned up
@@ -453,14 +483,69 @@ public class ModelBatch implements Disposable {
     }
 
     // per frame bind group
-    private BindGroup makeFrameBindGroup(BindGroupLayout frameBindGroupLayout, Pointer sampler, Buffer uniformBuffer) {
+    // frame bind group with the textures and samplers it references, to find it back in the cache
+    private static class FrameBindGroup {
+        final TextureView[] views = new TextureView[5];
+        final Pointer[] samplers = new Pointer[2];
+        BindGroup bindGroup;
+
+        boolean matches(TextureView[] views, Pointer[] samplers){
+            for(int i = 0; i < views.length; i++)
+                if(this.views[i] != views[i])
+                    return false;
+            for(int i = 0; i < samplers.length; i++) {
+                Pointer a = this.samplers[i];
+                Pointer b = samplers[i];
+                if (a != b && (a == null || b == null || a.address() != b.address()))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private final TextureView[] tmpViews = new TextureView[5];
+    private final Pointer[] tmpSamplers = new Pointer[2];
 
+    /** Returns a frame bind group for the textures of the current environment. The bind groups are cached, so that
+     * a new one is only created when the environment refers to different textures. */
+    private BindGroup getFrameBindGroup() {
         Texture shadowMap = (environment != null && environment.renderShadows)? environment.shadowMap : dummyShadowMap;
         Texture cubeMap = (environment != null && environment.cubeMap != null) ? environment.cubeMap :  dummyCubemap;
         Texture irradMap = (environment != null && environment.irradianceMap != null) ? environment.irradianceMap :  dummyCubemap;
         Texture radMap = (environment != null && environment.radianceMap != null) ? environment.radianceMap :  dummyCubemap;
         Texture LUT = (environment != null && environment.brdfLUT != null) ? environment.brdfLUT :  dummy2DTexture;
+        tmpViews[0] = shadowMap.getTextureView();
+        tmpViews[1] = cubeMap.getTextureView();
+        tmpViews[2] = irradMap.getTextureView();
+        tmpViews[3] = radMap.getTextureView();
+        tmpViews[4] = LUT.getTextureView();
+        tmpSamplers[0] = cubeMap.getSampler();
+        tmpSamplers[1] = radMap.getSampler();
+
+        for(int i = frameBindGroups.size()-1; i >= 0; i--){
+            FrameBindGroup entry = frameBindGroups.get(i);
+            if(entry.matches(tmpViews, tmpSamplers)) {
+                if(i != frameBindGroups.size()-1) {     // move to the end as most recently used
+                    frameBindGroups.remove(i);
+                    frameBindGroups.add(entry);
+                }
+                return entry.bindGroup;
+            }
+        }
+
+        FrameBindGroup entry = new FrameBindGroup();
+        System.arraycopy(tmpViews, 0, entry.views, 0, tmpViews.length);
+        System.arraycopy(tmpSamplers, 0, entry.samplers, 0, tmpSamplers.length);
+        entry.bindGroup = makeFrameBindGroup(frameBindGroupLayout, sampler, frameUniformBuffer, shadowMap, cubeMap, irradMap, radMap, LUT);
+        frameBindGroups.add(entry);
+        if(frameBindGroups.size() > MAX_FRAME_BIND_GROUPS)
+            frameBindGroups.remove(0).bindGroup.dispose();
+        return entry.bindGroup;
+    }
 
+    private BindGroup makeFrameBindGroup(BindGroupLayout frameBindGroupLayout, Pointer sampler, Buffer uniformBuffer,
+                                         Texture shadowMap, Texture cubeMap, Texture irradMap, Texture radMap, Texture LUT) {
+        bindGroupsCreated++;
         BindGroup bindGroup = new BindGroup(frameBindGroupLayout);
         bindGroup.begin();
         bindGroup.addBuffer(0, uniformBuffer, 0, FRAME_UB_SIZE);
@@ -557,13 +642,42 @@ public class ModelBatch implements Disposable {
     }
 
     // add an instance to the instance buffer
+    // copy the instance data to the staging area, see uploadInstances()
     private void addInstance(int instanceIndex, Matrix4 modelTransform){
-        if(instanceIndex >= MAX_INSTANCES)
+        if(instanceIndex >= instanceCapacity)
             throw new RuntimeException("Too many instances: "+instanceIndex);
+        instanceData.put((long) instanceIndex * INSTANCE_SIZE, modelTransform.val, 0, 16);
+    }
 
-        instanceBuffer.beginFill();
-        instanceBuffer.append(modelTransform);
-        instanceBuffer.endFill(instanceIndex * 16*Float.BYTES);   // write to GPU buffer at offset for this instance
+    /** Make sure the instance buffer can hold the instances of this pass. Must be called before any draw calls are made,
+     * because a new instance buffer needs a new bind group. */
+    private void prepareInstanceBuffer(int numInstances){
+        if(!ensureInstanceCapacity(numInstances))
+            return;
+        instancingBindGroup.dispose();
+        instancingBindGroup = createInstancingBindGroup(instancingBindGroupLayout, instanceBuffer);
+        pass.setBindGroup(2, instancingBindGroup.getHandle());
+    }
+
+    /** Grow the instance buffer if needed, returns true if a new buffer was created. */
+    private boolean ensureInstanceCapacity(int numInstances){
+        if(numInstances <= instanceCapacity)
+            return false;
+        int capacity = Math.max(numInstances, 2 * instanceCapacity);
+        // the old buffer may still be used by earlier passes of this frame that are not submitted yet, so keep it until the next frame
+        if(instanceBuffer != null)
+            retiredBuffers.add(instanceBuffer);
+        instanceBuffer = new Buffer("ModelBatch instance buffer", WGPUBufferUsage.CopyDst | WGPUBufferUsage.Storage, (long) capacity * INSTANCE_SIZE);
+        instanceData = JavaWebGPU.createDirectPointer(capacity * INSTANCE_SIZE);
+        instanceCapacity = capacity;
+        return true;
+    }
+
+    /** Write the instance data of this pass to the GPU in one go. The write is performed before the command buffer
+     * with the draw calls is submitted. */
+    private void uploadInstances(){
+        if(renderablesCount > 0)
+            instanceBuffer.write(0, instanceData, renderablesCount * INSTANCE_SIZE);
     }
 
 
@@ -577,6 +691,7 @@ public class ModelBatch implements Disposable {
     }
 
     private BindGroup createInstancingBindGroup(BindGroupLayout instanceBindGroupLayout, Buffer instanceBuffer) {
+        bindGroupsCreated++;
         BindGroup bindGroup = new BindGroup(instanceBindGroupLayout);
         bindGroup.begin();
         bindGroup.addBuffer(0, instanceBuffer);
@@ -615,7 +730,44 @@ public class ModelBatch implements Disposable {
         return layout;
     }
 
+    // skinning bind group with the inverse bone buffer it references, to find it back in the cache
+    private static class SkinningBindGroup {
+        Buffer inverseBoneBuffer;
+        BindGroup bindGroup;
+    }
+
+    /** Returns a skinning bind group for the joint buffer of a model instance. The bind groups are cached per joint buffer. */
+    private BindGroup getSkinningBindGroup(Buffer jointBuffer, Buffer inverseBoneBuffer){
+        SkinningBindGroup entry = skinningBindGroups.get(jointBuffer);
+        if(entry != null && entry.inverseBoneBuffer == inverseBoneBuffer)
+            return entry.bindGroup;
+        if(entry == null) {
+            entry = new SkinningBindGroup();
+            skinningBindGroups.put(jointBuffer, entry);
+        } else
+            entry.bindGroup.dispose();
+        entry.inverseBoneBuffer = inverseBoneBuffer;
+        entry.bindGroup = createSkinningBindGroup(skinningBindGroupLayout, jointBuffer, inverseBoneBuffer);
+        if(skinningBindGroups.size() > skinningSweepSize)
+            sweepSkinningBindGroups();
+        return entry.bindGroup;
+    }
+
+    // remove bind groups for joint buffers that were disposed, e.g. by ModelInstance.dispose()
+    private void sweepSkinningBindGroups(){
+        Iterator<Map.Entry<Buffer, SkinningBindGroup>> it = skinningBindGroups.entrySet().iterator();
+        while(it.hasNext()){
+            Map.Entry<Buffer, SkinningBindGroup> entry = it.next();
+            if(entry.getKey().getHandle() == null || entry.getValue().inverseBoneBuffer.getHandle() == null) {
+                entry.getValue().bindGroup.dispose();
+                it.remove();
+            }
+        }
+        skinningSweepSize = Math.max(16, 2 * skinningBindGroups.size());
+    }
+
     private BindGroup createSkinningBindGroup(BindGroupLayout layout, Buffer jointBuffer, Buffer inverseBoneBuffer) {
+        bindGroupsCreated++;
         BindGroup bindGroup = new BindGroup(layout);
         bindGroup.begin();
         // webgpu will raise a fatal error if buffer is size is zero, despite we are not using these buffers for non-skinned models
@@ -57,10 +57,28 @@ public class ModelInstance implements Disposable {
         createJointBuffer();
     }
 
-    /** update bounding boxes to match the instance transform. Call this after changing the transform. */
+    private final Matrix4 tmpMatrix = new Matrix4();
+    private final BoundingBox tmpBox = new BoundingBox();
+
+    /** update bounding box to match the instance transform. Call this after changing the transform.
+     * The bounding box encloses the bounds of all the mesh parts in the node hierarchy. */
     public void update(){
-        boundingBox.set(model.getMeshes().get(0).boundingBox);   // todo assumes only one mesh per model
-        boundingBox.transform(transform);
+        boundingBox.clear();
+        for(Node rootNode : rootNodes)
+            extendBounds(rootNode);
+    }
+
+    private void extendBounds(Node node){
+        if(node.nodeParts != null) {
+            tmpMatrix.set(transform).mul(node.globalTransform);
+            for (NodePart nodePart : node.nodeParts) {
+                tmpBox.set(nodePart.meshPart.boundingBox);
+                tmpBox.transform(tmpMatrix);
+                boundingBox.ext(tmpBox);
+            }
+        }
+        for(Node child : node.children)
+            extendBounds(child);
     }
 
     private void createJointBuffer(){
@@ -76,8 +94,8 @@ public class ModelInstance implements Disposable {
     }
 
     public void getRenderables(ArrayList<Renderable> renderables, RenderablePool pool ){
-        for(Node rootNode : rootNodes)
-            rootNode.getRenderables(renderables, this, transform, pool);
+        for(int i = 0; i < rootNodes.size(); i++)
+            rootNodes.get(i).getRenderables(renderables, this, transform, pool);
     }
 
     @Override
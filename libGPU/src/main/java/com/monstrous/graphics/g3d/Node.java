@@ -91,9 +91,11 @@ public class Node {
         }
     }
 
+    // note: uses indexed loops to avoid iterator allocations, because this is called for every node every frame
     public void getRenderables(ArrayList<Renderable> renderables, ModelInstance modelInstance, Matrix4 instanceTransform, RenderablePool pool ){
         if(nodeParts != null) {
-            for (NodePart nodePart : nodeParts) {
+            for (int i = 0; i < nodeParts.size(); i++) {
+                NodePart nodePart = nodeParts.get(i);
                 Renderable renderable = pool.obtain();
                 renderable.set(nodePart.meshPart, nodePart.material, instanceTransform, modelInstance);
                 // combine globalTransform from node with modelTransform from model instance
@@ -101,8 +103,8 @@ public class Node {
                 renderables.add(renderable);
             }
         }
-        for(Node child : children)
-            child.getRenderables(renderables, modelInstance, instanceTransform, pool);
+        for(int i = 0; i < children.size(); i++)
+            children.get(i).getRenderables(renderables, modelInstance, instanceTransform, pool);
     }
 
 
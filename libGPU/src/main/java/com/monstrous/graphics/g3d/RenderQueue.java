@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.graphics.g3d;
+
+import com.monstrous.graphics.Camera;
+import com.monstrous.graphics.Material;
+import com.monstrous.graphics.Renderable;
+import com.monstrous.graphics.RenderablePool;
+import com.monstrous.graphics.webgpu.RenderPassType;
+import com.monstrous.math.Matrix4;
+import com.monstrous.utils.RadixSort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/** CPU side of ModelBatch: collects the renderables of the submitted model instances, performs frustum culling
+ * and sorts them into draw order using 64-bit sort keys, see sortKey(). This does not use the GPU.
+ *
+ * Optionally, the work is split over a ForkJoinPool by ranges of instances. The draw order is identical to the serial
+ * case: the renderables of each range are concatenated in submission order and the radix sort is stable.
+ */
+public class RenderQueue {
+    private static final int MIN_RANGE = 64;         // minimum number of instances or renderables per parallel task
+
+    private final ArrayList<ModelInstance> instances;
+    private final ArrayList<Renderable> extraRenderables;        // renderables submitted directly, not owned by the queue
+    private final ArrayList<ArrayList<Renderable>> ranges;      // renderables gathered per range of instances
+    private final ArrayList<RenderablePool> pools;              // one pool per range, so that tasks don't share a pool
+    private final ArrayList<Renderable> renderables;
+    private final ArrayList<Renderable> visibleRenderables;
+    private final ArrayList<Renderable> sorted;
+    private final ArrayList<ForkJoinTask<?>> tasks;
+    private ForkJoinPool forkJoinPool;
+    private int numRanges;
+    private Camera camera;
+
+    // world space bounds of the renderables in structure-of-arrays layout for batch culling
+    private float[] centerX = new float[0];
+    private float[] centerY = new float[0];
+    private float[] centerZ = new float[0];
+    private float[] extentX = new float[0];
+    private float[] extentY = new float[0];
+    private float[] extentZ = new float[0];
+    private long[] visibleMask = new long[0];
+    private long[] keys = new long[0];
+    private int[] indices = new int[0];
+    private final RadixSort radixSort = new RadixSort();
+    private int pass;
+
+    public boolean frustumCulling = true;
+    public int numVisible;      // number of renderables that passed frustum culling
+    public int numCulled;       // number of renderables removed by frustum culling
+
+    public RenderQueue() {
+        instances = new ArrayList<>();
+        extraRenderables = new ArrayList<>();
+        ranges = new ArrayList<>();
+        pools = new ArrayList<>();
+        renderables = new ArrayList<>();
+        visibleRenderables = new ArrayList<>();
+        sorted = new ArrayList<>();
+        tasks = new ArrayList<>();
+    }
+
+    /** Use a ForkJoinPool to gather, cull and sort in parallel, or null to do everything on the calling thread (default). */
+    public void setParallel(ForkJoinPool forkJoinPool){
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    public ForkJoinPool getParallel(){
+        return forkJoinPool;
+    }
+
+    /** Set render pass type, which goes into the most significant bits of the sort keys. */
+    public void setPass(RenderPassType passType){
+        pass = passType.ordinal();
+    }
+
+    public void add(ModelInstance instance){
+        instances.add(instance);
+    }
+
+    /** Add a renderable. The renderable remains owned by the caller. */
+    public void add(Renderable renderable){
+        extraRenderables.add(renderable);
+    }
+
+    /** Gather, cull and sort the submitted renderables. Returns the visible renderables in draw order,
+     * which remain valid until reset(). */
+    public List<Renderable> process(Camera camera){
+        this.camera = camera;
+        gather();
+        cull();
+        sort();
+        return sorted;
+    }
+
+    /** Return the renderables to the pools and clear the queue for the next frame. */
+    public void reset(){
+        for(int i = 0; i < numRanges; i++){
+            ArrayList<Renderable> range = ranges.get(i);
+            RenderablePool pool = pools.get(i);
+            for(int j = 0; j < range.size(); j++)
+                pool.free(range.get(j));
+            range.clear();
+        }
+        numRanges = 0;
+        instances.clear();
+        extraRenderables.clear();
+        renderables.clear();
+        visibleRenderables.clear();
+        sorted.clear();
+        camera = null;
+    }
+
+    private boolean isParallel(int count){
+        return forkJoinPool != null && count > MIN_RANGE;
+    }
+
+    // number of elements per task to split count elements over the pool
+    private int rangeSize(int count){
+        if(!isParallel(count))
+            return Math.max(count, 1);
+        int tasksWanted = forkJoinPool.getParallelism() * 4;
+        return Math.max(MIN_RANGE, (count + tasksWanted - 1) / tasksWanted);
+    }
+
+    // collect renderables from the model instances, this also computes the world transforms
+    private void gather(){
+        int count = instances.size();
+        int size = rangeSize(count);
+        numRanges = (count + size - 1) / size;
+        while(ranges.size() < numRanges) {
+            ranges.add(new ArrayList<>());
+            pools.add(new RenderablePool());
+        }
+        if(isParallel(count)) {
+            for (int r = 0; r < numRanges; r++) {
+                final int range = r;
+                tasks.add(forkJoinPool.submit(() -> gatherRange(range, range * size, Math.min(count, (range + 1) * size))));
+            }
+            joinTasks();
+        } else if(numRanges > 0)
+            gatherRange(0, 0, count);
+
+        // note: not using addAll() because it allocates a temporary array
+        renderables.clear();
+        for(int r = 0; r < numRanges; r++) {
+            ArrayList<Renderable> range = ranges.get(r);
+            for(int i = 0; i < range.size(); i++)
+                renderables.add(range.get(i));
+        }
+        for(int i = 0; i < extraRenderables.size(); i++)
+            renderables.add(extraRenderables.get(i));
+    }
+
+    private void gatherRange(int range, int from, int to){
+        ArrayList<Renderable> list = ranges.get(range);
+        RenderablePool pool = pools.get(range);
+        for(int i = from; i < to; i++)
+            instances.get(i).getRenderables(list, pool);
+    }
+
+    private void cull(){
+        visibleRenderables.clear();
+        int count = renderables.size();
+        if(frustumCulling && count > 0) {
+            ensureCapacity(count);
+            int size = rangeSize(count);
+            if(isParallel(count)) {
+                for (int from = 0; from < count; from += size) {
+                    final int start = from;
+                    tasks.add(forkJoinPool.submit(() -> prepareBounds(start, Math.min(count, start + size))));
+                }
+                joinTasks();
+            } else
+                prepareBounds(0, count);
+            camera.frustum.boundsInFrustum(centerX, centerY, centerZ, extentX, extentY, extentZ, count, visibleMask);
+        }
+        for(int i = 0; i < count; i++) {
+            if(!frustumCulling || (visibleMask[i >> 6] & (1L << i)) != 0)
+                visibleRenderables.add(renderables.get(i));
+        }
+        numVisible = visibleRenderables.size();
+        numCulled = count - numVisible;
+    }
+
+    /** Fill the bounds arrays with the world space bounding box of each renderable, for batch frustum culling. */
+    private void prepareBounds(int from, int to){
+        for(int i = from; i < to; i++) {
+            Renderable renderable = renderables.get(i);
+            BoundingBox bounds = renderable.worldBounds;
+            bounds.set(renderable.meshPart.boundingBox);
+            // skinned meshes are deformed by the joints, so the bind pose bounds are not reliable
+            boolean skinned = renderable.modelInstance != null && renderable.modelInstance.jointBuffer != null;
+            if(skinned || !bounds.isValid()) {
+                // never cull: a box centred on the camera extends into the frustum
+                centerX[i] = camera.position.x;
+                centerY[i] = camera.position.y;
+                centerZ[i] = camera.position.z;
+                extentX[i] = camera.far;
+                extentY[i] = camera.far;
+                extentZ[i] = camera.far;
+                continue;
+            }
+            bounds.transform(renderable.modelTransform);
+            centerX[i] = (bounds.min.x + bounds.max.x) * 0.5f;
+            centerY[i] = (bounds.min.y + bounds.max.y) * 0.5f;
+            centerZ[i] = (bounds.min.z + bounds.max.z) * 0.5f;
+            extentX[i] = (bounds.max.x - bounds.min.x) * 0.5f;
+            extentY[i] = (bounds.max.y - bounds.min.y) * 0.5f;
+            extentZ[i] = (bounds.max.z - bounds.min.z) * 0.5f;
+        }
+    }
+
+    // sort renderables on their sort key to minimize state switches
+    private void sort(){
+        int count = visibleRenderables.size();
+        if(keys.length < count) {
+            int size = Math.max(count, 2 * keys.length);
+            keys = new long[size];
+            indices = new int[size];
+        }
+        int size = rangeSize(count);
+        if(isParallel(count)) {
+            for (int from = 0; from < count; from += size) {
+                final int start = from;
+                tasks.add(forkJoinPool.submit(() -> makeKeys(start, Math.min(count, start + size))));
+            }
+            joinTasks();
+        } else
+            makeKeys(0, count);
+        // the radix sort is stable, so renderables with equal keys keep their submission order
+        radixSort.sort(keys, indices, count);
+        sorted.clear();
+        for(int i = 0; i < count; i++)
+            sorted.add(visibleRenderables.get(indices[i]));
+    }
+
+    private void makeKeys(int from, int to){
+        for(int i = from; i < to; i++) {
+            Renderable renderable = visibleRenderables.get(i);
+            renderable.sortKey = sortKey(renderable);
+            keys[i] = renderable.sortKey;
+            indices[i] = i;
+        }
+    }
+
+    /** Sort key, in order of significance:
+     * opaque:      pass (3 bits), 0 (1 bit), pipeline (10), material (16), mesh (12), mesh part (8), depth front to back (14)
+     * translucent: pass (3 bits), 1 (1 bit), depth back to front (24), pipeline (10), material (16), mesh part (10)
+     *
+     * The pipeline bits are a hash of the vertex attributes and topology, which are what selects the pipeline within a pass.
+     * Ids and hashes are truncated to the available bits, which only affects how well renderables are grouped.
+     */
+    private long sortKey(Renderable renderable){
+        MeshPart meshPart = renderable.meshPart;
+        Mesh mesh = meshPart.getMesh();
+        Material material = renderable.material;
+        boolean translucent = material != null && material.translucent;
+
+        long usage = mesh.vertexAttributes == null ? 0 : mesh.vertexAttributes.getUsageFlags();
+        int pipelineHash = Long.hashCode(usage * 31 + meshPart.getTopology().ordinal());
+        long pipelineBits = (pipelineHash ^ (pipelineHash >>> 10) ^ (pipelineHash >>> 20)) & 0x3FF;
+        long materialBits = material == null ? 0 : material.sortId & 0xFFFF;
+
+        // distance along the view direction, as fraction of the far distance
+        Matrix4 transform = renderable.modelTransform;
+        float dx = transform.val[Matrix4.M03] - camera.position.x;
+        float dy = transform.val[Matrix4.M13] - camera.position.y;
+        float dz = transform.val[Matrix4.M23] - camera.position.z;
+        float depth = (dx * camera.direction.x + dy * camera.direction.y + dz * camera.direction.z) / camera.far;
+        depth = Math.min(Math.max(depth, 0f), 1f);
+
+        long key = (long)(pass & 0x7) << 61;
+        if(!translucent) {
+            long depthBits = (long)(depth * 0x3FFF);
+            key |= pipelineBits << 50 | materialBits << 34 | (long)(mesh.sortId & 0xFFF) << 22 | (long)(meshPart.sortId & 0xFF) << 14 | depthBits;
+        } else {
+            long depthBits = 0xFFFFFF - (long)(depth * 0xFFFFFF);
+            key |= 1L << 60 | depthBits << 36 | pipelineBits << 26 | materialBits << 10 | (meshPart.sortId & 0x3FF);
+        }
+        return key;
+    }
+
+    private void joinTasks(){
+        for(ForkJoinTask<?> task : tasks)
+            task.join();
+        tasks.clear();
+    }
+
+    private void ensureCapacity(int count){
+        if(centerX.length >= count)
+            return;
+        int size = Math.max(count, 2 * centerX.length);
+        centerX = new float[size];
+        centerY = new float[size];
+        centerZ = new float[size];
+        extentX = new float[size];
+        extentY = new float[size];
+        extentZ = new float[size];
+        visibleMask = new long[(size + 63) >>> 6];
+    }
+}
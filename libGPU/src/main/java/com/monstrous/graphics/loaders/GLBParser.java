@@ -16,14 +16,10 @@
 
 package com.monstrous.graphics.loaders;
 
-import java.io.IOException;
+import com.monstrous.Files;
+
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.CharBuffer;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 
 
 // Parser of the GLB format (binary GLTF) into a GLTF object
@@ -35,17 +31,13 @@ public class GLBParser {
         String path = filePath.substring(0, slash + 1);
         String name = filePath.substring(slash + 1);
 
-        byte[] contents;
-        try {
-            contents = Files.readAllBytes(Paths.get(filePath));
-        } catch (IOException e) {
-            throw new RuntimeException("Could not read GLB file "+filePath);
-        }
+        // the file is memory mapped: the JSON is parsed in place and the binary chunk is used without copying
+        ByteBuffer contents = Files.internal(filePath).map();
         return parseBinaryFile( filePath, path, contents);
     }
 
-    private static GLTF parseBinaryFile( String name, String path, byte[] contents ){
-        ByteBuffer bb = ByteBuffer.wrap( contents );
+    private static GLTF parseBinaryFile( String name, String path, ByteBuffer contents ){
+        ByteBuffer bb = contents.duplicate();
         bb.order(ByteOrder.LITTLE_ENDIAN);
 
         bb.rewind();
@@ -63,7 +55,7 @@ public class GLBParser {
             throw new RuntimeException("GLB file invalid: "+name);
         if(version != 2)
             System.out.println("Warning: GLB version unsupported (!=2) : "+name);
-        if(len != contents.length)
+        if(len != contents.limit())
             throw new RuntimeException("GLB file length invalid: "+name);
 
         // read chunk
@@ -75,15 +67,9 @@ public class GLBParser {
             throw new RuntimeException("GLB file invalid, first chunk must be type JSON: "+name);
 
 
-        Charset charset = StandardCharsets.US_ASCII;
-        ByteBuffer chunkData = bb.slice();
-        chunkData.limit(chunkLength);
-        CharBuffer charBuffer = charset.decode(chunkData);
-        char[] jsonArray = new char[chunkLength];
-        charBuffer.get(jsonArray);
-        String json = new String(jsonArray);
-
-        //System.out.println("JSON ["+json+"]");
+        // the JSON chunk is parsed in place, without decoding it to a String first
+        ByteBuffer json = bb.slice();
+        json.limit(chunkLength);
 
         bb.position(bb.position() + chunkLength);
 
@@ -98,7 +84,7 @@ public class GLBParser {
         chunkBinaryData.limit(chunkLength);
 
         GLTF gltf = GLTFParser.parseJSON(json, path);
-        gltf.rawBuffer = new GLTFRawBuffer(chunkBinaryData);
+        GLTFParser.loadBuffers(gltf, chunkBinaryData);
         return gltf;
     }
 }
@@ -2,6 +2,8 @@ package com.monstrous.graphics.loaders;
 
 import com.monstrous.graphics.loaders.gltf.*;
 
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 
 // class to store the contents of a gltf file
@@ -10,6 +12,7 @@ public class GLTF {
 
     public static int SBYTE8 = 5120;
     public static int UBYTE8 = 5121;
+    public static int SSHORT16 = 5122;
     public static int USHORT16 = 5123;
     public static int UINT32 = 5125;
     public static int FLOAT32 = 5126;
@@ -28,7 +31,7 @@ public class GLTF {
     public ArrayList<GLTFAnimation> animations;
     public ArrayList<GLTFSkin> skins;
     public ArrayList<GLTFScene> scenes;
-    public GLTFRawBuffer rawBuffer;     // binary data either from a .bin file or from second chunk in .glb file
+    public ArrayList<GLTFRawBuffer> rawBuffers;     // binary data per buffer: a .bin file, a data URI or the second chunk of a .glb file
 
     public GLTF() {
         textures = new ArrayList<>();
@@ -43,6 +46,50 @@ public class GLTF {
         animations = new ArrayList<>();
         skins = new ArrayList<>();
         scenes = new ArrayList<>();
-        rawBuffer = null;
+        rawBuffers = new ArrayList<>();
+    }
+
+    /** Little-endian view of the data of an accessor, without copying. Elements must be tightly packed. */
+    public ByteBuffer getAccessorData(GLTFAccessor accessor) {
+        GLTFBufferView view = bufferViews.get(accessor.bufferView);
+        int elementSize = getComponentSize(accessor.componentType) * getNumComponents(accessor.type);
+        if(view.byteStride != 0 && view.byteStride != elementSize)
+            throw new RuntimeException("GLTF: Interleaved buffer views are not supported");
+        return rawBuffers.get(view.buffer).slice(view.byteOffset + accessor.byteOffset, accessor.count * elementSize);
+    }
+
+    /** View of the data of a float accessor, without copying. */
+    public FloatBuffer getAccessorFloats(GLTFAccessor accessor) {
+        if(accessor.componentType != FLOAT32)
+            throw new RuntimeException("GLTF: Expected float accessor: "+accessor.name);
+        return getAccessorData(accessor).asFloatBuffer();
+    }
+
+    /** Little-endian view of the data of a buffer view, without copying. */
+    public ByteBuffer getBufferViewData(GLTFBufferView view) {
+        return rawBuffers.get(view.buffer).slice(view.byteOffset, view.byteLength);
+    }
+
+    public static int getComponentSize(int componentType) {
+        if(componentType == SBYTE8 || componentType == UBYTE8)
+            return 1;
+        if(componentType == SSHORT16 || componentType == USHORT16)
+            return 2;
+        if(componentType == UINT32 || componentType == FLOAT32)
+            return 4;
+        throw new RuntimeException("GLTF: Unknown component type "+componentType);
+    }
+
+    public static int getNumComponents(String type) {
+        switch (type) {
+            case "SCALAR":  return 1;
+            case "VEC2":    return 2;
+            case "VEC3":    return 3;
+            case "VEC4":    return 4;
+            case "MAT2":    return 4;
+            case "MAT3":    return 9;
+            case "MAT4":    return 16;
+            default:        throw new RuntimeException("GLTF: Unknown accessor type "+type);
+        }
     }
 }
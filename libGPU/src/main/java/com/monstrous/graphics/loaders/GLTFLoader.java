@@ -10,6 +10,8 @@ import com.monstrous.math.*;
 import com.monstrous.webgpu.WGPUPrimitiveTopology;
 import com.monstrous.webgpu.WGPUVertexFormat;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -22,17 +24,20 @@ public class GLTFLoader implements ModelLoader {
     //private final Map<Integer, Boolean> hasNormalMap = new HashMap<>();
     private final ArrayList<Node> nodes = new ArrayList<>();
 
-    @Override
-    public Model loadFromFile(Model model, String filePath) {
+    // result of prepare()
+    private GLTF prepared;
+    private final ArrayList<MaterialData> materialDatas = new ArrayList<>();
+    private final Map<GLTFPrimitive, MeshData> meshDataMap = new HashMap<>();
 
-        GLTF gltf = GLTFParser.load(filePath);      // TMP
-        return load(model, gltf);
+    @Override
+    public void prepare(String filePath) {
+        prepare(GLTFParser.load(filePath));
     }
 
-    public Model load(Model model, GLTF gltf){
-        meshMap.clear();
-        materials.clear();
-
+    /** Decode the images and build the mesh data, without GPU calls. */
+    public void prepare(GLTF gltf) {
+        materialDatas.clear();
+        meshDataMap.clear();
 
         long startLoad = System.currentTimeMillis();
         int index = 0;
@@ -59,10 +64,8 @@ public class GLTFLoader implements ModelLoader {
             if(gltfMat.occlusionTexture >= 0)
                 materialData.occlusionMapData =  readImageData(gltf, gltfMat.occlusionTexture);
 
-
-            Material material = new Material(materialData);
-            materials.add(material);
-            model.addMaterial(material);
+            materialData.decodeMaps(true);
+            materialDatas.add(materialData);
         }
 
         long endLoad = System.currentTimeMillis();
@@ -70,23 +73,46 @@ public class GLTFLoader implements ModelLoader {
 
         startLoad = System.currentTimeMillis();
         for(GLTFMesh gltfMesh : gltf.meshes){
-            // build a mesh for each primitive
-            for(GLTFPrimitive primitive : gltfMesh.primitives){
-                Mesh mesh = buildMesh(gltf,  gltf.rawBuffer, primitive );
-                model.addMesh(mesh);
-                meshMap.put(primitive, mesh);
-            }
+            // build mesh data for each primitive
+            for(GLTFPrimitive primitive : gltfMesh.primitives)
+                meshDataMap.put(primitive, buildMeshData(gltf, primitive));
         }
 
         endLoad = System.currentTimeMillis();
         System.out.println("Mesh loading time (ms): "+(endLoad - startLoad));
+        prepared = gltf;
+    }
 
+    @Override
+    public Model loadFromFile(Model model, String filePath) {
+        if(prepared == null)
+            prepare(filePath);
+        return load(model, prepared);
+    }
 
+    public Model load(Model model, GLTF gltf){
+        if(prepared != gltf)
+            prepare(gltf);
+        meshMap.clear();
+        materials.clear();
 
+        // create the GPU resources
+        for(MaterialData materialData : materialDatas){
+            Material material = new Material(materialData);
+            materials.add(material);
+            model.addMaterial(material);
+        }
 
-//        for(GLTFScene scene : gltf.scenes ){
-//
-//        }
+        for(GLTFMesh gltfMesh : gltf.meshes){
+            for(GLTFPrimitive primitive : gltfMesh.primitives){
+                Mesh mesh = new Mesh(meshDataMap.get(primitive));
+                model.addMesh(mesh);
+                meshMap.put(primitive, mesh);
+            }
+        }
+        prepared = null;
+        materialDatas.clear();
+        meshDataMap.clear();
 
         nodes.clear();
         for( GLTFNode gltfNode : gltf.nodes ) {
@@ -109,12 +135,7 @@ public class GLTFLoader implements ModelLoader {
             GLTFAccessor ibmAccessor = gltf.accessors.get(skin.inverseBindMatrices);
             if(ibmAccessor.componentType != GLTF.FLOAT32 || !ibmAccessor.type.contentEquals("MAT4"))
                 throw new RuntimeException("GLTF: Expected inverseBindMatrices of MAT4(float32)");
-            GLTFBufferView ibmView = gltf.bufferViews.get(ibmAccessor.bufferView);
-
-            if(ibmView.buffer != 0)
-                throw new RuntimeException("GLTF can only support buffer 0");
-            gltf.rawBuffer.byteBuffer.position(ibmAccessor.byteOffset+ ibmView.byteOffset);
-            FloatBuffer matBuf = gltf.rawBuffer.byteBuffer.asFloatBuffer();
+            FloatBuffer matBuf = gltf.getAccessorFloats(ibmAccessor);
 
             float[] floats = new float[16];
             for(int i = 0; i < ibmAccessor.count; i++) {    // read each matrix
@@ -148,19 +169,11 @@ public class GLTFLoader implements ModelLoader {
                 GLTFAccessor outAccessor = gltf.accessors.get(sampler.output);
                 // ignore interpolation, we only do linear
 
-                GLTFBufferView inView = gltf.bufferViews.get(inAccessor.bufferView);
-                if(inView.buffer != 0)
-                    throw new RuntimeException("GLTF can only support buffer 0");
-                gltf.rawBuffer.byteBuffer.position(inView.byteOffset+ inAccessor.byteOffset);  // does this carry over to floatbuf?
-                FloatBuffer timeBuf = gltf.rawBuffer.byteBuffer.asFloatBuffer();
+                FloatBuffer timeBuf = gltf.getAccessorFloats(inAccessor);
                 float[] times = new float[inAccessor.count];
                 timeBuf.get(times, 0, inAccessor.count);
 
-                GLTFBufferView outView = gltf.bufferViews.get(outAccessor.bufferView);
-                if(outView.buffer != 0)
-                    throw new RuntimeException("GLTF can only support buffer 0");
-                gltf.rawBuffer.byteBuffer.position(outView.byteOffset+outAccessor.byteOffset);  // does this carry over to floatbuf?
-                FloatBuffer floatBuf = gltf.rawBuffer.byteBuffer.asFloatBuffer();
+                FloatBuffer floatBuf = gltf.getAccessorFloats(outAccessor);
                 float[] floats = new float[numComponents * outAccessor.count];
                 floatBuf.get(floats, 0, numComponents * outAccessor.count);
 
@@ -200,17 +213,16 @@ public class GLTFLoader implements ModelLoader {
         byte[] bytes;
 
         GLTFImage image = gltf.images.get( gltf.textures.get(textureId).source );
-        if(image.uri != null){
+        if(GLTFRawBuffer.isDataUri(image.uri)){
+            ByteBuffer data = GLTFRawBuffer.decodeDataUri(image.uri);
+            bytes = new byte[data.remaining()];
+            data.get(bytes);
+        } else if(image.uri != null){
             bytes = Files.internal(image.uri).readAllBytes();
         } else {
             GLTFBufferView view = gltf.bufferViews.get(image.bufferView);
-            if(view.buffer != 0)
-                throw new RuntimeException("GLTF can only support buffer 0");
-
             bytes = new byte[view.byteLength];
-
-            gltf.rawBuffer.byteBuffer.position(view.byteOffset);
-            gltf.rawBuffer.byteBuffer.get(bytes);
+            gltf.getBufferViewData(view).get(bytes);
         }
         return bytes;
     }
@@ -260,17 +272,11 @@ public class GLTFLoader implements ModelLoader {
     }
 
 
-    private Mesh buildMesh(GLTF gltf, GLTFRawBuffer rawBuffer, GLTFPrimitive primitive){
+    private MeshData buildMeshData(GLTF gltf, GLTFPrimitive primitive){
 
         int indexAccessorId = primitive.indices;
         GLTFAccessor indexAccessor = gltf.accessors.get(indexAccessorId);
 
-        GLTFBufferView view = gltf.bufferViews.get(indexAccessor.bufferView);
-        if(view.buffer != 0)
-            throw new RuntimeException("GLTF: Can only support buffer 0");
-        int offset = view.byteOffset;
-        offset += indexAccessor.byteOffset;
-
         boolean hasNormalMap = gltf.materials.get(primitive.material).normalTexture >= 0;
 
         MeshData meshData = new MeshData();
@@ -294,26 +300,9 @@ public class GLTFLoader implements ModelLoader {
         if(indexAccessor.componentType != GLTF.USHORT16 && indexAccessor.componentType != GLTF.UINT32 )
             throw new RuntimeException("GLTF: Can only support short or integer index");
 
-        rawBuffer.byteBuffer.position(offset);
-
-        int max = -1;
-        if(indexAccessor.componentType == GLTF.USHORT16){
-            meshData.indexSizeInBytes = 2; // 16 bit index
-            for(int i = 0; i < indexAccessor.count; i++){
-                meshData.indexValues.add( (int)rawBuffer.byteBuffer.getShort());
-            }
-        } else {
-            meshData.indexSizeInBytes = 4; // 32 bit index
-            for(int i = 0; i < indexAccessor.count; i++){
-                int index = rawBuffer.byteBuffer.getInt();
-                if(index > max)
-                    max = index;
-                meshData.indexValues.add( index);
-            }
-            //System.out.println("max index "+max); // TMP
-        }
-
-        //boolean hasNormalMap = meshData.vertexAttributes.hasUsage(VertexAttribute.Usage.TANGENT);
+        // the indices are uploaded straight from the (memory mapped) buffer
+        meshData.indexSizeInBytes = indexAccessor.componentType == GLTF.USHORT16 ? 2 : 4;
+        meshData.indexData = gltf.getAccessorData(indexAccessor);
 
         int positionAccessorId = -1;
         int normalAccessorId = -1;
@@ -339,273 +328,185 @@ public class GLTFLoader implements ModelLoader {
         }
         if(positionAccessorId < 0)
             throw new RuntimeException("GLTF: need POSITION attribute");
-        GLTFAccessor positionAccessor = gltf.accessors.get(positionAccessorId);
-        view = gltf.bufferViews.get(positionAccessor.bufferView);
-        if(view.buffer != 0)
-            throw new RuntimeException("GLTF: Can only support buffer 0");
-        offset = view.byteOffset;
-        offset += positionAccessor.byteOffset;
-
-        //System.out.println("Position offset: "+offset);
-        //System.out.println("Position count: "+positionAccessor.count);
 
+        // vertex attributes are read through views on the buffer, without intermediate copies
+        GLTFAccessor positionAccessor = gltf.accessors.get(positionAccessorId);
         if(positionAccessor.componentType != GLTF.FLOAT32 || !positionAccessor.type.contentEquals("VEC3"))
             throw new RuntimeException("GLTF: Can only support float positions as VEC3");
+        FloatBuffer positions = gltf.getAccessorFloats(positionAccessor);
+        int vertexCount = positionAccessor.count;
 
-        ArrayList<Vector3> positions = new ArrayList<>();
-        rawBuffer.byteBuffer.position(offset);
-        for(int i = 0; i < positionAccessor.count; i++){
-            // assuming float32
-            float f1 = rawBuffer.byteBuffer.getFloat();
-            float f2 = rawBuffer.byteBuffer.getFloat();
-            float f3 = rawBuffer.byteBuffer.getFloat();
-            //System.out.println("float  "+f1 + " "+ f2 + " "+f3);
-            positions.add(new Vector3(f1, f2, f3));
-        }
-
-        ArrayList<Vector3> normals = new ArrayList<>();
+        FloatBuffer normals = null;
         if(normalAccessorId >= 0) {
             GLTFAccessor normalAccessor = gltf.accessors.get(normalAccessorId);
-            view = gltf.bufferViews.get(normalAccessor.bufferView);
-            if (view.buffer != 0)
-                throw new RuntimeException("GLTF: Can only support buffer 0");
-            offset = view.byteOffset;
-            offset += normalAccessor.byteOffset;
-
-
-            if (normalAccessor.componentType != GLTF.FLOAT32 || !positionAccessor.type.contentEquals("VEC3"))
+            if (normalAccessor.componentType != GLTF.FLOAT32 || !normalAccessor.type.contentEquals("VEC3"))
                 throw new RuntimeException("GLTF: Can only support float normals as VEC3");
-
-            rawBuffer.byteBuffer.position(offset);
-            for (int i = 0; i < normalAccessor.count; i++) {
-                // assuming float32
-                float f1 = rawBuffer.byteBuffer.getFloat();
-                float f2 = rawBuffer.byteBuffer.getFloat();
-                float f3 = rawBuffer.byteBuffer.getFloat();
-                //System.out.println("float  "+f1 + " "+ f2 + " "+f3);
-                normals.add(new Vector3(f1, f2, f3));
-            }
+            normals = gltf.getAccessorFloats(normalAccessor);
         }
 
-        ArrayList<Vector3> tangents = new ArrayList<>();
+        FloatBuffer tangents = null;
         if(tangentAccessorId >= 0) {
             GLTFAccessor tangentAccessor = gltf.accessors.get(tangentAccessorId);
-            view = gltf.bufferViews.get(tangentAccessor.bufferView);
-            if (view.buffer != 0)
-                throw new RuntimeException("GLTF: Can only support buffer 0");
-            offset = view.byteOffset;
-            offset += tangentAccessor.byteOffset;
-
-            if (tangentAccessor.componentType != GLTF.FLOAT32 || !positionAccessor.type.contentEquals("VEC3"))
-                throw new RuntimeException("GLTF: Can only support float tangents as VEC3");
-
-            rawBuffer.byteBuffer.position(offset);
-            for (int i = 0; i < tangentAccessor.count; i++) {
-                // assuming float32
-                float f1 = rawBuffer.byteBuffer.getFloat();
-                float f2 = rawBuffer.byteBuffer.getFloat();
-                float f3 = rawBuffer.byteBuffer.getFloat();
-                //System.out.println("float  "+f1 + " "+ f2 + " "+f3);
-                tangents.add(new Vector3(f1, f2, f3));
-            }
+            if (tangentAccessor.componentType != GLTF.FLOAT32 || !tangentAccessor.type.contentEquals("VEC4"))
+                throw new RuntimeException("GLTF: Can only support float tangents as VEC4");
+            tangents = gltf.getAccessorFloats(tangentAccessor);
         }
 
-        ArrayList<Vector2> textureCoordinates = new ArrayList<>();
+        FloatBuffer textureCoordinates = null;
         if(uvAccessorId >= 0) {
-
             GLTFAccessor uvAccessor = gltf.accessors.get(uvAccessorId);
-            view = gltf.bufferViews.get(uvAccessor.bufferView);
-            if (view.buffer != 0)
-                throw new RuntimeException("GLTF: Can only support buffer 0");
-            offset = view.byteOffset;
-            offset += uvAccessor.byteOffset;
-
-            //System.out.println("UV offset: " + offset);
-
             if (uvAccessor.componentType != GLTF.FLOAT32 || !uvAccessor.type.contentEquals("VEC2"))
                 throw new RuntimeException("GLTF: Can only support float positions as VEC2");
-
-
-            rawBuffer.byteBuffer.position(offset);
-            for (int i = 0; i < uvAccessor.count; i++) {
-                // assuming float32
-                float f1 = rawBuffer.byteBuffer.getFloat();
-                float f2 = rawBuffer.byteBuffer.getFloat();
-                //System.out.println("float  "+f1 + " "+ f2 );
-                textureCoordinates.add(new Vector2(f1, f2));
-            }
+            textureCoordinates = gltf.getAccessorFloats(uvAccessor);
         }
 
-        ArrayList<Vector4> joints = new ArrayList<>();
+        ByteBuffer joints = null;
+        boolean jointsAreBytes = false;
         if(jointsAccessorId >= 0) {
             GLTFAccessor jointsAccessor = gltf.accessors.get(jointsAccessorId);
             if (jointsAccessor.componentType != GLTF.USHORT16 &&  jointsAccessor.componentType != GLTF.UBYTE8)
                 throw new RuntimeException("GLTF: Can only joints defined as USHORT16 or UBYTE8, type = "+jointsAccessor.componentType);
             if ( !jointsAccessor.type.contentEquals("VEC4"))
                 throw new RuntimeException("GLTF: Can only support joints as vec4, type = "+jointsAccessor.type);
-            view = gltf.bufferViews.get(jointsAccessor.bufferView);
-            if (view.buffer != 0)
-                throw new RuntimeException("GLTF: Can only support buffer 0");
-            offset = view.byteOffset;
-            offset += jointsAccessor.byteOffset;
-            rawBuffer.byteBuffer.position(offset);
-            boolean isByte = (jointsAccessor.componentType == GLTF.UBYTE8);
-            short u1, u2, u3, u4;
-            for (int i = 0; i < jointsAccessor.count; i++) {
-                // assuming ubyte8 or ushort16 (handled as (signed) short here)
-                if(isByte) {
-                    u1 = rawBuffer.byteBuffer.get();
-                    u2 = rawBuffer.byteBuffer.get();
-                    u3 = rawBuffer.byteBuffer.get();
-                    u4 = rawBuffer.byteBuffer.get();
-                } else {
-                    u1 = rawBuffer.byteBuffer.getShort();
-                    u2 = rawBuffer.byteBuffer.getShort();
-                    u3 = rawBuffer.byteBuffer.getShort();
-                    u4 = rawBuffer.byteBuffer.getShort();
-                }
-
-                Vector4 jj = new Vector4(u1, u2, u3, u4);
-                joints.add(jj);
-
-//                int jointInt = (u1&0xFF) << 24 | (u2 &0xFF) << 16 | (u3&0xFF) << 8 | (u4&0xFF);
-//                System.out.println("joints  "+u1 + " "+ u2 + " "+u3+" "+u4+": "+Integer.toHexString(jointInt));
-//                joints.add(jointInt);
-            }
+            joints = gltf.getAccessorData(jointsAccessor);
+            jointsAreBytes = (jointsAccessor.componentType == GLTF.UBYTE8);
         }
 
-        ArrayList<Vector4> weights = new ArrayList<>();
+        FloatBuffer weights = null;
         if(weightsAccessorId >= 0) {
             GLTFAccessor accessor = gltf.accessors.get(weightsAccessorId);
             if (accessor.componentType != GLTF.FLOAT32 || !accessor.type.contentEquals("VEC4"))
                 throw new RuntimeException("GLTF: Can only support vec4(FLOAT32) for joints, type = "+accessor.componentType);
-            view = gltf.bufferViews.get(accessor.bufferView);
-            if (view.buffer != 0)
-                throw new RuntimeException("GLTF: Can only support buffer 0");
-            offset = view.byteOffset;
-            offset += accessor.byteOffset;
-            rawBuffer.byteBuffer.position(offset);
-
-            for (int i = 0; i < accessor.count; i++) {
-                float f1 = rawBuffer.byteBuffer.getFloat();
-                float f2 = rawBuffer.byteBuffer.getFloat();
-                float f3 = rawBuffer.byteBuffer.getFloat();
-                float f4 = rawBuffer.byteBuffer.getFloat();
-                Vector4 w = new Vector4(f1, f2, f3, f4);
-                System.out.println("weights  "+w.toString());
-                weights.add(w);
-            }
+            weights = gltf.getAccessorFloats(accessor);
         }
 
-        ArrayList<Vector3> bitangents = new ArrayList<>();
-        // if the material has a normal map and tangents are not provided we need to calculate them
-        if(hasNormalMap && (tangents.size() == 0  || bitangents.size() == 0))
-            addTBN(meshData, positions, textureCoordinates, normals, tangents, bitangents);
-
-        // x y z   u v   nx ny nz (tx ty tz   bx by bz)
+        // x y z   u v   nx ny nz (tx ty tz   bx by bz) (joints) (weights)
+        // interleaved straight into a direct buffer that is uploaded as is
         meshData.objectName = gltf.nodes.get(0).name;
-        Vector3 normal = new Vector3(0, 1, 0);
-        Vector2 uv = new Vector2();
-        for(int i = 0; i < positions.size(); i++){
-            Vector3 pos = positions.get(i);
-            meshData.vertFloats.add(pos.x);
-            meshData.vertFloats.add(pos.y);
-            meshData.vertFloats.add(pos.z);
-
-            if(!textureCoordinates.isEmpty())
-                uv =  textureCoordinates.get(i);
-            meshData.vertFloats.add(uv.x);
-            meshData.vertFloats.add(uv.y);
-
-            if(!normals.isEmpty())
-                normal = normals.get(i);
-            meshData.vertFloats.add(normal.x);
-            meshData.vertFloats.add(normal.y);
-            meshData.vertFloats.add(normal.z);
-
-            if(hasNormalMap) {
-                Vector3 tangent = tangents.get(i);
-                meshData.vertFloats.add(tangent.x);
-                meshData.vertFloats.add(tangent.y);
-                meshData.vertFloats.add(tangent.z);
-
-                // calculate bitangent from normal x tangent
-                Vector3 bitangent = bitangents.get(i);
-                meshData.vertFloats.add(bitangent.x);
-                meshData.vertFloats.add(bitangent.y);
-                meshData.vertFloats.add(bitangent.z);
+        int stride = meshData.vertexAttributes.getVertexSizeInBytes()/Float.BYTES;     // in floats
+        meshData.vertexData = ByteBuffer.allocateDirect(vertexCount * stride * Float.BYTES).order(ByteOrder.nativeOrder());
+        FloatBuffer vertices = meshData.vertexData.asFloatBuffer();
+        for(int i = 0; i < vertexCount; i++){
+            vertices.put(positions.get(3*i)).put(positions.get(3*i+1)).put(positions.get(3*i+2));
+
+            if(textureCoordinates != null)
+                vertices.put(textureCoordinates.get(2*i)).put(textureCoordinates.get(2*i+1));
+            else
+                vertices.put(0f).put(0f);
+
+            if(normals != null)
+                vertices.put(normals.get(3*i)).put(normals.get(3*i+1)).put(normals.get(3*i+2));
+            else
+                vertices.put(0f).put(1f).put(0f);
+
+            if(hasNormalMap)
+                vertices.position(vertices.position() + 6);     // filled in below
+
+            if(joints != null) {
+                // joint indices are unsigned
+                for(int j = 0; j < 4; j++) {
+                    int joint = jointsAreBytes ? joints.get(4*i+j) & 0xFF : joints.getShort(2*(4*i+j)) & 0xFFFF;
+                    vertices.put((float)joint);
+                }
             }
 
-            if(!joints.isEmpty()) {
-//                float jointF = Float.intBitsToFloat(joints.get(i));
-//                meshData.vertFloats.add(jointF);        // masquerade integer value as float
-                Vector4 jnt = joints.get(i);
-                meshData.vertFloats.add(jnt.x);
-                meshData.vertFloats.add(jnt.y);
-                meshData.vertFloats.add(jnt.z);
-                meshData.vertFloats.add(jnt.w);
+            if(weights != null) {
+                for(int j = 0; j < 4; j++)
+                    vertices.put(weights.get(4*i+j));
             }
+        }
 
-            if(!weights.isEmpty()) {
-                Vector4 weight = weights.get(i);
-                meshData.vertFloats.add(weight.x);
-                meshData.vertFloats.add(weight.y);
-                meshData.vertFloats.add(weight.z);
-                meshData.vertFloats.add(weight.w);
-            }
+        // tangent and bitangent per vertex, from the file or calculated if the material has a normal map
+        if(hasNormalMap) {
+            int tangentOffset = meshData.vertexAttributes.getOffset(VertexAttribute.Usage.TANGENT)/Float.BYTES;
+            if(tangents != null)
+                addBitangents(tangents, normals, vertices, stride, tangentOffset, vertexCount);
+            else
+                addTBN(meshData, positions, textureCoordinates, normals, vertices, stride, tangentOffset);
+        }
+
+        return meshData;
+    }
+
+    private static int getIndex(MeshData meshData, int i){
+        if(meshData.indexSizeInBytes == 2)
+            return meshData.indexData.getShort(2*i) & 0xFFFF;
+        return meshData.indexData.getInt(4*i);
+    }
+
+    // tangents from the file (xyz plus handedness w), bitangent = cross(normal, tangent) * w
+    private void addBitangents(FloatBuffer tangents, FloatBuffer normals, FloatBuffer vertices, int stride, int tangentOffset, int vertexCount){
+        Vector3 T = new Vector3();
+        Vector3 B = new Vector3();
+        for(int i = 0; i < vertexCount; i++){
+            T.set(tangents.get(4*i), tangents.get(4*i+1), tangents.get(4*i+2));
+            if(normals != null)
+                B.set(normals.get(3*i), normals.get(3*i+1), normals.get(3*i+2));
+            else
+                B.set(0, 1, 0);
+            B.crs(T).scl(tangents.get(4*i+3));
+            putTBN(vertices, i * stride + tangentOffset, T, B);
         }
+    }
 
-        return new Mesh(meshData);
+    // tangent followed by bitangent at a float offset in the vertex data
+    private static void putTBN(FloatBuffer vertices, int offset, Vector3 T, Vector3 B){
+        vertices.put(offset, T.x);
+        vertices.put(offset+1, T.y);
+        vertices.put(offset+2, T.z);
+        vertices.put(offset+3, B.x);
+        vertices.put(offset+4, B.y);
+        vertices.put(offset+5, B.z);
     }
 
     private static class Vertex {
-        Vector3 position;
-        Vector3 normal;
-        Vector2 uv;
+        Vector3 position = new Vector3();
+        Vector3 normal = new Vector3();
+        Vector2 uv = new Vector2();
     }
 
-    private void addTBN( final MeshData meshData,
-                         final ArrayList<Vector3>positions, final ArrayList<Vector2>textureCoordinates,
-                         final ArrayList<Vector3>normals,
-                         ArrayList<Vector3>tangents,
-                         ArrayList<Vector3>bitangents){
+    // add tangent and bitangent to vertices of each triangle
+    private void addTBN( final MeshData meshData, final FloatBuffer positions, final FloatBuffer textureCoordinates,
+                         final FloatBuffer normals, FloatBuffer vertices, int stride, int tangentOffset){
+        if(textureCoordinates == null || normals == null)
+            throw new RuntimeException("GLTF: Need normals and texture coordinates to calculate tangents");
 
-        // add tangent and bitangent to vertices of each triangle
         Vector3 T = new Vector3();
         Vector3 B = new Vector3();
         Vertex[] corners = new Vertex[3];
+        int[] index = new int[3];
         for(int i= 0; i < 3; i++)
             corners[i] = new Vertex();
 
-        for (int j = 0; j < meshData.indexValues.size(); j+= 3) {   // for each triangle
+        int indexCount = meshData.indexData.remaining() / meshData.indexSizeInBytes;
+        for (int j = 0; j+2 < indexCount; j+= 3) {   // for each triangle
             for(int i= 0; i < 3; i++) {                 // for each corner
-                int index = meshData.indexValues.get(i);        // assuming we use an indexed mesh
-
-                corners[i].position = positions.get(index);
-                corners[i].normal = normals.get(index);
-                corners[i].uv = textureCoordinates.get(index);
+                int v = getIndex(meshData, j+i);
+                index[i] = v;
+                corners[i].position.set(positions.get(3*v), positions.get(3*v+1), positions.get(3*v+2));
+                corners[i].normal.set(normals.get(3*v), normals.get(3*v+1), normals.get(3*v+2));
+                corners[i].uv.set(textureCoordinates.get(2*v), textureCoordinates.get(2*v+1));
             }
 
             calculateBTN(corners, T, B);
 
-            for(int i= 0; i < 3; i++) {
-                tangents.add(T);
-                bitangents.add(B);
-            }
+            for(int i= 0; i < 3; i++)
+                putTBN(vertices, index[i] * stride + tangentOffset, T, B);
         }
     }
 
-    private static Vector3 Ntmp = new Vector3();
-    private static Vector3 N = new Vector3();
+    // scratch vectors, per loader instance because models may be decoded on several threads at once
+    private final Vector3 Ntmp = new Vector3();
+    private final Vector3 N = new Vector3();
 
-    private static Vector3 edge1 = new Vector3();
-    private static Vector3 edge2 = new Vector3();
-    private static Vector2 eUV1 = new Vector2();
-    private static Vector2 eUV2 = new Vector2();
+    private final Vector3 edge1 = new Vector3();
+    private final Vector3 edge2 = new Vector3();
+    private final Vector2 eUV1 = new Vector2();
+    private final Vector2 eUV2 = new Vector2();
 
 
 
-    private static void calculateBTN(Vertex corners[], Vector3 T, Vector3 B) {
+    private void calculateBTN(Vertex corners[], Vector3 T, Vector3 B) {
         edge1.set(corners[1].position).sub(corners[0].position);
         edge2.set(corners[2].position).sub(corners[0].position);
 
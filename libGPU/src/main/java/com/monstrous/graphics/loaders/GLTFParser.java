@@ -23,415 +23,524 @@ import com.monstrous.graphics.loaders.gltf.*;
 import com.monstrous.math.Matrix4;
 import com.monstrous.math.Quaternion;
 import com.monstrous.math.Vector3;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
+import com.monstrous.utils.JsonReader;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-// JSON parser of the GLTF file format into a set of GLTF class objects
+
+// JSON parser of the GLTF file format into a set of GLTF class objects.
+// The JSON is streamed straight into the GLTF classes, unknown properties (e.g. extensions) are skipped.
 
 public class GLTFParser {
 
     public static GLTF load(String filePath) {
         int slash = filePath.lastIndexOf('/');
         String path = filePath.substring(0, slash + 1);
-        String name = filePath.substring(slash + 1);
-        MaterialData materialData = null;
 
         FileHandle handle = Files.internal(filePath);
-        String contents = handle.readString();
+        byte[] contents = handle.readAllBytes();
 
-        GLTF gltf = parseJSON(contents, path);
-        gltf.rawBuffer = new GLTFRawBuffer(gltf.buffers.get(0).uri);           // read .bin file, assume 1 buffer
+        GLTF gltf = parseJSON(ByteBuffer.wrap(contents), path);
+        loadBuffers(gltf, null);
         return gltf;
     }
 
-    public static GLTF parseJSON(String contents, String path) {
-        GLTF gltf = new GLTF();
+    /** Load the binary data of all buffers, in parallel if there is more than one.
+     * @param binaryChunk contents of the buffer without uri, i.e. the BIN chunk of a .glb file, may be null */
+    public static void loadBuffers(GLTF gltf, ByteBuffer binaryChunk) {
+        int count = gltf.buffers.size();
+        ArrayList<CompletableFuture<GLTFRawBuffer>> loads = new ArrayList<>(count);
+        for(GLTFBuffer buffer : gltf.buffers) {
+            if(buffer.uri == null) {
+                if(binaryChunk == null)
+                    throw new RuntimeException("GLTF: buffer without uri: "+buffer.name);
+                loads.add(CompletableFuture.completedFuture(new GLTFRawBuffer(binaryChunk)));
+            } else if(count == 1)
+                loads.add(CompletableFuture.completedFuture(new GLTFRawBuffer(buffer.uri)));
+            else
+                loads.add(CompletableFuture.supplyAsync(() -> new GLTFRawBuffer(buffer.uri)));
+        }
+        gltf.rawBuffers.clear();
+        try {
+            for (CompletableFuture<GLTFRawBuffer> load : loads)
+                gltf.rawBuffers.add(load.join());
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
 
-        JSONObject file = (JSONObject)JSONValue.parse(contents);
-
-        JSONArray ims = (JSONArray)file.get("images");
-        if(ims != null) {
-            //System.out.println("images: " + ims.size());
-            for (int i = 0; i < ims.size(); i++) {
-                GLTFImage im = new GLTFImage();
-
-                JSONObject image = (JSONObject) ims.get(i);
-                String imagepath = (String) image.get("uri");
-                if(imagepath != null) {
-                    // texture file
-                    im.uri = path + imagepath;
-                    //System.out.println("image path: " + imagepath);
-                }
-                else {
-                    // section in binary buffer
-                    im.mimeType = (String) image.get("mimeType");
-                    Long view = (Long) image.get("bufferView");
-                    im.bufferView = view.intValue();
-                    im.name = (String) image.get("name");
-                    //System.out.println("image : " + im.mimeType+" "+im.name);
-                }
-
-                gltf.images.add(im);
-            }
+    // relative file names are resolved against the folder of the gltf file, data URIs are kept as they are
+    private static String resolveUri(String path, String uri) {
+        if(GLTFRawBuffer.isDataUri(uri))
+            return uri;
+        return path + uri;
+    }
 
+    public static GLTF parseJSON(String contents, String path) {
+        return parseJSON(new JsonReader(contents), path);
+    }
 
-            JSONArray sampls = (JSONArray) file.get("samplers");
-            if(sampls != null) {
-                //System.out.println("samplers: " + sampls.size());
-                for (int i = 0; i < sampls.size(); i++) {
-                    GLTFSampler sampler = new GLTFSampler();
+    /** Parse UTF-8 encoded JSON between the buffer's position and limit. */
+    public static GLTF parseJSON(ByteBuffer contents, String path) {
+        return parseJSON(new JsonReader(contents), path);
+    }
 
-                    JSONObject smpl = (JSONObject) sampls.get(i);
-                    sampler.name = (String) smpl.get("name");
-                    Long wrapS = (Long) smpl.get("wrapS");
-                    sampler.wrapS = wrapS == null ? 10497 : wrapS.intValue();
-                    Long wrapT = (Long) smpl.get("wrapS");
-                    sampler.wrapT = wrapT == null ? 10497 : wrapT.intValue();
+    private static GLTF parseJSON(JsonReader json, String path) {
+        GLTF gltf = new GLTF();
 
-                    gltf.samplers.add(sampler);
-                }
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "images":
+                    json.beginArray();
+                    while (json.hasNext())
+                        gltf.images.add(readImage(json, path));
+                    json.endArray();
+                    break;
+                case "samplers":
+                    json.beginArray();
+                    while (json.hasNext())
+                        gltf.samplers.add(readSampler(json));
+                    json.endArray();
+                    break;
+                case "textures":
+                    json.beginArray();
+                    while (json.hasNext())
+                        gltf.textures.add(readTexture(json));
+                    json.endArray();
+                    break;
+                case "materials":
+                    json.beginArray();
+                    while (json.hasNext())
+                        gltf.materials.add(readMaterial(json));
+                    json.endArray();
+                    break;
+                case "meshes":
+                    json.beginArray();
+                    while (json.hasNext())
+                        gltf.meshes.add(readMesh(json));
+                    json.endArray();
+                    break;
+                case "buffers":
+                    json.beginArray();
+                    while (json.hasNext())
+                        gltf.buffers.add(readBuffer(json, path));
+                    json.endArray();
+                    break;
+                case "bufferViews":
+                    json.beginArray();
+                    while (json.hasNext())
+                        gltf.bufferViews.add(readBufferView(json));
+                    json.endArray();
+                    break;
+                case "accessors":
+                    json.beginArray();
+                    while (json.hasNext())
+                        gltf.accessors.add(readAccessor(json));
+                    json.endArray();
+                    break;
+                case "nodes":
+                    json.beginArray();
+                    while (json.hasNext())
+                        gltf.nodes.add(readNode(json));
+                    json.endArray();
+                    break;
+                case "skins":
+                    json.beginArray();
+                    while (json.hasNext())
+                        gltf.skins.add(readSkin(json));
+                    json.endArray();
+                    break;
+                case "animations":
+                    json.beginArray();
+                    while (json.hasNext())
+                        gltf.animations.add(readAnimation(json));
+                    json.endArray();
+                    break;
+                case "scenes":
+                    json.beginArray();
+                    while (json.hasNext())
+                        gltf.scenes.add(readScene(json));
+                    json.endArray();
+                    break;
+                case "scene":
+                    gltf.scene = json.nextInt();
+                    break;
+                default:
+                    json.skipValue();
             }
         }
+        json.endObject();
+        return gltf;
+    }
 
-        JSONArray textures = (JSONArray)file.get("textures");
-        if (textures != null) {
-            //System.out.println("textures: " + textures.size());
-            for (int i = 0; i < textures.size(); i++) {
-                GLTFTexture texture = new GLTFTexture();
-
-                JSONObject tex = (JSONObject) textures.get(i);
-                texture.name = (String) tex.get("name");
-                texture.source = getInt(tex, "source", 0);
-                texture.sampler = getInt(tex, "sampler", 0);
-
-                gltf.textures.add(texture);
+    private static GLTFImage readImage(JsonReader json, String path) {
+        // an image is either a texture file (uri) or a section in a binary buffer (mimeType + bufferView)
+        GLTFImage im = new GLTFImage();
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "uri":         im.uri = resolveUri(path, json.nextString()); break;
+                case "mimeType":    im.mimeType = json.nextString(); break;
+                case "bufferView":  im.bufferView = json.nextInt(); break;
+                case "name":        im.name = json.nextString(); break;
+                default:            json.skipValue();
             }
         }
+        json.endObject();
+        return im;
+    }
 
-        JSONArray mats = (JSONArray)file.get("materials");
-        if (mats != null) {
-
-
-            //System.out.println("materials: " + mats.size());
-            for (int i = 0; i < mats.size(); i++) {
-
-                GLTFMaterialPBR pbr = new GLTFMaterialPBR();
-                GLTFMaterial material = new GLTFMaterial();
-
-                JSONObject mat = (JSONObject) mats.get(i);
-                material.name = (String) mat.get("name");
-
-                JSONObject pbrMR = (JSONObject) mat.get("pbrMetallicRoughness");
-                JSONObject base = (JSONObject) pbrMR.get("baseColorTexture");
-                if(base != null)
-                    pbr.baseColorTexture = getInt(base, "index", 0);
-                JSONArray bc = (JSONArray)pbrMR.get("baseColorFactor");
-                if(bc != null){
-                    pbr.baseColorFactor = getColor(bc);
-                } else
-                    pbr.baseColorFactor = Color.WHITE;
-
-                Number roughnessFactor = (Number) pbrMR.get("roughnessFactor");
-                if(roughnessFactor != null){
-                    pbr.roughnessFactor = roughnessFactor.floatValue();
-                }
-                Number metallicFactor = (Number) pbrMR.get("metallicFactor");
-                if(metallicFactor != null){
-                    pbr.metallicFactor = metallicFactor.floatValue();
-                }
-
-                JSONObject metal = (JSONObject) pbrMR.get("metallicRoughnessTexture");
-                if(metal != null) {
-                    long metalIndex = (Long) metal.get("index");
-                    pbr.metallicRoughnessTexture = (int) metalIndex;
-                }
-
-                JSONObject normalMap = (JSONObject) mat.get("normalTexture");
-                if(normalMap != null)
-                    material.normalTexture = getInt(normalMap, "index", -1);
-
-                JSONObject emissive = (JSONObject) mat.get("emissiveTexture");
-                if(emissive != null)
-                    material.emissiveTexture = getInt(emissive, "index", -1);
-
-                JSONObject occlusion = (JSONObject) mat.get("occlusionTexture");
-                if(occlusion != null)
-                    material.occlusionTexture = getInt(occlusion, "index", -1);
-
-
-                material.pbrMetallicRoughness = pbr;
-                gltf.materials.add(material);
+    private static GLTFSampler readSampler(JsonReader json) {
+        GLTFSampler sampler = new GLTFSampler();
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":        sampler.name = json.nextString(); break;
+                case "magFilter":   sampler.magFilter = json.nextInt(); break;
+                case "minFilter":   sampler.minFilter = json.nextInt(); break;
+                case "wrapS":       sampler.wrapS = json.nextInt(); break;
+                case "wrapT":       sampler.wrapT = json.nextInt(); break;
+                default:            json.skipValue();
             }
         }
+        json.endObject();
+        return sampler;
+    }
 
-        JSONArray meshes = (JSONArray)file.get("meshes");
-        //System.out.println("meshes: "+meshes.size());
-        for(int i = 0; i < meshes.size(); i++){
-            GLTFMesh mesh = new GLTFMesh();
-
-            JSONObject m = (JSONObject)meshes.get(i);
-            mesh.name = (String)m.get("name");
-            JSONArray primitives = (JSONArray)m.get("primitives");
-            for(int j = 0; j < primitives.size(); j++){
-                GLTFPrimitive primitive = new GLTFPrimitive();
-
-                JSONObject p = (JSONObject)primitives.get(j);
-
-                Long mode = (Long) p.get("mode");
-                primitive.mode = (mode == null ? 4 : mode.intValue());
-                Long indices = (Long)p.get("indices");
-                primitive.indices = (indices == null ? 0 : indices.intValue());
-                Long material = (Long)p.get("material");
-                primitive.material = (material == null ? 0 : material.intValue());
-
-                JSONObject attribs = (JSONObject)p.get("attributes");
-                for(Object key : attribs.keySet()) {
-                    String attributeName = (String) key;
-                    Long attributeValue = (Long) attribs.get(key);
-                    GLTFAttribute attribute = new GLTFAttribute(attributeName, attributeValue.intValue());
-                    primitive.attributes.add(attribute);
-                }
-
-                mesh.primitives.add(primitive);
+    private static GLTFTexture readTexture(JsonReader json) {
+        GLTFTexture texture = new GLTFTexture();
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":        texture.name = json.nextString(); break;
+                case "source":      texture.source = json.nextInt(); break;
+                case "sampler":     texture.sampler = json.nextInt(); break;
+                default:            json.skipValue();
             }
-            gltf.meshes.add(mesh);
         }
+        json.endObject();
+        return texture;
+    }
 
-        JSONArray buffers = (JSONArray)file.get("buffers");
-        //System.out.println("buffers: "+buffers.size());
-        for(int i = 0; i < buffers.size(); i++){
-            GLTFBuffer buffer = new GLTFBuffer();
-
-            JSONObject buf = (JSONObject)buffers.get(i);
-            buffer.name = (String)buf.get("name");
-            buffer.uri = path + (String)buf.get("uri");
-            Long len = (Long)buf.get("byteLength");
-            buffer.byteLength = (len == null ? 0 : len.intValue());
-
-            gltf.buffers.add(buffer);
+    private static GLTFMaterial readMaterial(JsonReader json) {
+        GLTFMaterial material = new GLTFMaterial();
+        GLTFMaterialPBR pbr = new GLTFMaterialPBR();
+        material.pbrMetallicRoughness = pbr;
+
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":                    material.name = json.nextString(); break;
+                case "pbrMetallicRoughness":    readPBR(json, pbr); break;
+                case "normalTexture":           material.normalTexture = readTextureIndex(json, -1); break;
+                case "emissiveTexture":         material.emissiveTexture = readTextureIndex(json, -1); break;
+                case "occlusionTexture":        material.occlusionTexture = readTextureIndex(json, -1); break;
+                case "alphaMode":               material.alphaMode = json.nextString(); break;
+                case "alphaCutoff":             material.alphaCutoff = json.nextFloat(); break;
+                case "doubleSided":             material.doubleSide = json.nextBoolean(); break;
+                default:                        json.skipValue();
+            }
         }
+        json.endObject();
+        return material;
+    }
 
-        JSONArray bufferViews = (JSONArray)file.get("bufferViews");
-        //System.out.println("buffer views: "+bufferViews.size());
-        for(int i = 0; i < bufferViews.size(); i++){
-            GLTFBufferView bufferView = new GLTFBufferView();
-
-            JSONObject bufView = (JSONObject)bufferViews.get(i);
-            bufferView.name = (String)bufView.get("name");
-            Long buffer = (Long)bufView.get("buffer");
-            bufferView.buffer = (buffer == null ? 0 : buffer.intValue());
-            Long offset = (Long)bufView.get("byteOffset");
-            bufferView.byteOffset = (offset == null ? 0 : offset.intValue());
-            Long len = (Long)bufView.get("byteLength");
-            bufferView.byteLength = (len == null ? 0 : len.intValue());
-            Long stride = (Long)bufView.get("byteStride");
-            bufferView.byteStride = (stride == null ? 0 : stride.intValue());
-            Long target = (Long)bufView.get("target");
-            bufferView.target = (target == null ? 0 : target.intValue());
-
-            gltf.bufferViews.add(bufferView);
+    private static void readPBR(JsonReader json, GLTFMaterialPBR pbr) {
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "baseColorTexture":            pbr.baseColorTexture = readTextureIndex(json, 0); break;
+                case "baseColorFactor":             pbr.baseColorFactor = readColor(json); break;
+                case "roughnessFactor":             pbr.roughnessFactor = json.nextFloat(); break;
+                case "metallicFactor":              pbr.metallicFactor = json.nextFloat(); break;
+                case "metallicRoughnessTexture":    pbr.metallicRoughnessTexture = readTextureIndex(json, -1); break;
+                default:                            json.skipValue();
+            }
         }
+        json.endObject();
+    }
 
-        JSONArray accessors = (JSONArray)file.get("accessors");
-        //System.out.println("accessors: "+accessors.size());
-        for(int i = 0; i < accessors.size(); i++){
-            GLTFAccessor accessor = new GLTFAccessor();
-
-            JSONObject ac = (JSONObject)accessors.get(i);
-            accessor.name = (String)ac.get("name");
-            Long bufferView = (Long)ac.get("bufferView");
-            accessor.bufferView = (bufferView == null ? 0 : bufferView.intValue());
-            Long offset = (Long)ac.get("byteOffset");
-            accessor.byteOffset = (offset == null ? 0 : offset.intValue());
-            Long ct = (Long)ac.get("componentType");
-            accessor.componentType = (ct == null ? 0 : ct.intValue());
-            String n = (String)ac.get("normalized");
-            accessor.normalized = (n == null ? false : (n.contentEquals("true") ? true : false));
-            Long count = (Long)ac.get("count");
-            accessor.count = (count == null ? 0 : count.intValue());
-            accessor.type = (String)ac.get("type");
-
-
-            gltf.accessors.add(accessor);
+    // texture info object, of which only the texture index is used
+    private static int readTextureIndex(JsonReader json, int fallback) {
+        int index = fallback;
+        json.beginObject();
+        while(json.hasNext()) {
+            if(json.nextName().equals("index"))
+                index = json.nextInt();
+            else
+                json.skipValue();
         }
+        json.endObject();
+        return index;
+    }
 
-        JSONArray nodes = (JSONArray)file.get("nodes");
-        //System.out.println("nodes: "+accessors.size());
-        for(int i = 0; i < nodes.size(); i++){
-            GLTFNode node = new GLTFNode();
-
-            JSONObject nd = (JSONObject)nodes.get(i);
-            node.name = (String)nd.get("name");
-            node.camera = getInt(nd, "camera", -1);
-            node.skin = getInt(nd, "skin", -1);
-            node.mesh = getInt(nd, "mesh", -1);
-
-            JSONArray tr = (JSONArray)nd.get("translation");
-            if(tr != null){
-                node.translation = getVector3(tr);
-            }
-            JSONArray sc = (JSONArray)nd.get("scale");
-            if(sc != null){
-                node.scale = getVector3(sc);
-            }
-            JSONArray rot = (JSONArray)nd.get("rotation");
-            if(rot != null){
-                node.rotation = getRotation(rot);
-            }
-            JSONArray mat = (JSONArray)nd.get("matrix");
-            if(mat != null){
-                node.matrix = getMatrix4(mat);
+    private static GLTFMesh readMesh(JsonReader json) {
+        GLTFMesh mesh = new GLTFMesh();
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":
+                    mesh.name = json.nextString();
+                    break;
+                case "primitives":
+                    json.beginArray();
+                    while (json.hasNext())
+                        mesh.primitives.add(readPrimitive(json));
+                    json.endArray();
+                    break;
+                default:
+                    json.skipValue();
             }
-            JSONArray ch = (JSONArray)nd.get("children");
-            if(ch != null){
-                for(int j = 0; j < ch.size(); j++){
-                    Long id = (Long)ch.get(j);
-                    node.children.add(id.intValue());
-                }
-            }
-
-            gltf.nodes.add(node);
         }
+        json.endObject();
+        return mesh;
+    }
 
-        JSONArray skins = (JSONArray)file.get("skins");
-        if(skins != null) {
-            System.out.println("skins: " + skins.size());
-            for (int i = 0; i < skins.size(); i++) {
-                GLTFSkin skin = new GLTFSkin();
-
-                JSONObject sk = (JSONObject) skins.get(i);
-                skin.name = (String) sk.get("name");
-                System.out.println("skin: " + skin.name);
-
-                Number ibm = (Number)sk.get("inverseBindMatrices");
-                skin.inverseBindMatrices = ibm.intValue();
-
-                Number skel = (Number)sk.get("skeleton");
-                skin.skeleton = skel != null ? skel.intValue() : -1;
-
-
-                JSONArray joints = (JSONArray) sk.get("joints");
-                for (int j = 0; j < joints.size(); j++) {
-                    Number nr = (Number) joints.get(j);
-                    skin.joints.add(nr.intValue());
-                }
+    private static GLTFPrimitive readPrimitive(JsonReader json) {
+        GLTFPrimitive primitive = new GLTFPrimitive();
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "mode":        primitive.mode = json.nextInt(); break;
+                case "indices":     primitive.indices = json.nextInt(); break;
+                case "material":    primitive.material = json.nextInt(); break;
+                case "attributes":
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        String attributeName = json.nextName();
+                        primitive.attributes.add(new GLTFAttribute(attributeName, json.nextInt()));
+                    }
+                    json.endObject();
+                    break;
+                default:            json.skipValue();
+            }
+        }
+        json.endObject();
+        return primitive;
+    }
 
-                gltf.skins.add(skin);
+    private static GLTFBuffer readBuffer(JsonReader json, String path) {
+        GLTFBuffer buffer = new GLTFBuffer();
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":        buffer.name = json.nextString(); break;
+                case "uri":         buffer.uri = resolveUri(path, json.nextString()); break;
+                case "byteLength":  buffer.byteLength = json.nextInt(); break;
+                default:            json.skipValue();
             }
         }
+        json.endObject();
+        return buffer;
+    }
 
-        JSONArray animations = (JSONArray)file.get("animations");
-        if(animations != null) {
-            System.out.println("animations: " + animations.size());
-            for (int i = 0; i < animations.size(); i++) {
-                GLTFAnimation animation = new GLTFAnimation();
-
-                JSONObject an = (JSONObject) animations.get(i);
-                animation.name = (String) an.get("name");
-                System.out.println("animations: " + animation.name);
-
-                JSONArray chs = (JSONArray) an.get("channels");
-                for (int j = 0; j < chs.size(); j++) {
-                    GLTFAnimationChannel channel = new GLTFAnimationChannel();
-                    JSONObject ch = (JSONObject) chs.get(j);
-                    Long sam = (Long) ch.get("sampler");
-                    channel.sampler = sam.intValue();
-                    System.out.println("sampler: " + channel.sampler);
-
-
-                    JSONObject tgt = (JSONObject) ch.get("target");
-                    Long node = (Long) tgt.get("node");
-                    channel.node = node.intValue();
-                    channel.path = (String) tgt.get("path");
-
-                    animation.channels.add(channel);
-                }
-                JSONArray smplrs = (JSONArray) an.get("samplers");
-                for (int j = 0; j < smplrs.size(); j++) {
-                    GLTFAnimationSampler sampler = new GLTFAnimationSampler();
-                    JSONObject sm = (JSONObject) smplrs.get(j);
-                    Long in = (Long) sm.get("input");
-                    sampler.input = in.intValue();
-                    Long out = (Long) sm.get("output");
-                    sampler.output = out.intValue();
-                    sampler.interpolation = (String) sm.get("interpolation");
-
-                    animation.samplers.add(sampler);
-                }
-                gltf.animations.add(animation);
+    private static GLTFBufferView readBufferView(JsonReader json) {
+        GLTFBufferView bufferView = new GLTFBufferView();
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":        bufferView.name = json.nextString(); break;
+                case "buffer":      bufferView.buffer = json.nextInt(); break;
+                case "byteOffset":  bufferView.byteOffset = json.nextInt(); break;
+                case "byteLength":  bufferView.byteLength = json.nextInt(); break;
+                case "byteStride":  bufferView.byteStride = json.nextInt(); break;
+                case "target":      bufferView.target = json.nextInt(); break;
+                default:            json.skipValue();
             }
         }
+        json.endObject();
+        return bufferView;
+    }
 
-        JSONArray scenes = (JSONArray)file.get("scenes");
-       //System.out.println("scenes: "+accessors.size());
-        for(int i = 0; i < scenes.size(); i++){
-            GLTFScene scene = new GLTFScene();
-
-            JSONObject sc = (JSONObject)scenes.get(i);
-            scene.name = (String)sc.get("name");
-            JSONArray nds = (JSONArray)sc.get("nodes");
-            for(int j= 0 ; j < nds.size(); j++){
-                Long nodeId = (Long)nds.get(j);
-                scene.nodes.add(nodeId.intValue());
+    private static GLTFAccessor readAccessor(JsonReader json) {
+        GLTFAccessor accessor = new GLTFAccessor();
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":            accessor.name = json.nextString(); break;
+                case "bufferView":      accessor.bufferView = json.nextInt(); break;
+                case "byteOffset":      accessor.byteOffset = json.nextInt(); break;
+                case "componentType":   accessor.componentType = json.nextInt(); break;
+                case "normalized":      accessor.normalized = json.nextBoolean(); break;
+                case "count":           accessor.count = json.nextInt(); break;
+                case "type":            accessor.type = json.nextString(); break;
+                default:                json.skipValue();       // e.g. min and max
             }
-            gltf.scenes.add(scene);
         }
+        json.endObject();
+        return accessor;
+    }
 
-        gltf.scene = getInt(file, "scene", 0);
-        //System.out.println("scene: "+gltf.scene);
+    private static GLTFNode readNode(JsonReader json) {
+        GLTFNode node = new GLTFNode();
+        node.camera = -1;
+        node.skin = -1;
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":        node.name = json.nextString(); break;
+                case "camera":      node.camera = json.nextInt(); break;
+                case "skin":        node.skin = json.nextInt(); break;
+                case "mesh":        node.mesh = json.nextInt(); break;
+                case "translation": node.translation = readVector3(json); break;
+                case "scale":       node.scale = readVector3(json); break;
+                case "rotation":    node.rotation = readRotation(json); break;
+                case "matrix":      node.matrix = readMatrix4(json); break;
+                case "children":    readIntegers(json, node.children); break;
+                default:            json.skipValue();
+            }
+        }
+        json.endObject();
+        return node;
+    }
 
-        return gltf;
+    private static GLTFSkin readSkin(JsonReader json) {
+        GLTFSkin skin = new GLTFSkin();
+        skin.skeleton = -1;
+        skin.inverseBindMatrices = -1;
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":                    skin.name = json.nextString(); break;
+                case "inverseBindMatrices":     skin.inverseBindMatrices = json.nextInt(); break;
+                case "skeleton":                skin.skeleton = json.nextInt(); break;
+                case "joints":                  readIntegers(json, skin.joints); break;
+                default:                        json.skipValue();
+            }
+        }
+        json.endObject();
+        return skin;
     }
 
-    private static int getInt(JSONObject obj, String key, int fallback){
-        Long value = (Long)obj.get(key);
-        return (value == null ? fallback : value.intValue());
+    private static GLTFAnimation readAnimation(JsonReader json) {
+        GLTFAnimation animation = new GLTFAnimation();
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":
+                    animation.name = json.nextString();
+                    break;
+                case "channels":
+                    json.beginArray();
+                    while (json.hasNext())
+                        animation.channels.add(readChannel(json));
+                    json.endArray();
+                    break;
+                case "samplers":
+                    json.beginArray();
+                    while (json.hasNext())
+                        animation.samplers.add(readAnimationSampler(json));
+                    json.endArray();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        return animation;
     }
 
-    private static Vector3 getVector3(JSONArray obj) {
-        if (obj.size() != 3)
-            throw new RuntimeException("GLTF: Expected vector with 3 elements");
-        Number x = (Number) obj.get(0);
-        Number y = (Number) obj.get(1);
-        Number z = (Number) obj.get(2);
-        return  new Vector3(x.floatValue(), y.floatValue(), z.floatValue());
+    private static GLTFAnimationChannel readChannel(JsonReader json) {
+        GLTFAnimationChannel channel = new GLTFAnimationChannel();
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "sampler":
+                    channel.sampler = json.nextInt();
+                    break;
+                case "target":
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        switch (json.nextName()) {
+                            case "node":    channel.node = json.nextInt(); break;
+                            case "path":    channel.path = json.nextString(); break;
+                            default:        json.skipValue();
+                        }
+                    }
+                    json.endObject();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        return channel;
     }
 
-    private static Color getColor(JSONArray obj) {
-        if (obj.size() != 4)
-            throw new RuntimeException("GLTF: Expected color with 4 elements");
-        Number r = (Number) obj.get(0);
-        Number g = (Number) obj.get(1);
-        Number b = (Number) obj.get(2);
-        Number a = (Number) obj.get(3);
-        return  new Color(r.floatValue(), g.floatValue(), b.floatValue(), a.floatValue());
+    private static GLTFAnimationSampler readAnimationSampler(JsonReader json) {
+        GLTFAnimationSampler sampler = new GLTFAnimationSampler();
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "input":           sampler.input = json.nextInt(); break;
+                case "output":          sampler.output = json.nextInt(); break;
+                case "interpolation":   sampler.interpolation = json.nextString(); break;
+                default:                json.skipValue();
+            }
+        }
+        json.endObject();
+        return sampler;
     }
 
+    private static GLTFScene readScene(JsonReader json) {
+        GLTFScene scene = new GLTFScene();
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":    scene.name = json.nextString(); break;
+                case "nodes":   readIntegers(json, scene.nodes); break;
+                default:        json.skipValue();
+            }
+        }
+        json.endObject();
+        return scene;
+    }
 
-    private static Quaternion getRotation(JSONArray rot) {
-        if(rot.size() != 4)
-            throw new RuntimeException("GLTF: Expected node.rotation with 4 elements");
-        Number x = (Number)rot.get(0);
-        Number y = (Number)rot.get(1);
-        Number z = (Number)rot.get(2);
-        Number w = (Number)rot.get(3);
-        return new Quaternion(x.floatValue(), y.floatValue(), z.floatValue(), w.floatValue());
+    private static void readIntegers(JsonReader json, ArrayList<Integer> list) {
+        json.beginArray();
+        while(json.hasNext())
+            list.add(json.nextInt());
+        json.endArray();
     }
 
-    private static Matrix4 getMatrix4(JSONArray mat) {
-        if(mat.size() != 16)
-            throw new RuntimeException("GLTF: Expected matrix with 16 elements");
-        float[] values = new float[16];
-        for(int i = 0; i < 16; i++) {
-            Number nr = (Number) mat.get(i);
-            values[i] = nr.floatValue();
+    // reads an array of exactly n numbers
+    private static float[] readFloats(JsonReader json, int n, String what) {
+        float[] values = new float[n];
+        int count = 0;
+        json.beginArray();
+        while(json.hasNext()) {
+            if(count == n)
+                throw new RuntimeException("GLTF: Expected " + what + " with " + n + " elements");
+            values[count++] = json.nextFloat();
         }
-        return new Matrix4(values);
+        json.endArray();
+        if(count != n)
+            throw new RuntimeException("GLTF: Expected " + what + " with " + n + " elements");
+        return values;
     }
 
+    private static Vector3 readVector3(JsonReader json) {
+        float[] v = readFloats(json, 3, "vector");
+        return new Vector3(v[0], v[1], v[2]);
+    }
 
+    private static Color readColor(JsonReader json) {
+        float[] v = readFloats(json, 4, "color");
+        return new Color(v[0], v[1], v[2], v[3]);
+    }
 
+    private static Quaternion readRotation(JsonReader json) {
+        float[] v = readFloats(json, 4, "node.rotation");
+        return new Quaternion(v[0], v[1], v[2], v[3]);
+    }
 
+    private static Matrix4 readMatrix4(JsonReader json) {
+        return new Matrix4(readFloats(json, 16, "matrix"));
+    }
 }
@@ -1,33 +1,26 @@
 package com.monstrous.graphics.loaders;
 
-import com.monstrous.FileHandle;
 import com.monstrous.Files;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 
-// to load a bin file
+// to load a bin file or a base64 data URI
+// The data is memory mapped where possible, so that it does not take up heap space, and is accessed through slices.
 public class GLTFRawBuffer {
     public String path;
-    public byte[] data;
-    //public int byteSize;
-    public ByteBuffer byteBuffer;
+    public ByteBuffer byteBuffer;       // little-endian
 
-    public GLTFRawBuffer(String filePath) {
-        this.path = filePath;
-
-        FileHandle handle = Files.internal(filePath);
-        data = handle.readAllBytes();
-
-
-//        try {
-//            data = Files.readAllBytes(Paths.get(filePath));
-//        } catch (IOException e) {
-//            throw new RuntimeException("Could not read binary file "+filePath);
-//        }
-        //byteSize = data.length;
-        byteBuffer = ByteBuffer.wrap(data);
+    /** @param uri file path or "data:" URI with base64 encoded contents */
+    public GLTFRawBuffer(String uri) {
+        if(isDataUri(uri)) {
+            this.path = "data URI";
+            byteBuffer = decodeDataUri(uri);
+        } else {
+            this.path = uri;
+            byteBuffer = Files.internal(uri).map();
+        }
         byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
     }
 
@@ -37,4 +30,77 @@ public class GLTFRawBuffer {
         this.byteBuffer = byteBuffer;
         byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
     }
+
+    /** Little-endian view of a range of the buffer, starting at position 0. The data is not copied. */
+    public ByteBuffer slice(int offset, int length) {
+        if(offset < 0 || length < 0 || offset + length > byteBuffer.limit())
+            throw new RuntimeException("GLTF: buffer range out of bounds: "+offset+"+"+length+" in "+path);
+        ByteBuffer view = byteBuffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static boolean isDataUri(String uri) {
+        return uri != null && uri.startsWith("data:");
+    }
+
+    /** Decode a base64 data URI, e.g. "data:application/octet-stream;base64,AAAB...", into a direct buffer.
+     * The characters are decoded as they are read, without an intermediate byte array. */
+    public static ByteBuffer decodeDataUri(String uri) {
+        int comma = uri.indexOf(',');
+        if(comma < 0 || !uri.substring(0, comma).endsWith(";base64"))
+            throw new RuntimeException("GLTF: only base64 data URIs are supported");
+
+        int chars = 0;
+        for(int i = comma+1; i < uri.length(); i++)
+            if(decode(uri.charAt(i)) >= 0)
+                chars++;
+        ByteBuffer bytes = ByteBuffer.allocateDirect(chars * 3 / 4);
+
+        int bits = 0;
+        int count = 0;
+        for(int i = comma+1; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            int value = decode(c);
+            if(value < 0) {
+                if(c == '=')
+                    break;
+                if(!Character.isWhitespace(c))
+                    throw new RuntimeException("GLTF: invalid base64 character in data URI: "+c);
+                continue;
+            }
+            bits = (bits << 6) | value;
+            if(++count == 4) {
+                bytes.put((byte) (bits >> 16));
+                bytes.put((byte) (bits >> 8));
+                bytes.put((byte) bits);
+                bits = 0;
+                count = 0;
+            }
+        }
+        // 2 or 3 characters left before the padding
+        if(count == 2)
+            bytes.put((byte) (bits >> 4));
+        else if(count == 3) {
+            bytes.put((byte) (bits >> 10));
+            bytes.put((byte) (bits >> 2));
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    private static int decode(char c) {
+        if(c >= 'A' && c <= 'Z')
+            return c - 'A';
+        if(c >= 'a' && c <= 'z')
+            return c - 'a' + 26;
+        if(c >= '0' && c <= '9')
+            return c - '0' + 52;
+        if(c == '+' || c == '-')
+            return 62;
+        if(c == '/' || c == '_')
+            return 63;
+        return -1;
+    }
 }
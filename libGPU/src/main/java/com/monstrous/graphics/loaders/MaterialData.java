@@ -2,6 +2,7 @@ package com.monstrous.graphics.loaders;
 
 
 import com.monstrous.graphics.Color;
+import com.monstrous.graphics.TextureData;
 
 // Storage of data from MTL file or from material in GLTF file. Not all options are supported.
 
@@ -30,9 +31,27 @@ public class MaterialData {
     public byte[] emissiveMapData;
     public byte[] occlusionMapData;
 
+    // decoded images, if decoded in advance (see decodeMaps). These take precedence over the file content above.
+    public TextureData diffuseMap;
+    public TextureData normalMap;
+    public TextureData metallicRoughnessMap;
+    public TextureData emissiveMap;
+
     public MaterialData() {
         // default -1 means undefined
         metallicFactor = -1;
         roughnessFactor = -1;
     }
+
+    /** Decode the image files of the maps used by Material. Does not need the GPU, so it can run on a loader thread. */
+    public void decodeMaps(boolean mipMapping) {
+        if(diffuseMapData != null)
+            diffuseMap = TextureData.decode(diffuseMapData, name+".diffuse", mipMapping);
+        if(normalMapData != null)
+            normalMap = TextureData.decode(normalMapData, name+".normal", mipMapping);
+        if(metallicRoughnessMapData != null)
+            metallicRoughnessMap = TextureData.decode(metallicRoughnessMapData, name+".MR", mipMapping);
+        if(emissiveMapData != null)
+            emissiveMap = TextureData.decode(emissiveMapData, name+".emissive", mipMapping);
+    }
 }
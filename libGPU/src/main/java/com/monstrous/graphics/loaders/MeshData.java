@@ -1,17 +1,21 @@
 package com.monstrous.graphics.loaders;
 
 import com.monstrous.graphics.VertexAttributes;
+import com.monstrous.utils.FloatArray;
+import com.monstrous.utils.IntArray;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
 // interim storage for mesh data loaded from file
 
 public class MeshData {
 
     public VertexAttributes vertexAttributes;
-    public ArrayList<Float> vertFloats = new ArrayList<>();
-    public ArrayList<Integer> indexValues = new ArrayList<>();
+    public FloatArray vertFloats = new FloatArray();
+    public ByteBuffer vertexData;   // alternative to vertFloats: interleaved vertices in a direct buffer in native byte order, uploaded as is
+    public IntArray indexValues = new IntArray();
+    public ByteBuffer indexData;    // alternative to indexValues: indices in native byte order, uploaded as is
     public String objectName;
-    public int indexSizeInBytes;   // in bytes per index, e.g. 2 for Uint16
+    public int indexSizeInBytes;   // in bytes per index for indexData, indexValues are narrowed to Uint16 when they fit
 
 }
@@ -4,6 +4,11 @@ import com.monstrous.graphics.g3d.Model;
 
 public interface ModelLoader {
 
+    /** Optional first step: read and decode the file without any GPU calls, so that this can run on a loader thread.
+     * loadFromFile() then only has to create the GPU resources. */
+    public default void prepare(String filePath) {
+    }
+
     public Model loadFromFile(Model model, String filePath);
 
 }
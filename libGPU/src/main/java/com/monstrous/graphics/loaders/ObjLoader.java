@@ -8,14 +8,22 @@ import com.monstrous.webgpu.WGPUPrimitiveTopology;
 import java.util.ArrayList;
 
 public class ObjLoader implements ModelLoader {
+    private MeshData meshData;          // from prepare()
+    private final ArrayList<MaterialData> mtlData = new ArrayList<>();
 
+    @Override
+    public void prepare(String filePath) {
+        // todo fix if obj has no normal map we dont need tangent and bitangent and we should also not add this in vertex buffer
+        mtlData.clear();
+        meshData = ObjParser.load(filePath, mtlData);
+        for(MaterialData mtl: mtlData)
+            mtl.decodeMaps(true);
+    }
 
     @Override
     public Model loadFromFile(Model model, String filePath) {
-
-        // todo fix if obj has no normal map we dont need tangent and bitangent and we should also not add this in vertex buffer
-        ArrayList<MaterialData> mtlData = new ArrayList<>();
-        MeshData meshData = ObjParser.load(filePath, mtlData);
+        if(meshData == null)
+            prepare(filePath);
 
         Mesh mesh = new Mesh(meshData);
         model.addMesh(mesh);
@@ -42,6 +50,7 @@ public class ObjLoader implements ModelLoader {
             defaultmaterial = new Material( Color.WHITE );   // fallback
         rootNode.nodeParts.add( new NodePart(meshPart, defaultmaterial ));
         model.addNode(rootNode);
+        meshData = null;
         return model;
     }
 
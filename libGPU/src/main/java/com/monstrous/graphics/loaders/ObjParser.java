@@ -21,6 +21,8 @@ import com.monstrous.graphics.VertexAttribute;
 import com.monstrous.graphics.VertexAttributes;
 import com.monstrous.math.Vector2;
 import com.monstrous.math.Vector3;
+import com.monstrous.utils.FloatArray;
+import com.monstrous.utils.IntArray;
 import com.monstrous.webgpu.WGPUVertexFormat;
 
 import java.util.ArrayList;
@@ -55,8 +57,8 @@ public class ObjParser {
         FileInput input = new FileInput(filePath);
         // x y z u v nx ny nz tx ty tz bx by bz
         int vertSize = 14; // in floats
-        ArrayList<Integer> indexValues = new ArrayList<>();
-        ArrayList<Float> vertFloats = new ArrayList<>();
+        IntArray indexValues = new IntArray();
+        FloatArray vertFloats = new FloatArray();
         ArrayList<Vector3> positions = new ArrayList<>();
         ArrayList<Vector3> normals = new ArrayList<>();
         ArrayList<Vector2> uv = new ArrayList<>();
@@ -101,53 +103,34 @@ public class ObjParser {
                     //indexValues.add(Integer.parseInt(indices[0])-1);
                     int pindex = Integer.parseInt(indices[0])-1;
                     Vector3 v = positions.get(pindex);
-                    vertFloats.add(v.x);
-                    vertFloats.add(v.y);
-                    vertFloats.add(v.z);
+                    vertFloats.add(v.x, v.y, v.z);
 
                     if(indices.length > 2 && indices[1].length()>0) {
                         int uvindex = Integer.parseInt(indices[1]) - 1;
                         Vector2 tc = uv.get(uvindex);
-                        vertFloats.add(tc.x);
-                        vertFloats.add(1.0f - tc.y);
+                        vertFloats.add(tc.x, 1.0f - tc.y);
                     } else {
-                        vertFloats.add(0f);
-                        vertFloats.add(0f);
+                        vertFloats.add(0f, 0f);
                     }
 
                     if(indices.length > 3 && indices[2].length()>0) {
                         int nindex = Integer.parseInt(indices[2]) - 1;
                         Vector3 vn = normals.get(nindex);
-                        vertFloats.add(vn.x);
-                        vertFloats.add(vn.y);
-                        vertFloats.add(vn.z);
+                        vertFloats.add(vn.x, vn.y, vn.z);
                     } else {
                         // dummy normal
-                        vertFloats.add(0f);
-                        vertFloats.add(0f);
-                        vertFloats.add(0f);
+                        vertFloats.add(0f, 0f, 0f);
                     }
 
-                    vertFloats.add(0f); // placeholder for T
-                    vertFloats.add(0f);
-                    vertFloats.add(0f);
-
-                    vertFloats.add(0f); // placeholder for B
-                    vertFloats.add(0f);
-                    vertFloats.add(0f);
+                    vertFloats.add(0f, 0f, 0f); // placeholder for T
+                    vertFloats.add(0f, 0f, 0f); // placeholder for B
                 }
                 if(faces.length == 4){  // triangle
-                    indexValues.add(indexOut++);
-                    indexValues.add(indexOut++);
-                    indexValues.add(indexOut++);
+                    indexValues.add(indexOut, indexOut+1, indexOut+2);
+                    indexOut += 3;
                 } else { // quad
-                    indexValues.add(indexOut);      // triangle
-                    indexValues.add(indexOut+1);
-                    indexValues.add(indexOut+3);
-
-                    indexValues.add(indexOut+1);    // triangle
-                    indexValues.add(indexOut+2);
-                    indexValues.add(indexOut+3);
+                    indexValues.add(indexOut, indexOut+1, indexOut+3);      // triangle
+                    indexValues.add(indexOut+1, indexOut+2, indexOut+3);    // triangle
                     indexOut += 4;
                 }
             } else if (line.startsWith("o ")) {
@@ -177,7 +160,6 @@ public class ObjParser {
 
         data.vertexAttributes.end();
         //meshData.vertexAttributes.hasNormalMap = meshData.materialData != null && meshData.materialData.normalMapFilePath != null;
-        data.indexSizeInBytes = 4;
 
         addTBN(data);
         return data;
@@ -195,45 +177,44 @@ public class ObjParser {
 
         Vector3 T = new Vector3();
         Vector3 B = new Vector3();
+        Vector3 Ntmp = new Vector3();
 
         int vertSize = data.vertexAttributes.getVertexSizeInBytes()/Float.BYTES;
 
         // x y z u v nx ny nz tx ty tz bx by bz
         // 0 1 2 3 4 5  6  7  8  9  10 11 12 13
 
-        for(int tri = 0; tri < data.indexValues.size(); tri += 3) {
+        for(int tri = 0; tri < data.indexValues.size; tri += 3) {
             for (int j = 0; j < 3; j++) {
                 int index = data.indexValues.get(tri+j);
                 corners[j].position.x = data.vertFloats.get(index * vertSize + 0);
                 corners[j].position.y = data.vertFloats.get(index * vertSize + 1);
                 corners[j].position.z = data.vertFloats.get(index * vertSize + 2);
 
-                corners[j].normal.x = data.vertFloats.get(index * vertSize + 6);
-                corners[j].normal.y = data.vertFloats.get(index * vertSize + 7);
-                corners[j].normal.z = data.vertFloats.get(index * vertSize + 8);
+                corners[j].normal.x = data.vertFloats.get(index * vertSize + 5);
+                corners[j].normal.y = data.vertFloats.get(index * vertSize + 6);
+                corners[j].normal.z = data.vertFloats.get(index * vertSize + 7);
 
                 corners[j].uv.x = data.vertFloats.get(index * vertSize + 3);
                 corners[j].uv.y = data.vertFloats.get(index * vertSize + 4);
             }
-            calculateBTN(corners, T, B);
+            calculateBTN(corners, T, B, Ntmp);
 
             for (int j = 0; j < 3; j++) {
                 int index = data.indexValues.get(tri+j);
-                data.vertFloats.set(index*vertSize + 7, T.x);
-                data.vertFloats.set(index*vertSize + 8, T.y);
-                data.vertFloats.set(index*vertSize + 9, T.z);
+                data.vertFloats.set(index*vertSize + 8, T.x);
+                data.vertFloats.set(index*vertSize + 9, T.y);
+                data.vertFloats.set(index*vertSize + 10, T.z);
 
-                data.vertFloats.set(index*vertSize + 10, B.x);
-                data.vertFloats.set(index*vertSize + 11, B.y);
-                data.vertFloats.set(index*vertSize + 12, B.z);
+                data.vertFloats.set(index*vertSize + 11, B.x);
+                data.vertFloats.set(index*vertSize + 12, B.y);
+                data.vertFloats.set(index*vertSize + 13, B.z);
             }
         }
     }
 
-    private static Vector3 Ntmp = new Vector3();
-    private static Vector3 N = new Vector3();
-
-    private static void calculateBTN(Vertex corners[], Vector3 T, Vector3 B) {
+    // Ntmp is scratch space of the caller, so that files can be parsed on several threads at once
+    private static void calculateBTN(Vertex corners[], Vector3 T, Vector3 B, Vector3 Ntmp) {
         Vector3 edge1 = corners[1].position.sub(corners[0].position);
         Vector3 edge2 = corners[2].position.sub(corners[0].position);
 
@@ -244,7 +225,6 @@ public class ObjParser {
         B.set(edge2.cpy().scl(eUV1.x).sub(edge1.cpy().scl(eUV2.x)));
         T.scl(-1);
         B.scl(-1);
-        N.set(T).crs(B);
 
         // average normal
         Ntmp.set(corners[0].normal).add(corners[1].normal).add(corners[2].normal).scl(1/3f);
@@ -1,8 +1,8 @@
 package com.monstrous.graphics.loaders;
 
 import com.monstrous.FileInput;
-
-import java.util.ArrayList;
+import com.monstrous.utils.FloatArray;
+import com.monstrous.utils.IntArray;
 
 // loader of ad hoc txt format from Learn WebGPU for C++
 
@@ -15,8 +15,8 @@ public class TxtLoader {
         FileInput input = new FileInput(fileName);
         // x y z nx ny nz r g b u v
         int vertSize = 8 + dimensions; // in floats
-        ArrayList<Integer> indexValues = new ArrayList<>();
-        ArrayList<Float> vertFloats = new ArrayList<>();
+        IntArray indexValues = new IntArray();
+        FloatArray vertFloats = new FloatArray();
         int mode = 0;
         for (int lineNr = 0; lineNr < input.size(); lineNr++) {
             String line = input.get(lineNr).strip();
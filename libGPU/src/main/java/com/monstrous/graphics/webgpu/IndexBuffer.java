@@ -1,12 +1,14 @@
 package com.monstrous.graphics.webgpu;
 
 import com.monstrous.LibGPU;
+import com.monstrous.utils.IntArray;
 import com.monstrous.utils.JavaWebGPU;
 import com.monstrous.webgpu.WGPUBufferUsage;
 import com.monstrous.webgpu.WGPUIndexFormat;
 import jnr.ffi.Pointer;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 public class IndexBuffer extends Buffer {
 
@@ -18,9 +20,20 @@ public class IndexBuffer extends Buffer {
         this.indexSizeInBytes = indexSizeInBytes;
     }
 
-    public IndexBuffer(ArrayList<Integer> indexValues, int indexSizeInBytes) {
-        this(WGPUBufferUsage.CopyDst | WGPUBufferUsage.Index, align(indexValues.size()*indexSizeInBytes),indexSizeInBytes);
-        setIndices(indexValues);
+    /** the index format (Uint16 or Uint32) is chosen from the largest index value */
+    public IndexBuffer(IntArray indexValues) {
+        this(indexValues, narrowestIndexSize(indexValues));
+    }
+
+    private IndexBuffer(IntArray indexValues, int indexSizeInBytes) {
+        this(WGPUBufferUsage.CopyDst | WGPUBufferUsage.Index, align(indexValues.size*indexSizeInBytes), indexSizeInBytes);
+        setIndices(indexValues, indexSizeInBytes);
+    }
+
+    /** little-endian index data, e.g. a slice of a glTF buffer, is uploaded without converting it */
+    public IndexBuffer(ByteBuffer indexData, int indexSizeInBytes, int indexCount) {
+        this(WGPUBufferUsage.CopyDst | WGPUBufferUsage.Index, align(indexCount*indexSizeInBytes), indexSizeInBytes);
+        setIndices(indexData, indexCount);
     }
 
     public IndexBuffer(short[] indexValues, int indexCount) {
@@ -36,6 +49,11 @@ public class IndexBuffer extends Buffer {
         return indexCount;
     }
 
+    /** 2 bytes if all indices fit in a Uint16, otherwise 4. 0xFFFF is avoided as it is the strip restart value. */
+    public static int narrowestIndexSize(IntArray indexValues){
+        return indexValues.max() < 0xFFFF ? 2 : 4;
+    }
+
     public WGPUIndexFormat getFormat(){
         return determineFormat(indexSizeInBytes);
     }
@@ -69,25 +87,37 @@ public class IndexBuffer extends Buffer {
         setIndices(idata, indexBufferSize);
     }
 
-    public void setIndices(ArrayList<Integer> indexValues) {
-        if(indexValues == null) {
-            indexCount = 0;
-            return;
-        }
-        indexCount = indexValues.size();
-        int indexBufferSize = align(indexCount * indexSizeInBytes);
+    /** upload with the narrowest index format that fits, the buffer must be large enough for it */
+    public void setIndices(IntArray indexValues) {
+        setIndices(indexValues, narrowestIndexSize(indexValues));
+    }
 
-        Pointer idata = JavaWebGPU.createDirectPointer(indexBufferSize);
-        if (indexSizeInBytes == 2) {
-            for (int i = 0; i < indexCount; i++) {
-                idata.putShort((long) i * indexSizeInBytes, (short) (int) indexValues.get(i));
-            }
-        } else if (indexSizeInBytes == 4) {
-            for (int i = 0; i < indexCount; i++) {
-                idata.putInt((long) i * indexSizeInBytes, indexValues.get(i));
-            }
+    private void setIndices(IntArray indexValues, int indexSizeInBytes) {
+        if(indexSizeInBytes == 2) {
+            short[] shorts = new short[indexValues.size];
+            for (int i = 0; i < indexValues.size; i++)
+                shorts[i] = (short) indexValues.items[i];
+            setIndices(shorts, indexValues.size);
+        } else
+            setIndices(indexValues.items, indexValues.size);
+    }
+
+    /** the index data must be little-endian, the byte order of the buffer object itself is not used */
+    public void setIndices(ByteBuffer indexData, int indexCount) {
+        this.indexCount = indexCount;
+        int size = indexCount * indexSizeInBytes;
+        int indexBufferSize = align(size);
+
+        ByteBuffer data = indexData;
+        if(!data.isDirect() || size != indexBufferSize) {
+            // copy into a direct buffer, padded to a multiple of 4 bytes
+            data = ByteBuffer.allocateDirect(indexBufferSize).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer src = indexData.duplicate();
+            src.limit(src.position() + size);
+            data.put(src);
+            data.rewind();
         }
-        setIndices(idata, indexBufferSize);
+        setIndices(Pointer.wrap(JavaWebGPU.getRuntime(), data), indexBufferSize);
     }
 
     /** fill index buffer with raw data. */
@@ -33,24 +33,21 @@ public class Pipeline implements Disposable {
     private ShaderProgram shader;
     private boolean ownsShader;
 
-    public Pipeline(Pointer pipelineLayout, PipelineSpecification spec) {
-
-        this.pipelineLayout = pipelineLayout;
+    /** For subclasses that don't create a GPU pipeline, e.g. to test Pipelines.
+     * The shader is only kept in our own copy of the spec: the caller's spec may outlive this pipeline, e.g. when it
+     * is evicted from Pipelines, and must not hold on to a shader that is disposed together with the pipeline. */
+    protected Pipeline(PipelineSpecification spec, ShaderProgram shader, boolean ownsShader) {
+        this.specification = new PipelineSpecification(spec);
+        this.specification.shader = shader;
+        this.shader = shader;
+        this.ownsShader = ownsShader;
+    }
 
+    public Pipeline(Pointer pipelineLayout, PipelineSpecification spec) {
         // if the specification does not already have a shader, create one from the source file, customized to the vertex attributes.
-        if(spec.shader != null) {
-            shader = spec.shader;   // make use of the shader in the spec
-            ownsShader = false;     // we don't have to dispose it
-        } else {
-            String prefix = ShaderPrefix.buildPrefix(spec.vertexAttributes, spec.environment);
-            FileHandle file = Files.classpath(spec.shaderFilePath);
-            //System.out.println("Shader Source ["+spec.shaderSourceFile+"] Prefix: ["+prefix+"]");
-            shader = new ShaderProgram(file, prefix);
-            spec.shader = shader;
-            spec.recalcHash();
-            ownsShader = true;
-        }
-        this.specification = new PipelineSpecification(spec);
+        // In that case we have to dispose it.
+        this(spec, spec.shader != null ? spec.shader : compileShader(spec), spec.shader == null);
+        this.pipelineLayout = pipelineLayout;
 
         Pointer shaderModule = shader.getHandle();
         WGPUVertexBufferLayout vertexBufferLayout = spec.vertexAttributes != null ? spec.vertexAttributes.getVertexBufferLayout() : null;
@@ -164,6 +161,18 @@ public class Pipeline implements Disposable {
 //                spec.hasDepth == this.specification.hasDepth);
     }
 
+    private static ShaderProgram compileShader(PipelineSpecification spec) {
+        spec.recalcHash();      // make sure environment flags are up to date
+        String prefix = ShaderPrefix.buildPrefix(spec.vertexAttributes, spec.hasShadows(), spec.hasCubeMap(), spec.usesImageBasedLighting());
+        FileHandle file = Files.classpath(spec.shaderFilePath);
+        return new ShaderProgram(file, prefix);
+    }
+
+    /** true if the shader was compiled for this pipeline and is disposed with it */
+    public boolean ownsShader() {
+        return ownsShader;
+    }
+
     public Pointer getHandle(){
         return pipeline;
     }
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.graphics.webgpu;
+
+import com.monstrous.graphics.VertexAttribute;
+import com.monstrous.graphics.VertexAttributes;
+import com.monstrous.webgpu.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Record of the pipeline specifications that were used, so that the pipelines can be created up front on the next run.
+ *
+ * The manifest is a text file with one specification per line. New specifications are appended to the file as soon
+ * as they are recorded. Only specifications where the shader is compiled from a shader file can be recorded, because
+ * a ShaderProgram provided by the application cannot be restored.
+ */
+public class PipelineManifest {
+    private final File file;
+    private final Map<String, PipelineSpecification> entries;     // serialized form -> specification
+
+    public PipelineManifest(File file) {
+        this.file = file;
+        entries = new LinkedHashMap<>();
+    }
+
+    /** add specification to the manifest, returns true if it was not yet present. */
+    public synchronized boolean record(PipelineSpecification spec) {
+        if(spec.shaderFilePath == null)
+            return false;
+        String line = toString(spec);
+        if(entries.containsKey(line))
+            return false;
+        entries.put(line, new PipelineSpecification(spec));
+        if(file != null) {
+            try {
+                Files.write(file.toPath(), (line + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.out.println("PipelineManifest: cannot write " + file + ": " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /** (re)load the manifest from file. Lines that cannot be parsed, e.g. from an older version, are skipped. */
+    public synchronized void load() {
+        entries.clear();
+        if(file == null || !file.exists())
+            return;
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.out.println("PipelineManifest: cannot read " + file + ": " + e.getMessage());
+            return;
+        }
+        for(String line : lines) {
+            if(line.isBlank())
+                continue;
+            try {
+                entries.put(line, fromString(line));
+            } catch (RuntimeException e) {
+                System.out.println("PipelineManifest: skipping entry [" + line + "]");
+            }
+        }
+    }
+
+    /** returns a copy of the recorded specifications */
+    public synchronized List<PipelineSpecification> getSpecifications() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        if(file != null)
+            file.delete();
+    }
+
+    public static String toString(PipelineSpecification spec) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("shader=").append(spec.shaderFilePath);
+        sb.append(";attributes=");
+        if(spec.vertexAttributes != null) {
+            boolean first = true;
+            for (VertexAttribute va : spec.vertexAttributes.attributes) {
+                if(!first)
+                    sb.append(',');
+                sb.append(va.usage).append(':').append(va.label).append(':').append(va.format.name()).append(':').append(va.shaderLocation);
+                first = false;
+            }
+        } else
+            sb.append('-');
+        sb.append(";env=").append(spec.hasShadows()).append(',').append(spec.hasCubeMap()).append(',').append(spec.usesImageBasedLighting());
+        sb.append(";depthTest=").append(spec.useDepthTest);
+        sb.append(";noDepthAttachment=").append(spec.noDepthAttachment);
+        sb.append(";skyBox=").append(spec.isSkyBox);
+        sb.append(";depthPass=").append(spec.isDepthPass);
+        sb.append(";afterPrepass=").append(spec.afterDepthPrepass);
+        sb.append(";samples=").append(spec.numSamples);
+        sb.append(";topology=").append(spec.topology.name());
+        sb.append(";indexFormat=").append(spec.indexFormat.name());
+        sb.append(";cull=").append(spec.cullMode.name());
+        sb.append(";blend=").append(spec.blendSrcColor.name()).append(',').append(spec.blendDstColor.name()).append(',').append(spec.blendOpColor.name())
+                .append(',').append(spec.blendSrcAlpha.name()).append(',').append(spec.blendDstAlpha.name()).append(',').append(spec.blendOpAlpha.name());
+        sb.append(";colorFormat=").append(spec.colorFormat.name());
+        sb.append(";depthFormat=").append(spec.depthFormat.name());
+        return sb.toString();
+    }
+
+    public static PipelineSpecification fromString(String line) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for(String field : line.split(";")) {
+            int eq = field.indexOf('=');
+            if(eq < 0)
+                throw new IllegalArgumentException("PipelineManifest: invalid field " + field);
+            fields.put(field.substring(0, eq), field.substring(eq+1));
+        }
+
+        PipelineSpecification spec = new PipelineSpecification();
+        spec.name = "pipeline (manifest)";
+        spec.shaderFilePath = get(fields, "shader");
+        String attributes = get(fields, "attributes");
+        if(!attributes.equals("-")) {
+            VertexAttributes vertexAttributes = new VertexAttributes();
+            for (String attribute : attributes.split(",")) {
+                String[] parts = attribute.split(":");
+                vertexAttributes.add(Long.parseLong(parts[0]), parts[1], WGPUVertexFormat.valueOf(parts[2]), Integer.parseInt(parts[3]));
+            }
+            vertexAttributes.end();
+            spec.vertexAttributes = vertexAttributes;
+        }
+        String[] env = get(fields, "env").split(",");
+        spec.useDepthTest = Boolean.parseBoolean(get(fields, "depthTest"));
+        spec.noDepthAttachment = Boolean.parseBoolean(get(fields, "noDepthAttachment"));
+        spec.isSkyBox = Boolean.parseBoolean(get(fields, "skyBox"));
+        spec.isDepthPass = Boolean.parseBoolean(get(fields, "depthPass"));
+        spec.afterDepthPrepass = Boolean.parseBoolean(get(fields, "afterPrepass"));
+        spec.numSamples = Integer.parseInt(get(fields, "samples"));
+        spec.topology = WGPUPrimitiveTopology.valueOf(get(fields, "topology"));
+        spec.indexFormat = WGPUIndexFormat.valueOf(get(fields, "indexFormat"));
+        spec.cullMode = WGPUCullMode.valueOf(get(fields, "cull"));
+        String[] blend = get(fields, "blend").split(",");
+        spec.blendSrcColor = WGPUBlendFactor.valueOf(blend[0]);
+        spec.blendDstColor = WGPUBlendFactor.valueOf(blend[1]);
+        spec.blendOpColor = WGPUBlendOperation.valueOf(blend[2]);
+        spec.blendSrcAlpha = WGPUBlendFactor.valueOf(blend[3]);
+        spec.blendDstAlpha = WGPUBlendFactor.valueOf(blend[4]);
+        spec.blendOpAlpha = WGPUBlendOperation.valueOf(blend[5]);
+        spec.colorFormat = WGPUTextureFormat.valueOf(get(fields, "colorFormat"));
+        spec.depthFormat = WGPUTextureFormat.valueOf(get(fields, "depthFormat"));
+        // also calls recalcHash()
+        spec.setEnvironmentFlags(Boolean.parseBoolean(env[0]), Boolean.parseBoolean(env[1]), Boolean.parseBoolean(env[2]));
+        return spec;
+    }
+
+    private static String get(Map<String, String> fields, String key) {
+        String value = fields.get(key);
+        if(value == null)
+            throw new IllegalArgumentException("PipelineManifest: missing field " + key);
+        return value;
+    }
+}
@@ -50,6 +50,11 @@ public class PipelineSpecification  {
     public WGPUTextureFormat colorFormat;
     public WGPUTextureFormat depthFormat;
     private int hash;
+    // environment properties that affect the shader, captured at recalcHash() so that a cached copy stays stable
+    private boolean envShadows;
+    private boolean envCubeMap;
+    private boolean envIBL;
+    private boolean fixedEnvironmentFlags;      // true if the flags were set explicitly instead of derived from environment
 
 
     public PipelineSpecification() {
@@ -107,6 +112,10 @@ public class PipelineSpecification  {
         this.colorFormat = spec.colorFormat;
         this.depthFormat = spec.depthFormat;
         this.numSamples = spec.numSamples;
+        this.envShadows = spec.envShadows;
+        this.envCubeMap = spec.envCubeMap;
+        this.envIBL = spec.envIBL;
+        this.fixedEnvironmentFlags = spec.fixedEnvironmentFlags;
         recalcHash();
     }
 
@@ -145,16 +154,52 @@ public class PipelineSpecification  {
         recalcHash();
     }
 
-    // used?
+    /** Set the environment properties that affect the shader directly instead of via an Environment,
+     * e.g. for a specification restored from a pipeline manifest. */
+    public void setEnvironmentFlags(boolean shadows, boolean cubeMap, boolean imageBasedLighting){
+        environment = null;
+        envShadows = shadows;
+        envCubeMap = cubeMap;
+        envIBL = imageBasedLighting;
+        fixedEnvironmentFlags = true;
+        recalcHash();
+    }
+
+    public boolean hasShadows() {
+        return envShadows;
+    }
+
+    public boolean hasCubeMap() {
+        return envCubeMap;
+    }
+
+    public boolean usesImageBasedLighting() {
+        return envIBL;
+    }
+
+    /** Full comparison of the properties that make up the pipeline (consistent with hashCode).
+     * The compiled shader is only compared if there is no shader file path, see note below. */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         PipelineSpecification that = (PipelineSpecification) o;
-        return useDepthTest == that.useDepthTest && Objects.equals(vertexAttributes, that.vertexAttributes) && blendSrcColor == that.blendSrcColor && blendDstColor == that.blendDstColor
-                && blendOpColor == that.blendOpColor && blendSrcAlpha == that.blendSrcAlpha && blendDstAlpha == that.blendDstAlpha && blendOpAlpha == that.blendOpAlpha &&
-                numSamples == that.numSamples;
-        // todo compare shader
+        return hash == that.hash &&
+                getUsageFlags(vertexAttributes) == getUsageFlags(that.vertexAttributes) &&
+                Objects.equals(shaderFilePath, that.shaderFilePath) &&
+                (shaderFilePath != null || shader == that.shader) &&
+                isDepthPass == that.isDepthPass && afterDepthPrepass == that.afterDepthPrepass &&
+                useDepthTest == that.useDepthTest && noDepthAttachment == that.noDepthAttachment &&
+                topology == that.topology && indexFormat == that.indexFormat &&
+                envShadows == that.envShadows && envCubeMap == that.envCubeMap && envIBL == that.envIBL &&
+                blendSrcColor == that.blendSrcColor && blendDstColor == that.blendDstColor && blendOpColor == that.blendOpColor &&
+                blendSrcAlpha == that.blendSrcAlpha && blendDstAlpha == that.blendDstAlpha && blendOpAlpha == that.blendOpAlpha &&
+                numSamples == that.numSamples && cullMode == that.cullMode && isSkyBox == that.isSkyBox &&
+                colorFormat == that.colorFormat && depthFormat == that.depthFormat;
+    }
+
+    private static long getUsageFlags(VertexAttributes vertexAttributes){
+        return vertexAttributes != null ? vertexAttributes.getUsageFlags() : 0;
     }
 
     @Override
@@ -164,15 +209,19 @@ public class PipelineSpecification  {
 
     /** to be called whenever relevant content changes (to avoid doing this in hashCode which is called a lot) */
     public void recalcHash() {
-        hash = Objects.hash(vertexAttributes != null ? vertexAttributes.getUsageFlags() : 0,
+        if(!fixedEnvironmentFlags || environment != null) {
+            fixedEnvironmentFlags = false;
+            envShadows = environment != null && !environment.depthPass && environment.renderShadows;
+            envCubeMap = environment != null && environment.cubeMap != null;
+            envIBL = environment != null && environment.useImageBasedLighting;
+        }
+        hash = Objects.hash(getUsageFlags(vertexAttributes),
                 shaderFilePath,
                 isDepthPass, afterDepthPrepass,
                 useDepthTest, noDepthAttachment,
                 topology, indexFormat,
-                environment == null ? 0 :!environment.depthPass && environment.renderShadows,
-                environment == null ? 0 : environment.cubeMap != null,
-                environment == null ? 0 : environment.useImageBasedLighting,
-                blendSrcColor, blendDstColor, blendOpColor, blendSrcAlpha, blendDstAlpha, blendOpAlpha, numSamples, cullMode, isSkyBox, depthFormat, numSamples);
+                envShadows, envCubeMap, envIBL,
+                blendSrcColor, blendDstColor, blendOpColor, blendSrcAlpha, blendDstAlpha, blendOpAlpha, numSamples, cullMode, isSkyBox, colorFormat, depthFormat);
     }
 
     // note: don't include compiled shader in the hash because this would force new compiles every frame since a spec of an uncompiled shader <> compiled shader
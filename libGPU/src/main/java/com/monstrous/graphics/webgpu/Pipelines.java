@@ -19,30 +19,121 @@ package com.monstrous.graphics.webgpu;
 import com.monstrous.utils.Disposable;
 import jnr.ffi.Pointer;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 
 /** Cache for pipelines
  *
+ * Pipelines are keyed on a snapshot of the pipeline specification, so lookup is a hash map look-up using
+ * PipelineSpecification.hashCode() and equals(). Optionally, the number of cached pipelines can be bounded,
+ * in which case the least recently used pipeline is disposed when the limit is exceeded.
  */
 
 public class Pipelines implements Disposable {
-    public ArrayList<Pipeline> pipelines;      // todo or use map? using spec hash code as key
+    private final LinkedHashMap<PipelineSpecification, Pipeline> pipelines;
+    private int maxPipelines;
+    private PipelineManifest manifest;
 
+    // statistics
+    public int hits;
+    public int misses;
+    public int evictions;
+
+    /** unbounded pipeline cache */
     public Pipelines() {
-        pipelines = new ArrayList<>();
+        this(0);
+    }
+
+    /** pipeline cache holding at most maxPipelines pipelines, use 0 for no limit */
+    public Pipelines(int maxPipelines) {
+        this.maxPipelines = maxPipelines;
+        // access order, so that the eldest entry is the least recently used one
+        pipelines = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PipelineSpecification, Pipeline> eldest) {
+                if (Pipelines.this.maxPipelines <= 0 || size() <= Pipelines.this.maxPipelines)
+                    return false;
+                eldest.getValue().dispose();
+                evictions++;
+                return true;
+            }
+        };
     }
 
     public Pipeline findPipeline(Pointer pipelineLayout, PipelineSpecification spec){
-        for(Pipeline pipeline : pipelines){
-            if(pipeline.canRender(spec))
-                return pipeline;
+        Pipeline pipeline = pipelines.get(spec);
+        if(pipeline != null) {
+            hits++;
+            return pipeline;
         }
-        Pipeline pipeline = new Pipeline(pipelineLayout, spec);
-        pipelines.add(pipeline);
+        misses++;
+        // take a copy as key, because the caller will keep modifying its spec
+        PipelineSpecification key = new PipelineSpecification(spec);
+        pipeline = createPipeline(pipelineLayout, spec);
+        pipelines.put(key, pipeline);
+        // only pipelines with a shader compiled from file can be restored from the manifest
+        if(manifest != null && key.shader == null)
+            manifest.record(key);
         return pipeline;
     }
 
+    /** creates the pipeline on a cache miss, may be overridden e.g. to test the cache without a GPU */
+    protected Pipeline createPipeline(Pointer pipelineLayout, PipelineSpecification spec) {
+        return new Pipeline(pipelineLayout, spec);
+    }
+
+    /** Set manifest to record the pipeline specifications in use, see warmUp(). May be null. */
+    public void setManifest(PipelineManifest manifest) {
+        this.manifest = manifest;
+    }
+
+    public PipelineManifest getManifest() {
+        return manifest;
+    }
+
+    /** Create the pipelines recorded in the manifest in advance, to avoid hitches on first use.
+     * Entries that fail, e.g. because the shader file no longer exists, are skipped.
+     * Returns the number of pipelines created. */
+    public int warmUp(Pointer pipelineLayout){
+        if(manifest == null)
+            return 0;
+        int count = 0;
+        for(PipelineSpecification spec : manifest.getSpecifications()) {
+            if(pipelines.containsKey(spec))
+                continue;
+            try {
+                PipelineSpecification key = new PipelineSpecification(spec);
+                pipelines.put(key, createPipeline(pipelineLayout, key));
+                count++;
+            } catch (RuntimeException e) {
+                System.out.println("Pipelines: cannot create pipeline from manifest ("+spec.shaderFilePath+"): "+e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    /** set maximum number of pipelines to keep, use 0 for no limit. */
+    public void setMaxPipelines(int maxPipelines) {
+        this.maxPipelines = maxPipelines;
+    }
+
+    public int getMaxPipelines() {
+        return maxPipelines;
+    }
+
+    /** returns the cached pipelines */
+    public Collection<Pipeline> getPipelines() {
+        return pipelines.values();
+    }
+
+    public void resetStatistics(){
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
     // may be useful for hot-loading shaders
     public void clear(){
         dispose();
@@ -56,7 +147,7 @@ public class Pipelines implements Disposable {
 
     @Override
     public void dispose() {
-        for(Pipeline pipeline : pipelines)
+        for(Pipeline pipeline : pipelines.values())
             pipeline.dispose();
     }
 }
@@ -1,11 +1,12 @@
 package com.monstrous.graphics.webgpu;
 
 import com.monstrous.LibGPU;
+import com.monstrous.utils.FloatArray;
 import com.monstrous.utils.JavaWebGPU;
 import com.monstrous.webgpu.WGPUBufferUsage;
 import jnr.ffi.Pointer;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
 public class VertexBuffer extends Buffer {
 
@@ -20,27 +21,29 @@ public class VertexBuffer extends Buffer {
     }
 
     public void setVertices(float[] vertexData) {
-        // Create vertex buffer
-        int size = vertexData.length *Float.BYTES;
+        setVertices(vertexData, vertexData.length);
+    }
+
+    public void setVertices(FloatArray vertexData) {
+        setVertices(vertexData.items, vertexData.size);
+    }
+
+    /** upload the first floatCount floats of vertexData in one bulk copy */
+    public void setVertices(float[] vertexData, int floatCount) {
+        int size = floatCount *Float.BYTES;
         if(size > getSize()) throw new IllegalArgumentException("VertexBuffer.setVertices: data set too large.");
         Pointer dataBuf = JavaWebGPU.createDirectPointer( size );
-        dataBuf.put(0L, vertexData, 0, vertexData.length);
+        dataBuf.put(0L, vertexData, 0, floatCount);
         // Upload geometry data to the buffer
         LibGPU.queue.writeBuffer(this, 0, dataBuf, size);
-        //LibGPU.webGPU.wgpuQueueWriteBuffer(LibGPU.queue, getHandle(),0,dataBuf, size);
     }
 
-    public void setVertices(ArrayList<Float> floats) {
-        int size = floats.size()*Float.BYTES;
+    /** upload vertex data from a direct buffer in native byte order, without an intermediate copy */
+    public void setVertices(ByteBuffer vertexData) {
+        int size = vertexData.remaining();
         if(size > getSize()) throw new IllegalArgumentException("VertexBuffer.setVertices: data set too large.");
-
-        Pointer vertData = JavaWebGPU.createDirectPointer( size );
-        for (int i = 0; i < floats.size(); i++) {
-            vertData.putFloat((long) i *Float.BYTES, floats.get(i));
-        }
-        // Upload geometry data to the buffer
-        //LibGPU.webGPU.wgpuQueueWriteBuffer(LibGPU.queue, getHandle(),0,vertData, size);
-        LibGPU.queue.writeBuffer(this, 0, vertData, size);
+        if(!vertexData.isDirect()) throw new IllegalArgumentException("VertexBuffer.setVertices: needs a direct buffer.");
+        LibGPU.queue.writeBuffer(this, 0, Pointer.wrap(JavaWebGPU.getRuntime(), vertexData), size);
     }
 
 }
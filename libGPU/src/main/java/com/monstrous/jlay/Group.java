@@ -22,6 +22,8 @@ public class Group extends Box {        // extends Box for debug
     protected int mainAxis;         // 0 for horizontal, 1 for vertical
     protected int crossAxis;        // always the opposite of mainAxis
     protected Boolean2 fitContent;
+    protected Vector2 contentSize;      // measured size of the children, including padding and gaps
+    protected Vector2 contentMinimum;   // measured minimum size of the children, including padding and gaps
 
     public Group() {
         children = new ArrayList<>();
@@ -30,6 +32,8 @@ public class Group extends Box {        // extends Box for debug
         fitContent = new Boolean2(false, false);
         gap = 0;
         alignment = new Vector2();
+        contentSize = new Vector2();
+        contentMinimum = new Vector2();
         setHorizontal();
     }
 
@@ -54,14 +58,10 @@ public class Group extends Box {        // extends Box for debug
         for(Widget child: children) // work bottom up
             child.fitWidth();
 
+        measureContent(0);      // also used when growing and shrinking the children
         if(fitContent.getX()){
-            if(mainAxis == 0) {
-                size.setComponent(mainAxis, measureContentAlongMainAxis());          // sum of children + padding and gaps
-                minimumSize.setComponent(mainAxis, measureMinimumContentAlongMainAxis());
-            } else  {
-                size.setComponent(crossAxis, measureContentAcrossMainAxis());         // max of children + padding
-                minimumSize.setComponent(crossAxis, measureMinimumContentAcrossMainAxis());
-            }
+            size.setX(contentSize.getX());
+            minimumSize.setX(contentMinimum.getX());
         }
     };
 
@@ -70,14 +70,10 @@ public class Group extends Box {        // extends Box for debug
         for(Widget child: children) // work bottom up
             child.fitHeight();
 
+        measureContent(1);
         if(fitContent.getY()){
-            if(mainAxis == 1) {
-                size.setComponent(mainAxis, measureContentAlongMainAxis());          // sum of children + padding and gaps
-                minimumSize.setComponent(mainAxis, measureMinimumContentAlongMainAxis());
-            } else  {
-                size.setComponent(crossAxis, measureContentAcrossMainAxis());         // max of children + padding
-                minimumSize.setComponent(crossAxis, measureMinimumContentAcrossMainAxis());
-            }
+            size.setY(contentSize.getY());
+            minimumSize.setY(contentMinimum.getY());
         }
     };
 
@@ -109,9 +105,12 @@ public class Group extends Box {        // extends Box for debug
      * Grow/shrink children to match container size (for children sized as "GROW")
      */
     protected void growAndShrinkAlongMainAxis() {
-        float w = measureContentAlongMainAxis();
+        // children were measured by the fit pass and have not been resized since
+        float w = contentSize.getComponent(mainAxis);
 
         float remainder = getSize().getComponent(mainAxis) - w;
+        if(remainder == 0)
+            return;
 
         // grow
         while (remainder > 0) {
@@ -185,6 +184,7 @@ public class Group extends Box {        // extends Box for debug
                 }
             }
         }
+        measureContent(mainAxis);   // for the placement of the children
     }
 
     protected void growAndShrinkAcrossMainAxis() {
@@ -197,6 +197,30 @@ public class Group extends Box {        // extends Box for debug
 
 
 
+    /** Measure the children along one axis in a single pass, the result is kept in contentSize and contentMinimum. */
+    protected void measureContent(int axis){
+        float total = 0;
+        float minTotal = 0;
+        boolean along = axis == mainAxis;
+        for (Widget child : children) {
+            float sz = child.size.getComponent(axis);
+            float min = child.minimumSize.getComponent(axis);
+            if(along) {     // sum of children
+                total += sz;
+                minTotal += min;
+            } else {        // largest child
+                total = Math.max(total, sz);
+                minTotal = Math.max(minTotal, min);
+            }
+        }
+        // add padding at start and end plus all the gaps between children (no gaps across the main axis)
+        float spacing = padStart.getComponent(axis) + padEnd.getComponent(axis);
+        if(along)
+            spacing += gap * (children.size() - 1);
+        contentSize.setComponent(axis, total + spacing);
+        contentMinimum.setComponent(axis, minTotal + spacing);
+    }
+
     protected float measureContentAlongMainAxis(){
         float total = 0;
         for (Widget child : children) {
@@ -247,7 +271,7 @@ public class Group extends Box {        // extends Box for debug
      */
     @Override
     protected void place(){
-        float remaining = size.getComponent(mainAxis) - measureContentAlongMainAxis();
+        float remaining = size.getComponent(mainAxis) - contentSize.getComponent(mainAxis);
         float childX = padStart.getComponent(mainAxis) + remaining/2;    // MIDDLE: centre
         if(alignment.getComponent(mainAxis) < 0)          // START: left or top
             childX = padStart.getComponent(mainAxis);
@@ -269,7 +293,7 @@ public class Group extends Box {        // extends Box for debug
         }
         // top-down traversal
         for(Widget child: children)
-            child.place();
+            child.arrange(this);
     }
 
 
@@ -287,16 +311,6 @@ public class Group extends Box {        // extends Box for debug
         return this;
     }
 
-    /**
-     * Convert relative positions to (absolute) screen positions.
-     */
-    @Override
-    protected void fixScreenPosition(Widget parent){
-        super.fixScreenPosition(parent);
-        for(Widget child: children)
-            child.fixScreenPosition(this);
-    }
-
     @Override
     protected void draw(RoundedRectangleBatch rrBatch) {
         super.draw(rrBatch);
@@ -319,29 +333,37 @@ public class Group extends Box {        // extends Box for debug
 
     /** Remove all children. */
     public void clear() {
+        for(Widget child : children)
+            child.parent = null;
         children.clear();
+        invalidate();
     }
 
     /** Add a widget to the container group. */
     public void add(Widget widget){
         children.add(widget);
+        widget.parent = this;
+        invalidate();
     }
 
     /** Set the group to be a vertical group. Children are placed bottom to top. */
     public void setVertical(){
         mainAxis = 1;
         crossAxis = 0;
+        invalidate();
     }
 
     /** Set the group to be a horizontal group. Children are placed left to right. */
     public void setHorizontal(){
         mainAxis = 0;
         crossAxis = 1;
+        invalidate();
     }
 
     /** set alignment in horizontal and vertical direction. Use Align.START, Align.MIDDLE or Align.END. */
     public void setAlignment( float horizontal, float vertical ){
         alignment.set(horizontal, vertical);
+        invalidate();
     }
 
     public void setPadding(float pad) {
@@ -353,10 +375,12 @@ public class Group extends Box {        // extends Box for debug
         padEnd.setX(right);
         padStart.setY(bottom);
         padEnd.setY(top);
+        invalidate();
     }
 
     /** Spacing between children. */
     public void setGap(float gap){
         this.gap = gap;
+        invalidate();
     }
 }
@@ -53,34 +53,9 @@ public class JLay implements Disposable , InputProcessor {
 
     public void draw(){
 
+        // only widgets that changed, or all of them after a resize, are laid out again
         for(Widget widget : widgets) {
-            // top level widgets: GROW means screen size
-            if(widget.canGrow.getX()) {
-                widget.getSize().setX(width);
-                widget.position.setX(0);
-            }
-            if(widget.canGrow.getY()) {
-                widget.getSize().setY(height);
-                widget.position.setY(0);
-            }
-        }
-        for(Widget widget : widgets) {
-            widget.fitWidth();
-        }
-        for(Widget widget : widgets) {
-            widget.growAndShrinkWidth();
-        }
-        for(Widget widget : widgets) {
-            widget.fitHeight();
-        }
-        for(Widget widget : widgets) {
-            widget.growAndShrinkHeight();
-        }
-        for(Widget widget : widgets) {
-            widget.place();
-        }
-        for(Widget widget : widgets) {
-            widget.fixScreenPosition(null);
+            widget.layout(width, height);
         }
 
         rrBatch.begin();
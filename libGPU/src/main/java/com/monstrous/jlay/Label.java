@@ -2,10 +2,10 @@ package com.monstrous.jlay;
 
 import com.monstrous.graphics.BitmapFont;
 import com.monstrous.graphics.Color;
-import com.monstrous.graphics.Texture;
 import com.monstrous.graphics.g2d.SpriteBatch;
 
 import java.util.ArrayList;
+import java.util.Objects;
 
 /**
  * Widget to show text.  The text will be word wrapped if the available space is not wide enough.
@@ -16,7 +16,9 @@ public class Label extends Widget {
     private final Style style;
     private float textWidth;
     private float lineHeight;
-    private Texture texture;
+    private String[] words;         // words of the text and their widths, for word wrapping
+    private float[] wordWidths;
+    private float spaceWidth;
 
     public static class Style {
         public Color fontColor;
@@ -38,19 +40,27 @@ public class Label extends Widget {
 
         setText(text);
 
-        // debug: add a bg color
-        texture = new Texture(1,1);
+        // debug: bg color
         if(color == null)
             color = Color.YELLOW;
-        texture.fill(color);
     }
 
+    /** null shows no text */
     public void setText(String text){
+        if(Objects.equals(text, this.text))
+            return;
         this.text = text;
+        if(text == null)
+            text = "";
 
         lineHeight = style.font.getLineHeight();
         textWidth =  style.font.width(text);
-        float minWidth = determineMinWidth(text, style.font);
+        spaceWidth = style.font.width(" ");
+        words = text.split("[ ]");
+        wordWidths = new float[words.length];
+        for(int i = 0; i < words.length; i++)
+            wordWidths[i] = style.font.width(words[i]);
+        float minWidth = determineMinWidth();
         setSize(textWidth, lineHeight);                                 // todo do we set size at this point?
         setMinimumSize(minWidth, lineHeight);
         setPreferredSize(textWidth, lineHeight);
@@ -58,9 +68,6 @@ public class Label extends Widget {
 
     @Override
     public void draw(SpriteBatch batch){
-//        batch.setColor(color);
-//        batch.draw(texture, absolute.getX(), absolute.getY(), textWidth, lineHeight);
-
         batch.setColor(style.fontColor);
         float y = absolute.getY() + size.getY();
         for(String line : lines) {
@@ -75,7 +82,7 @@ public class Label extends Widget {
         // when we are in the fitting width phase, revert to the ideal width, not the width from last frame (perhaps the container sized up)
         size.set(preferredSize);
         lines.clear();
-        lines.add(text);
+        lines.add(text == null ? "" : text);
     }
 
     @Override
@@ -87,16 +94,15 @@ public class Label extends Widget {
         float width = value;
         //System.out.println("Label set width: "+width+" minimum = "+minimumSize.getX()+" pref: "+preferredSize.getX());
         size.setX(width);
-        float spaceWidth = style.font.width(" ");
 
         lines.clear();
         StringBuilder sb = new StringBuilder();
         sb.setLength(0);
 
-        String[] words = text.split("[ ]");         // todo some caching
         float totalWidth = 0;
-        for(String word : words ){
-            float wordWidth = style.font.width(word);
+        for(int i = 0; i < words.length; i++){
+            String word = words[i];
+            float wordWidth = wordWidths[i];
             if(!sb.isEmpty())
                 totalWidth += spaceWidth;
             totalWidth += wordWidth;
@@ -114,11 +120,9 @@ public class Label extends Widget {
     }
 
     /** minimum width of a text is width of its longest word. */
-    private float determineMinWidth(String text, BitmapFont font){
-        String[] words = text.split("[ ]");
+    private float determineMinWidth(){
         float maxWordWidth = 0;
-        for(String word : words){
-            float wordWidth = font.width(word);
+        for(float wordWidth : wordWidths){
             if(wordWidth > maxWordWidth)
                 maxWordWidth = wordWidth;
         }
@@ -74,6 +74,6 @@ public class Stack extends Group {
         }
         // top-down traversal
         for(Widget child: children)
-            child.place();
+            child.arrange(this);
     }
 }
@@ -14,6 +14,7 @@ import java.util.ArrayList;
 public abstract class Widget {
     public static float FIT = -1f;
     public static float GROW = -2f;
+    public static int layoutCount;          // number of widget trees laid out, for statistics
 
     protected Vector2 position;
     protected Vector2 absolute;
@@ -24,6 +25,9 @@ public abstract class Widget {
     protected Boolean2 canGrow;
     protected Boolean2 canShrink;
     protected ArrayList<EventListener> eventListeners;
+    protected Group parent;
+    private boolean needsLayout = true;
+    private float layoutWidth, layoutHeight;    // screen size of the last layout
 
     public Widget() {
         position = new Vector2();
@@ -46,6 +50,57 @@ public abstract class Widget {
 
     protected void place(){}
 
+    /**
+     * Lay out this widget as a top-level widget on a screen of the given size. The sizes and positions of the previous
+     * call are kept if nothing in the widget tree was invalidated and the screen size is unchanged.
+     */
+    public void layout(float screenWidth, float screenHeight){
+        if(!needsLayout && screenWidth == layoutWidth && screenHeight == layoutHeight)
+            return;
+        layoutWidth = screenWidth;
+        layoutHeight = screenHeight;
+
+        // top level widgets: GROW means screen size
+        if(canGrow.getX()) {
+            size.setX(screenWidth);
+            position.setX(0);
+        }
+        if(canGrow.getY()) {
+            size.setY(screenHeight);
+            position.setY(0);
+        }
+        // measure: fit bottom-up and grow/shrink top-down, width before height because wrapped text depends on the width
+        fitWidth();
+        growAndShrinkWidth();
+        fitHeight();
+        growAndShrinkHeight();
+        // arrange: relative and screen positions in one top-down pass
+        arrange(null);
+        layoutCount++;
+    }
+
+    /** Position this widget on the screen and then place its children. Clears the invalidated state. */
+    protected void arrange(Widget parent){
+        fixScreenPosition(parent);
+        place();
+        needsLayout = false;
+    }
+
+    /** Mark this widget and its ancestors as changed, so that the widget tree is laid out again. */
+    public void invalidate(){
+        needsLayout = true;
+        if(parent != null && !parent.needsLayout())
+            parent.invalidate();
+    }
+
+    public boolean needsLayout(){
+        return needsLayout;
+    }
+
+    public Group getParent(){
+        return parent;
+    }
+
     protected void fixScreenPosition(Widget parent) {
         // position is relative to parent's position
         // determine absolute position (parent absolute position was already done before)
@@ -63,6 +118,7 @@ public abstract class Widget {
 
     public void setPosition(float x, float y){
         position.set(x,y);
+        invalidate();
     }
 
 
@@ -84,6 +140,7 @@ public abstract class Widget {
         size.set(width, height);
         preferredSize.set(width, height);
         minimumSize.set(width, height);
+        invalidate();
     }
 
     protected void setSizeComponent(int axis, float value){
@@ -100,10 +157,12 @@ public abstract class Widget {
         minimumSize.set(width, height);
         canShrink.setX(minimumSize.getX() < size.getX());
         canShrink.setY(minimumSize.getY() < size.getY());
+        invalidate();
     }
 
     public void setPreferredSize(float width, float height){
         preferredSize.set(width, height);
+        invalidate();
     }
 
     public Color getColor() {
@@ -7,6 +7,7 @@ import com.monstrous.graphics.g3d.BoundingBox;
 public class Frustum {
     public Plane[] planes; // top, bottom, left, right, far, near;  plane normals are pointing into the frustum
     public Vector3[] corners;
+    private float[] distances = new float[0];   // work array for batch culling
     private Vector3[] clipSpaceCorners = {
             new Vector3(-1,-1,0), new Vector3(1, -1, 0), new Vector3(1, 1, 0), new Vector3(-1, 1, 0),   // near plane
             new Vector3(-1,-1,1), new Vector3(1, -1, 1), new Vector3(1, 1, 1), new Vector3(-1, 1, 1)   // far plane
@@ -92,20 +93,66 @@ public class Frustum {
 
 
     public boolean boundsInFrustum(BoundingBox bbox){
+        return boundsInFrustum((bbox.min.x + bbox.max.x) * 0.5f, (bbox.min.y + bbox.max.y) * 0.5f, (bbox.min.z + bbox.max.z) * 0.5f,
+                (bbox.max.x - bbox.min.x) * 0.5f, (bbox.max.y - bbox.min.y) * 0.5f, (bbox.max.z - bbox.min.z) * 0.5f);
+    }
+
+    /** Test an axis-aligned box given by its centre and half extents. Does not allocate memory. */
+    public boolean boundsInFrustum(float cx, float cy, float cz, float ex, float ey, float ez){
         // the planes are pointing inward
-        // so if all corner of the bounding box are behind any of the planes, it is not outside the frustum
-        Vector3 corner = new Vector3();
+        // so if the box is fully behind any of the planes, it is outside the frustum
         for(Plane plane : planes){
-            if(plane.isInFront(corner.set(bbox.min.x, bbox.min.y, bbox.min.z))) continue;
-            if(plane.isInFront(corner.set(bbox.max.x, bbox.min.y, bbox.min.z))) continue;
-            if(plane.isInFront(corner.set(bbox.min.x, bbox.max.y, bbox.min.z))) continue;
-            if(plane.isInFront(corner.set(bbox.max.x, bbox.max.y, bbox.min.z))) continue;
-            if(plane.isInFront(corner.set(bbox.min.x, bbox.min.y, bbox.max.z))) continue;
-            if(plane.isInFront(corner.set(bbox.max.x, bbox.min.y, bbox.max.z))) continue;
-            if(plane.isInFront(corner.set(bbox.min.x, bbox.max.y, bbox.max.z))) continue;
-            if(plane.isInFront(corner.set(bbox.max.x, bbox.max.y, bbox.max.z))) continue;
-            return false;   // bbox is fully behind this plane
+            Vector3 n = plane.normal;
+            float dist = n.x * cx + n.y * cy + n.z * cz + plane.distance;      // signed distance of centre
+            float radius = Math.abs(n.x) * ex + Math.abs(n.y) * ey + Math.abs(n.z) * ez;  // box extent along normal
+            if(dist + radius < 0)
+                return false;   // bbox is fully behind this plane
         }
         return true;   // bbox is (at least partially) in front of all planes
     }
+
+    /** Test a batch of axis-aligned boxes in structure-of-arrays layout, given by their centres and half extents.
+     * Bit (i & 63) of visible[i >> 6] is set if box i is (at least partially) inside the frustum and cleared otherwise.
+     * Returns the number of visible boxes. Does not allocate memory once the work array has grown to size.
+     *
+     * The loops run plane by plane over simple float arrays, so that the JIT compiler can vectorize them.
+     */
+    public int boundsInFrustum(float[] centerX, float[] centerY, float[] centerZ, float[] extentX, float[] extentY, float[] extentZ,
+                               int count, long[] visible){
+        int words = (count + 63) >>> 6;
+        if(visible.length < words)
+            throw new IllegalArgumentException("Frustum: visibility mask too small for "+count+" boxes");
+        if(distances.length < count)
+            distances = new float[count];
+        final float[] dst = distances;
+
+        // for each box, find the smallest distance of the box to any plane, negative if fully behind a plane
+        for(int p = 0; p < 6; p++){
+            Plane plane = planes[p];
+            final float nx = plane.normal.x, ny = plane.normal.y, nz = plane.normal.z, d = plane.distance;
+            final float ax = Math.abs(nx), ay = Math.abs(ny), az = Math.abs(nz);
+            if(p == 0) {
+                for (int i = 0; i < count; i++)
+                    dst[i] = nx * centerX[i] + ny * centerY[i] + nz * centerZ[i] + d + ax * extentX[i] + ay * extentY[i] + az * extentZ[i];
+            } else {
+                for (int i = 0; i < count; i++)
+                    dst[i] = Math.min(dst[i], nx * centerX[i] + ny * centerY[i] + nz * centerZ[i] + d + ax * extentX[i] + ay * extentY[i] + az * extentZ[i]);
+            }
+        }
+
+        // pack the results into the bit mask
+        int numVisible = 0;
+        for(int w = 0; w < words; w++){
+            long bits = 0;
+            int base = w << 6;
+            int n = Math.min(64, count - base);
+            for(int j = 0; j < n; j++){
+                if(dst[base + j] >= 0)
+                    bits |= 1L << j;
+            }
+            visible[w] = bits;
+            numVisible += Long.bitCount(bits);
+        }
+        return numVisible;
+    }
 }
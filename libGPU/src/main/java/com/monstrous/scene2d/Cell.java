@@ -10,6 +10,7 @@ public class Cell {
     public int row, col;
     public int padLeft, padRight, padTop, padBottom;
     private int alignment;
+    Table table;            // table this cell belongs to, null for the root cell
 
     public Cell() {
         this.alignment = Align.center;
@@ -21,6 +22,7 @@ public class Cell {
 
     public Cell setAlign(int align){
         this.alignment = align;
+        invalidateTable();
         return this;
     }
 
@@ -33,9 +35,17 @@ public class Cell {
         this.padLeft = left;
         this.padBottom = bottom;
         this.padRight = right;
+        invalidateTable();
         return this;
     }
 
+    // the table needs a new layout after a change of alignment or padding.
+    // size and position are set by the table's layout, so they don't invalidate it.
+    private void invalidateTable(){
+        if(table != null)
+            table.invalidateHierarchy();
+    }
+
     public Cell setSize(int w, int h){
         this.w = w;
         this.h = h;
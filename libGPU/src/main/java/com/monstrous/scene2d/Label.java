@@ -2,8 +2,11 @@ package com.monstrous.scene2d;
 
 import com.monstrous.graphics.BitmapFont;
 import com.monstrous.graphics.Color;
+import com.monstrous.graphics.GlyphLayout;
 import com.monstrous.graphics.g2d.SpriteBatch;
 
+import java.util.Objects;
+
 public class Label extends Widget {
 
     private String text;
@@ -11,6 +14,7 @@ public class Label extends Widget {
     public int lineHeight;
     private final Style style;
     private int ty;
+    private final GlyphLayout layout = new GlyphLayout();
 
     public static class Style {
         public Color fontColor;
@@ -25,10 +29,13 @@ public class Label extends Widget {
     }
 
     public void setText(String text){
+        if(Objects.equals(text, this.text))
+            return;
         this.text = text;
 
+        layout.setText(style.font, text == null ? "" : text);
         int lineHeight = style.font.getLineHeight();
-        int textWidth = (int) style.font.width(text);
+        int textWidth = (int) layout.width;
         setPreferredSize(textWidth, lineHeight);
     }
 
@@ -42,7 +49,7 @@ public class Label extends Widget {
     @Override
     public void draw(SpriteBatch batch){
         batch.setColor(style.fontColor);
-        style.font.draw(batch, text, x+ parentCell.x, ty+ parentCell.y);
+        style.font.draw(batch, layout, x+ parentCell.x, ty+ parentCell.y);
     }
 
 }
@@ -22,6 +22,7 @@ public class Stage implements Disposable, InputProcessor {
     private ShapeRenderer shapeRenderer;    // for debug lines
     private Widget keyboardFocus;           // widget that gets keyboard input (can be null)
     private Widget widgetUnderMouse;
+    public int layoutsLastDraw;             // number of widgets laid out by the last draw(), 0 for a static UI
 
     public Stage() {
         batch = new SpriteBatch();
@@ -51,8 +52,13 @@ public class Stage implements Disposable, InputProcessor {
     }
 
     public void draw(){
-        table.pack();   // can we avoid doing this for every draw call?
-        table.setPosition();
+        // only lay out again if a widget has changed
+        int count = Widget.layoutCount;
+        if(table.needsLayout()) {
+            table.pack();
+            table.setPosition();
+        }
+        layoutsLastDraw = Widget.layoutCount - count;
 
         batch.begin(null);
         table.draw(batch);
@@ -89,8 +95,7 @@ public class Stage implements Disposable, InputProcessor {
     public void resize(int width, int height) {
         batch.getProjectionMatrix().setToOrtho2D(0, 0, width, height);
         cell.setSize( width, height);
-        //table.setSize( width, height);
-        // to do recalculate layouts
+        table.invalidateHierarchy();
     }
 
 
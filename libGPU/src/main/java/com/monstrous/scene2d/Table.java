@@ -33,19 +33,23 @@ public class Table extends Widget {
         colNr = 0;
         numRows = 1;
         rowNr = 0;
+        invalidateHierarchy();
         // todo dispose?
     }
 
     public Cell add( Widget widget ){
         Cell cell = addCell();
         widget.setCell(cell);
+        widget.parent = this;
         widgets.add(widget);
+        invalidateHierarchy();
 
         return cell;
     }
 
     private Cell addCell(){
         Cell cell = new Cell();
+        cell.table = this;
         cell.row = rowNr;
         cell.col = colNr;
         cells.add(cell);
@@ -60,6 +64,7 @@ public class Table extends Widget {
         if(rowNr + 1 > numRows)
             numRows = rowNr + 1;
         colNr = 0;
+        invalidateHierarchy();
     }
 
     @Override
@@ -82,12 +87,17 @@ public class Table extends Widget {
     }
 
     @Override
-    public void pack(){
+    protected void layout(){
         if(numCols == 0 || numRows == 0)    // empty table, don't divide by zero
             return;
 
         for(Widget widget : widgets) {
-            widget.pack();              // and recurse down
+            widget.pack();              // and recurse down, only invalid widgets are laid out
+        }
+        int[] cellSizes = new int[2*widgets.size()];
+        for(int i = 0; i < widgets.size(); i++){
+            cellSizes[2*i] = widgets.get(i).parentCell.w;
+            cellSizes[2*i+1] = widgets.get(i).parentCell.h;
         }
 
         int[] colWidths = new int[numCols];
@@ -137,6 +147,15 @@ public class Table extends Widget {
                 rowY[row] = rowY[row-1] - rowHeights[row-1];
             setRowHeight(row, rowHeights[row]);
         }
+
+        // widgets can depend on the size of their cell (e.g. nested tables), lay these out again if it changed
+        for(int i = 0; i < widgets.size(); i++) {
+            Widget widget = widgets.get(i);
+            if(widget.parentCell.w != cellSizes[2*i] || widget.parentCell.h != cellSizes[2*i+1]) {
+                widget.invalidate();
+                widget.pack();
+            }
+        }
     }
 
     private int getPreferredColWidth(int col){
@@ -2,9 +2,12 @@ package com.monstrous.scene2d;
 
 import com.monstrous.graphics.BitmapFont;
 import com.monstrous.graphics.Color;
+import com.monstrous.graphics.GlyphLayout;
 import com.monstrous.graphics.g2d.SpriteBatch;
 import com.monstrous.utils.Disposable;
 
+import java.util.Objects;
+
 public class TextButton extends Button implements Disposable {
 
     private String text;
@@ -12,6 +15,7 @@ public class TextButton extends Button implements Disposable {
     private int tx, ty;
     private int textAlignment;
     private int textPad;
+    private final GlyphLayout layout = new GlyphLayout();
 
     public static class Style {
         public Color fontColor;
@@ -22,19 +26,24 @@ public class TextButton extends Button implements Disposable {
     public TextButton(String text, Style style ) {
         this.text = text;
         this.style = style;
+        layout.setText(style.font, text);
         setColor( style.bgColor );
         textAlignment = Align.center;
         textPad = 10;
     }
 
     public void setText(String text){
+        if(Objects.equals(text, this.text))
+            return;
         this.text = text;
+        layout.setText(style.font, text == null ? "" : text);
+        invalidateHierarchy();      // the button grows to fit the text
     }
 
     @Override
     public void setPosition(){
         super.setPosition();
-        float textWidth = style.font.width(text);
+        float textWidth = layout.width;
         if(w < textWidth + 2*textPad)
             w = (int)textWidth + 2*textPad;
         if(h < style.font.getLineHeight()+2*textPad)
@@ -48,7 +57,7 @@ public class TextButton extends Button implements Disposable {
     public void draw(SpriteBatch batch){
         super.draw(batch);
         batch.setColor(style.fontColor);
-        style.font.draw(batch, text, tx+parentCell.x, ty+parentCell.y);
+        style.font.draw(batch, layout, tx+parentCell.x, ty+parentCell.y);
     }
 
 }
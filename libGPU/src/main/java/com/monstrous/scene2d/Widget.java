@@ -10,7 +10,12 @@ public class Widget {
 
     static public Color debugActorColor = new Color(0, 1, 0, 1);
 
+    /** number of widgets laid out by pack(), for statistics */
+    static public int layoutCount;
+
     private Stage stage;
+    protected Widget parent;        // enclosing table, null for the root
+    private boolean needsLayout = true;
     protected int x, y;   // x, y relative to parentCell
     protected int w, h;     // actual width, height
     protected boolean fillParent;
@@ -27,30 +32,72 @@ public class Widget {
     }
 
     public Widget setPreferredSize(int w, int h){
+        if(w == preferredWidth && h == preferredHeight && w == this.w && h == this.h)
+            return this;
         this.preferredWidth = w;
         this.preferredHeight = h;
         this.w = w;
         this.h = h;
+        invalidateHierarchy();
         return this;
     }
 
     public Widget setMinSize(int w, int h){
+        if(w == minWidth && h == minHeight)
+            return this;
         this.minWidth = w;
         this.minHeight = h;
+        invalidateHierarchy();
         return this;
     }
 
     public Widget setMaxSize(int w, int h){
+        if(w == maxWidth && h == maxHeight)
+            return this;
         this.maxWidth = w;
         this.maxHeight = h;
+        invalidateHierarchy();
         return this;
     }
 
     public Widget setFillParent(boolean fill){
+        if(fill == fillParent)
+            return this;
         this.fillParent = fill;
+        invalidateHierarchy();
         return this;
     }
 
+    public int getWidth(){
+        return w;
+    }
+
+    public int getHeight(){
+        return h;
+    }
+
+    public Widget getParent(){
+        return parent;
+    }
+
+    /** true if the layout of this widget or one of its descendants has to be recomputed */
+    public boolean needsLayout(){
+        return needsLayout;
+    }
+
+    /** mark the layout of this widget as invalid, e.g. because its cell has a new size */
+    public void invalidate(){
+        needsLayout = true;
+    }
+
+    /** mark the layout of this widget and of all its ancestors as invalid, so that the next pack() recomputes it */
+    public void invalidateHierarchy(){
+        needsLayout = true;
+        // ancestors of an invalid widget are already invalid, so we can stop there
+        for(Widget widget = parent; widget != null && !widget.needsLayout; widget = widget.parent)
+            widget.needsLayout = true;
+    }
+
 
     public void setCell( Cell parent ){
         this.parentCell = parent;
@@ -86,7 +133,17 @@ public class Widget {
         return stage;
     }
 
+    /** recompute the layout if it is invalid */
     public void pack(){
+        if(!needsLayout)
+            return;
+        layout();
+        needsLayout = false;
+        layoutCount++;
+    }
+
+    /** compute the size of this widget and the layout of its children, called by pack() */
+    protected void layout(){
 
     }
 
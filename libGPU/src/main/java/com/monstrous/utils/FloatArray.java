@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.utils;
+
+import java.util.Arrays;
+
+/** Growable array of floats, to collect e.g. vertex data without boxing every value as in an ArrayList<Float>.
+ * The backing array is exposed as {@link #items}; only the first {@link #size} entries are valid.
+ */
+public class FloatArray {
+    public float[] items;
+    public int size;
+
+    public FloatArray() {
+        this(64);
+    }
+
+    public FloatArray(int capacity) {
+        items = new float[Math.max(capacity, 1)];
+    }
+
+    public void add(float value) {
+        if (size == items.length)
+            grow(size + 1);
+        items[size++] = value;
+    }
+
+    public void add(float a, float b) {
+        if (size + 2 > items.length)
+            grow(size + 2);
+        items[size++] = a;
+        items[size++] = b;
+    }
+
+    public void add(float a, float b, float c) {
+        if (size + 3 > items.length)
+            grow(size + 3);
+        items[size++] = a;
+        items[size++] = b;
+        items[size++] = c;
+    }
+
+    public void addAll(float[] values, int offset, int count) {
+        if (size + count > items.length)
+            grow(size + count);
+        System.arraycopy(values, offset, items, size, count);
+        size += count;
+    }
+
+    public float get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("index " + index + " >= size " + size);
+        return items[index];
+    }
+
+    public void set(int index, float value) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("index " + index + " >= size " + size);
+        items[index] = value;
+    }
+
+    /** Make room for at least this many more values without further growing. */
+    public void ensureCapacity(int additional) {
+        if (size + additional > items.length)
+            grow(size + additional);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public float[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    private void grow(int minCapacity) {
+        items = Arrays.copyOf(items, Math.max(minCapacity, items.length + (items.length >> 1) + 8));
+    }
+}
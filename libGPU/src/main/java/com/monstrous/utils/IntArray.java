@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.utils;
+
+import java.util.Arrays;
+
+/** Growable array of ints, to collect e.g. index data without boxing every value as in an ArrayList<Integer>.
+ * The backing array is exposed as {@link #items}; only the first {@link #size} entries are valid.
+ */
+public class IntArray {
+    public int[] items;
+    public int size;
+
+    public IntArray() {
+        this(64);
+    }
+
+    public IntArray(int capacity) {
+        items = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int value) {
+        if (size == items.length)
+            grow(size + 1);
+        items[size++] = value;
+    }
+
+    public void add(int a, int b, int c) {
+        if (size + 3 > items.length)
+            grow(size + 3);
+        items[size++] = a;
+        items[size++] = b;
+        items[size++] = c;
+    }
+
+    public int get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("index " + index + " >= size " + size);
+        return items[index];
+    }
+
+    public void set(int index, int value) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("index " + index + " >= size " + size);
+        items[index] = value;
+    }
+
+    /** Make room for at least this many more values without further growing. */
+    public void ensureCapacity(int additional) {
+        if (size + additional > items.length)
+            grow(size + additional);
+    }
+
+    /** Largest value, or -1 if the array is empty. */
+    public int max() {
+        int max = -1;
+        for (int i = 0; i < size; i++)
+            if (items[i] > max)
+                max = items[i];
+        return max;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    private void grow(int minCapacity) {
+        items = Arrays.copyOf(items, Math.max(minCapacity, items.length + (items.length >> 1) + 8));
+    }
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.utils;
+
+import java.util.Arrays;
+
+/** Hash map from int keys to objects, using open addressing with linear probing.
+ * Avoids the boxing of a HashMap<Integer, V> on every lookup. Null values are not supported.
+ */
+public class IntMap<V> {
+    private int[] keys;
+    private Object[] values;        // null marks an empty slot
+    private int mask;
+    private int size;
+
+    public IntMap() {
+        this(32);
+    }
+
+    public IntMap(int initialCapacity) {
+        int capacity = 8;
+        while (capacity < initialCapacity * 2)
+            capacity <<= 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int find(int key) {
+        int i = hash(key) & mask;
+        while (values[i] != null && keys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        return (V) values[find(key)];
+    }
+
+    public boolean containsKey(int key) {
+        return values[find(key)] != null;
+    }
+
+    /** returns the previous value for this key or null */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null)
+            throw new IllegalArgumentException("IntMap: value cannot be null.");
+        int i = find(key);
+        V previous = (V) values[i];
+        if (previous == null) {
+            if (2 * (size + 1) > values.length) {    // keep load factor below 0.5
+                resize(2 * values.length);
+                i = find(key);
+            }
+            keys[i] = key;
+            size++;
+        }
+        values[i] = value;
+        return previous;
+    }
+
+    /** returns the removed value or null */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = find(key);
+        V previous = (V) values[i];
+        if (previous == null)
+            return null;
+        values[i] = null;
+        size--;
+        // move back entries of the same probe sequence, so that lookups do not stop at the hole
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null)
+                break;
+            int home = hash(keys[j]) & mask;
+            // move entry j to the hole if its home slot is not in (i, j]
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = null;
+                i = j;
+            }
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int j = find(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package com.monstrous.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pull parser for UTF-8 encoded JSON. Values are read in document order straight from the bytes, without building
+ * a tree of boxed values. Typical use:
+ *
+ *  reader.beginObject();
+ *  while(reader.hasNext()) {
+ *      switch(reader.nextName()) {
+ *          case "count": count = reader.nextInt(); break;
+ *          default: reader.skipValue();
+ *      }
+ *  }
+ *  reader.endObject();
+ *
+ * Object keys are cached, so repeated keys do not allocate a new String each time.
+ */
+public class JsonReader {
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private final ByteBuffer json;
+    private final int end;
+    private int pos;
+    private byte[] scratch = new byte[64];
+    private final String[] names = new String[256];    // cache of object keys by hash
+    private StringBuilder sb;
+
+    /** Read from the bytes between position and limit of the buffer. The buffer's position is not changed. */
+    public JsonReader(ByteBuffer json) {
+        this.json = json;
+        this.pos = json.position();
+        this.end = json.limit();
+    }
+
+    public JsonReader(byte[] json) {
+        this(ByteBuffer.wrap(json));
+    }
+
+    public JsonReader(String json) {
+        this(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void beginObject() {
+        nextElement();
+        expect('{');
+    }
+
+    public void endObject() {
+        expect('}');
+    }
+
+    public void beginArray() {
+        nextElement();
+        expect('[');
+    }
+
+    public void endArray() {
+        expect(']');
+    }
+
+    /** Returns true if the current object or array has another element. Consumes the separating comma. */
+    public boolean hasNext() {
+        int c = nextElement();
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    /** Read the key of the next object member and its colon. */
+    public String nextName() {
+        nextElement();
+        expect('"');
+        String name = readName();
+        expect(':');
+        return name;
+    }
+
+    /** Returns null for a JSON null. */
+    public String nextString() {
+        int c = nextElement();
+        if(c == 'n') {
+            expectLiteral("null");
+            return null;
+        }
+        expect('"');
+        return readString();
+    }
+
+    public boolean nextBoolean() {
+        int c = nextElement();
+        if(c == 't') {
+            expectLiteral("true");
+            return true;
+        }
+        expectLiteral("false");
+        return false;
+    }
+
+    public int nextInt() {
+        nextElement();
+        int start = pos;
+        boolean negative = peekByte() == '-';
+        if(negative)
+            pos++;
+        long value = 0;
+        int digits = 0;
+        while(pos < end) {
+            int c = json.get(pos);
+            if(c < '0' || c > '9')
+                break;
+            value = value * 10 + (c - '0');
+            digits++;
+            pos++;
+        }
+        if(digits == 0)
+            throw error("number expected");
+        if(pos < end && isNumberPart(json.get(pos))) {    // fraction or exponent, e.g. 1.0 or 1e3
+            pos = start;
+            return (int) nextDouble();
+        }
+        if(digits > 10 || value > (negative ? -(long)Integer.MIN_VALUE : Integer.MAX_VALUE))
+            throw error("integer out of range");
+        return (int)(negative ? -value : value);
+    }
+
+    public float nextFloat() {
+        return (float) nextDouble();
+    }
+
+    public double nextDouble() {
+        nextElement();
+        int start = pos;
+        boolean negative = peekByte() == '-';
+        if(negative)
+            pos++;
+        long mantissa = 0;
+        int digits = 0;         // significant digits in the mantissa
+        int exponent = 0;
+        boolean exact = true;
+        boolean any = false;
+        while(pos < end && isDigit(json.get(pos))) {
+            int d = json.get(pos++) - '0';
+            any = true;
+            if(digits < 18) {
+                mantissa = mantissa * 10 + d;
+                if(mantissa != 0)
+                    digits++;
+            } else {
+                exponent++;
+                exact = false;
+            }
+        }
+        if(pos < end && json.get(pos) == '.') {
+            pos++;
+            while(pos < end && isDigit(json.get(pos))) {
+                int d = json.get(pos++) - '0';
+                any = true;
+                if(digits < 18) {
+                    mantissa = mantissa * 10 + d;
+                    if(mantissa != 0)
+                        digits++;
+                    exponent--;
+                } else
+                    exact = false;
+            }
+        }
+        if(!any)
+            throw error("number expected");
+        if(pos < end && (json.get(pos) == 'e' || json.get(pos) == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if(pos < end && (json.get(pos) == '+' || json.get(pos) == '-'))
+                negativeExponent = json.get(pos++) == '-';
+            int e = 0;
+            while(pos < end && isDigit(json.get(pos))) {
+                if(e < 10000)
+                    e = e * 10 + json.get(pos) - '0';
+                pos++;
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        // mantissa and power of ten are both exact as a double, so the result is correctly rounded
+        if(exact && mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(substring(start, pos - start));
+    }
+
+    /** Skip the next value, including any nested objects and arrays. */
+    public void skipValue() {
+        nextElement();
+        int depth = 0;
+        do {
+            int c = skipWhitespace();
+            switch(c) {
+                case '{':
+                case '[':
+                    depth++;
+                    pos++;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    pos++;
+                    break;
+                case ',':
+                case ':':
+                    pos++;
+                    break;
+                case '"':
+                    pos++;
+                    skipString();
+                    break;
+                case -1:
+                    throw error("unexpected end of input");
+                default:        // number or literal
+                    int start = pos;
+                    while(pos < end && (isNumberPart(json.get(pos)) || Character.isLetter(json.get(pos))))
+                        pos++;
+                    if(pos == start)
+                        throw error("unexpected character");
+            }
+            if(depth > 0)
+                continue;
+            break;
+        } while(true);
+    }
+
+    /** Offset of the next byte to be read. */
+    public int getPosition() {
+        return pos;
+    }
+
+    private String readName() {
+        int start = pos;
+        int hash = 0;
+        while(true) {
+            if(pos >= end)
+                throw error("unterminated string");
+            byte b = json.get(pos);
+            if(b == '"')
+                break;
+            if(b == '\\' || b < 0) {    // escapes or non-ASCII, not cached
+                pos = start;
+                return readString();
+            }
+            hash = 31 * hash + b;
+            pos++;
+        }
+        int length = pos - start;
+        pos++;
+        int slot = (hash ^ (hash >>> 8)) & (names.length - 1);
+        String name = names[slot];
+        if(name == null || !matches(name, start, length)) {
+            name = substring(start, length);
+            names[slot] = name;
+        }
+        return name;
+    }
+
+    // reads from pos, just after the opening quote
+    private String readString() {
+        int start = pos;
+        while(true) {       // fast path: plain ASCII
+            if(pos >= end)
+                throw error("unterminated string");
+            byte b = json.get(pos);
+            if(b == '"') {
+                pos++;
+                return substring(start, pos - 1 - start);
+            }
+            if(b == '\\' || b < 0)
+                break;
+            pos++;
+        }
+        if(sb == null)
+            sb = new StringBuilder();
+        sb.setLength(0);
+        for(int i = start; i < pos; i++)
+            sb.append((char) json.get(i));
+        while(true) {
+            if(pos >= end)
+                throw error("unterminated string");
+            int b = json.get(pos++);
+            if(b == '"')
+                return sb.toString();
+            if(b == '\\')
+                readEscape();
+            else if(b >= 0)
+                sb.append((char) b);
+            else
+                readMultiByte(b);
+        }
+    }
+
+    private void readEscape() {
+        if(pos >= end)
+            throw error("unterminated string");
+        int c = json.get(pos++);
+        switch(c) {
+            case '"': sb.append('"'); break;
+            case '\\': sb.append('\\'); break;
+            case '/': sb.append('/'); break;
+            case 'b': sb.append('\b'); break;
+            case 'f': sb.append('\f'); break;
+            case 'n': sb.append('\n'); break;
+            case 'r': sb.append('\r'); break;
+            case 't': sb.append('\t'); break;
+            case 'u':
+                if(pos + 4 > end)
+                    throw error("invalid unicode escape");
+                int value = 0;
+                for(int i = 0; i < 4; i++) {
+                    int digit = Character.digit(json.get(pos++), 16);
+                    if(digit < 0)
+                        throw error("invalid unicode escape");
+                    value = (value << 4) | digit;
+                }
+                sb.append((char) value);
+                break;
+            default:
+                throw error("invalid escape");
+        }
+    }
+
+    // decode a UTF-8 sequence of which the first byte b has already been read
+    private void readMultiByte(int b) {
+        int extra;
+        int codePoint;
+        if((b & 0xE0) == 0xC0) {
+            extra = 1;
+            codePoint = b & 0x1F;
+        } else if((b & 0xF0) == 0xE0) {
+            extra = 2;
+            codePoint = b & 0x0F;
+        } else if((b & 0xF8) == 0xF0) {
+            extra = 3;
+            codePoint = b & 0x07;
+        } else
+            throw error("invalid UTF-8");
+        if(pos + extra > end)
+            throw error("invalid UTF-8");
+        for(int i = 0; i < extra; i++)
+            codePoint = (codePoint << 6) | (json.get(pos++) & 0x3F);
+        sb.appendCodePoint(codePoint);
+    }
+
+    private void skipString() {
+        while(pos < end) {
+            byte b = json.get(pos++);
+            if(b == '\\')
+                pos++;
+            else if(b == '"')
+                return;
+        }
+        throw error("unterminated string");
+    }
+
+    private boolean matches(String name, int start, int length) {
+        if(name.length() != length)
+            return false;
+        for(int i = 0; i < length; i++)
+            if(name.charAt(i) != json.get(start + i))
+                return false;
+        return true;
+    }
+
+    // ASCII bytes to String
+    private String substring(int start, int length) {
+        if(scratch.length < length)
+            scratch = new byte[Math.max(length, 2 * scratch.length)];
+        for(int i = 0; i < length; i++)
+            scratch[i] = json.get(start + i);
+        return new String(scratch, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private void expect(char c) {
+        if(skipWhitespace() != c)
+            throw error("'" + c + "' expected");
+        pos++;
+    }
+
+    private void expectLiteral(String literal) {
+        if(!matches(literal, pos, Math.min(literal.length(), end - pos)))
+            throw error(literal + " expected");
+        pos += literal.length();
+    }
+
+    // skips whitespace and the comma before the next array element or object member, returns the next byte
+    private int nextElement() {
+        int c = skipWhitespace();
+        if(c == ',') {
+            pos++;
+            c = skipWhitespace();
+        }
+        return c;
+    }
+
+    // returns the next byte without consuming it, or -1 at the end of the input
+    private int skipWhitespace() {
+        while(pos < end) {
+            byte b = json.get(pos);
+            if(b != ' ' && b != '\n' && b != '\r' && b != '\t')
+                return b;
+            pos++;
+        }
+        return -1;
+    }
+
+    private int peekByte() {
+        return pos < end ? json.get(pos) : -1;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isNumberPart(byte b) {
+        return isDigit(b) || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-';
+    }
+
+    private RuntimeException error(String message) {
+        return new RuntimeException("JSON: " + message + " at offset " + (pos - json.position()));
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.utils;
+
+import java.util.Arrays;
+
+/** Hash map from long keys to int values, using open addressing with linear probing.
+ * Avoids boxing of keys and values, e.g. for kerning tables keyed on a pair of characters.
+ */
+public class LongIntMap {
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    public LongIntMap() {
+        this(32);
+    }
+
+    public LongIntMap(int initialCapacity) {
+        int capacity = 8;
+        while (capacity < initialCapacity * 2)
+            capacity <<= 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int find(long key) {
+        int i = hash(key) & mask;
+        while (used[i] && keys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    /** returns the value for this key or defaultValue if the key is not present */
+    public int get(long key, int defaultValue) {
+        int i = find(key);
+        return used[i] ? values[i] : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return used[find(key)];
+    }
+
+    public void put(long key, int value) {
+        int i = find(key);
+        if (!used[i]) {
+            if (2 * (size + 1) > used.length) {      // keep load factor below 0.5
+                resize(2 * used.length);
+                i = find(key);
+            }
+            keys[i] = key;
+            used[i] = true;
+            size++;
+        }
+        values[i] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int j = find(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+                used[j] = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright 2025 Monstrous Software.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.monstrous.utils;
+
+import java.util.Arrays;
+
+/** Stable LSD radix sort of 64-bit keys with an int value per key (e.g. an index), in unsigned key order.
+ *
+ * Sorts one byte per pass and skips passes where all keys have the same byte value, which is common for sort keys
+ * where the high bits rarely change. The work arrays are kept, so there are no allocations once they have grown to size.
+ * Not thread safe.
+ */
+public class RadixSort {
+    private long[] tmpKeys = new long[0];
+    private int[] tmpValues = new int[0];
+    private final int[] counts = new int[8 * 256];
+
+    /** sort the first count keys and apply the same permutation to values. */
+    public void sort(long[] keys, int[] values, int count){
+        if(count < 2)
+            return;
+        if(tmpKeys.length < count){
+            tmpKeys = new long[count];
+            tmpValues = new int[count];
+        }
+
+        // histogram of all 8 bytes in a single pass over the keys
+        Arrays.fill(counts, 0);
+        for(int i = 0; i < count; i++){
+            long key = keys[i];
+            for(int b = 0; b < 8; b++)
+                counts[(b << 8) | (int)((key >>> (b << 3)) & 0xFF)]++;
+        }
+
+        long[] srcKeys = keys;
+        int[] srcValues = values;
+        long[] dstKeys = tmpKeys;
+        int[] dstValues = tmpValues;
+        for(int b = 0; b < 8; b++){
+            int base = b << 8;
+            int shift = b << 3;
+            // skip this byte if it is the same for all keys
+            if(counts[base + (int)((srcKeys[0] >>> shift) & 0xFF)] == count)
+                continue;
+
+            // convert counts to start offsets
+            int offset = 0;
+            for(int i = 0; i < 256; i++){
+                int c = counts[base + i];
+                counts[base + i] = offset;
+                offset += c;
+            }
+            for(int i = 0; i < count; i++){
+                long key = srcKeys[i];
+                int pos = counts[base + (int)((key >>> shift) & 0xFF)]++;
+                dstKeys[pos] = key;
+                dstValues[pos] = srcValues[i];
+            }
+            long[] k = srcKeys; srcKeys = dstKeys; dstKeys = k;
+            int[] v = srcValues; srcValues = dstValues; dstValues = v;
+        }
+        // after an odd number of passes the result is in the work arrays
+        if(srcKeys != keys){
+            System.arraycopy(srcKeys, 0, keys, 0, count);
+            System.arraycopy(srcValues, 0, values, 0, count);
+        }
+    }
+}
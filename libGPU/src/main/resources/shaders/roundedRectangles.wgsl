@@ -2,19 +2,24 @@
 
 struct Uniforms {
     projectionMatrix: mat4x4f,
+    screenSize: vec2f,
+};
+
+// per-instance record, see RoundedRectangleInstances
+struct Rect {
+    rect: vec4f,        // x, y, width, height
+    dropShadow: vec2f,
+    radius: f32,
+    color: u32,         // packed ABGR
 };
 
 
 @group(0) @binding(0) var<uniform> uniforms: Uniforms;
+@group(0) @binding(1) var<storage, read> rects: array<Rect>;
 
 struct VertexInput {
-    @location(0) position: vec2f,
-    @location(1) color: vec4f,
-    @location(2) center: vec2f,
-    @location(3) size: vec2f,
-    @location(4) radius: vec2f, // only uses x component
-    @location(5) dropShadow: vec2f,
-
+    @location(0) corner: vec2f,         // (0,0), (0,1), (1,1) or (1,0)
+    @builtin(instance_index) instance: u32,
 };
 
 struct VertexOutput {
@@ -31,12 +36,16 @@ struct VertexOutput {
 fn vs_main(in: VertexInput) -> VertexOutput {
    var out: VertexOutput;
 
-   out.position =  uniforms.projectionMatrix * vec4f(in.position, 0.0, 1.0);
-   out.center = in.center; //uniforms.projectionMatrix * vec4f(in.center, 0.0, 1.0);
-   out.size = in.size;
-   out.radius = in.radius;
-   out.color = in.color;
-   out.dropShadow = in.dropShadow;
+   let r = rects[in.instance];
+   let position = r.rect.xy + in.corner * r.rect.zw;
+   let center = r.rect.xy + 0.5 * r.rect.zw;
+
+   out.position =  uniforms.projectionMatrix * vec4f(position, 0.0, 1.0);
+   out.center = vec2f(center.x, uniforms.screenSize.y - center.y);  // in framebuffer coordinates, y down
+   out.size = r.rect.zw;
+   out.radius = vec2f(r.radius, 0.0);
+   out.color = unpack4x8unorm(r.color);
+   out.dropShadow = r.dropShadow;
 
    return out;
 }
@@ -74,4 +83,4 @@ fn fs_main(in : VertexOutput) -> @location(0) vec4f {
     var color = in.color;
     color.a *= alpha;
     return vec4f(color);
-}
\ No newline at end of file
+}
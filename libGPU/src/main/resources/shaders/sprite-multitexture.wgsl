@@ -0,0 +1,72 @@
+// Sprite shader for SpriteBatch in multi-texture mode.
+// Each vertex carries the index of the texture slot to sample from, so that sprites
+// using different textures can be drawn in the same draw call.
+
+struct Uniforms {
+    projectionMatrix: mat4x4f,
+};
+
+@group(0) @binding(0) var<uniform> uniforms: Uniforms;
+@group(0) @binding(1) var texture0: texture_2d<f32>;
+@group(0) @binding(2) var texture1: texture_2d<f32>;
+@group(0) @binding(3) var texture2: texture_2d<f32>;
+@group(0) @binding(4) var texture3: texture_2d<f32>;
+@group(0) @binding(5) var texture4: texture_2d<f32>;
+@group(0) @binding(6) var texture5: texture_2d<f32>;
+@group(0) @binding(7) var texture6: texture_2d<f32>;
+@group(0) @binding(8) var texture7: texture_2d<f32>;
+@group(0) @binding(9) var sampler0: sampler;
+@group(0) @binding(10) var sampler1: sampler;
+@group(0) @binding(11) var sampler2: sampler;
+@group(0) @binding(12) var sampler3: sampler;
+@group(0) @binding(13) var sampler4: sampler;
+@group(0) @binding(14) var sampler5: sampler;
+@group(0) @binding(15) var sampler6: sampler;
+@group(0) @binding(16) var sampler7: sampler;
+
+
+struct VertexInput {
+    @location(0) position: vec2f,
+    @location(1) uv: vec2f,
+    @location(2) slot: f32,
+    @location(5) color: vec4f,
+};
+
+struct VertexOutput {
+    @builtin(position) position: vec4f,
+    @location(0) uv : vec2f,
+    @location(1) color: vec4f,
+    @location(2) @interpolate(flat) slot: u32,
+};
+
+
+@vertex
+fn vs_main(in: VertexInput) -> VertexOutput {
+   var out: VertexOutput;
+
+   out.position = uniforms.projectionMatrix * vec4f(in.position, 0.0, 1.0);
+   out.uv = in.uv;
+   out.color = in.color;
+   out.slot = u32(in.slot + 0.5);
+   return out;
+}
+
+@fragment
+fn fs_main(in : VertexOutput) -> @location(0) vec4f {
+    // derivatives are only defined in uniform control flow, so take them before branching on the slot
+    let ddx = dpdx(in.uv);
+    let ddy = dpdy(in.uv);
+
+    var texColor: vec4f;
+    switch in.slot {
+        case 0u: { texColor = textureSampleGrad(texture0, sampler0, in.uv, ddx, ddy); }
+        case 1u: { texColor = textureSampleGrad(texture1, sampler1, in.uv, ddx, ddy); }
+        case 2u: { texColor = textureSampleGrad(texture2, sampler2, in.uv, ddx, ddy); }
+        case 3u: { texColor = textureSampleGrad(texture3, sampler3, in.uv, ddx, ddy); }
+        case 4u: { texColor = textureSampleGrad(texture4, sampler4, in.uv, ddx, ddy); }
+        case 5u: { texColor = textureSampleGrad(texture5, sampler5, in.uv, ddx, ddy); }
+        case 6u: { texColor = textureSampleGrad(texture6, sampler6, in.uv, ddx, ddy); }
+        default: { texColor = textureSampleGrad(texture7, sampler7, in.uv, ddx, ddy); }
+    }
+    return in.color * texColor;
+}
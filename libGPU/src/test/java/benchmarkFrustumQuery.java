@@ -0,0 +1,58 @@
+import com.monstrous.graphics.PerspectiveCamera;
+import com.monstrous.graphics.g3d.BoundingBox;
+import com.monstrous.graphics.g3d.BoundingVolumeHierarchy;
+import com.monstrous.math.Vector3;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/** Timing harness to compare a linear frustum test against a BVH query, for 10k, 100k and 1M instances.
+ * Not a unit test: run main() directly. */
+public class benchmarkFrustumQuery {
+
+    public static void main(String[] args) {
+        PerspectiveCamera camera = new PerspectiveCamera(70, 1280, 720);
+        camera.position.set(0, 5, 0);
+        camera.direction.set(0.5f, -0.1f, 1f).nor();
+        camera.far = 300f;
+        camera.update();
+
+        for(int n : new int[] { 10_000, 100_000, 1_000_000 }) {
+            Random random = new Random(42);
+            float extent = (float)Math.sqrt(n) * 2f;     // constant density
+            ArrayList<BoundingBox> boxes = new ArrayList<>(n);
+            BoundingVolumeHierarchy<BoundingBox> bvh = new BoundingVolumeHierarchy<>();
+            for(int i = 0; i < n; i++){
+                float x = (random.nextFloat()-0.5f)*extent;
+                float z = (random.nextFloat()-0.5f)*extent;
+                BoundingBox box = new BoundingBox();
+                box.set(new Vector3(x, 0, z), new Vector3(x+1, 1, z+1));
+                boxes.add(box);
+                bvh.add(box, box);
+            }
+
+            ArrayList<BoundingBox> visible = new ArrayList<>(n);
+            int iterations = Math.max(10, 10_000_000 / n);
+            long linear = 0, tree = 0;
+            for(int pass = 0; pass < 2; pass++) {      // first pass is warm-up
+                long start = System.nanoTime();
+                for (int it = 0; it < iterations; it++) {
+                    visible.clear();
+                    for (BoundingBox box : boxes)
+                        if (camera.frustum.boundsInFrustum(box))
+                            visible.add(box);
+                }
+                linear = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int it = 0; it < iterations; it++) {
+                    visible.clear();
+                    bvh.query(camera.frustum, visible);
+                }
+                tree = System.nanoTime() - start;
+            }
+            System.out.printf("instances: %d visible: %d  linear: %.3f ms  bvh: %.3f ms  (nodes visited: %d, height: %d)%n",
+                    n, visible.size(), linear/1e6/iterations, tree/1e6/iterations, bvh.nodesVisited, bvh.getHeight());
+        }
+    }
+}
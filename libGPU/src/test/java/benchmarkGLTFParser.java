@@ -0,0 +1,71 @@
+import com.monstrous.graphics.loaders.GLTF;
+import com.monstrous.graphics.loaders.GLTFParser;
+import org.json.simple.JSONValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/** Timing harness comparing the streaming glTF parser with building a json-simple DOM of the same file (what the
+ * parser used to do before walking the tree), for each .gltf file in the models folder.
+ * Reports time and bytes allocated per parse. Not a unit test: run main() directly, optionally with the models folder
+ * as argument (default ../assets/models). */
+public class benchmarkGLTFParser {
+
+    public static void main(String[] args) throws IOException {
+        File folder = new File(args.length > 0 ? args[0] : "../assets/models");
+        java.util.ArrayList<File> files = new java.util.ArrayList<>();
+        collect(folder, files);
+        if(files.isEmpty())
+            throw new RuntimeException("No .gltf files found in "+folder.getAbsolutePath());
+
+        for(File file : files) {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            int iterations = Math.max(5, 20_000_000 / bytes.length);
+            long domTime = 0, streamTime = 0, domBytes = 0, streamBytes = 0;
+            for(int pass = 0; pass < 2; pass++) {      // first pass is warm-up
+                long allocated = allocatedBytes();
+                long start = System.nanoTime();
+                for (int it = 0; it < iterations; it++) {
+                    String contents = new String(bytes, StandardCharsets.UTF_8);
+                    if(JSONValue.parse(contents) == null)
+                        throw new RuntimeException("parse failed");
+                }
+                domTime = System.nanoTime() - start;
+                domBytes = allocatedBytes() - allocated;
+
+                allocated = allocatedBytes();
+                start = System.nanoTime();
+                for (int it = 0; it < iterations; it++) {
+                    GLTF gltf = GLTFParser.parseJSON(ByteBuffer.wrap(bytes), "");
+                    if(gltf.accessors.isEmpty())
+                        throw new RuntimeException("parse failed");
+                }
+                streamTime = System.nanoTime() - start;
+                streamBytes = allocatedBytes() - allocated;
+            }
+            System.out.printf("%-24s %7d KB  json-simple DOM: %8.3f ms %9d KB   streaming: %8.3f ms %9d KB%n",
+                    file.getName(), bytes.length / 1024,
+                    domTime/1e6/iterations, domBytes/1024/iterations, streamTime/1e6/iterations, streamBytes/1024/iterations);
+        }
+    }
+
+    private static void collect(File folder, java.util.ArrayList<File> files) {
+        File[] list = folder.listFiles();
+        if(list == null)
+            return;
+        for(File file : list) {
+            if(file.isDirectory())
+                collect(file, files);
+            else if(file.getName().endsWith(".gltf"))
+                files.add(file);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,70 @@
+import com.monstrous.jlay.Box;
+import com.monstrous.jlay.Group;
+import com.monstrous.jlay.Widget;
+
+/** Timing harness for the JLay layout of a tree of about 10k widgets: a full layout, a layout after changing one
+ * leaf and a layout of an unchanged tree (which should cost next to nothing).
+ * Not a unit test: run main() directly. */
+public class benchmarkJLayLayout {
+    static final int COLUMNS = 20;
+    static final int ROWS = 20;
+    static final int BOXES = 24;
+
+    public static void main(String[] args) {
+        Group root = new Group();
+        root.setSize(Widget.GROW, Widget.GROW);
+        root.setPadding(4);
+        root.setGap(4);
+        Box leaf = null;
+        int count = 1;
+        for(int c = 0; c < COLUMNS; c++) {
+            Group column = new Group();
+            column.setVertical();
+            column.setSize(90, Widget.GROW);
+            column.setGap(2);
+            root.add(column);
+            count++;
+            for(int r = 0; r < ROWS; r++) {
+                Group row = new Group();
+                row.setSize(Widget.FIT, Widget.FIT);
+                row.setPadding(1);
+                row.setGap(1);
+                column.add(row);
+                count++;
+                for(int b = 0; b < BOXES; b++) {
+                    Box box = new Box();
+                    box.setSize(3 + (b % 3), 20);
+                    box.setMinimumSize(2, 20);     // rows are too wide for their column and have to shrink
+                    row.add(box);
+                    leaf = box;
+                    count++;
+                }
+            }
+        }
+
+        int iterations = 200;
+        long full = 0, changed = 0, unchanged = 0;
+        for(int pass = 0; pass < 2; pass++) {      // first pass is warm-up
+            long start = System.nanoTime();
+            for (int it = 0; it < iterations; it++) {
+                root.invalidate();
+                root.layout(1920, 1080);
+            }
+            full = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int it = 0; it < iterations; it++) {
+                leaf.setSize(3 + (it & 1), 20);
+                root.layout(1920, 1080);
+            }
+            changed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int it = 0; it < iterations; it++)
+                root.layout(1920, 1080);
+            unchanged = System.nanoTime() - start;
+        }
+        System.out.printf("widgets: %d  full: %.3f ms  one leaf changed: %.3f ms  unchanged: %.3f ms%n",
+                count, full/1e6/iterations, changed/1e6/iterations, unchanged/1e6/iterations);
+    }
+}
@@ -0,0 +1,208 @@
+import com.monstrous.assets.AssetDescriptor;
+import com.monstrous.assets.AssetLoader;
+import com.monstrous.assets.AssetManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class testAssetManager {
+
+    static class Part {
+        String name;
+        boolean disposed;
+    }
+
+    static class Assembly {
+        Part part;
+        boolean disposed;
+    }
+
+    // fake loaders: "decode" happens directly in load(), "upload" logs the order
+    static class PartLoader implements AssetLoader<Part, String> {
+        List<String> uploads = new ArrayList<>();
+        int uploadMillis;
+
+        @Override
+        public String decode(String fileName) {
+            if(fileName.startsWith("missing"))
+                throw new RuntimeException("file not found: "+fileName);
+            return fileName;
+        }
+
+        @Override
+        public Part upload(AssetManager manager, String fileName, String data) {
+            if(fileName.startsWith("broken"))
+                throw new RuntimeException("upload failed: "+fileName);
+            uploads.add(fileName);
+            if(uploadMillis > 0) {
+                long end = System.nanoTime() + uploadMillis * 1_000_000L;
+                while (System.nanoTime() < end) ;
+            }
+            Part part = new Part();
+            part.name = data;
+            return part;
+        }
+
+        @Override
+        public void unload(Part part) {
+            part.disposed = true;
+        }
+    }
+
+    // an assembly file "a:b" depends on part "b"
+    static class AssemblyLoader implements AssetLoader<Assembly, String> {
+        List<String> uploads;
+
+        AssemblyLoader(List<String> uploads) {
+            this.uploads = uploads;
+        }
+
+        @Override
+        public String decode(String fileName) {
+            return fileName.substring(fileName.indexOf(':') + 1);
+        }
+
+        @Override
+        public List<AssetDescriptor<?>> getDependencies(String fileName, String partName) {
+            return Collections.singletonList(new AssetDescriptor<>(partName, Part.class));
+        }
+
+        @Override
+        public Assembly upload(AssetManager manager, String fileName, String partName) {
+            uploads.add(fileName);
+            Assembly assembly = new Assembly();
+            assembly.part = manager.get(partName, Part.class);
+            return assembly;
+        }
+
+        @Override
+        public void unload(Assembly assembly) {
+            assembly.disposed = true;
+        }
+    }
+
+    private PartLoader parts;
+
+    private AssetManager createManager() {
+        AssetManager manager = new AssetManager(Runnable::run);
+        parts = new PartLoader();
+        manager.setLoader(Part.class, parts);
+        manager.setLoader(Assembly.class, new AssemblyLoader(parts.uploads));
+        return manager;
+    }
+
+    @Test
+    public void uploadsDependenciesFirst() {
+        AssetManager manager = createManager();
+        manager.load("car:wheel", Assembly.class);
+        assertEquals(0f, manager.getProgress(), 0f);
+        manager.finishLoading();
+
+        assertEquals(List.of("wheel", "car:wheel"), parts.uploads);
+        assertEquals(1f, manager.getProgress(), 0f);
+        Assembly car = manager.get("car:wheel", Assembly.class);
+        assertSame(manager.get("wheel", Part.class), car.part);
+    }
+
+    @Test
+    public void sharedAssetsAreReferenceCounted() {
+        AssetManager manager = createManager();
+        manager.load("car:wheel", Assembly.class);
+        manager.load("bike:wheel", Assembly.class);
+        manager.load("wheel", Part.class);
+        manager.finishLoading();
+
+        assertEquals(List.of("wheel", "car:wheel", "bike:wheel"), parts.uploads);
+        assertEquals(3, manager.getReferenceCount("wheel"));
+        Part wheel = manager.get("wheel", Part.class);
+        Assembly car = manager.get("car:wheel", Assembly.class);
+
+        manager.unload("car:wheel");
+        assertTrue(car.disposed);
+        assertFalse(manager.isLoaded("car:wheel"));
+        manager.unload("wheel");
+        assertFalse(wheel.disposed);
+        manager.unload("bike:wheel");
+        assertTrue(wheel.disposed);
+        assertFalse(manager.isLoaded("wheel"));
+    }
+
+    @Test
+    public void uploadsAreLimitedByTheBudget() {
+        AssetManager manager = createManager();
+        parts.uploadMillis = 5;
+        for(int i = 0; i < 4; i++)
+            manager.load("part"+i, Part.class);
+
+        assertFalse(manager.update(1));
+        assertEquals(1, manager.uploadsInLastUpdate);
+        assertEquals(0.25f, manager.getProgress(), 0f);
+        manager.finishLoading();
+        assertEquals(4, parts.uploads.size());
+        assertEquals(1f, manager.getProgress(), 0f);
+    }
+
+    @Test
+    public void decodeErrorsAreReported() {
+        AssetManager manager = createManager();
+        manager.load("missing", Part.class);
+        try {
+            manager.update();
+            fail("expected an exception");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("missing"));
+            assertEquals("file not found: missing", e.getCause().getMessage());
+        }
+        assertFalse(manager.isLoaded("missing"));
+        assertTrue(manager.isFinished());
+    }
+
+    @Test
+    public void failedDependenciesFailTheirDependents() {
+        AssetManager manager = createManager();
+        manager.load("car:missing", Assembly.class);
+        try {
+            manager.update();
+            fail("expected an exception");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("missing"));
+        }
+        assertTrue(manager.isFinished());
+        assertEquals(1f, manager.getProgress(), 0f);
+        manager.finishLoading();
+        assertFalse(manager.isLoaded("car:missing"));
+        try {
+            manager.get("car:missing", Assembly.class);
+            fail("expected an exception");
+        } catch (RuntimeException e) {
+            assertEquals("file not found: missing", e.getCause().getCause().getMessage());
+        }
+
+        // the failed assets keep their references until they are unloaded
+        assertEquals(1, manager.getReferenceCount("missing"));
+        manager.unload("car:missing");
+        assertEquals(0, manager.getReferenceCount("missing"));
+    }
+
+    @Test
+    public void uploadErrorsAreReported() {
+        AssetManager manager = createManager();
+        manager.load("car:broken", Assembly.class);
+        manager.load("wheel", Part.class);
+        try {
+            manager.finishLoading();
+            fail("expected an exception");
+        } catch (RuntimeException e) {
+            assertEquals("upload failed: broken", e.getCause().getMessage());
+        }
+        manager.finishLoading();
+        assertTrue(manager.isLoaded("wheel"));
+        assertFalse(manager.isLoaded("car:broken"));
+        manager.unload("car:broken");
+        assertEquals(0, manager.getReferenceCount("broken"));
+    }
+}
@@ -0,0 +1,93 @@
+import com.monstrous.graphics.PerspectiveCamera;
+import com.monstrous.graphics.g3d.BoundingBox;
+import com.monstrous.graphics.g3d.BoundingVolumeHierarchy;
+import com.monstrous.math.Vector3;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+public class testBoundingVolumeHierarchy {
+
+    private static BoundingBox box(float x, float y, float z, float size){
+        BoundingBox box = new BoundingBox();
+        box.set(new Vector3(x, y, z), new Vector3(x+size, y+size, z+size));
+        return box;
+    }
+
+    private static PerspectiveCamera camera(){
+        PerspectiveCamera camera = new PerspectiveCamera(70, 640, 480);
+        camera.position.set(0, 1, -3);
+        camera.direction.set(0.3f, 0, 1f).nor();
+        camera.far = 100f;
+        camera.update();
+        return camera;
+    }
+
+    @Test
+    public void queryMatchesLinearScan() {
+        PerspectiveCamera camera = camera();
+        Random random = new Random(1234);
+        BoundingVolumeHierarchy<Integer> bvh = new BoundingVolumeHierarchy<>(0f);
+        ArrayList<BoundingBox> boxes = new ArrayList<>();
+        for(int i = 0; i < 5000; i++){
+            BoundingBox b = box(random.nextFloat()*400-200, random.nextFloat()*20-10, random.nextFloat()*400-200, 1+random.nextFloat());
+            boxes.add(b);
+            bvh.add(i, b);
+        }
+        assertEquals(5000, bvh.size());
+        assertTrue(bvh.getHeight() < 30);
+
+        HashSet<Integer> expected = new HashSet<>();
+        for(int i = 0; i < boxes.size(); i++)
+            if(camera.frustum.boundsInFrustum(boxes.get(i)))
+                expected.add(i);
+
+        ArrayList<Integer> result = new ArrayList<>();
+        int count = bvh.query(camera.frustum, result);
+        assertEquals(result.size(), count);
+        assertEquals(expected, new HashSet<>(result));
+        assertTrue(expected.size() > 0);
+        assertTrue(bvh.nodesVisited < 2*bvh.size());
+    }
+
+    @Test
+    public void removeAndMove() {
+        PerspectiveCamera camera = camera();
+        BoundingVolumeHierarchy<String> bvh = new BoundingVolumeHierarchy<>(0.1f);
+        int a = bvh.add("a", box(0, 0, 10, 1));
+        int b = bvh.add("b", box(0, 0, 20, 1));
+        int c = bvh.add("c", box(0, 0, -50, 1));      // behind the camera
+        assertEquals("b", bvh.get(b));
+
+        ArrayList<String> result = new ArrayList<>();
+        bvh.query(camera.frustum, result);
+        assertEquals(new HashSet<>(java.util.List.of("a", "b")), new HashSet<>(result));
+
+        // a small move stays within the margin
+        assertFalse(bvh.move(a, box(0.05f, 0, 10, 1)));
+        // move c into view
+        assertTrue(bvh.move(c, box(0, 0, 30, 1)));
+        bvh.remove(a);
+        assertEquals(2, bvh.size());
+
+        result.clear();
+        bvh.query(camera.frustum, result);
+        assertEquals(new HashSet<>(java.util.List.of("b", "c")), new HashSet<>(result));
+
+        bvh.clear();
+        assertEquals(0, bvh.size());
+        assertEquals(0, bvh.query(camera.frustum, result));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void removeInvalidId() {
+        BoundingVolumeHierarchy<String> bvh = new BoundingVolumeHierarchy<>();
+        int a = bvh.add("a", box(0, 0, 0, 1));
+        bvh.remove(a);
+        bvh.remove(a);
+    }
+}
@@ -0,0 +1,184 @@
+import com.monstrous.graphics.g2d.CachedSprites;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class testCachedSprites {
+
+    // records the uploads instead of writing to the GPU
+    static class RecordingUploader implements CachedSprites.Uploader {
+        final ArrayList<int[]> writes = new ArrayList<>();      // offset, size
+        final ArrayList<float[]> data = new ArrayList<>();
+        final ArrayList<ByteBuffer> buffers = new ArrayList<>();
+
+        @Override
+        public void write(int offset, ByteBuffer data, int size) {
+            writes.add(new int[] {offset, size});
+            FloatBuffer floats = data.asFloatBuffer();
+            float[] copy = new float[size / Float.BYTES];
+            floats.get(copy);
+            this.data.add(copy);
+            buffers.add(data);
+        }
+    }
+
+    // a sprite whose vertices are all set to the id, so that it can be recognized after grouping
+    private static float[] sprite(float id) {
+        float[] vertices = new float[CachedSprites.SPRITE_FLOATS];
+        Arrays.fill(vertices, id);
+        return vertices;
+    }
+
+    // ids of the uploaded sprites, in vertex buffer order
+    private static float[] ids(float[] data) {
+        float[] ids = new float[data.length / CachedSprites.SPRITE_FLOATS];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = data[i * CachedSprites.SPRITE_FLOATS];
+        return ids;
+    }
+
+    @Test
+    public void groupsPerTexture() {
+        CachedSprites<String> sprites = new CachedSprites<>(100);
+        sprites.beginCache();
+        sprites.add("a", sprite(0));
+        sprites.add("b", sprite(1));
+        sprites.add("a", sprite(2));
+        sprites.add("c", sprite(3));
+        sprites.add("b", sprite(4));
+        int id = sprites.endCache();
+
+        assertEquals(5, sprites.getCount(id));
+        assertEquals(3, sprites.getNumGroups(id));
+        // textures in the order they were first added
+        assertEquals("a", sprites.getTexture(id, 0));
+        assertEquals("b", sprites.getTexture(id, 1));
+        assertEquals("c", sprites.getTexture(id, 2));
+        assertEquals(2, sprites.getGroupCount(id, 0));
+        assertEquals(2, sprites.getGroupCount(id, 1));
+        assertEquals(1, sprites.getGroupCount(id, 2));
+
+        // a new cache is uploaded as a whole, its sprites sorted per texture
+        RecordingUploader uploader = new RecordingUploader();
+        assertEquals(5 * CachedSprites.SPRITE_BYTES, sprites.upload(uploader));
+        assertEquals(1, uploader.writes.size());
+        assertArrayEquals(new int[] {0, 5 * CachedSprites.SPRITE_BYTES}, uploader.writes.get(0));
+        assertArrayEquals(new float[] {0, 2, 1, 4, 3}, ids(uploader.data.get(0)), 0f);
+    }
+
+    @Test
+    public void cachesFollowEachOther() {
+        CachedSprites<String> sprites = new CachedSprites<>(100);
+        sprites.beginCache();
+        sprites.add("a", sprite(0));
+        sprites.add("a", sprite(1));
+        int first = sprites.endCache();
+        sprites.beginCache();
+        sprites.add("b", sprite(2));
+        int second = sprites.endCache();
+
+        assertEquals(0, sprites.getOffset(first));
+        assertEquals(2, sprites.getOffset(second));
+        RecordingUploader uploader = new RecordingUploader();
+        sprites.upload(uploader);
+        assertEquals(2, uploader.writes.size());
+        assertArrayEquals(new int[] {2 * CachedSprites.SPRITE_BYTES, CachedSprites.SPRITE_BYTES}, uploader.writes.get(1));
+    }
+
+    @Test
+    public void uploadsOnlyChangedRange() {
+        CachedSprites<String> sprites = new CachedSprites<>(100);
+        sprites.beginCache();
+        sprites.add("a", sprite(0));
+        sprites.add("b", sprite(1));
+        sprites.add("a", sprite(2));
+        sprites.add("b", sprite(3));
+        int id = sprites.endCache();
+        RecordingUploader uploader = new RecordingUploader();
+        sprites.upload(uploader);
+
+        // nothing changed
+        uploader = new RecordingUploader();
+        assertEquals(0, sprites.upload(uploader));
+        assertTrue(uploader.writes.isEmpty());
+
+        // sprites 1 and 2 are in slots 2 and 1, so the range covers slots 1 to 2
+        sprites.set(id, 1, sprite(10));
+        sprites.set(id, 2, sprite(11));
+        assertEquals(2 * CachedSprites.SPRITE_BYTES, sprites.upload(uploader));
+        assertEquals(1, uploader.writes.size());
+        assertArrayEquals(new int[] {CachedSprites.SPRITE_BYTES, 2 * CachedSprites.SPRITE_BYTES}, uploader.writes.get(0));
+        assertArrayEquals(new float[] {11, 10}, ids(uploader.data.get(0)), 0f);
+    }
+
+    @Test
+    public void reusesStagingBuffer() {
+        CachedSprites<String> sprites = new CachedSprites<>(100);
+        sprites.beginCache();
+        for (int i = 0; i < 10; i++)
+            sprites.add("a", sprite(i));
+        int id = sprites.endCache();
+        RecordingUploader uploader = new RecordingUploader();
+        sprites.upload(uploader);
+        sprites.set(id, 3, sprite(20));
+        sprites.upload(uploader);
+        sprites.set(id, 7, sprite(21));
+        sprites.upload(uploader);
+        assertEquals(3, uploader.buffers.size());
+        assertSame(uploader.buffers.get(0), uploader.buffers.get(1));
+        assertSame(uploader.buffers.get(0), uploader.buffers.get(2));
+    }
+
+    @Test
+    public void redefineCache() {
+        CachedSprites<String> sprites = new CachedSprites<>(100);
+        sprites.beginCache();
+        sprites.add("a", sprite(0));
+        sprites.add("b", sprite(1));
+        int id = sprites.endCache();
+        sprites.upload(new RecordingUploader());
+
+        sprites.beginCache(id);
+        sprites.add("c", sprite(2));
+        assertEquals(id, sprites.endCache());
+        assertEquals(1, sprites.getCount(id));
+        assertEquals(1, sprites.getNumGroups(id));
+        assertEquals("c", sprites.getTexture(id, 0));
+        RecordingUploader uploader = new RecordingUploader();
+        sprites.upload(uploader);
+        assertArrayEquals(new float[] {2}, ids(uploader.data.get(0)), 0f);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void redefinedCacheCannotGrow() {
+        CachedSprites<String> sprites = new CachedSprites<>(100);
+        sprites.beginCache();
+        sprites.add("a", sprite(0));
+        int id = sprites.endCache();
+        sprites.beginCache(id);
+        sprites.add("a", sprite(1));
+        sprites.add("a", sprite(2));
+        sprites.endCache();
+    }
+
+    @Test
+    public void clearRemovesCaches() {
+        CachedSprites<String> sprites = new CachedSprites<>(2);
+        sprites.beginCache();
+        sprites.add("a", sprite(0));
+        sprites.add("a", sprite(1));
+        sprites.endCache();
+        sprites.clear();
+        assertEquals(0, sprites.getNumCaches());
+        // the space is available again
+        sprites.beginCache();
+        sprites.add("b", sprite(2));
+        sprites.add("b", sprite(3));
+        assertEquals(0, sprites.endCache());
+    }
+}
@@ -0,0 +1,48 @@
+import com.monstrous.graphics.PerspectiveCamera;
+import com.monstrous.math.Frustum;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class testFrustumCulling {
+
+    @Test
+    public void batchMatchesSingleTest() {
+        PerspectiveCamera camera = new PerspectiveCamera(70, 640, 480);
+        camera.position.set(1, 2, -3);
+        camera.direction.set(0.2f, -0.1f, 1f).nor();
+        camera.far = 100f;
+        camera.update();
+        Frustum frustum = camera.frustum;
+
+        int count = 1000;      // not a multiple of 64
+        float[] cx = new float[count], cy = new float[count], cz = new float[count];
+        float[] ex = new float[count], ey = new float[count], ez = new float[count];
+        Random random = new Random(99);
+        for(int i = 0; i < count; i++){
+            cx[i] = random.nextFloat()*200-100;
+            cy[i] = random.nextFloat()*40-20;
+            cz[i] = random.nextFloat()*200-100;
+            ex[i] = random.nextFloat()*3;
+            ey[i] = random.nextFloat()*3;
+            ez[i] = random.nextFloat()*3;
+        }
+        long[] visible = new long[(count+63)/64];
+        visible[visible.length-1] = -1L;       // stale bits must be cleared
+
+        int numVisible = frustum.boundsInFrustum(cx, cy, cz, ex, ey, ez, count, visible);
+
+        int expected = 0;
+        for(int i = 0; i < count; i++){
+            boolean inside = frustum.boundsInFrustum(cx[i], cy[i], cz[i], ex[i], ey[i], ez[i]);
+            assertEquals(inside, (visible[i >> 6] & (1L << i)) != 0);
+            if(inside)
+                expected++;
+        }
+        assertEquals(expected, numVisible);
+        assertTrue(numVisible > 0 && numVisible < count);
+        assertEquals(0, visible[visible.length-1] >>> (count & 63));
+    }
+}
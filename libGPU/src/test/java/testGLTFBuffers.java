@@ -0,0 +1,56 @@
+import com.monstrous.graphics.loaders.GLTF;
+import com.monstrous.graphics.loaders.GLTFParser;
+import com.monstrous.graphics.loaders.GLTFRawBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Base64;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class testGLTFBuffers {
+
+    private static String dataUri(byte[] bytes) {
+        return "data:application/octet-stream;base64," + Base64.getEncoder().encodeToString(bytes);
+    }
+
+    @Test
+    public void decodesDataUris() {
+        for(int length = 0; length < 10; length++) {
+            byte[] bytes = new byte[length];
+            for(int i = 0; i < length; i++)
+                bytes[i] = (byte)(i * 37 - 100);
+            ByteBuffer decoded = GLTFRawBuffer.decodeDataUri(dataUri(bytes));
+            assertEquals(length, decoded.remaining());
+            for(int i = 0; i < length; i++)
+                assertEquals(bytes[i], decoded.get(i));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rejectsUnencodedDataUris() {
+        GLTFRawBuffer.decodeDataUri("data:text/plain,hello");
+    }
+
+    @Test
+    public void accessorsUseTheirOwnBuffer() {
+        ByteBuffer first = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putFloat(1f).putFloat(2f);
+        ByteBuffer second = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN).putFloat(0f).putFloat(3f).putFloat(4f);
+        String json = "{\"buffers\": [{\"uri\": \"" + dataUri(first.array()) + "\", \"byteLength\": 8}," +
+                "{\"uri\": \"" + dataUri(second.array()) + "\", \"byteLength\": 12}]," +
+                "\"bufferViews\": [{\"buffer\": 0, \"byteLength\": 8}, {\"buffer\": 1, \"byteOffset\": 4, \"byteLength\": 8}]," +
+                "\"accessors\": [{\"bufferView\": 0, \"componentType\": 5126, \"count\": 2, \"type\": \"SCALAR\"}," +
+                "{\"bufferView\": 1, \"componentType\": 5126, \"count\": 2, \"type\": \"SCALAR\"}]}";
+        GLTF gltf = GLTFParser.parseJSON(json, "models/");
+        assertTrue(gltf.buffers.get(1).uri.startsWith("data:"));
+        GLTFParser.loadBuffers(gltf, null);
+        assertEquals(2, gltf.rawBuffers.size());
+        FloatBuffer a = gltf.getAccessorFloats(gltf.accessors.get(0));
+        FloatBuffer b = gltf.getAccessorFloats(gltf.accessors.get(1));
+        assertEquals(2f, a.get(1), 0f);
+        assertEquals(3f, b.get(0), 0f);
+        assertEquals(4f, b.get(1), 0f);
+    }
+}
@@ -0,0 +1,51 @@
+import com.monstrous.utils.IntMap;
+import com.monstrous.utils.LongIntMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+public class testIntMap {
+
+    @Test
+    public void matchesHashMap() {
+        IntMap<String> map = new IntMap<>(4);
+        HashMap<Integer, String> expected = new HashMap<>();
+        Random random = new Random(11);
+        for(int i = 0; i < 20000; i++){
+            int key = random.nextInt(3000) - 100;     // includes 0 and negative keys
+            if(random.nextInt(3) == 0)
+                assertEquals(expected.remove(key), map.remove(key));
+            else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for(int key = -100; key < 2900; key++){
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(5));
+    }
+
+    @Test
+    public void longKeys() {
+        LongIntMap map = new LongIntMap();
+        // kerning pairs of code points beyond the 16-bit range
+        for(int first = 0x1F600; first < 0x1F650; first++)
+            for(int second = 'a'; second <= 'z'; second++)
+                map.put(((long)first << 32) | second, first - second);
+        assertEquals(80 * 26, map.size());
+        assertEquals(0x1F610 - 'c', map.get((0x1F610L << 32) | 'c', 0));
+        assertEquals(-1, map.get((0x1F610L << 32) | 'A', -1));
+        assertFalse(map.containsKey('c'));
+        map.put((0x1F610L << 32) | 'c', 7);
+        assertEquals(7, map.get((0x1F610L << 32) | 'c', 0));
+        assertEquals(80 * 26, map.size());
+    }
+}
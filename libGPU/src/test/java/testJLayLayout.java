@@ -0,0 +1,78 @@
+import com.monstrous.graphics.BitmapFont;
+import com.monstrous.graphics.Color;
+import com.monstrous.jlay.Box;
+import com.monstrous.jlay.Group;
+import com.monstrous.jlay.Label;
+import com.monstrous.jlay.Widget;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class testJLayLayout {
+
+    private Box box;
+
+    // a fitted group of two boxes inside a fixed size group
+    private Group createUI(float boxWidth) {
+        Group root = new Group();
+        root.setSize(400, 300);
+        root.setPadding(10);
+        Group inner = new Group();
+        inner.setSize(Widget.FIT, Widget.FIT);
+        inner.setGap(5);
+        root.add(inner);
+        box = new Box();
+        box.setSize(boxWidth, 20);
+        inner.add(box);
+        Box other = new Box();
+        other.setSize(30, 40);
+        inner.add(other);
+        return root;
+    }
+
+    private int layout(Widget root) {
+        int count = Widget.layoutCount;
+        root.layout(800, 600);
+        return Widget.layoutCount - count;
+    }
+
+    @Test
+    public void unchangedTreeIsLaidOutOnce() {
+        Group root = createUI(50);
+        assertEquals(1, layout(root));
+        for(int i = 0; i < 10; i++)
+            assertEquals(0, layout(root));
+        assertFalse(root.needsLayout());
+    }
+
+    @Test
+    public void changeMatchesFreshLayout() {
+        Group root = createUI(50);
+        layout(root);
+        Group inner = box.getParent();
+        assertEquals(85, inner.getSize().getX(), 0.001f);
+
+        box.setSize(100, 20);
+        assertTrue(root.needsLayout());
+        assertEquals(1, layout(root));
+
+        Group fresh = createUI(100);
+        layout(fresh);
+        Group freshInner = box.getParent();
+        assertEquals(freshInner.getSize().getX(), inner.getSize().getX(), 0.001f);
+        assertEquals(freshInner.getSize().getY(), inner.getSize().getY(), 0.001f);
+        assertEquals(135, inner.getSize().getX(), 0.001f);
+    }
+
+    @Test
+    public void labelAcceptsNullText() {
+        Label label = new Label(null, new Label.Style(Color.BLACK, new BitmapFont()));
+        assertEquals(0, label.getSize().getX(), 0.001f);
+
+        label.setText("text");
+        assertTrue(label.getSize().getX() > 0);
+        label.setText(null);
+        assertEquals(0, label.getSize().getX(), 0.001f);
+        label.setText(null);
+    }
+}
@@ -0,0 +1,103 @@
+import com.monstrous.graphics.loaders.GLTF;
+import com.monstrous.graphics.loaders.GLTFParser;
+import com.monstrous.utils.JsonReader;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class testJsonReader {
+
+    @Test
+    public void readsValues() {
+        JsonReader json = new JsonReader("{ \"a\": 12, \"b\": [-1.5, 2e3, 0.1], \"c\": \"x\\\"y\\u00e9\", \"d\": true, \"e\": null, \"f\": \"café\" }");
+        json.beginObject();
+        assertTrue(json.hasNext());
+        assertEquals("a", json.nextName());
+        assertEquals(12, json.nextInt());
+        assertEquals("b", json.nextName());
+        json.beginArray();
+        assertEquals(-1.5f, json.nextFloat(), 0f);
+        assertTrue(json.hasNext());
+        assertEquals(2000, json.nextInt());
+        assertEquals(0.1, json.nextDouble(), 0.0);
+        assertFalse(json.hasNext());
+        json.endArray();
+        assertEquals("c", json.nextName());
+        assertEquals("x\"yé", json.nextString());
+        assertEquals("d", json.nextName());
+        assertTrue(json.nextBoolean());
+        assertEquals("e", json.nextName());
+        assertNull(json.nextString());
+        assertEquals("f", json.nextName());
+        assertEquals("café", json.nextString());
+        assertFalse(json.hasNext());
+        json.endObject();
+    }
+
+    @Test
+    public void skipsNestedValues() {
+        JsonReader json = new JsonReader("{\"skip\": {\"x\": [1, {\"y\": \"]}\"}], \"z\": false}, \"keep\": 7}");
+        json.beginObject();
+        assertEquals("skip", json.nextName());
+        json.skipValue();
+        assertEquals("keep", json.nextName());
+        assertEquals(7, json.nextInt());
+        json.endObject();
+    }
+
+    @Test
+    public void namesAreShared() {
+        JsonReader json = new JsonReader("[{\"count\": 1}, {\"count\": 2}]");
+        json.beginArray();
+        json.beginObject();
+        String first = json.nextName();
+        json.nextInt();
+        json.endObject();
+        json.beginObject();
+        assertSame(first, json.nextName());
+    }
+
+    @Test
+    public void readsNamesWithEscapesAndNonAscii() {
+        JsonReader json = new JsonReader("{\"café\": 1, \"a\\nb\": 2}");
+        json.beginObject();
+        assertEquals("café", json.nextName());
+        assertEquals(1, json.nextInt());
+        assertEquals("a\nb", json.nextName());
+        assertEquals(2, json.nextInt());
+        json.endObject();
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rejectsMalformedInput() {
+        JsonReader json = new JsonReader("{\"a\" 1}");
+        json.beginObject();
+        json.nextName();
+    }
+
+    @Test
+    public void parsesGLTF() {
+        String contents = "{\"asset\": {\"version\": \"2.0\"}, \"scene\": 0, \"scenes\": [{\"nodes\": [0]}]," +
+                "\"nodes\": [{\"mesh\": 0, \"translation\": [1, 2, 3], \"extras\": {\"a\": [1]}}]," +
+                "\"meshes\": [{\"primitives\": [{\"attributes\": {\"POSITION\": 1, \"NORMAL\": 2}, \"indices\": 0}]}]," +
+                "\"accessors\": [{\"bufferView\": 0, \"componentType\": 5123, \"count\": 3, \"type\": \"SCALAR\", \"max\": [2], \"min\": [0]}]," +
+                "\"bufferViews\": [{\"buffer\": 0, \"byteOffset\": 8, \"byteLength\": 6}]," +
+                "\"buffers\": [{\"uri\": \"tri.bin\", \"byteLength\": 14}]," +
+                "\"materials\": [{\"pbrMetallicRoughness\": {\"baseColorFactor\": [1, 0, 0, 1], \"metallicFactor\": 0.5}, \"normalTexture\": {\"index\": 2}}]}";
+        GLTF gltf = GLTFParser.parseJSON(contents, "models/");
+        assertEquals(1, gltf.nodes.size());
+        assertEquals(0, gltf.nodes.get(0).mesh);
+        assertEquals(-1, gltf.nodes.get(0).skin);
+        assertEquals(3f, gltf.nodes.get(0).translation.z, 0f);
+        assertEquals(2, gltf.meshes.get(0).primitives.get(0).attributes.size());
+        assertEquals(4, gltf.meshes.get(0).primitives.get(0).mode);
+        assertEquals(5123, gltf.accessors.get(0).componentType);
+        assertEquals("SCALAR", gltf.accessors.get(0).type);
+        assertEquals(8, gltf.bufferViews.get(0).byteOffset);
+        assertEquals("models/tri.bin", gltf.buffers.get(0).uri);
+        assertEquals(0.5f, gltf.materials.get(0).pbrMetallicRoughness.metallicFactor, 0f);
+        assertEquals(0f, gltf.materials.get(0).pbrMetallicRoughness.baseColorFactor.g, 0f);
+        assertEquals(2, gltf.materials.get(0).normalTexture);
+        assertEquals(0, (int) gltf.scenes.get(0).nodes.get(0));
+    }
+}
@@ -0,0 +1,105 @@
+import com.monstrous.graphics.VertexAttribute;
+import com.monstrous.graphics.VertexAttributes;
+import com.monstrous.graphics.webgpu.Pipeline;
+import com.monstrous.graphics.webgpu.PipelineSpecification;
+import com.monstrous.graphics.webgpu.Pipelines;
+import jnr.ffi.Pointer;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class testPipelineCache {
+
+    static class FakePipeline extends Pipeline {
+        boolean disposed;
+
+        // like a real pipeline, it owns its shader unless the spec provides one
+        FakePipeline(PipelineSpecification spec) {
+            super(spec, spec.shader, spec.shader == null);
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+    }
+
+    // creates fake pipelines instead of GPU pipelines
+    static class FakePipelines extends Pipelines {
+        FakePipelines(int maxPipelines) {
+            super(maxPipelines);
+        }
+
+        @Override
+        protected Pipeline createPipeline(Pointer pipelineLayout, PipelineSpecification spec) {
+            return new FakePipeline(spec);
+        }
+    }
+
+    private static PipelineSpecification spec(String shaderFilePath) {
+        return new PipelineSpecification(new VertexAttributes(VertexAttribute.Usage.POSITION), shaderFilePath);
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        Pipelines pipelines = new FakePipelines(0);
+        PipelineSpecification a = spec("shaders/a.wgsl");
+        Pipeline pipeline = pipelines.findPipeline(null, a);
+        assertSame(pipeline, pipelines.findPipeline(null, spec("shaders/a.wgsl")));    // equal spec, other instance
+        pipelines.findPipeline(null, spec("shaders/b.wgsl"));
+        assertEquals(2, pipelines.misses);
+        assertEquals(1, pipelines.hits);
+        assertEquals(2, pipelines.size());
+
+        // changing the caller's spec afterwards does not affect the cached key
+        a.shaderFilePath = "shaders/c.wgsl";
+        a.recalcHash();
+        assertNotSame(pipeline, pipelines.findPipeline(null, a));
+        assertSame(pipeline, pipelines.findPipeline(null, spec("shaders/a.wgsl")));
+        assertEquals(3, pipelines.misses);
+        assertEquals(0, pipelines.evictions);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        Pipelines pipelines = new FakePipelines(2);
+        FakePipeline a = (FakePipeline) pipelines.findPipeline(null, spec("shaders/a.wgsl"));
+        FakePipeline b = (FakePipeline) pipelines.findPipeline(null, spec("shaders/b.wgsl"));
+        pipelines.findPipeline(null, spec("shaders/a.wgsl"));          // b is now least recently used
+        FakePipeline c = (FakePipeline) pipelines.findPipeline(null, spec("shaders/c.wgsl"));
+
+        assertEquals(2, pipelines.size());
+        assertEquals(1, pipelines.evictions);
+        assertTrue(b.disposed);
+        assertFalse(a.disposed);
+        assertFalse(c.disposed);
+
+        // b has to be created again, which evicts a
+        pipelines.findPipeline(null, spec("shaders/b.wgsl"));
+        assertTrue(a.disposed);
+        assertFalse(c.disposed);
+        assertEquals(4, pipelines.misses);
+        assertEquals(1, pipelines.hits);
+        assertEquals(2, pipelines.evictions);
+    }
+
+    @Test
+    public void evictedPipelineCanBeCreatedAgain() {
+        Pipelines pipelines = new FakePipelines(1);
+        PipelineSpecification a = spec("shaders/a.wgsl");
+        FakePipeline first = (FakePipeline) pipelines.findPipeline(null, a);
+        assertTrue(first.ownsShader());
+        assertNull(a.shader);               // the caller's spec is left alone
+
+        pipelines.findPipeline(null, spec("shaders/b.wgsl"));
+        assertTrue(first.disposed);
+
+        // the same spec again: a new pipeline with its own shader, not the one disposed with the evicted pipeline
+        FakePipeline second = (FakePipeline) pipelines.findPipeline(null, a);
+        assertNotSame(first, second);
+        assertFalse(second.disposed);
+        assertTrue(second.ownsShader());
+        assertNull(a.shader);
+        assertEquals(3, pipelines.misses);
+    }
+}
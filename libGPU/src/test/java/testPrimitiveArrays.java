@@ -0,0 +1,42 @@
+import com.monstrous.graphics.webgpu.IndexBuffer;
+import com.monstrous.utils.FloatArray;
+import com.monstrous.utils.IntArray;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class testPrimitiveArrays {
+
+    @Test
+    public void floatArrayGrows() {
+        FloatArray floats = new FloatArray(2);
+        for(int i = 0; i < 100; i++)
+            floats.add(i, i + 0.5f, -i);
+        assertEquals(300, floats.size);
+        assertEquals(33.5f, floats.get(100), 0f);
+        floats.set(100, 7f);
+        assertEquals(7f, floats.toArray()[100], 0f);
+        assertEquals(300, floats.toArray().length);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void floatArrayChecksSize() {
+        FloatArray floats = new FloatArray();
+        floats.add(1f);
+        floats.get(1);
+    }
+
+    @Test
+    public void indicesAreNarrowedWhenTheyFit() {
+        IntArray indices = new IntArray();
+        assertEquals(-1, indices.max());
+        indices.add(0, 1, 2);
+        assertEquals(2, IndexBuffer.narrowestIndexSize(indices));
+        indices.add(65534);
+        assertEquals(2, IndexBuffer.narrowestIndexSize(indices));
+        indices.add(65535);
+        assertEquals(4, IndexBuffer.narrowestIndexSize(indices));
+        indices.set(4, 100000);
+        assertEquals(100000, indices.max());
+    }
+}
@@ -0,0 +1,157 @@
+import com.monstrous.graphics.g2d.QuadBuffer;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+
+public class testQuadBuffer {
+
+    static class RecordedBuffer {
+        final boolean index;
+        final int size;
+        boolean released;
+        ByteBuffer content;
+
+        RecordedBuffer(boolean index, int size) {
+            this.index = index;
+            this.size = size;
+            content = ByteBuffer.allocate(size).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    // records all buffer operations instead of talking to the GPU
+    static class RecordingBackend implements QuadBuffer.Backend<RecordedBuffer> {
+        final ArrayList<RecordedBuffer> created = new ArrayList<>();
+        final ArrayList<int[]> writes = new ArrayList<>();      // offset, size
+
+        @Override
+        public RecordedBuffer createVertexBuffer(int size) {
+            RecordedBuffer buffer = new RecordedBuffer(false, size);
+            created.add(buffer);
+            return buffer;
+        }
+
+        @Override
+        public RecordedBuffer createIndexBuffer(int size) {
+            RecordedBuffer buffer = new RecordedBuffer(true, size);
+            created.add(buffer);
+            return buffer;
+        }
+
+        @Override
+        public void write(RecordedBuffer buffer, int offset, ByteBuffer data, int size) {
+            assertFalse(buffer.released);
+            assertTrue(offset + size <= buffer.size);
+            for(int i = 0; i < size; i++)
+                buffer.content.put(offset + i, data.get(i));
+            writes.add(new int[] { offset, size });
+        }
+
+        @Override
+        public void release(RecordedBuffer buffer) {
+            assertFalse(buffer.released);
+            buffer.released = true;
+        }
+    }
+
+    private static final ByteBuffer data = ByteBuffer.allocateDirect(1 << 20);
+
+    @Test
+    public void uploadsAreAppendedWithinAFrame() {
+        RecordingBackend backend = new RecordingBackend();
+        QuadBuffer<RecordedBuffer> quads = new QuadBuffer<>(backend, 1000, 10);
+
+        quads.beginFrame(1);
+        assertEquals(0, quads.upload(data, 400));
+        assertEquals(400, quads.upload(data, 200));
+        quads.beginFrame(1);        // another pass in the same frame continues after the previous one
+        assertEquals(600, quads.upload(data, 100));
+        assertEquals(700, quads.bytesUploaded);
+
+        quads.beginFrame(2);        // next frame starts at the front
+        assertEquals(0, quads.bytesUploaded);
+        assertEquals(0, quads.upload(data, 300));
+        assertEquals(300, quads.bytesUploaded);
+        assertEquals(0, quads.numGrows);
+        assertEquals(2, backend.created.size());
+    }
+
+    @Test
+    public void vertexBufferGrows() {
+        RecordingBackend backend = new RecordingBackend();
+        QuadBuffer<RecordedBuffer> quads = new QuadBuffer<>(backend, 1000, 10);
+        RecordedBuffer first = quads.getVertexBuffer();
+
+        quads.beginFrame(1);
+        quads.upload(data, 800);
+        int offset = quads.upload(data, 800);       // does not fit
+        assertEquals(0, offset);
+        assertEquals(1, quads.numGrows);
+        assertEquals(2000, quads.getVertexCapacity());
+        assertNotSame(first, quads.getVertexBuffer());
+        assertEquals(2000, quads.getVertexBuffer().size);
+        // the first batch of this frame still uses the old buffer
+        assertFalse(first.released);
+
+        quads.beginFrame(2);
+        assertTrue(first.released);
+        assertEquals(0, quads.upload(data, 1600));
+        assertEquals(1, quads.numGrows);
+
+        // a single upload larger than twice the capacity
+        quads.upload(data, 5000);
+        assertEquals(5000, quads.getVertexCapacity());
+        assertEquals(2, quads.numGrows);
+    }
+
+    @Test
+    public void indexBufferSwitchesTo32Bit() {
+        RecordingBackend backend = new RecordingBackend();
+        QuadBuffer<RecordedBuffer> quads = new QuadBuffer<>(backend, 1000, 1000);
+        assertFalse(quads.isUint32());
+        RecordedBuffer indices16 = quads.getIndexBuffer();
+        assertEquals(1000*6*Short.BYTES, indices16.size);
+        assertEquals(1000*6*Short.BYTES, quads.getIndexSize(1000));
+        // second quad: 4,5,6, 4,6,7
+        assertEquals(4, indices16.content.getShort(6*Short.BYTES));
+        assertEquals(7, indices16.content.getShort(11*Short.BYTES));
+
+        quads.beginFrame(1);
+        quads.reserveQuads(900);
+        assertSame(indices16, quads.getIndexBuffer());
+
+        quads.reserveQuads(QuadBuffer.MAX_QUADS_16BIT);
+        assertFalse(quads.isUint32());
+        assertEquals(QuadBuffer.MAX_QUADS_16BIT, quads.getQuadCapacity());
+        RecordedBuffer last16 = quads.getIndexBuffer();
+        assertEquals(65535, last16.content.getShort((QuadBuffer.MAX_QUADS_16BIT * 6 - 1) * Short.BYTES) & 0xFFFF);
+
+        quads.reserveQuads(QuadBuffer.MAX_QUADS_16BIT + 1);
+        assertTrue(quads.isUint32());
+        RecordedBuffer indices32 = quads.getIndexBuffer();
+        int numQuads = quads.getQuadCapacity();
+        assertEquals(2 * QuadBuffer.MAX_QUADS_16BIT, numQuads);
+        assertEquals(numQuads * 6 * Integer.BYTES, indices32.size);
+        assertEquals(numQuads * 6 * Integer.BYTES, quads.getIndexSize(numQuads));
+        // last triangle of the last quad
+        int last = numQuads - 1;
+        assertEquals(4*last, indices32.content.getInt((6*last+3) * Integer.BYTES));
+        assertEquals(4*last+2, indices32.content.getInt((6*last+4) * Integer.BYTES));
+        assertEquals(4*last+3, indices32.content.getInt((6*last+5) * Integer.BYTES));
+
+        assertEquals(2, quads.numGrows);
+        // index uploads are counted for this frame
+        assertEquals(last16.size + indices32.size, quads.bytesUploaded);
+        assertFalse(indices16.released);
+        quads.beginFrame(2);
+        assertTrue(indices16.released);
+        assertTrue(last16.released);
+        assertFalse(indices32.released);
+
+        quads.dispose();
+        assertTrue(indices32.released);
+    }
+}
@@ -0,0 +1,49 @@
+import com.monstrous.utils.RadixSort;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class testRadixSort {
+
+    @Test
+    public void sortsUnsignedAndStable() {
+        Random random = new Random(3);
+        RadixSort radixSort = new RadixSort();
+        for(int count : new int[] { 0, 1, 2, 100, 5000 }) {
+            long[] keys = new long[count + 10];     // arrays may be larger than count
+            int[] values = new int[count + 10];
+            for (int i = 0; i < count; i++) {
+                // few distinct keys to check stability, including keys with the top bit set
+                keys[i] = (random.nextInt(8) * 0x1111_0000_0000_0000L) | random.nextInt(4);
+                values[i] = i;
+            }
+            long[] expected = Arrays.copyOf(keys, count);
+            radixSort.sort(keys, values, count);
+
+            // compare against sorting with the index in the low bits, which gives the stable order
+            Long[] boxed = new Long[count];
+            for(int i = 0; i < count; i++)
+                boxed[i] = expected[i];
+            Integer[] order = new Integer[count];
+            for(int i = 0; i < count; i++)
+                order[i] = i;
+            Arrays.sort(order, (a, b) -> Long.compareUnsigned(boxed[a], boxed[b]));    // stable merge sort
+            for(int i = 0; i < count; i++) {
+                assertEquals(expected[order[i]], keys[i]);
+                assertEquals((long)order[i], values[i]);
+            }
+        }
+    }
+
+    @Test
+    public void constantHighBits() {
+        RadixSort radixSort = new RadixSort();
+        long[] keys = { 0xAB00_0000_0000_0003L, 0xAB00_0000_0000_0001L, 0xAB00_0000_0000_0002L };
+        int[] values = { 0, 1, 2 };
+        radixSort.sort(keys, values, 3);
+        assertArrayEquals(new int[] { 1, 2, 0 }, values);
+    }
+}
@@ -0,0 +1,142 @@
+import com.monstrous.graphics.PerspectiveCamera;
+import com.monstrous.graphics.Renderable;
+import com.monstrous.graphics.g3d.*;
+import com.monstrous.math.Matrix4;
+import com.monstrous.math.Vector3;
+import com.monstrous.webgpu.WGPUPrimitiveTopology;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class testRenderQueue {
+
+    // model with a node hierarchy of mesh parts, built without GPU resources
+    private static Model makeModel(){
+        Mesh mesh = new Mesh();
+        mesh.boundingBox.set(new Vector3(-0.5f, 0, -0.5f), new Vector3(0.5f, 1, 0.5f));
+        Model model = new Model();
+        Node root = new Node(new NodePart(new MeshPart(mesh, "body", WGPUPrimitiveTopology.TriangleList), null));
+        Node child = new Node(new NodePart(new MeshPart(mesh, "head", WGPUPrimitiveTopology.TriangleList), null));
+        child.translation.set(0, 1, 0);
+        root.addChild(child);
+        root.updateMatrices(true);
+        model.getNodes().add(root);
+        return model;
+    }
+
+    private static ArrayList<ModelInstance> makeInstances(int count){
+        Model model = makeModel();
+        Random random = new Random(5);
+        ArrayList<ModelInstance> instances = new ArrayList<>();
+        for(int i = 0; i < count; i++)
+            instances.add(new ModelInstance(model, new Matrix4().translate(random.nextFloat()*200-100, 0, random.nextFloat()*200-100)));
+        return instances;
+    }
+
+    private static PerspectiveCamera camera(){
+        PerspectiveCamera camera = new PerspectiveCamera(70, 640, 480);
+        camera.position.set(0, 2, 0);
+        camera.direction.set(0, 0, 1);
+        camera.far = 80f;
+        camera.update();
+        return camera;
+    }
+
+    @Test
+    public void parallelMatchesSerial() {
+        ArrayList<ModelInstance> instances = makeInstances(3000);
+        PerspectiveCamera camera = camera();
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+
+        RenderQueue serial = new RenderQueue();
+        RenderQueue parallel = new RenderQueue();
+        parallel.setParallel(forkJoinPool);
+
+        for(int frame = 0; frame < 3; frame++) {     // also checks that reset() leaves the queue in a clean state
+            for (ModelInstance instance : instances) {
+                serial.add(instance);
+                parallel.add(instance);
+            }
+            List<Renderable> expected = serial.process(camera);
+            List<Renderable> result = parallel.process(camera);
+
+            assertTrue(serial.numCulled > 0);
+            assertTrue(serial.numVisible > 0);
+            assertEquals(serial.numVisible, parallel.numVisible);
+            assertEquals(serial.numCulled, parallel.numCulled);
+            assertEquals(expected.size(), result.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Renderable a = expected.get(i);
+                Renderable b = result.get(i);
+                assertSame(a.meshPart, b.meshPart);
+                assertSame(a.modelInstance, b.modelInstance);
+                assertArrayEquals(a.modelTransform.val, b.modelTransform.val, 0f);
+            }
+            serial.reset();
+            parallel.reset();
+        }
+        forkJoinPool.shutdown();
+    }
+
+    @Test
+    public void sortGroupsMeshPartsFrontToBack() {
+        Mesh mesh = new Mesh();
+        mesh.boundingBox.set(new Vector3(-0.5f, 0, -0.5f), new Vector3(0.5f, 1, 0.5f));
+        MeshPart partA = new MeshPart(mesh, "a", WGPUPrimitiveTopology.TriangleList);
+        MeshPart partB = new MeshPart(mesh, "b", WGPUPrimitiveTopology.TriangleList);
+
+        RenderQueue queue = new RenderQueue();
+        for(int i = 0; i < 10; i++){
+            // interleaved parts, submitted from far to near
+            MeshPart part = (i % 2 == 0) ? partA : partB;
+            Renderable renderable = new Renderable(part, null, new Matrix4().translate(0, 0, 50 - 4 * i), null);
+            queue.add(renderable);
+        }
+        List<Renderable> sorted = queue.process(camera());
+        assertEquals(10, sorted.size());
+        // each mesh part forms one run, so they can be drawn with instancing
+        int switches = 0;
+        for(int i = 1; i < sorted.size(); i++)
+            if(sorted.get(i).meshPart != sorted.get(i-1).meshPart)
+                switches++;
+        assertEquals(1, switches);
+        // front to back within a run
+        for(int i = 1; i < sorted.size(); i++)
+            if(sorted.get(i).meshPart == sorted.get(i-1).meshPart)
+                assertTrue(sorted.get(i).modelTransform.val[Matrix4.M23] >= sorted.get(i-1).modelTransform.val[Matrix4.M23]);
+        queue.reset();
+    }
+
+    @Test
+    public void steadyStateDoesNotAllocate() {
+        ArrayList<ModelInstance> instances = makeInstances(500);
+        PerspectiveCamera camera = camera();
+        RenderQueue queue = new RenderQueue();
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // warm up, so that pools and arrays have grown to size
+        for(int frame = 0; frame < 2000; frame++)
+            renderFrame(queue, instances, camera);
+
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for(int frame = 0; frame < 100; frame++)
+            renderFrame(queue, instances, camera);
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+        assertEquals(0, allocated);
+    }
+
+    // the CPU side of ModelBatch.render() ... end()
+    private static void renderFrame(RenderQueue queue, ArrayList<ModelInstance> instances, PerspectiveCamera camera){
+        for(int i = 0; i < instances.size(); i++)
+            queue.add(instances.get(i));
+        queue.process(camera);
+        queue.reset();
+    }
+}
@@ -0,0 +1,52 @@
+import com.monstrous.graphics.Color;
+import com.monstrous.graphics.g2d.RoundedRectangleInstances;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class testRoundedRectangleInstances {
+
+    @Test
+    public void recordsArePacked() {
+        RoundedRectangleInstances instances = new RoundedRectangleInstances(4);
+        instances.add(10, 20, 300, 40, 8, new Color(1f, 0f, 0f, 1f), 2, -3);
+        instances.add(50, 60, 70, 80, 4, new Color(0f, 0f, 1f, 0.5f), 0, 0);
+        assertEquals(2, instances.getCount());
+        assertEquals(2 * 32, instances.getSizeInBytes());
+
+        ByteBuffer data = instances.getData();
+        assertEquals(10f, data.getFloat(0), 0);
+        assertEquals(20f, data.getFloat(4), 0);
+        assertEquals(300f, data.getFloat(8), 0);
+        assertEquals(40f, data.getFloat(12), 0);
+        assertEquals(2f, data.getFloat(16), 0);
+        assertEquals(-3f, data.getFloat(20), 0);
+        assertEquals(8f, data.getFloat(24), 0);
+        assertEquals(0xFF0000FF, data.getInt(28));    // ABGR: opaque red
+
+        int second = RoundedRectangleInstances.RECORD_BYTES;
+        assertEquals(50f, data.getFloat(second), 0);
+        assertEquals(4f, data.getFloat(second + 24), 0);
+        assertEquals(0x7FFF0000, data.getInt(second + 28));
+    }
+
+    @Test
+    public void clearAndCapacity() {
+        RoundedRectangleInstances instances = new RoundedRectangleInstances(2);
+        instances.add(0, 0, 1, 1, 0, Color.WHITE, 0, 0);
+        assertFalse(instances.isFull());
+        instances.add(0, 0, 1, 1, 0, Color.WHITE, 0, 0);
+        assertTrue(instances.isFull());
+        try {
+            instances.add(0, 0, 1, 1, 0, Color.WHITE, 0, 0);
+            fail("expected exception when full");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        instances.clear();
+        assertEquals(0, instances.getCount());
+        assertFalse(instances.isFull());
+    }
+}
@@ -0,0 +1,88 @@
+import com.monstrous.scene2d.Cell;
+import com.monstrous.scene2d.Table;
+import com.monstrous.scene2d.Widget;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class testSceneLayout {
+
+    private Table root;
+    private Table inner;
+    private Widget[] leaves;
+
+    // root table filling an 800x600 cell, with a nested table of three widgets and one widget next to it
+    private void createUI() {
+        Cell rootCell = new Cell();
+        rootCell.setSize(800, 600);
+        root = new Table();
+        root.setCell(rootCell);
+        root.setFillParent(true);
+
+        inner = new Table();
+        leaves = new Widget[4];
+        for(int i = 0; i < 3; i++) {
+            leaves[i] = new Widget().setPreferredSize(100, 20);
+            inner.add(leaves[i]);
+            inner.row();
+        }
+        root.add(inner);
+        leaves[3] = new Widget().setPreferredSize(50, 50);
+        root.add(leaves[3]).pad(5);
+    }
+
+    private int pack() {
+        int count = Widget.layoutCount;
+        root.pack();
+        root.setPosition();
+        return Widget.layoutCount - count;
+    }
+
+    @Test
+    public void staticLayoutIsComputedOnce() {
+        createUI();
+        assertTrue(root.needsLayout());
+        assertTrue(pack() >= 6);        // two tables and four widgets
+        assertFalse(root.needsLayout());
+        for(int frame = 0; frame < 10; frame++)
+            assertEquals(0, pack());
+    }
+
+    @Test
+    public void changeOnlyRelayoutsItsAncestors() {
+        createUI();
+        pack();
+
+        leaves[1].setPreferredSize(200, 20);
+        assertTrue(leaves[1].needsLayout());
+        assertTrue(inner.needsLayout());
+        assertTrue(root.needsLayout());
+        assertFalse(leaves[0].needsLayout());
+        assertFalse(leaves[3].needsLayout());
+        assertEquals(3, pack());        // the widget, the inner table and the root table
+        int width = inner.getWidth();
+        int height = inner.getHeight();
+
+        // same result as a layout from scratch
+        createUI();
+        leaves[1].setPreferredSize(200, 20);
+        pack();
+        assertEquals(width, inner.getWidth());
+        assertEquals(height, inner.getHeight());
+
+        // setting the same size again does not invalidate anything
+        leaves[1].setPreferredSize(200, 20);
+        assertEquals(0, pack());
+    }
+
+    @Test
+    public void cellChangesInvalidateTheTable() {
+        createUI();
+        pack();
+        Cell cell = root.add(new Widget().setPreferredSize(10, 10));
+        assertTrue(pack() > 0);         // the new column changes the size of the other cells too
+        assertEquals(0, pack());
+        cell.pad(3);
+        assertEquals(1, pack());
+    }
+}
@@ -0,0 +1,88 @@
+import com.monstrous.graphics.ShaderCache;
+import com.monstrous.graphics.VertexAttribute;
+import com.monstrous.graphics.VertexAttributes;
+import com.monstrous.graphics.webgpu.PipelineManifest;
+import com.monstrous.graphics.webgpu.PipelineSpecification;
+import com.monstrous.webgpu.WGPUCullMode;
+import com.monstrous.webgpu.WGPUTextureFormat;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+public class testShaderCache {
+
+    private static File tempDir() throws Exception {
+        File dir = Files.createTempDirectory("shadercache").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    @Test
+    public void manifestRoundTrip() throws Exception {
+        File dir = tempDir();
+
+        PipelineSpecification spec = new PipelineSpecification(
+                new VertexAttributes(VertexAttribute.Usage.POSITION | VertexAttribute.Usage.NORMAL | VertexAttribute.Usage.TEXTURE_COORDINATE),
+                "shaders/modelbatchPBRUber.wgsl");
+        spec.setCullMode(WGPUCullMode.Back);
+        spec.colorFormat = WGPUTextureFormat.RGBA8Unorm;
+        spec.numSamples = 4;
+        spec.setEnvironmentFlags(true, false, true);
+
+        PipelineManifest manifest = new PipelineManifest(new File(dir, "test.manifest"));
+        assertTrue(manifest.record(spec));
+        assertFalse(manifest.record(new PipelineSpecification(spec)));    // duplicate
+        assertEquals(1, manifest.size());
+
+        // read back in as on the next run
+        PipelineManifest manifest2 = new PipelineManifest(new File(dir, "test.manifest"));
+        manifest2.load();
+        assertEquals(1, manifest2.size());
+        PipelineSpecification restored = manifest2.getSpecifications().get(0);
+        assertEquals(spec, restored);
+        assertEquals(spec.hashCode(), restored.hashCode());
+        assertTrue(restored.hasShadows());
+        assertFalse(restored.hasCubeMap());
+        assertTrue(restored.usesImageBasedLighting());
+        assertEquals(PipelineManifest.toString(spec), PipelineManifest.toString(restored));
+    }
+
+    @Test
+    public void specificationEquality() {
+        PipelineSpecification a = new PipelineSpecification(new VertexAttributes(VertexAttribute.Usage.POSITION), "shaders/a.wgsl");
+        PipelineSpecification b = new PipelineSpecification(a);
+        assertEquals(a, b);
+        b.shaderFilePath = "shaders/b.wgsl";
+        b.recalcHash();
+        assertNotEquals(a, b);
+        b.shaderFilePath = a.shaderFilePath;
+        b.numSamples = 4;
+        b.recalcHash();
+        assertNotEquals(a, b);
+    }
+
+    @Test
+    public void preprocessedSourceCache() throws Exception {
+        File dir = tempDir();
+        String source = "#define A\n#ifdef A\nyes\n#else\nno\n#endif\n";
+
+        ShaderCache cache = new ShaderCache(dir);
+        assertEquals("yes\n", cache.process(source));
+        assertEquals(1, cache.misses);
+        assertEquals("yes\n", cache.process(source));
+        assertEquals(1, cache.hits);
+
+        // a new cache on the same directory finds the variant on disk
+        ShaderCache cache2 = new ShaderCache(dir);
+        assertEquals("yes\n", cache2.process(source));
+        assertEquals(1, cache2.hits);
+        assertEquals(0, cache2.misses);
+
+        // a different variant is a miss
+        cache2.process("#define B\n" + source);
+        assertEquals(1, cache2.misses);
+    }
+}
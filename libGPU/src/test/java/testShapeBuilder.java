@@ -0,0 +1,148 @@
+import com.monstrous.graphics.Color;
+import com.monstrous.graphics.g2d.ShapeBuilder;
+import com.monstrous.graphics.g2d.ShapeRenderer.ShapeType;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+public class testShapeBuilder {
+
+    private int flushes;
+
+    private ShapeBuilder begin() {
+        ShapeBuilder shapes = new ShapeBuilder(16, 24, () -> flushes++);
+        shapes.begin();
+        return shapes;
+    }
+
+    // x, y of a vertex
+    private static float[] position(ShapeBuilder shapes, int vertex) {
+        FloatBuffer floats = shapes.getVertexBytes().asFloatBuffer();
+        return new float[] { floats.get(3 * vertex), floats.get(3 * vertex + 1) };
+    }
+
+    private static float colour(ShapeBuilder shapes, int vertex) {
+        return shapes.getVertexBytes().asFloatBuffer().get(3 * vertex + 2);
+    }
+
+    private static int[] indices(ShapeBuilder shapes) {
+        ShortBuffer shorts = shapes.getIndexBytes().asShortBuffer();
+        int[] indices = new int[shapes.getNumIndices()];
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = shorts.get(i);
+        return indices;
+    }
+
+    @Test
+    public void defaultsToFilled() {
+        ShapeBuilder shapes = begin();
+        assertEquals(ShapeType.Filled, shapes.getShapeType());
+        shapes.set(ShapeType.Line);
+        shapes.end();
+        shapes.begin();
+        assertEquals(ShapeType.Filled, shapes.getShapeType());
+    }
+
+    @Test
+    public void filledRect() {
+        ShapeBuilder shapes = begin();
+        shapes.setColor(Color.RED);
+        shapes.rect(10, 20, 30, 40);
+
+        assertEquals(4, shapes.getNumVertices());
+        assertEquals(6, shapes.getNumIndices());
+        assertArrayEquals(new float[] {10, 20}, position(shapes, 0), 0f);
+        assertArrayEquals(new float[] {10, 60}, position(shapes, 1), 0f);
+        assertArrayEquals(new float[] {40, 60}, position(shapes, 2), 0f);
+        assertArrayEquals(new float[] {40, 20}, position(shapes, 3), 0f);
+        assertArrayEquals(new int[] {0, 1, 2, 0, 2, 3}, indices(shapes));
+        assertEquals(Color.RED.toFloatBits(), colour(shapes, 0), 0f);
+    }
+
+    @Test
+    public void lineRect() {
+        ShapeBuilder shapes = begin();
+        shapes.set(ShapeType.Line);
+        shapes.setLineWidth(2f);
+        shapes.rect(10, 20, 30, 40);
+
+        // four edges of lineWidth wide, the same as box()
+        assertEquals(16, shapes.getNumVertices());
+        assertEquals(24, shapes.getNumIndices());
+        // bottom edge
+        assertArrayEquals(new float[] {10, 20}, position(shapes, 0), 0f);
+        assertArrayEquals(new float[] {42, 22}, position(shapes, 2), 0f);
+        // top edge
+        assertArrayEquals(new float[] {10, 60}, position(shapes, 4), 0f);
+        assertArrayEquals(new float[] {42, 62}, position(shapes, 6), 0f);
+        // left edge
+        assertArrayEquals(new float[] {10, 20}, position(shapes, 8), 0f);
+        assertArrayEquals(new float[] {12, 62}, position(shapes, 10), 0f);
+        // right edge
+        assertArrayEquals(new float[] {40, 20}, position(shapes, 12), 0f);
+        assertArrayEquals(new float[] {42, 62}, position(shapes, 14), 0f);
+        // every quad refers to its own vertices
+        int[] indices = indices(shapes);
+        for (int i = 0; i < indices.length; i++)
+            assertEquals(i / 6, indices[i] / 4);
+    }
+
+    @Test
+    public void filledTriangle() {
+        ShapeBuilder shapes = begin();
+        shapes.triangle(0, 0, 10, 0, 0, 10);
+
+        assertEquals(3, shapes.getNumVertices());
+        assertArrayEquals(new int[] {0, 1, 2}, indices(shapes));
+        assertArrayEquals(new float[] {10, 0}, position(shapes, 1), 0f);
+        assertArrayEquals(new float[] {0, 10}, position(shapes, 2), 0f);
+    }
+
+    @Test
+    public void lineTriangle() {
+        ShapeBuilder shapes = begin();
+        shapes.set(ShapeType.Line);
+        shapes.setLineWidth(2f);
+        shapes.triangle(0, 0, 10, 0, 0, 10);
+
+        // a quad per edge
+        assertEquals(12, shapes.getNumVertices());
+        assertEquals(18, shapes.getNumIndices());
+        // first edge is horizontal, offset by half the line width on either side
+        assertArrayEquals(new float[] {0, 1}, position(shapes, 0), 1e-6f);
+        assertArrayEquals(new float[] {10, 1}, position(shapes, 1), 1e-6f);
+        assertArrayEquals(new float[] {10, -1}, position(shapes, 2), 1e-6f);
+        assertArrayEquals(new float[] {0, -1}, position(shapes, 3), 1e-6f);
+    }
+
+    @Test
+    public void growsAndKeepsShapes() {
+        ShapeBuilder shapes = begin();
+        for (int i = 0; i < 20; i++)
+            shapes.rect(i, 0, 1, 1);
+
+        assertEquals(80, shapes.getNumVertices());
+        assertEquals(120, shapes.getNumIndices());
+        assertEquals(0, flushes);
+        assertArrayEquals(new float[] {0, 0}, position(shapes, 0), 0f);
+        assertArrayEquals(new float[] {19, 0}, position(shapes, 76), 0f);
+        assertEquals(79, indices(shapes)[119]);
+    }
+
+    @Test
+    public void paddedIndexSize() {
+        ShapeBuilder shapes = begin();
+        shapes.triangle(0, 0, 10, 0, 0, 10);
+        assertEquals(8, shapes.getPaddedIndexSize());
+        assertEquals(0, shapes.getIndexBytes().asShortBuffer().get(3));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void needsBegin() {
+        ShapeBuilder shapes = new ShapeBuilder(16, 24, () -> {});
+        shapes.rect(0, 0, 1, 1);
+    }
+}
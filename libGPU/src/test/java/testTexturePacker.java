@@ -0,0 +1,120 @@
+import com.monstrous.graphics.g2d.TextureAtlasData;
+import com.monstrous.graphics.g2d.TexturePacker;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+public class testTexturePacker {
+
+    @Test
+    public void regionsDoNotOverlap() {
+        int padding = 2;
+        TexturePacker packer = new TexturePacker(256, 256, padding);
+        Random random = new Random(3);
+        for(int i = 0; i < 200; i++)
+            packer.add("image "+i, 4 + random.nextInt(40), 4 + random.nextInt(40), null);
+        TextureAtlasData data = packer.pack("test");
+
+        assertTrue(data.pages.size() > 1);
+        assertEquals(200, data.regions.size());
+        for(int i = 0; i < data.regions.size(); i++){
+            TextureAtlasData.Region a = data.regions.get(i);
+            assertEquals("image "+i, a.name);       // regions are in the order they were added
+            TextureAtlasData.Page page = data.pages.get(a.page);
+            assertTrue(a.x >= padding && a.y >= padding);
+            assertTrue(a.x + a.width + padding <= page.width);
+            assertTrue(a.y + a.height + padding <= page.height);
+            for(int j = i+1; j < data.regions.size(); j++){
+                TextureAtlasData.Region b = data.regions.get(j);
+                if(a.page != b.page)
+                    continue;
+                // the padded rectangles must not overlap
+                boolean separate = a.x + a.width + padding <= b.x - padding || b.x + b.width + padding <= a.x - padding
+                        || a.y + a.height + padding <= b.y - padding || b.y + b.height + padding <= a.y - padding;
+                assertTrue(separate);
+            }
+        }
+    }
+
+    @Test
+    public void pagesAreShrunkToPowerOfTwo() {
+        TexturePacker packer = new TexturePacker(1024, 1024, 1);
+        packer.add("a", 30, 10, null);
+        packer.add("b", 20, 20, null);
+        TextureAtlasData data = packer.pack("test");
+        assertEquals(1, data.pages.size());
+        assertEquals(64, data.pages.get(0).width);
+        assertEquals(32, data.pages.get(0).height);
+        assertEquals("test0.png", data.pages.get(0).fileName);
+    }
+
+    @Test
+    public void layoutRoundTrip() throws IOException {
+        TexturePacker packer = new TexturePacker(128, 128, 2);
+        Random random = new Random(7);
+        for(int i = 0; i < 50; i++)
+            packer.add("sprite "+i, 4 + random.nextInt(30), 4 + random.nextInt(30), null);
+        TextureAtlasData data = packer.pack("ui");
+
+        StringWriter writer = new StringWriter();
+        data.write(writer);
+        TextureAtlasData loaded = TextureAtlasData.read(new StringReader(writer.toString()));
+
+        assertEquals(data.pages.size(), loaded.pages.size());
+        for(int i = 0; i < data.pages.size(); i++){
+            assertEquals(data.pages.get(i).fileName, loaded.pages.get(i).fileName);
+            assertEquals(data.pages.get(i).width, loaded.pages.get(i).width);
+            assertEquals(data.pages.get(i).height, loaded.pages.get(i).height);
+        }
+        assertEquals(data.regions.size(), loaded.regions.size());
+        for(int i = 0; i < data.regions.size(); i++){
+            TextureAtlasData.Region a = data.regions.get(i);
+            TextureAtlasData.Region b = loaded.regions.get(i);
+            assertEquals(a.name, b.name);
+            assertEquals(a.page, b.page);
+            assertEquals(a.x, b.x);
+            assertEquals(a.y, b.y);
+            assertEquals(a.width, b.width);
+            assertEquals(a.height, b.height);
+        }
+        assertSame(loaded.regions.get(3), loaded.findRegion("sprite 3"));
+    }
+
+    @Test
+    public void paddingRepeatsEdgePixels() {
+        int padding = 2;
+        TexturePacker packer = new TexturePacker(64, 64, padding);
+        // 2x2 image with a different colour per pixel
+        byte[] pixels = new byte[2*2*4];
+        for(int i = 0; i < 4; i++) {
+            pixels[4*i] = (byte)(10*(i+1));
+            pixels[4*i+3] = (byte)255;
+        }
+        packer.add("quad", 2, 2, pixels);
+        TextureAtlasData data = packer.pack("test");
+        TextureAtlasData.Region region = data.regions.get(0);
+        int pageWidth = data.pages.get(0).width;
+        byte[] page = packer.getPagePixels(0);
+
+        // red channel at page position, relative to the region
+        int x0 = region.x, y0 = region.y;
+        assertEquals(10, page[4*(y0*pageWidth + x0)]);
+        assertEquals(40, page[4*((y0+1)*pageWidth + x0+1)]);
+        // corners of the padding repeat the corner pixels
+        assertEquals(10, page[4*((y0-padding)*pageWidth + x0-padding)]);
+        assertEquals(40, page[4*((y0+1+padding)*pageWidth + x0+1+padding)]);
+        // sides repeat the edge pixels
+        assertEquals(20, page[4*((y0-1)*pageWidth + x0+1)]);
+        assertEquals(30, page[4*((y0+1)*pageWidth + x0-1)]);
+
+        packer.duplicateEdges = false;
+        page = packer.getPagePixels(0);
+        assertEquals(0, page[4*((y0-1)*pageWidth + x0)]);
+        assertEquals(10, page[4*(y0*pageWidth + x0)]);
+    }
+}
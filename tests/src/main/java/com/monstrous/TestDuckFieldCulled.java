@@ -5,6 +5,7 @@ import com.monstrous.graphics.Camera;
 import com.monstrous.graphics.Color;
 import com.monstrous.graphics.PerspectiveCamera;
 import com.monstrous.graphics.g2d.SpriteBatch;
+import com.monstrous.graphics.g3d.BoundingVolumeHierarchy;
 import com.monstrous.graphics.g3d.Model;
 import com.monstrous.graphics.g3d.ModelBatch;
 import com.monstrous.graphics.g3d.ModelInstance;
@@ -15,7 +16,7 @@ import com.monstrous.math.Vector3;
 
 import java.util.ArrayList;
 
-/** Test frustum culling at ModelInstance level
+/** Test frustum culling at ModelInstance level using a bounding volume hierarchy
  *
  * // todo up/down frustum plane seem to cull too aggressively
  */
@@ -29,6 +30,8 @@ public class TestDuckFieldCulled extends ApplicationAdapter {
     private Model model;
     private ArrayList<ModelInstance> modelInstances;
     private ArrayList<ModelInstance> visibleInstances;
+    private BoundingVolumeHierarchy<ModelInstance> bvh;
+    private int[] ids;
     private Environment environment;
     private ArrayList<Matrix4> transforms;
     private BitmapFont font;
@@ -53,6 +56,14 @@ public class TestDuckFieldCulled extends ApplicationAdapter {
             modelInstances.add(modelInstance);
         }
 
+        bvh = new BoundingVolumeHierarchy<>(0.5f);
+        ids = new int[modelInstances.size()];
+        for(int i = 0; i < ids.length; i++) {
+            ModelInstance instance = modelInstances.get(i);
+            instance.update();
+            ids[i] = bvh.add(instance, instance.boundingBox);
+        }
+
         camera = new PerspectiveCamera(70, LibGPU.graphics.getWidth(), LibGPU.graphics.getHeight());
         camera.position.set(0, 1, -3);
         camera.direction.set(0,0f, 1f);
@@ -107,15 +118,16 @@ public class TestDuckFieldCulled extends ApplicationAdapter {
         rotate(transforms, LibGPU.graphics.getDeltaTime());
 
         // culling
-        visibleInstances.clear();
-        for(ModelInstance instance : modelInstances ){
+        for(int i = 0; i < ids.length; i++){
+            ModelInstance instance = modelInstances.get(i);
             instance.update();
-            if(camera.frustum.boundsInFrustum(instance.boundingBox))
-                visibleInstances.add(instance);
+            bvh.move(ids[i], instance.boundingBox);
         }
+        visibleInstances.clear();
+        bvh.query(camera.frustum, visibleInstances);
 
         modelBatch.begin(camera, environment, Color.GRAY);
-        modelBatch.render(modelInstances);
+        modelBatch.render(visibleInstances);
         modelBatch.end();
 
         batch.begin(null);
@@ -126,7 +138,7 @@ public class TestDuckFieldCulled extends ApplicationAdapter {
 
         // At the end of the frame
         if (System.nanoTime() - startTime > 1000000000) {
-            infoString = "Number of instances: "+transforms.size()+" visible instances: "+visibleInstances.size()+" draw calls: "+modelBatch.drawCalls+" emitted: "+modelBatch.numEmitted;
+            infoString = "Number of instances: "+transforms.size()+" visible instances: "+visibleInstances.size()+" nodes visited: "+bvh.nodesVisited+" draw calls: "+modelBatch.drawCalls+" emitted: "+modelBatch.numEmitted;
             fps = frames;
             frames = 0;
             startTime = System.nanoTime();
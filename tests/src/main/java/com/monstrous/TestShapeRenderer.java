@@ -43,6 +43,7 @@ public class TestShapeRenderer extends ApplicationAdapter {
 
         sr.setLineWidth(1f);
         sr.setColor(Color.WHITE);
+        sr.set(ShapeRenderer.ShapeType.Line);
         sr.triangle(50,50,100, 100, 150, 50);
 
         sr.end();